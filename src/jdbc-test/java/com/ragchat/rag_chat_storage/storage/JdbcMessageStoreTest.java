@@ -0,0 +1,136 @@
+package com.ragchat.rag_chat_storage.storage;
+
+import com.ragchat.rag_chat_storage.entity.ChatMessage;
+import com.ragchat.rag_chat_storage.exception.ResourceNotFoundException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import reactor.core.scheduler.Schedulers;
+import reactor.test.StepVerifier;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class JdbcMessageStoreTest {
+
+    private static final String CONTEXT = "Shared retrieved passage about the storage roadmap.\n\n".repeat(3);
+
+    private final MessageCodec codec = new MessageCodec(64);
+    private JdbcTemplate jdbc;
+    private JdbcMessageStore store;
+    private UUID sessionId;
+    private LocalDateTime now;
+
+    @BeforeEach
+    void setUp() {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:jdbc-store-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1;MODE=PostgreSQL");
+        new ResourceDatabasePopulator(new ClassPathResource("schema.sql")).execute(dataSource);
+        jdbc = new JdbcTemplate(dataSource);
+        ContextBlobStore contextBlobs = new ContextBlobStore(null, codec, new SimpleMeterRegistry(), 32, 1_000_000);
+        store = new JdbcMessageStore(dataSource, codec, contextBlobs, Schedulers.boundedElastic());
+        sessionId = UUID.randomUUID();
+        now = LocalDateTime.now().truncatedTo(ChronoUnit.MICROS);
+        jdbc.update("INSERT INTO chat_sessions (id, user_id, created_at, updated_at) VALUES (?, 'user', ?, ?)",
+                sessionId, now, now);
+    }
+
+    @Test
+    void insertAll_ShouldServeKeysetPagesWithContextsRestored() {
+        List<ChatMessage> messages = messages(5);
+        StepVerifier.create(store.insertAll(messages)).verifyComplete();
+
+        StepVerifier.create(store.findFirstPage(sessionId, 2).map(ChatMessage::getId))
+                .expectNext(messages.get(0).getId(), messages.get(1).getId())
+                .verifyComplete();
+        StepVerifier.create(store.findPageAfter(sessionId, messages.get(1).getCreatedAt(), messages.get(1).getId(), 10)
+                        .map(ChatMessage::getId))
+                .expectNext(messages.get(2).getId(), messages.get(3).getId(), messages.get(4).getId())
+                .verifyComplete();
+        StepVerifier.create(store.findLatest(sessionId, 1))
+                .expectNextMatches(message -> message.getId().equals(messages.get(4).getId())
+                        && CONTEXT.equals(message.getContext()))
+                .verifyComplete();
+        // One shared passage, referenced three times by each of the five messages
+        assertEquals(15L, jdbc.queryForObject("SELECT SUM(ref_count) FROM context_blobs", Long.class));
+    }
+
+    @Test
+    void streamBySessionId_ShouldPageThroughEveryMessage() {
+        List<ChatMessage> messages = messages(600);
+        StepVerifier.create(store.insertAll(messages)).verifyComplete();
+
+        StepVerifier.create(store.streamBySessionId(sessionId).map(ChatMessage::getId).collectList())
+                .expectNext(messages.stream().map(ChatMessage::getId).toList())
+                .verifyComplete();
+    }
+
+    @Test
+    void deleteBySessionId_ShouldReleaseContextBlobs() {
+        StepVerifier.create(store.insertAll(messages(3))).verifyComplete();
+
+        StepVerifier.create(store.deleteBySessionId(sessionId, 10)).expectNext(3).verifyComplete();
+        StepVerifier.create(store.deleteBySessionId(sessionId, 10)).expectNext(0).verifyComplete();
+        StepVerifier.create(store.countBySessionId(sessionId)).expectNext(0L).verifyComplete();
+        assertEquals(0, jdbc.queryForObject("SELECT COUNT(*) FROM context_blobs", Integer.class));
+    }
+
+    @Test
+    void insertAll_ShouldRejectUnknownSession() {
+        ChatMessage orphan = messages(1).get(0).toBuilder().sessionId(UUID.randomUUID()).build();
+
+        StepVerifier.create(store.insertAll(List.of(orphan))).verifyError(DataIntegrityViolationException.class);
+        assertEquals(0, jdbc.queryForObject("SELECT COUNT(*) FROM context_blobs", Integer.class));
+    }
+
+    @Test
+    void insertAllWithStats_ShouldCommitRowsAndStatsTogether() {
+        List<ChatMessage> messages = messages(3);
+        SessionStatsDelta stats = new SessionStatsDelta(sessionId, 3, messages.get(2).getCreatedAt(), "Message 2");
+
+        StepVerifier.create(store.insertAllWithStats(messages, List.of(stats))).verifyComplete();
+
+        StepVerifier.create(store.countBySessionId(sessionId)).expectNext(3L).verifyComplete();
+        assertEquals(Map.of("MESSAGE_COUNT", 3L, "LAST_MESSAGE_PREVIEW", "Message 2"), jdbc.queryForMap(
+                "SELECT message_count, last_message_preview FROM chat_sessions WHERE id = ?", sessionId));
+    }
+
+    @Test
+    void insertAllWithStats_ShouldRollBackEverything_WhenAnySessionIsMissing() {
+        List<ChatMessage> messages = messages(2);
+        UUID missing = UUID.randomUUID();
+        List<SessionStatsDelta> stats = List.of(
+                new SessionStatsDelta(sessionId, 2, messages.get(1).getCreatedAt(), "Message 1"),
+                new SessionStatsDelta(missing, 1, now, "gone"));
+
+        StepVerifier.create(store.insertAllWithStats(messages, stats)).verifyError(ResourceNotFoundException.class);
+
+        StepVerifier.create(store.countBySessionId(sessionId)).expectNext(0L).verifyComplete();
+        assertEquals(0L, jdbc.queryForObject("SELECT message_count FROM chat_sessions WHERE id = ?", Long.class, sessionId));
+        assertEquals(0, jdbc.queryForObject("SELECT COUNT(*) FROM context_blobs", Integer.class));
+    }
+
+    private List<ChatMessage> messages(int count) {
+        return IntStream.range(0, count)
+                .mapToObj(i -> ChatMessage.builder()
+                        .id(UUID.randomUUID())
+                        .sessionId(sessionId)
+                        .sender(i % 2 == 0 ? "USER" : "ASSISTANT")
+                        .content("Message " + i)
+                        .context(CONTEXT)
+                        .createdAt(now.plusNanos(i * 1000L))
+                        .build())
+                .toList();
+    }
+}
@@ -0,0 +1,55 @@
+package com.ragchat.rag_chat_storage.config;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.system.JavaVersion;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+
+// Blocking JDBC access for the jdbc message store: a small Hikari pool on the same database as
+// R2DBC, and the scheduler its calls run on. Only built with the jdbc-store Maven profile. The
+// build targets Java 17, so virtual threads are picked at runtime: on Java 21 every call gets one
+// of its own and a call waiting for a connection or for H2 parks instead of holding a platform thread.
+@Slf4j
+@Configuration
+@ConditionalOnProperty(name = "app.message-store.backend", havingValue = "jdbc")
+public class JdbcStoreConfig {
+
+    @Bean(destroyMethod = "close")
+    public HikariDataSource messageStoreDataSource(@Value("${app.message-store.jdbc.url}") String url,
+                                                   @Value("${app.message-store.jdbc.username:sa}") String username,
+                                                   @Value("${app.message-store.jdbc.password:sa}") String password,
+                                                   @Value("${app.message-store.jdbc.pool-size:10}") int poolSize,
+                                                   @Value("${app.message-store.jdbc.connection-timeout:5s}") Duration connectionTimeout) {
+        HikariConfig config = new HikariConfig();
+        config.setPoolName("message-store");
+        config.setJdbcUrl(url);
+        config.setUsername(username);
+        config.setPassword(password);
+        config.setMaximumPoolSize(poolSize);
+        config.setMinimumIdle(poolSize);
+        config.setConnectionTimeout(connectionTimeout.toMillis());
+        return new HikariDataSource(config);
+    }
+
+    @Bean(destroyMethod = "dispose")
+    public Scheduler messageStoreScheduler() {
+        if (JavaVersion.getJavaVersion().isEqualOrNewerThan(JavaVersion.TWENTY_ONE)) {
+            SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("message-store-");
+            executor.setVirtualThreads(true);
+            log.info("JDBC message store calls run on virtual threads");
+            return Schedulers.fromExecutor(executor);
+        }
+        log.warn("Virtual threads need Java 21; JDBC message store calls run on the bounded elastic pool");
+        return Schedulers.newBoundedElastic(Schedulers.DEFAULT_BOUNDED_ELASTIC_SIZE,
+                Schedulers.DEFAULT_BOUNDED_ELASTIC_QUEUESIZE, "message-store");
+    }
+}
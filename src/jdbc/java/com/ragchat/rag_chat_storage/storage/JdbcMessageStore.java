@@ -0,0 +1,320 @@
+package com.ragchat.rag_chat_storage.storage;
+
+import com.ragchat.rag_chat_storage.entity.ChatMessage;
+import com.ragchat.rag_chat_storage.exception.ResourceNotFoundException;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+
+import javax.sql.DataSource;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+
+// The chat_messages table over blocking JDBC, for comparison with the R2DBC backend on the
+// embedded engine. Rows are stored exactly as R2dbcMessageStore stores them, so either backend
+// reads the other's data. Each call runs on the message store scheduler (virtual threads on a
+// Java 21 runtime) in a JDBC transaction of its own. Sessions stay on R2DBC, except for the stats
+// an append updates, which commit in the append's transaction.
+@Component
+@ConditionalOnProperty(name = "app.message-store.backend", havingValue = "jdbc")
+public class JdbcMessageStore implements SelfCommittingMessageStore {
+
+    private static final String COLUMNS = "id, session_id, sender, content, context, created_at, content_tokens, context_tokens";
+
+    // Rows per query when streaming, so an export never holds a whole session in memory
+    private static final int STREAM_PAGE_SIZE = 256;
+
+    private static final RowMapper<ChatMessage> ROW_MAPPER = (rs, rowNum) -> ChatMessage.builder()
+            .id(rs.getObject("id", UUID.class))
+            .sessionId(rs.getObject("session_id", UUID.class))
+            .sender(rs.getString("sender"))
+            .content(rs.getString("content"))
+            .context(rs.getString("context"))
+            .createdAt(rs.getObject("created_at", LocalDateTime.class))
+            .contentTokens(rs.getObject("content_tokens", Integer.class))
+            .contextTokens(rs.getObject("context_tokens", Integer.class))
+            .build();
+
+    private final NamedParameterJdbcTemplate jdbc;
+    private final TransactionTemplate transactionTemplate;
+    private final MessageCodec codec;
+    private final ContextBlobStore contextBlobs;
+    private final Scheduler scheduler;
+
+    public JdbcMessageStore(DataSource dataSource,
+                            MessageCodec codec,
+                            ContextBlobStore contextBlobs,
+                            @Qualifier("messageStoreScheduler") Scheduler scheduler) {
+        this.jdbc = new NamedParameterJdbcTemplate(dataSource);
+        this.transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        this.codec = codec;
+        this.contextBlobs = contextBlobs;
+        this.scheduler = scheduler;
+    }
+
+    @Override
+    public Mono<Void> insertAll(List<ChatMessage> messages) {
+        return insertAllWithStats(messages, List.of());
+    }
+
+    @Override
+    public Mono<Void> insertAllWithStats(List<ChatMessage> messages, List<SessionStatsDelta> stats) {
+        return call(() -> {
+            Map<String, String> chunksByHash = new HashMap<>();
+            List<List<String>> references = new ArrayList<>();
+            MapSqlParameterSource[] rows = new MapSqlParameterSource[messages.size()];
+            for (int i = 0; i < rows.length; i++) {
+                ChatMessage message = messages.get(i);
+                String reference = contextBlobs.reference(message.getContext(), chunksByHash);
+                ChatMessage encoded = codec.encode(reference != null ? message.toBuilder().context(null).build() : message);
+                if (reference != null) {
+                    references.add(codec.blobRefs(reference));
+                    encoded.setContext(reference);
+                }
+                rows[i] = new MapSqlParameterSource()
+                        .addValue("id", encoded.getId())
+                        .addValue("sessionId", encoded.getSessionId())
+                        .addValue("sender", encoded.getSender())
+                        .addValue("content", encoded.getContent())
+                        .addValue("context", encoded.getContext())
+                        .addValue("createdAt", encoded.getCreatedAt())
+                        .addValue("contentTokens", encoded.getContentTokens())
+                        .addValue("contextTokens", encoded.getContextTokens());
+            }
+            Map<String, Long> refCounts = ContextBlobStore.countReferences(references);
+            transactionTemplate.executeWithoutResult(status -> {
+                // Stats first, as on R2DBC: the session row lock is taken before the rows that reference it
+                stats.forEach(this::incrementStats);
+                retain(chunksByHash, refCounts);
+                jdbc.batchUpdate("INSERT INTO chat_messages (" + COLUMNS + ") VALUES (:id, :sessionId, :sender, "
+                        + ":content, :context, :createdAt, :contentTokens, :contextTokens)", rows);
+            });
+            return null;
+        }).then();
+    }
+
+    @Override
+    public Flux<ChatMessage> findBySessionIdOrderByCreatedAtAsc(UUID sessionId) {
+        return streamBySessionId(sessionId);
+    }
+
+    @Override
+    public Flux<ChatMessage> findBySessionIdOrderByCreatedAtAsc(UUID sessionId, Pageable pageable) {
+        if (pageable.isUnpaged()) {
+            return streamBySessionId(sessionId);
+        }
+        return query("SELECT " + COLUMNS + " FROM chat_messages WHERE session_id = :sessionId "
+                + "ORDER BY created_at ASC, id ASC LIMIT :limit OFFSET :offset", new MapSqlParameterSource()
+                .addValue("sessionId", sessionId)
+                .addValue("limit", pageable.getPageSize())
+                .addValue("offset", pageable.getOffset()));
+    }
+
+    @Override
+    public Mono<Long> countBySessionId(UUID sessionId) {
+        return call(() -> jdbc.queryForObject("SELECT COUNT(*) FROM chat_messages WHERE session_id = :sessionId",
+                new MapSqlParameterSource("sessionId", sessionId), Long.class));
+    }
+
+    @Override
+    public Flux<ChatMessage> findFirstPage(UUID sessionId, int limit) {
+        return query("SELECT " + COLUMNS + " FROM chat_messages WHERE session_id = :sessionId "
+                + "ORDER BY created_at ASC, id ASC LIMIT :limit", new MapSqlParameterSource()
+                .addValue("sessionId", sessionId)
+                .addValue("limit", limit));
+    }
+
+    @Override
+    public Flux<ChatMessage> findPageAfter(UUID sessionId, LocalDateTime createdAt, UUID id, int limit) {
+        return query("SELECT " + COLUMNS + " FROM chat_messages WHERE session_id = :sessionId "
+                + "AND (created_at > :createdAt OR (created_at = :createdAt AND id > :id)) "
+                + "ORDER BY created_at ASC, id ASC LIMIT :limit", keyset(sessionId, createdAt, id, limit));
+    }
+
+    @Override
+    public Flux<ChatMessage> findPageBefore(UUID sessionId, LocalDateTime createdAt, UUID id, int limit) {
+        return query("SELECT " + COLUMNS + " FROM chat_messages WHERE session_id = :sessionId "
+                + "AND (created_at < :createdAt OR (created_at = :createdAt AND id < :id)) "
+                + "ORDER BY created_at DESC, id DESC LIMIT :limit", keyset(sessionId, createdAt, id, limit));
+    }
+
+    @Override
+    public Flux<ChatMessage> findLatest(UUID sessionId, int limit) {
+        return query("SELECT " + COLUMNS + " FROM chat_messages WHERE session_id = :sessionId "
+                + "ORDER BY created_at DESC, id DESC LIMIT :limit", new MapSqlParameterSource()
+                .addValue("sessionId", sessionId)
+                .addValue("limit", limit));
+    }
+
+    @Override
+    public Flux<ChatMessage> findAllById(UUID sessionId, Collection<UUID> ids) {
+        if (ids.isEmpty()) {
+            return Flux.empty();
+        }
+        return query("SELECT " + COLUMNS + " FROM chat_messages WHERE session_id = :sessionId AND id IN (:ids)",
+                new MapSqlParameterSource()
+                        .addValue("sessionId", sessionId)
+                        .addValue("ids", ids));
+    }
+
+    @Override
+    public Flux<ChatMessage> streamBySessionId(UUID sessionId) {
+        return findFirstPage(sessionId, STREAM_PAGE_SIZE).collectList()
+                .expand(page -> nextStreamPage(sessionId, page))
+                .flatMapIterable(page -> page);
+    }
+
+    @Override
+    public Flux<ChatMessage> streamAfter(UUID sessionId, LocalDateTime createdAt, UUID id) {
+        return findPageAfter(sessionId, createdAt, id, STREAM_PAGE_SIZE).collectList()
+                .expand(page -> nextStreamPage(sessionId, page))
+                .flatMapIterable(page -> page);
+    }
+
+    @Override
+    public Mono<Integer> deleteBySessionId(UUID sessionId, int limit) {
+        return call(() -> transactionTemplate.execute(status -> delete(sessionId, jdbc.queryForList(
+                "SELECT id FROM chat_messages WHERE session_id = :sessionId LIMIT :limit",
+                new MapSqlParameterSource()
+                        .addValue("sessionId", sessionId)
+                        .addValue("limit", limit), UUID.class))));
+    }
+
+    @Override
+    public Mono<Integer> deleteAllById(UUID sessionId, Collection<UUID> ids) {
+        if (ids.isEmpty()) {
+            return Mono.just(0);
+        }
+        return call(() -> transactionTemplate.execute(status -> delete(sessionId, ids)));
+    }
+
+    private Mono<List<ChatMessage>> nextStreamPage(UUID sessionId, List<ChatMessage> page) {
+        if (page.size() < STREAM_PAGE_SIZE) {
+            return Mono.empty();
+        }
+        ChatMessage last = page.get(page.size() - 1);
+        return findPageAfter(sessionId, last.getCreatedAt(), last.getId(), STREAM_PAGE_SIZE).collectList();
+    }
+
+    private Flux<ChatMessage> query(String sql, MapSqlParameterSource parameters) {
+        return call(() -> decode(jdbc.query(sql, parameters, ROW_MAPPER))).flatMapIterable(rows -> rows);
+    }
+
+    private <T> Mono<T> call(Callable<T> work) {
+        return Mono.fromCallable(work).subscribeOn(scheduler);
+    }
+
+    // Same update as ChatSessionRepository.incrementMessageStats; zero rows rolls the append back
+    private void incrementStats(SessionStatsDelta stats) {
+        int updated = jdbc.update("UPDATE chat_sessions SET "
+                + "message_count = message_count + :delta, "
+                + "last_message_preview = CASE WHEN last_message_at IS NULL OR last_message_at <= :lastMessageAt "
+                + "THEN :preview ELSE last_message_preview END, "
+                + "last_message_at = CASE WHEN last_message_at IS NULL OR last_message_at < :lastMessageAt "
+                + "THEN :lastMessageAt ELSE last_message_at END "
+                + "WHERE id = :sessionId", new MapSqlParameterSource()
+                .addValue("sessionId", stats.sessionId())
+                .addValue("delta", stats.delta())
+                .addValue("lastMessageAt", stats.lastMessageAt())
+                .addValue("preview", stats.preview()));
+        if (updated == 0) {
+            throw new ResourceNotFoundException("Session not found with ID: " + stats.sessionId());
+        }
+    }
+
+    private static MapSqlParameterSource keyset(UUID sessionId, LocalDateTime createdAt, UUID id, int limit) {
+        return new MapSqlParameterSource()
+                .addValue("sessionId", sessionId)
+                .addValue("createdAt", createdAt)
+                .addValue("id", id)
+                .addValue("limit", limit);
+    }
+
+    // Same bookkeeping as ContextBlobStore.retain, inside the insert's transaction
+    private void retain(Map<String, String> chunksByHash, Map<String, Long> refCounts) {
+        refCounts.forEach((hash, delta) -> {
+            MapSqlParameterSource parameters = new MapSqlParameterSource()
+                    .addValue("hash", hash)
+                    .addValue("delta", delta);
+            if (jdbc.update("UPDATE context_blobs SET ref_count = ref_count + :delta WHERE hash = :hash", parameters) == 0) {
+                jdbc.update("INSERT INTO context_blobs (hash, content, ref_count) VALUES (:hash, :content, :delta)",
+                        parameters.addValue("content", codec.encodeText(chunksByHash.get(hash))));
+            }
+        });
+    }
+
+    private int delete(UUID sessionId, Collection<UUID> ids) {
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        List<List<String>> references = jdbc.queryForList(
+                        "SELECT context FROM chat_messages WHERE id IN (:ids) AND context IS NOT NULL",
+                        new MapSqlParameterSource("ids", ids), String.class).stream()
+                .map(codec::blobRefs)
+                .filter(Objects::nonNull)
+                .toList();
+        Map<String, Long> refCounts = ContextBlobStore.countReferences(references);
+        refCounts.forEach((hash, delta) -> jdbc.update(
+                "UPDATE context_blobs SET ref_count = ref_count - :delta WHERE hash = :hash",
+                new MapSqlParameterSource()
+                        .addValue("hash", hash)
+                        .addValue("delta", delta)));
+        for (List<String> hashes : ContextBlobStore.partition(refCounts.keySet())) {
+            jdbc.update("DELETE FROM context_blobs WHERE ref_count <= 0 AND hash IN (:hashes)",
+                    new MapSqlParameterSource("hashes", hashes));
+        }
+        int deleted = jdbc.update("DELETE FROM chat_messages WHERE session_id = :sessionId AND id IN (:ids)",
+                new MapSqlParameterSource()
+                        .addValue("sessionId", sessionId)
+                        .addValue("ids", ids));
+        contextBlobs.evict(refCounts.keySet());
+        return deleted;
+    }
+
+    private List<ChatMessage> decode(List<ChatMessage> rows) {
+        Set<String> hashes = new HashSet<>();
+        rows.forEach(row -> {
+            List<String> refs = codec.blobRefs(row.getContext());
+            if (refs != null) {
+                hashes.addAll(refs);
+            }
+        });
+        Map<String, String> blobs = hashes.isEmpty() ? Map.of() : loadBlobs(hashes);
+        return rows.stream().map(row -> codec.decode(row, blobs)).toList();
+    }
+
+    private Map<String, String> loadBlobs(Set<String> hashes) {
+        Map<String, String> found = new HashMap<>(contextBlobs.cached(hashes));
+        List<String> missing = hashes.stream().filter(hash -> !found.containsKey(hash)).toList();
+        for (List<String> batch : ContextBlobStore.partition(missing)) {
+            jdbc.query("SELECT hash, content FROM context_blobs WHERE hash IN (:hashes)",
+                    new MapSqlParameterSource("hashes", batch), rs -> {
+                        String content = codec.decodeText(rs.getString("content"));
+                        contextBlobs.cache(rs.getString("hash"), content);
+                        found.put(rs.getString("hash"), content);
+                    });
+        }
+        if (!found.keySet().containsAll(missing)) {
+            throw new IllegalStateException("Missing context blobs for " + missing);
+        }
+        return found;
+    }
+}
@@ -0,0 +1,63 @@
+package com.ragchat.rag_chat_storage.config;
+
+import io.github.bucket4j.Bucket;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// Bucket lookup and charge from eight threads at once. One client puts every thread on the same
+// bucket; many clients spread them over the cache and exercise its eviction.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(8)
+@Fork(1)
+public class RateLimiterContentionBenchmark {
+
+    private static final RateLimit LIMIT = new RateLimit("reads", 1_000_000_000, 1_000_000_000);
+
+    @Param({"1", "1000", "100000"})
+    int clients;
+
+    @Param({"10000"})
+    long maxBuckets;
+
+    private RateLimitingService service;
+    private String[] keys;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        service = new RateLimitingService(new SimpleMeterRegistry(), LIMIT.fullRefillTime(), maxBuckets,
+                System::nanoTime);
+        keys = new String[clients];
+        for (int i = 0; i < clients; i++) {
+            keys[i] = "client-" + i;
+        }
+    }
+
+    @Benchmark
+    public Bucket resolveBucket() {
+        return service.resolveBucket(LIMIT, keys[ThreadLocalRandom.current().nextInt(clients)]);
+    }
+
+    @Benchmark
+    public boolean tryConsume() {
+        return service.resolveBucket(LIMIT, keys[ThreadLocalRandom.current().nextInt(clients)]).tryConsume(1);
+    }
+}
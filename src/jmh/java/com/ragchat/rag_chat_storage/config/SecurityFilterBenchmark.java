@@ -0,0 +1,73 @@
+package com.ragchat.rag_chat_storage.config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.TimeUnit;
+
+// API-key check, limit selection and bucket charge for one authorised read, with a chain that
+// does nothing. Limits are set high enough that no request is ever rejected.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SecurityFilterBenchmark {
+
+    private static final String API_KEY = "benchmark-key";
+    private static final int UNLIMITED = 1_000_000_000;
+    private static final WebFilterChain CHAIN = exchange -> Mono.empty();
+
+    @Param({"1", "10000"})
+    int clients;
+
+    private SecurityFilter filter;
+    private String[] addresses;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        RateLimitPolicy policy = new RateLimitPolicy(UNLIMITED, UNLIMITED, UNLIMITED, UNLIMITED, UNLIMITED, UNLIMITED,
+                DataSize.ofGigabytes(1), DataSize.ofGigabytes(1), DataSize.ofKilobytes(4), 50);
+        RateLimitingService rateLimiter = new RateLimitingService(new SimpleMeterRegistry(), policy, clients * 2L);
+        filter = new SecurityFilter(rateLimiter, policy);
+        ReflectionTestUtils.setField(filter, "apiKey", API_KEY);
+        addresses = new String[clients];
+        for (int i = 0; i < clients; i++) {
+            addresses[i] = "10." + (i >> 16 & 255) + "." + (i >> 8 & 255) + "." + (i & 255);
+        }
+    }
+
+    @Benchmark
+    public Void authorisedRead() {
+        MockServerHttpRequest request = MockServerHttpRequest.get("/api/v1/sessions/{id}/messages?size=50", "7b6f")
+                .header("X-API-Key", API_KEY)
+                .header("X-Forwarded-For", nextAddress())
+                .build();
+        return filter.filter(MockServerWebExchange.from(request), CHAIN).block();
+    }
+
+    private String nextAddress() {
+        String address = addresses[next];
+        next = (next + 1) % addresses.length;
+        return address;
+    }
+}
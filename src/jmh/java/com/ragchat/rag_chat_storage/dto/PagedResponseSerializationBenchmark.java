@@ -0,0 +1,90 @@
+package com.ragchat.rag_chat_storage.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+// JSON encoding of a message page as the paginated endpoints return it, with the mapper set up
+// the way application.yml configures the application's. Half the messages carry a context.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PagedResponseSerializationBenchmark {
+
+    @Param({"50", "200"})
+    int size;
+
+    private ObjectWriter writer;
+    private PagedResponse<MessageResponse> page;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        writer = Jackson2ObjectMapperBuilder.json()
+                .serializationInclusion(JsonInclude.Include.NON_NULL)
+                .build()
+                .writer();
+        Random random = new Random(42);
+        UUID sessionId = UUID.randomUUID();
+        LocalDateTime start = LocalDateTime.now();
+        List<MessageResponse> content = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            content.add(MessageResponse.builder()
+                    .id(UUID.randomUUID())
+                    .sessionId(sessionId)
+                    .sender(i % 2 == 0 ? "USER" : "ASSISTANT")
+                    .content(text(random, 40 + random.nextInt(200)))
+                    .context(i % 2 == 0 ? null : text(random, 200 + random.nextInt(400)))
+                    .createdAt(start.plusSeconds(i))
+                    .build());
+        }
+        page = PagedResponse.<MessageResponse>builder()
+                .content(content)
+                .size(size)
+                .first(true)
+                .last(false)
+                .nextCursor("MjAyNi0xMC0xN1QxMjowMDowMHw3YjZmYjE0Zg")
+                .build();
+    }
+
+    @Benchmark
+    public byte[] serialize() throws JsonProcessingException {
+        return writer.writeValueAsBytes(page);
+    }
+
+    private static String text(Random random, int words) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < words; i++) {
+            if (i > 0) {
+                text.append(' ');
+            }
+            int length = 2 + random.nextInt(8);
+            for (int j = 0; j < length; j++) {
+                text.append((char) ('a' + random.nextInt(26)));
+            }
+        }
+        return text.toString();
+    }
+}
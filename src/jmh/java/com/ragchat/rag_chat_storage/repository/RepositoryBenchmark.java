@@ -0,0 +1,126 @@
+package com.ragchat.rag_chat_storage.repository;
+
+import com.ragchat.rag_chat_storage.RagChatStorageApplication;
+import com.ragchat.rag_chat_storage.dto.CreateMessageRequest;
+import com.ragchat.rag_chat_storage.dto.CreateSessionRequest;
+import com.ragchat.rag_chat_storage.entity.ChatMessage;
+import com.ragchat.rag_chat_storage.entity.ChatSession;
+import com.ragchat.rag_chat_storage.service.ChatMessageService;
+import com.ragchat.rag_chat_storage.service.ChatSessionService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+// Hot repository queries against the embedded H2 database, through the beans the application
+// wires, so pooling, R2DBC mapping and metrics proxies are all included. One user with
+// SESSIONS sessions, one of which holds MESSAGES messages, is written once per trial.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RepositoryBenchmark {
+
+    private static final String USER_ID = "benchmark-user";
+    private static final int SESSIONS = 100;
+    private static final int MESSAGES = 1000;
+    private static final int BATCH = 100;
+    private static final int PAGE_SIZE = 50;
+
+    private Path dataDirectory;
+    private ConfigurableApplicationContext context;
+    private ChatSessionRepository sessionRepository;
+    private ChatMessageRepository messageRepository;
+    private UUID sessionId;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        dataDirectory = Files.createTempDirectory("repository-benchmark");
+        context = new SpringApplicationBuilder(RagChatStorageApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties(
+                        "spring.r2dbc.url=r2dbc:h2:mem:///benchmark;DB_CLOSE_DELAY=-1;MODE=PostgreSQL",
+                        "app.search.directory=" + dataDirectory.resolve("search"),
+                        "app.vectors.directory=" + dataDirectory.resolve("vectors"),
+                        "app.archive.directory=" + dataDirectory.resolve("archive"),
+                        "app.message-store.segment.directory=" + dataDirectory.resolve("segments"),
+                        "logging.level.io.r2dbc.h2=WARN",
+                        "logging.level.org.springframework.r2dbc.core.DefaultDatabaseClient=WARN",
+                        "logging.level.com.ragchat.rag_chat_storage=WARN")
+                .run();
+        sessionRepository = context.getBean(ChatSessionRepository.class);
+        messageRepository = context.getBean(ChatMessageRepository.class);
+
+        ChatSessionService sessionService = context.getBean(ChatSessionService.class);
+        ChatMessageService messageService = context.getBean(ChatMessageService.class);
+        for (int i = 0; i < SESSIONS; i++) {
+            UUID id = sessionService.createSession(new CreateSessionRequest(USER_ID, "Session " + i)).block().getId();
+            if (i == 0) {
+                sessionId = id;
+            }
+        }
+        for (int written = 0; written < MESSAGES; written += BATCH) {
+            List<CreateMessageRequest> batch = IntStream.range(written, written + BATCH)
+                    .mapToObj(i -> CreateMessageRequest.builder()
+                            .sender(i % 2 == 0 ? "USER" : "ASSISTANT")
+                            .content("Message " + i + " about the quarterly planning discussion")
+                            .context(i % 2 == 0 ? null : "retrieved passage " + i)
+                            .build())
+                    .toList();
+            messageService.createMessages(sessionId, batch).block();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        context.close();
+        FileSystemUtils.deleteRecursively(dataDirectory);
+    }
+
+    @Benchmark
+    public ChatSession findSessionById() {
+        return sessionRepository.findById(sessionId).block();
+    }
+
+    @Benchmark
+    public List<ChatSession> findFirstSessionPage() {
+        return sessionRepository.findFirstPageByUserId(USER_ID, PAGE_SIZE).collectList().block();
+    }
+
+    @Benchmark
+    public List<ChatMessage> findFirstMessagePage() {
+        return messageRepository.findFirstPage(sessionId, PAGE_SIZE).collectList().block();
+    }
+
+    @Benchmark
+    public List<ChatMessage> findLatestMessages() {
+        return messageRepository.findLatest(sessionId, 20).collectList().block();
+    }
+
+    @Benchmark
+    public Long countMessages() {
+        return messageRepository.countBySessionId(sessionId).block();
+    }
+}
@@ -0,0 +1,123 @@
+package com.ragchat.rag_chat_storage.service;
+
+import com.ragchat.rag_chat_storage.RagChatStorageApplication;
+import com.ragchat.rag_chat_storage.dto.CreateMessageRequest;
+import com.ragchat.rag_chat_storage.dto.CreateSessionRequest;
+import com.ragchat.rag_chat_storage.dto.MessageResponse;
+import com.ragchat.rag_chat_storage.dto.PagedResponse;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+// The same service operations with messages on R2DBC and on JDBC (virtual threads on Java 21),
+// from several threads at once. Sample mode reports p99 next to throughput; add -prof gc for
+// allocation per operation. Sessions stay on R2DBC in both modes. The jdbc trial needs the
+// jdbc-store profile as well: -P benchmarks,jdbc-store.
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(8)
+@Fork(1)
+public class PersistenceModeBenchmark {
+
+    private static final int MESSAGES = 1000;
+    private static final int BATCH = 100;
+    private static final int PAGE_SIZE = 50;
+    private static final String CONTEXT = "Retrieved passage on quarterly planning and the storage roadmap.\n\n".repeat(6);
+
+    @Param({"r2dbc", "jdbc"})
+    public String backend;
+
+    private Path dataDirectory;
+    private ConfigurableApplicationContext context;
+    private ChatMessageService messageService;
+    private UUID readSessionId;
+    private UUID writeSessionId;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        dataDirectory = Files.createTempDirectory("persistence-mode-benchmark");
+        String database = "persistence-" + UUID.randomUUID();
+        context = new SpringApplicationBuilder(RagChatStorageApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties(
+                        "spring.r2dbc.url=r2dbc:h2:mem:///" + database + ";DB_CLOSE_DELAY=-1;MODE=PostgreSQL",
+                        "app.message-store.backend=" + backend,
+                        "app.message-store.jdbc.url=jdbc:h2:mem:" + database + ";DB_CLOSE_DELAY=-1;MODE=PostgreSQL",
+                        "app.search.directory=" + dataDirectory.resolve("search"),
+                        "app.vectors.directory=" + dataDirectory.resolve("vectors"),
+                        "app.archive.directory=" + dataDirectory.resolve("archive"),
+                        "logging.level.io.r2dbc.h2=WARN",
+                        "logging.level.org.springframework.r2dbc.core.DefaultDatabaseClient=WARN",
+                        "logging.level.com.ragchat.rag_chat_storage=WARN")
+                .run();
+        ChatSessionService sessionService = context.getBean(ChatSessionService.class);
+        messageService = context.getBean(ChatMessageService.class);
+        readSessionId = sessionService.createSession(new CreateSessionRequest("benchmark-user", "Reads")).block().getId();
+        writeSessionId = sessionService.createSession(new CreateSessionRequest("benchmark-user", "Writes")).block().getId();
+        for (int written = 0; written < MESSAGES; written += BATCH) {
+            messageService.createMessages(readSessionId, IntStream.range(written, written + BATCH)
+                    .mapToObj(PersistenceModeBenchmark::message)
+                    .toList()).block();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        context.close();
+        FileSystemUtils.deleteRecursively(dataDirectory);
+    }
+
+    @Benchmark
+    public MessageResponse appendMessage() {
+        return messageService.createMessage(writeSessionId, message(1)).block();
+    }
+
+    @Benchmark
+    public PagedResponse<MessageResponse> firstCursorPage() {
+        return messageService.getSessionMessagesByCursor(readSessionId, null, null, PAGE_SIZE, false).block();
+    }
+
+    @Benchmark
+    public PagedResponse<MessageResponse> deepOffsetPageWithTotal() {
+        return messageService.getSessionMessagesPaginated(readSessionId, MESSAGES / PAGE_SIZE - 1, PAGE_SIZE).block();
+    }
+
+    @Benchmark
+    public List<MessageResponse> exportSession() {
+        return messageService.exportSessionMessages(readSessionId).collectList().block();
+    }
+
+    private static CreateMessageRequest message(int i) {
+        return CreateMessageRequest.builder()
+                .sender(i % 2 == 0 ? "USER" : "ASSISTANT")
+                .content("Message " + i + " about the quarterly planning discussion")
+                .context(i % 2 == 0 ? null : CONTEXT)
+                .build();
+    }
+}
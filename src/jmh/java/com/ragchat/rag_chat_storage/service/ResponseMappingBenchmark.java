@@ -0,0 +1,67 @@
+package com.ragchat.rag_chat_storage.service;
+
+import com.ragchat.rag_chat_storage.dto.MessageResponse;
+import com.ragchat.rag_chat_storage.dto.SessionResponse;
+import com.ragchat.rag_chat_storage.entity.ChatMessage;
+import com.ragchat.rag_chat_storage.entity.ChatSession;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+// Entity to response mapping done for every row a read returns
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ResponseMappingBenchmark {
+
+    private ChatMessage message;
+    private ChatSession session;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        LocalDateTime now = LocalDateTime.now();
+        message = ChatMessage.builder()
+                .id(UUID.randomUUID())
+                .sessionId(UUID.randomUUID())
+                .sender("ASSISTANT")
+                .content("The retrieved passages suggest three options. ".repeat(8))
+                .context("passage one; passage two; passage three")
+                .createdAt(now)
+                .build();
+        session = ChatSession.builder()
+                .id(UUID.randomUUID())
+                .userId("benchmark-user")
+                .title("Quarterly planning")
+                .createdAt(now)
+                .updatedAt(now)
+                .messageCount(42L)
+                .lastMessageAt(now)
+                .lastMessagePreview("The retrieved passages suggest three options.")
+                .build();
+    }
+
+    @Benchmark
+    public MessageResponse toMessageResponse() {
+        return ChatMessageService.toMessageResponse(message);
+    }
+
+    @Benchmark
+    public SessionResponse toSessionResponse() {
+        return ChatSessionService.toSessionResponse(session);
+    }
+}
@@ -0,0 +1,99 @@
+package com.ragchat.rag_chat_storage.vector;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+// Query latency of the HNSW index against an exact scan. Recall@k for each ef is measured
+// once per trial against the exact results and printed before the timed iterations.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class VectorSearchBenchmark {
+
+    private static final int QUERIES = 200;
+    private static final int K = 10;
+
+    @Param({"10000", "100000"})
+    int vectors;
+
+    @Param({"384"})
+    int dimension;
+
+    @Param({"16", "64", "256"})
+    int ef;
+
+    private VectorPartition partition;
+    private float[][] queries;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(42);
+        partition = new VectorPartition(dimension, random);
+        UUID sessionId = UUID.randomUUID();
+        for (int i = 0; i < vectors; i++) {
+            partition.insert(UUID.randomUUID(), sessionId, randomUnitVector(random));
+        }
+        queries = new float[QUERIES][];
+        for (int i = 0; i < QUERIES; i++) {
+            queries[i] = randomUnitVector(random);
+        }
+
+        int found = 0;
+        for (float[] query : queries) {
+            Set<UUID> exact = new HashSet<>();
+            partition.scan(query, K, null).forEach(neighbor -> exact.add(neighbor.messageId()));
+            for (VectorPartition.Neighbor neighbor : partition.search(query, K, ef, null)) {
+                if (exact.contains(neighbor.messageId())) {
+                    found++;
+                }
+            }
+        }
+        System.out.printf("%nrecall@%d vectors=%d dimension=%d ef=%d: %.3f%n",
+                K, vectors, dimension, ef, (double) found / (QUERIES * K));
+    }
+
+    @Benchmark
+    public List<VectorPartition.Neighbor> approximate() {
+        return partition.search(nextQuery(), K, ef, null);
+    }
+
+    @Benchmark
+    public List<VectorPartition.Neighbor> exactScan() {
+        return partition.scan(nextQuery(), K, null);
+    }
+
+    private float[] nextQuery() {
+        float[] query = queries[next];
+        next = (next + 1) % QUERIES;
+        return query;
+    }
+
+    private float[] randomUnitVector(Random random) {
+        float[] vector = new float[dimension];
+        for (int i = 0; i < dimension; i++) {
+            vector[i] = (float) random.nextGaussian();
+        }
+        return MessageVectorIndex.normalize(vector);
+    }
+}
@@ -0,0 +1,100 @@
+package com.ragchat.rag_chat_storage.load;
+
+import com.ragchat.rag_chat_storage.dto.CreateMessageRequest;
+import com.ragchat.rag_chat_storage.dto.CreateSessionRequest;
+import com.ragchat.rag_chat_storage.dto.SessionResponse;
+import com.ragchat.rag_chat_storage.service.ChatMessageService;
+import com.ragchat.rag_chat_storage.service.ChatSessionService;
+import org.springframework.context.ApplicationContext;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+// Writes the synthetic corpus, either through the API as a client would or straight through the
+// services of the in-process application, which skips HTTP and rate limits and is much faster.
+// Each session is filled in order, in the largest batches the API accepts.
+final class CorpusSeeder {
+
+    static final int BATCH_SIZE = 100;
+    private static final int CONCURRENCY = 16;
+
+    record SeededSession(String userId, UUID id, int messages) {
+    }
+
+    private interface Writer {
+
+        Mono<UUID> createSession(CreateSessionRequest request);
+
+        Mono<Void> createMessages(UUID sessionId, List<CreateMessageRequest> requests);
+    }
+
+    private final LoadOptions options;
+    private final Writer writer;
+
+    private CorpusSeeder(LoadOptions options, Writer writer) {
+        this.options = options;
+        this.writer = writer;
+    }
+
+    static CorpusSeeder overApi(LoadOptions options, WebClient client) {
+        return new CorpusSeeder(options, new Writer() {
+            @Override
+            public Mono<UUID> createSession(CreateSessionRequest request) {
+                return client.post().uri("/api/v1/sessions").bodyValue(request)
+                        .retrieve().bodyToMono(SessionResponse.class).map(SessionResponse::getId);
+            }
+
+            @Override
+            public Mono<Void> createMessages(UUID sessionId, List<CreateMessageRequest> requests) {
+                return client.post().uri("/api/v1/sessions/{id}/messages/batch", sessionId).bodyValue(requests)
+                        .retrieve().bodyToMono(new ParameterizedTypeReference<List<Object>>() { }).then();
+            }
+        });
+    }
+
+    static CorpusSeeder direct(LoadOptions options, ApplicationContext context) {
+        ChatSessionService sessions = context.getBean(ChatSessionService.class);
+        ChatMessageService messages = context.getBean(ChatMessageService.class);
+        return new CorpusSeeder(options, new Writer() {
+            @Override
+            public Mono<UUID> createSession(CreateSessionRequest request) {
+                return sessions.createSession(request).map(SessionResponse::getId);
+            }
+
+            @Override
+            public Mono<Void> createMessages(UUID sessionId, List<CreateMessageRequest> requests) {
+                return messages.createMessages(sessionId, requests).then();
+            }
+        });
+    }
+
+    List<SeededSession> seed() {
+        int sessions = options.users() * options.sessionsPerUser();
+        return Flux.range(0, sessions)
+                .flatMap(this::seedSession, CONCURRENCY)
+                .collectList()
+                .block();
+    }
+
+    private Mono<SeededSession> seedSession(int index) {
+        Random random = new Random(options.randomSeed() * 31 + index);
+        String userId = "load-user-" + index / options.sessionsPerUser();
+        return writer.createSession(new CreateSessionRequest(userId, SyntheticText.title(random)))
+                .flatMap(sessionId -> Flux.range(0, (options.messagesPerSession() + BATCH_SIZE - 1) / BATCH_SIZE)
+                        .concatMap(batch -> {
+                            int from = batch * BATCH_SIZE;
+                            int to = Math.min(options.messagesPerSession(), from + BATCH_SIZE);
+                            List<CreateMessageRequest> requests = new ArrayList<>(to - from);
+                            IntStream.range(from, to).forEach(i -> requests.add(SyntheticText.message(random, i % 2 == 0)));
+                            return writer.createMessages(sessionId, requests);
+                        })
+                        .then(Mono.just(new SeededSession(userId, sessionId, options.messagesPerSession()))));
+    }
+}
@@ -0,0 +1,118 @@
+package com.ragchat.rag_chat_storage.load;
+
+import com.ragchat.rag_chat_storage.load.Workload.Operation;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+// Per-operation latency histograms and outcome counts for one workload run. Latency runs from
+// the moment a request was due, not when it was sent, so a stalled server shows up as latency
+// instead of as fewer requests (no coordinated omission).
+final class LatencyReport {
+
+    // Status used for failures without an HTTP response
+    static final int TRANSPORT_ERROR = -1;
+
+    private static final double NANOS_PER_MILLI = 1_000_000.0;
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9};
+
+    private final String workload;
+    private final Map<Operation, Endpoint> endpoints = new EnumMap<>(Operation.class);
+    private long elapsedNanos;
+
+    LatencyReport(String workload) {
+        this.workload = workload;
+        for (Operation operation : Operation.values()) {
+            endpoints.put(operation, new Endpoint());
+        }
+    }
+
+    void record(Operation operation, long latencyNanos, int status) {
+        Endpoint endpoint = endpoints.get(operation);
+        endpoint.latency.recordValue(Math.max(0, latencyNanos));
+        if (status < 200 || status >= 400) {
+            endpoint.statuses.computeIfAbsent(status, key -> new LongAdder()).increment();
+        }
+    }
+
+    void dropped(Operation operation) {
+        endpoints.get(operation).dropped.increment();
+    }
+
+    void finish(long elapsedNanos) {
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    void print(PrintStream out) {
+        double seconds = elapsedNanos / 1e9;
+        long total = endpoints.values().stream().mapToLong(endpoint -> endpoint.latency.getTotalCount()).sum();
+        out.printf(Locale.ROOT, "%n== %s: %d requests in %.1fs (%.1f/s)%n", workload, total, seconds, total / seconds);
+        out.printf(Locale.ROOT, "%-40s %8s %7s %7s %9s %9s %9s %9s %9s %9s%n",
+                "endpoint", "count", "errors", "dropped", "req/s", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms");
+        endpoints.forEach((operation, endpoint) -> {
+            Histogram histogram = endpoint.latency;
+            if (histogram.getTotalCount() == 0 && endpoint.dropped.sum() == 0) {
+                return;
+            }
+            out.printf(Locale.ROOT, "%-40s %8d %7d %7d %9.1f", operation.label, histogram.getTotalCount(),
+                    endpoint.errors(), endpoint.dropped.sum(), histogram.getTotalCount() / seconds);
+            for (double percentile : PERCENTILES) {
+                out.printf(Locale.ROOT, " %9.2f", histogram.getValueAtPercentile(percentile) / NANOS_PER_MILLI);
+            }
+            out.printf(Locale.ROOT, " %9.2f%n", histogram.getMaxValue() / NANOS_PER_MILLI);
+            if (!endpoint.statuses.isEmpty()) {
+                StringBuilder breakdown = new StringBuilder();
+                endpoint.statuses.forEach((status, count) -> breakdown.append(status == TRANSPORT_ERROR ? "io" : status)
+                        .append(" x").append(count.sum()).append("  "));
+                out.printf("    errors: %s%n", breakdown.toString().strip());
+            }
+        });
+    }
+
+    // <workload>.csv with the printed summary, plus an HdrHistogram percentile file per operation
+    void write(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        double seconds = elapsedNanos / 1e9;
+        try (PrintStream csv = new PrintStream(Files.newOutputStream(directory.resolve(workload + ".csv")))) {
+            csv.println("endpoint,count,errors,dropped,throughput_per_s,p50_ms,p90_ms,p99_ms,p99_9_ms,max_ms");
+            for (Map.Entry<Operation, Endpoint> entry : endpoints.entrySet()) {
+                Histogram histogram = entry.getValue().latency;
+                csv.printf(Locale.ROOT, "\"%s\",%d,%d,%d,%.3f", entry.getKey().label, histogram.getTotalCount(),
+                        entry.getValue().errors(), entry.getValue().dropped.sum(), histogram.getTotalCount() / seconds);
+                for (double percentile : PERCENTILES) {
+                    csv.printf(Locale.ROOT, ",%.3f", histogram.getValueAtPercentile(percentile) / NANOS_PER_MILLI);
+                }
+                csv.printf(Locale.ROOT, ",%.3f%n", histogram.getMaxValue() / NANOS_PER_MILLI);
+            }
+        }
+        for (Map.Entry<Operation, Endpoint> entry : endpoints.entrySet()) {
+            if (entry.getValue().latency.getTotalCount() == 0) {
+                continue;
+            }
+            Path file = directory.resolve(workload + "-" + entry.getKey().name().toLowerCase(Locale.ROOT) + ".hgrm");
+            try (PrintStream out = new PrintStream(Files.newOutputStream(file))) {
+                entry.getValue().latency.outputPercentileDistribution(out, NANOS_PER_MILLI);
+            }
+        }
+    }
+
+    private static final class Endpoint {
+
+        private final Histogram latency = new ConcurrentHistogram(3);
+        private final Map<Integer, LongAdder> statuses = new ConcurrentHashMap<>();
+        private final LongAdder dropped = new LongAdder();
+
+        private long errors() {
+            return statuses.values().stream().mapToLong(LongAdder::sum).sum();
+        }
+    }
+}
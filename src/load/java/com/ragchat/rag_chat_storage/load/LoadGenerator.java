@@ -0,0 +1,142 @@
+package com.ragchat.rag_chat_storage.load;
+
+import com.ragchat.rag_chat_storage.RagChatStorageApplication;
+import com.ragchat.rag_chat_storage.load.CorpusSeeder.SeededSession;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.reactive.context.ReactiveWebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.util.FileSystemUtils;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+
+// End-to-end load test: seeds a synthetic corpus, then drives each workload at a fixed arrival
+// rate and prints per-endpoint latency percentiles, throughput and errors. Without --base-url
+// the application is started in this JVM on embedded H2 with rate limits lifted, so a run needs
+// nothing but the build. Client and server then share the machine, so compare runs made the same way,
+// for instance the same workload with --message-store=r2dbc and --message-store=jdbc (the latter
+// with -P load-test,jdbc-store).
+//
+//   mvn -P load-test test-compile exec:exec -Dload.args="--workload=append-heavy --rate=500 --duration=2m"
+public final class LoadGenerator {
+
+    private static final int UNLIMITED = 1_000_000_000;
+
+    private LoadGenerator() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        LoadOptions options;
+        try {
+            options = LoadOptions.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.print(LoadOptions.USAGE);
+            System.exit(2);
+            return;
+        }
+
+        Path dataDirectory = null;
+        ConfigurableApplicationContext context = null;
+        String baseUrl = options.baseUrl();
+        String apiKey = options.apiKey();
+        if (options.embedded()) {
+            dataDirectory = Files.createTempDirectory("rag-chat-load");
+            apiKey = apiKey != null ? apiKey : UUID.randomUUID().toString();
+            context = startEmbedded(dataDirectory, apiKey, options.messageStore());
+            baseUrl = "http://localhost:" + ((ReactiveWebServerApplicationContext) context).getWebServer().getPort();
+        }
+
+        ConnectionProvider connections = ConnectionProvider.builder("load-generator")
+                .maxConnections(options.maxInFlight())
+                .pendingAcquireMaxCount(-1)
+                .build();
+        try {
+            WebClient client = WebClient.builder()
+                    .baseUrl(baseUrl)
+                    .clientConnector(new ReactorClientHttpConnector(HttpClient.create(connections)))
+                    .defaultHeader("X-API-Key", apiKey != null ? apiKey : "")
+                    .defaultHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                    .codecs(codecs -> codecs.defaultCodecs().maxInMemorySize(16 * 1024 * 1024))
+                    .build();
+
+            List<SeededSession> sessions = seed(options, client, context);
+            if (sessions.isEmpty()) {
+                throw new IllegalStateException("Nothing to load: seed=none leaves no known sessions");
+            }
+            OpenModelRunner runner = new OpenModelRunner(client, sessions, options.maxInFlight(), options.randomSeed());
+            for (Workload workload : options.workloads()) {
+                System.out.printf("%nRunning %s at %.0f req/s: %s warmup, %s measured%n",
+                        workload.label, options.rate(), options.warmup(), options.duration());
+                if (!options.warmup().isZero()) {
+                    runner.run(workload, options.rate(), options.warmup());
+                }
+                LatencyReport report = runner.run(workload, options.rate(), options.duration());
+                report.print(System.out);
+                if (options.reportDir() != null) {
+                    report.write(options.reportDir());
+                }
+            }
+        } finally {
+            connections.dispose();
+            if (context != null) {
+                context.close();
+            }
+            if (dataDirectory != null) {
+                FileSystemUtils.deleteRecursively(dataDirectory);
+            }
+        }
+        System.exit(0);
+    }
+
+    private static List<SeededSession> seed(LoadOptions options, WebClient client, ConfigurableApplicationContext context) {
+        if (options.seed() == LoadOptions.SeedMode.NONE) {
+            return List.of();
+        }
+        int sessions = options.users() * options.sessionsPerUser();
+        System.out.printf("Seeding %d sessions of %d messages %s%n", sessions, options.messagesPerSession(),
+                options.seed() == LoadOptions.SeedMode.API ? "through the API" : "through the services");
+        long start = System.nanoTime();
+        CorpusSeeder seeder = options.seed() == LoadOptions.SeedMode.API
+                ? CorpusSeeder.overApi(options, client)
+                : CorpusSeeder.direct(options, context);
+        List<SeededSession> seeded = seeder.seed();
+        Duration took = Duration.ofNanos(System.nanoTime() - start);
+        System.out.printf("Seeded %d messages in %.1fs%n", (long) sessions * options.messagesPerSession(),
+                took.toMillis() / 1000.0);
+        return seeded;
+    }
+
+    private static ConfigurableApplicationContext startEmbedded(Path dataDirectory, String apiKey, String messageStore) {
+        String database = "load-" + UUID.randomUUID();
+        return new SpringApplicationBuilder(RagChatStorageApplication.class)
+                .properties(
+                        "server.port=0",
+                        "spring.r2dbc.url=r2dbc:h2:mem:///" + database + ";DB_CLOSE_DELAY=-1;MODE=PostgreSQL",
+                        "app.message-store.jdbc.url=jdbc:h2:mem:" + database + ";DB_CLOSE_DELAY=-1;MODE=PostgreSQL",
+                        "app.message-store.backend=" + (messageStore != null ? messageStore : "r2dbc"),
+                        "app.security.api-key=" + apiKey,
+                        "app.rate-limiting.requests-per-minute=" + UNLIMITED,
+                        "app.rate-limiting.bucket-capacity=" + UNLIMITED,
+                        "app.rate-limiting.bytes-per-minute=1TB",
+                        "app.rate-limiting.bytes-capacity=1TB",
+                        "app.search.directory=" + dataDirectory.resolve("search"),
+                        "app.vectors.directory=" + dataDirectory.resolve("vectors"),
+                        "app.archive.directory=" + dataDirectory.resolve("archive"),
+                        "app.message-store.segment.directory=" + dataDirectory.resolve("segments"),
+                        "logging.level.io.r2dbc.h2=WARN",
+                        "logging.level.org.springframework.r2dbc.core.DefaultDatabaseClient=WARN",
+                        "logging.level.com.ragchat.rag_chat_storage=WARN")
+                .run();
+    }
+}
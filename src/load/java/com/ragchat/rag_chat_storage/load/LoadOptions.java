@@ -0,0 +1,96 @@
+package com.ragchat.rag_chat_storage.load;
+
+import org.springframework.boot.convert.DurationStyle;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Command line of the load generator: --name=value pairs, all optional
+record LoadOptions(String baseUrl,
+                   String apiKey,
+                   int users,
+                   int sessionsPerUser,
+                   int messagesPerSession,
+                   SeedMode seed,
+                   List<Workload> workloads,
+                   double rate,
+                   Duration warmup,
+                   Duration duration,
+                   int maxInFlight,
+                   Path reportDir,
+                   long randomSeed,
+                   String messageStore) {
+
+    static final String USAGE = """
+            Options (--name=value):
+              base-url              service to load; omitted starts the application in-process on embedded H2
+              api-key               X-API-Key to send (default: generated for the in-process application)
+              users                 synthetic users to seed (default 20)
+              sessions-per-user     sessions per user (default 10)
+              messages-per-session  messages per seeded session (default 200)
+              seed                  api | direct | none; direct needs the in-process application (default api)
+              workload              append-heavy | list-heavy | deep-paging | all (default all)
+              rate                  requests per second started, whatever the response times (default 200)
+              warmup                load run before each workload and discarded (default 10s)
+              duration              measured time per workload (default 60s)
+              max-in-flight         arrivals beyond this many outstanding requests are dropped and counted (default 1024)
+              report-dir            also write CSV summaries and HdrHistogram percentile files here
+              random-seed           seed for the corpus and operation mix (default 42)
+              message-store         r2dbc | jdbc | segment backend for the in-process application (default r2dbc)
+            """;
+
+    enum SeedMode {
+        API, DIRECT, NONE
+    }
+
+    static LoadOptions parse(String[] args) {
+        Map<String, String> values = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Expected --name=value but got '" + arg + "'");
+            }
+            int split = arg.indexOf('=');
+            values.put(arg.substring(2, split), arg.substring(split + 1));
+        }
+        LoadOptions options = new LoadOptions(
+                values.remove("base-url"),
+                values.remove("api-key"),
+                Integer.parseInt(values.getOrDefault("users", "20")),
+                Integer.parseInt(values.getOrDefault("sessions-per-user", "10")),
+                Integer.parseInt(values.getOrDefault("messages-per-session", "200")),
+                SeedMode.valueOf(values.getOrDefault("seed", "api").toUpperCase()),
+                Workload.parse(values.getOrDefault("workload", "all")),
+                Double.parseDouble(values.getOrDefault("rate", "200")),
+                DurationStyle.detectAndParse(values.getOrDefault("warmup", "10s")),
+                DurationStyle.detectAndParse(values.getOrDefault("duration", "60s")),
+                Integer.parseInt(values.getOrDefault("max-in-flight", "1024")),
+                values.containsKey("report-dir") ? Path.of(values.get("report-dir")) : null,
+                Long.parseLong(values.getOrDefault("random-seed", "42")),
+                values.remove("message-store"));
+        List.of("users", "sessions-per-user", "messages-per-session", "seed", "workload", "rate", "warmup",
+                "duration", "max-in-flight", "report-dir", "random-seed").forEach(values::remove);
+        if (!values.isEmpty()) {
+            throw new IllegalArgumentException("Unknown options " + values.keySet());
+        }
+        if (options.rate <= 0 || options.users < 1 || options.sessionsPerUser < 1 || options.maxInFlight < 1) {
+            throw new IllegalArgumentException("rate, users, sessions-per-user and max-in-flight must be positive");
+        }
+        if (options.messageStore != null && options.baseUrl != null) {
+            throw new IllegalArgumentException("message-store configures the in-process application; drop base-url");
+        }
+        if (options.messageStore != null && !List.of("r2dbc", "jdbc", "segment").contains(options.messageStore)) {
+            throw new IllegalArgumentException("message-store must be r2dbc, jdbc or segment");
+        }
+        if (options.seed == SeedMode.DIRECT && options.baseUrl != null) {
+            throw new IllegalArgumentException("seed=direct writes through the in-process application; drop base-url");
+        }
+        return options;
+    }
+
+    boolean embedded() {
+        return baseUrl == null;
+    }
+}
@@ -0,0 +1,131 @@
+package com.ragchat.rag_chat_storage.load;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.ragchat.rag_chat_storage.load.CorpusSeeder.SeededSession;
+import com.ragchat.rag_chat_storage.load.Workload.Operation;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+// Open-model driver: requests start on a fixed schedule at the target rate whether or not earlier
+// ones have finished, the way independent users arrive. Arrivals that find max-in-flight requests
+// outstanding are dropped and counted rather than queued, so an overloaded server is reported as
+// such instead of silently slowing the offered load down.
+final class OpenModelRunner {
+
+    private static final int PAGE_SIZE = 50;
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+    private static final Duration DRAIN_TIMEOUT = Duration.ofSeconds(60);
+
+    private final WebClient client;
+    private final List<SeededSession> sessions;
+    private final int maxInFlight;
+    private final Random random;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    // Next keyset cursor per session for the deep-paging walk; absent means start from the top
+    private final Map<UUID, String> cursors = new ConcurrentHashMap<>();
+
+    OpenModelRunner(WebClient client, List<SeededSession> sessions, int maxInFlight, long randomSeed) {
+        this.client = client;
+        this.sessions = sessions;
+        this.maxInFlight = maxInFlight;
+        this.random = new Random(randomSeed);
+    }
+
+    LatencyReport run(Workload workload, double rate, Duration duration) {
+        LatencyReport report = new LatencyReport(workload.label);
+        double intervalNanos = 1e9 / rate;
+        long start = System.nanoTime();
+        long end = start + duration.toNanos();
+        for (long arrival = 0; ; arrival++) {
+            long due = start + (long) (arrival * intervalNanos);
+            if (due >= end) {
+                break;
+            }
+            long wait = due - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            Operation operation = workload.pick(random);
+            SeededSession session = sessions.get(random.nextInt(sessions.size()));
+            if (inFlight.incrementAndGet() > maxInFlight) {
+                inFlight.decrementAndGet();
+                report.dropped(operation);
+                continue;
+            }
+            execute(operation, session)
+                    .timeout(REQUEST_TIMEOUT)
+                    .onErrorReturn(LatencyReport.TRANSPORT_ERROR)
+                    .subscribe(status -> {
+                        report.record(operation, System.nanoTime() - due, status);
+                        inFlight.decrementAndGet();
+                    });
+        }
+        drain();
+        report.finish(System.nanoTime() - start);
+        return report;
+    }
+
+    private void drain() {
+        long deadline = System.nanoTime() + DRAIN_TIMEOUT.toNanos();
+        while (inFlight.get() > 0 && System.nanoTime() < deadline) {
+            LockSupport.parkNanos(Duration.ofMillis(10).toNanos());
+        }
+    }
+
+    private Mono<Integer> execute(Operation operation, SeededSession session) {
+        UUID id = session.id();
+        return switch (operation) {
+            case APPEND -> client.post().uri("/api/v1/sessions/{id}/messages", id)
+                    .bodyValue(SyntheticText.message(new Random(random.nextLong()), random.nextBoolean()))
+                    .exchangeToMono(OpenModelRunner::drainBody);
+            case LIST_SESSIONS -> client.get()
+                    .uri("/api/v1/sessions?userId={userId}&size=20&includeTotal=false", session.userId())
+                    .exchangeToMono(OpenModelRunner::drainBody);
+            case FIRST_PAGE -> client.get()
+                    .uri("/api/v1/sessions/{id}/messages?size={size}&includeTotal=false", id, PAGE_SIZE)
+                    .exchangeToMono(OpenModelRunner::drainBody);
+            case RECENT -> client.get().uri("/api/v1/sessions/{id}/messages/recent?limit=20", id)
+                    .exchangeToMono(OpenModelRunner::drainBody);
+            case DEEP_OFFSET -> client.get()
+                    .uri("/api/v1/sessions/{id}/messages?page={page}&size={size}", id, lastPage(session), PAGE_SIZE)
+                    .exchangeToMono(OpenModelRunner::drainBody);
+            case DEEP_CURSOR -> nextCursorPage(id);
+        };
+    }
+
+    // Offset paging to one of the last pages, the case keyset paging exists to avoid
+    private int lastPage(SeededSession session) {
+        int pages = Math.max(1, (session.messages() + PAGE_SIZE - 1) / PAGE_SIZE);
+        return Math.max(0, pages - 1 - random.nextInt(Math.min(3, pages)));
+    }
+
+    private Mono<Integer> nextCursorPage(UUID id) {
+        String cursor = cursors.remove(id);
+        // The first page comes from offset paging, which also hands out the cursor to continue from
+        WebClient.RequestHeadersSpec<?> request = cursor == null
+                ? client.get().uri("/api/v1/sessions/{id}/messages?size={size}&includeTotal=false", id, PAGE_SIZE)
+                : client.get().uri("/api/v1/sessions/{id}/messages?size={size}&after={after}", id, PAGE_SIZE, cursor);
+        return request.exchangeToMono(response -> response.bodyToMono(JsonNode.class)
+                .doOnNext(page -> {
+                    JsonNode next = page.path("nextCursor");
+                    if (next.isTextual()) {
+                        cursors.put(id, next.asText());
+                    }
+                })
+                .then(Mono.just(response.statusCode().value())));
+    }
+
+    private static Mono<Integer> drainBody(ClientResponse response) {
+        return response.releaseBody().thenReturn(response.statusCode().value());
+    }
+}
@@ -0,0 +1,54 @@
+package com.ragchat.rag_chat_storage.load;
+
+import com.ragchat.rag_chat_storage.dto.CreateMessageRequest;
+
+import java.util.Random;
+
+// Chat-like text of realistic length: short user turns, longer assistant answers, and retrieved
+// context of a few kilobytes on assistant turns. Lengths are log-normal and capped at the API limits.
+final class SyntheticText {
+
+    private static final String[] WORDS = ("the a of to and in is that for it with as on be this are by not or from at "
+            + "which an have can will more if about all their one has also when there been what so these into some "
+            + "would other than then its only could time may first two after any most use such where over new like "
+            + "data model query session user context retrieval answer document vector index latency request service "
+            + "storage message chunk embedding source passage summary report policy customer account order invoice "
+            + "quarter revenue forecast team project deadline release feature issue error configuration deployment "
+            + "cluster database cache throughput memory network").split(" ");
+
+    private static final int MAX_CONTENT = 10_000;
+    private static final int MAX_CONTEXT = 5_000;
+
+    private SyntheticText() {
+    }
+
+    static CreateMessageRequest message(Random random, boolean fromUser) {
+        return CreateMessageRequest.builder()
+                .sender(fromUser ? "USER" : "ASSISTANT")
+                .content(fromUser ? text(random, 160, MAX_CONTENT) : text(random, 900, MAX_CONTENT))
+                .context(fromUser ? null : text(random, 2500, MAX_CONTEXT))
+                .build();
+    }
+
+    static String title(Random random) {
+        return capitalise(text(random, 24, 80));
+    }
+
+    // Around median characters, spread log-normally
+    static String text(Random random, int median, int max) {
+        int length = (int) Math.min(max, Math.max(8, median * Math.exp(random.nextGaussian() * 0.6)));
+        StringBuilder text = new StringBuilder(length + 16);
+        while (text.length() < length) {
+            if (!text.isEmpty()) {
+                text.append(random.nextInt(12) == 0 ? ". " : " ");
+            }
+            text.append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        text.setLength(length);
+        return text.toString().strip();
+    }
+
+    private static String capitalise(String text) {
+        return text.isEmpty() ? text : Character.toUpperCase(text.charAt(0)) + text.substring(1);
+    }
+}
@@ -0,0 +1,65 @@
+package com.ragchat.rag_chat_storage.load;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+// Operation mixes, each a weighted draw per arrival
+enum Workload {
+
+    APPEND_HEAVY("append-heavy", new Operation[]{Operation.APPEND, Operation.RECENT, Operation.FIRST_PAGE, Operation.LIST_SESSIONS},
+            new int[]{70, 15, 10, 5}),
+    LIST_HEAVY("list-heavy", new Operation[]{Operation.LIST_SESSIONS, Operation.FIRST_PAGE, Operation.RECENT, Operation.APPEND},
+            new int[]{40, 35, 15, 10}),
+    DEEP_PAGING("deep-paging", new Operation[]{Operation.DEEP_OFFSET, Operation.DEEP_CURSOR, Operation.APPEND},
+            new int[]{45, 45, 10});
+
+    // One request type, labelled by route so results group like the server's own metrics
+    enum Operation {
+        APPEND("POST /sessions/{id}/messages"),
+        LIST_SESSIONS("GET /sessions?userId"),
+        FIRST_PAGE("GET /sessions/{id}/messages"),
+        RECENT("GET /sessions/{id}/messages/recent"),
+        DEEP_OFFSET("GET /sessions/{id}/messages?page=last"),
+        DEEP_CURSOR("GET /sessions/{id}/messages?after");
+
+        final String label;
+
+        Operation(String label) {
+            this.label = label;
+        }
+    }
+
+    final String label;
+    private final Operation[] operations;
+    private final int[] cumulativeWeights;
+
+    Workload(String label, Operation[] operations, int[] weights) {
+        this.label = label;
+        this.operations = operations;
+        this.cumulativeWeights = weights.clone();
+        Arrays.parallelPrefix(cumulativeWeights, Integer::sum);
+    }
+
+    Operation pick(Random random) {
+        int draw = random.nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+        for (int i = 0; i < operations.length; i++) {
+            if (draw < cumulativeWeights[i]) {
+                return operations[i];
+            }
+        }
+        return operations[operations.length - 1];
+    }
+
+    static List<Workload> parse(String value) {
+        if (value.equals("all")) {
+            return List.of(values());
+        }
+        return Arrays.stream(value.split(","))
+                .map(name -> Arrays.stream(values())
+                        .filter(workload -> workload.label.equals(name.trim()))
+                        .findFirst()
+                        .orElseThrow(() -> new IllegalArgumentException("Unknown workload '" + name + "'")))
+                .toList();
+    }
+}
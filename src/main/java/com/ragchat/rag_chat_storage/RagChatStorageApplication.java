@@ -3,8 +3,10 @@ package com.ragchat.rag_chat_storage;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.data.r2dbc.config.EnableR2dbcAuditing;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @EnableR2dbcAuditing
+@EnableScheduling
 @SpringBootApplication
 public class RagChatStorageApplication {
 
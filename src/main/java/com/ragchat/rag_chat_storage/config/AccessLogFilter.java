@@ -0,0 +1,128 @@
+package com.ragchat.rag_chat_storage.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+// One JSON access record per request on the "access" logger, replacing per-layer INFO lines.
+// Records are sampled: each status class has its own rate (info for 2xx/3xx, warn for 4xx, error
+// for 5xx) and routes can override the info rate, so noisy healthy routes can be thinned without
+// losing failures. Rows are those returned by the request's data-access calls.
+@Component
+@Order(-3)
+@ConditionalOnProperty(name = "app.access-log.enabled", havingValue = "true", matchIfMissing = true)
+public class AccessLogFilter implements WebFilter {
+
+    static final String ROWS_KEY = AccessLogFilter.class.getName() + ".rows";
+    static final String ROWS_COUNTED_KEY = AccessLogFilter.class.getName() + ".rowsCounted";
+
+    private static final Logger accessLog = LoggerFactory.getLogger("access");
+
+    private final double infoRate;
+    private final double warnRate;
+    private final double errorRate;
+    private final Map<String, Double> routeRates;
+
+    public AccessLogFilter(@Value("${app.access-log.sample-rate.info:1.0}") double infoRate,
+                           @Value("${app.access-log.sample-rate.warn:1.0}") double warnRate,
+                           @Value("${app.access-log.sample-rate.error:1.0}") double errorRate,
+                           @Value("${app.access-log.route-sample-rates:}") String routeRates) {
+        this.infoRate = infoRate;
+        this.warnRate = warnRate;
+        this.errorRate = errorRate;
+        this.routeRates = parseRouteRates(routeRates);
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        long start = System.nanoTime();
+        AtomicLong rows = new AtomicLong();
+        return chain.filter(exchange)
+                .contextWrite(context -> context.put(ROWS_KEY, rows))
+                .doOnSuccess(done -> record(exchange, start, rows, exchange.getResponse().getStatusCode()))
+                .doOnError(error -> {
+                    ServerHttpResponse response = exchange.getResponse();
+                    if (response.isCommitted()) {
+                        record(exchange, start, rows, response.getStatusCode());
+                        return;
+                    }
+                    // The error response is written after this filter; log once its status is set
+                    response.beforeCommit(() -> Mono.fromRunnable(() ->
+                            record(exchange, start, rows, response.getStatusCode())));
+                });
+    }
+
+    private void record(ServerWebExchange exchange, long start, AtomicLong rows, HttpStatusCode status) {
+        int code = status != null ? status.value() : 200;
+        String route = PayloadMetricsFilter.uriOf(exchange);
+        double rate;
+        if (code >= 500) {
+            rate = accessLog.isErrorEnabled() ? errorRate : 0;
+        } else if (code >= 400) {
+            rate = accessLog.isWarnEnabled() ? warnRate : 0;
+        } else {
+            rate = accessLog.isInfoEnabled() ? routeRates.getOrDefault(route, infoRate) : 0;
+        }
+        if (rate <= 0 || (rate < 1 && ThreadLocalRandom.current().nextDouble() >= rate)) {
+            return;
+        }
+        String json = toJson(exchange, route, code, System.nanoTime() - start, rows.get(), rate);
+        if (code >= 500) {
+            accessLog.error(json);
+        } else if (code >= 400) {
+            accessLog.warn(json);
+        } else {
+            accessLog.info(json);
+        }
+    }
+
+    // Every field is a number or comes from code and route patterns, so only quotes need escaping
+    static String toJson(ServerWebExchange exchange, String route, int status, long latencyNanos, long rows, double rate) {
+        return "{\"ts\":\"" + Instant.now() + '"'
+                + ",\"method\":\"" + exchange.getRequest().getMethod().name() + '"'
+                + ",\"route\":\"" + route.replace("\"", "\\\"") + '"'
+                + ",\"status\":" + status
+                + ",\"latency_ms\":" + latencyNanos / 1000 / 1000.0
+                + ",\"request_bytes\":" + bytes(exchange, PayloadMetricsFilter.REQUEST_BYTES_ATTRIBUTE)
+                + ",\"response_bytes\":" + bytes(exchange, PayloadMetricsFilter.RESPONSE_BYTES_ATTRIBUTE)
+                + ",\"rows\":" + rows
+                + ",\"sample_rate\":" + rate
+                + '}';
+    }
+
+    private static long bytes(ServerWebExchange exchange, String attribute) {
+        AtomicLong bytes = exchange.getAttribute(attribute);
+        return bytes != null ? bytes.get() : 0;
+    }
+
+    // "route=rate" pairs separated by commas, routes as mapped (e.g. /api/v1/health/ping=0)
+    static Map<String, Double> parseRouteRates(String value) {
+        Map<String, Double> rates = new HashMap<>();
+        for (String pair : value.split(",")) {
+            if (pair.isBlank()) {
+                continue;
+            }
+            int split = pair.lastIndexOf('=');
+            if (split <= 0) {
+                throw new IllegalArgumentException("app.access-log.route-sample-rates entries must be route=rate: " + pair);
+            }
+            rates.put(pair.substring(0, split).trim(), Double.parseDouble(pair.substring(split + 1).trim()));
+        }
+        return Map.copyOf(rates);
+    }
+}
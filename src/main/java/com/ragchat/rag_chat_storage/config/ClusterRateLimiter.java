@@ -0,0 +1,280 @@
+package com.ragchat.rag_chat_storage.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.github.bucket4j.ConsumptionProbe;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Token buckets shared by every replica through the rate_limit_buckets table. Nodes lease a few
+// tokens at a time and serve requests from the lease in memory, so most requests never reach the
+// database. Tokens are only ever moved, never created, so the cluster cannot exceed the limit;
+// at worst a few leased tokens sit unused on another node until their lease expires.
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "app.rate-limiting.mode", havingValue = "cluster")
+public class ClusterRateLimiter implements RateLimiter {
+
+    private static final int MAX_KEY_LENGTH = 255;
+    private static final int MAX_CONFLICT_RETRIES = 8;
+    private static final Duration CONFLICT_BACKOFF = Duration.ofMillis(2);
+
+    private final DatabaseClient databaseClient;
+    private final Clock clock;
+    private final long idleTimeoutMillis;
+    private final long leaseSize;
+    private final long leaseTtlMillis;
+    private final Cache<String, Lease> leases;
+    private final Counter sharedStoreTrips;
+
+    @Autowired
+    public ClusterRateLimiter(DatabaseClient databaseClient,
+                              MeterRegistry meterRegistry,
+                              RateLimitPolicy policy,
+                              @Value("${app.rate-limiting.max-buckets:100000}") long maxBuckets,
+                              @Value("${app.rate-limiting.cluster.lease-size:10}") int leaseSize,
+                              @Value("${app.rate-limiting.cluster.lease-ttl:2s}") Duration leaseTtl) {
+        this(databaseClient, meterRegistry, policy.longestFullRefillTime(), maxBuckets, leaseSize, leaseTtl, Clock.systemUTC());
+    }
+
+    ClusterRateLimiter(DatabaseClient databaseClient, MeterRegistry meterRegistry, Duration idleTimeout,
+                       long maxBuckets, int leaseSize, Duration leaseTtl, Clock clock) {
+        this.databaseClient = databaseClient;
+        this.clock = clock;
+        this.idleTimeoutMillis = idleTimeout.toMillis();
+        this.leaseSize = leaseSize;
+        this.leaseTtlMillis = leaseTtl.toMillis();
+        // An evicted lease just strands its tokens until the shared bucket refills
+        this.leases = Caffeine.newBuilder()
+                .maximumSize(maxBuckets)
+                .expireAfterAccess(leaseTtl.multipliedBy(2))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, leases, "rateLimitLeases");
+        this.sharedStoreTrips = Counter.builder("ratelimit.shared.requests")
+                .description("Round trips to the shared rate-limit bucket store")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public Mono<ConsumptionProbe> tryConsume(RateLimit limit, String key, long tokens) {
+        String storageKey = storageKey(limit, key);
+        Lease lease = leases.get(storageKey, k -> new Lease());
+        long now = clock.millis();
+        if (tokens <= 0) {
+            return Mono.just(ConsumptionProbe.consumed(lease.remaining(now), 0));
+        }
+        if (lease.tryTake(tokens, now)) {
+            return Mono.just(ConsumptionProbe.consumed(lease.remaining(now), 0));
+        }
+        return acquire(limit, storageKey, lease, tokens);
+    }
+
+    // Takes the missing tokens plus a fresh lease from the shared bucket, returning expired leftovers
+    private Mono<ConsumptionProbe> acquire(RateLimit limit, String key, Lease lease, long tokens) {
+        return Mono.defer(() -> {
+                    sharedStoreTrips.increment();
+                    long now = clock.millis();
+                    long returned = lease.drainIfExpired(now);
+                    return databaseClient.sql("SELECT tokens, refilled_at FROM rate_limit_buckets WHERE client_key = :key")
+                            .bind("key", key)
+                            .map(row -> new SharedBucket(row.get("tokens", Long.class), row.get("refilled_at", Long.class)))
+                            .one()
+                            .flatMap(bucket -> update(limit, key, bucket, lease, tokens, returned, now))
+                            .switchIfEmpty(Mono.defer(() -> insert(limit, key, lease, tokens, now)))
+                            // Drained leftovers go back on the lease so a retry can return them
+                            .doOnError(e -> lease.giveBack(returned));
+                })
+                // Jittered backoff spreads out nodes that keep colliding on a hot key
+                .retryWhen(Retry.backoff(MAX_CONFLICT_RETRIES, CONFLICT_BACKOFF).filter(ConcurrentBucketUpdate.class::isInstance));
+    }
+
+    private Mono<ConsumptionProbe> update(RateLimit limit, String key, SharedBucket stored, Lease lease, long tokens,
+                                          long returned, long now) {
+        SharedBucket current = refill(limit, stored, now, returned);
+        if (current.tokens() < tokens) {
+            return writeReturnedTokens(key, stored, current, returned)
+                    .thenReturn(rejected(limit, current, tokens, now));
+        }
+        long granted = tokens + leaseExtra(current.tokens() - tokens, tokens);
+        SharedBucket next = new SharedBucket(current.tokens() - granted, current.refilledAt());
+        return databaseClient.sql("UPDATE rate_limit_buckets SET tokens = :tokens, refilled_at = :refilledAt "
+                        + "WHERE client_key = :key AND tokens = :oldTokens AND refilled_at = :oldRefilledAt")
+                .bind("tokens", next.tokens())
+                .bind("refilledAt", next.refilledAt())
+                .bind("key", key)
+                .bind("oldTokens", stored.tokens())
+                .bind("oldRefilledAt", stored.refilledAt())
+                .fetch().rowsUpdated()
+                .flatMap(updated -> updated > 0
+                        ? Mono.just(granted(lease, tokens, granted, next.tokens(), now))
+                        : Mono.error(new ConcurrentBucketUpdate()));
+    }
+
+    private Mono<ConsumptionProbe> insert(RateLimit limit, String key, Lease lease, long tokens, long now) {
+        // A client unknown to the cluster starts with a full bucket
+        SharedBucket current = new SharedBucket(limit.capacity(), now);
+        if (current.tokens() < tokens) {
+            return Mono.just(rejected(limit, current, tokens, now));
+        }
+        long granted = tokens + leaseExtra(current.tokens() - tokens, tokens);
+        long left = current.tokens() - granted;
+        return databaseClient.sql("INSERT INTO rate_limit_buckets (client_key, tokens, refilled_at) VALUES (:key, :tokens, :refilledAt)")
+                .bind("key", key)
+                .bind("tokens", left)
+                .bind("refilledAt", now)
+                .fetch().rowsUpdated()
+                .map(inserted -> granted(lease, tokens, granted, left, now))
+                .onErrorMap(DataIntegrityViolationException.class, e -> new ConcurrentBucketUpdate());
+    }
+
+    private ConsumptionProbe rejected(RateLimit limit, SharedBucket current, long tokens, long now) {
+        return ConsumptionProbe.rejected(current.tokens(), nanosUntil(limit, current, tokens, now),
+                nanosUntil(limit, current, limit.capacity(), now));
+    }
+
+    // Refills in whole intervals, the same way Bucket4j's intervally refill works
+    private static SharedBucket refill(RateLimit limit, SharedBucket bucket, long now, long returned) {
+        long intervalMillis = RateLimit.REFILL_INTERVAL.toMillis();
+        long intervals = Math.max(0, (now - bucket.refilledAt()) / intervalMillis);
+        long refilled = bucket.tokens() + returned + intervals * limit.tokensPerMinute();
+        return new SharedBucket(Math.min(limit.capacity(), refilled), bucket.refilledAt() + intervals * intervalMillis);
+    }
+
+    private static long nanosUntil(RateLimit limit, SharedBucket bucket, long wanted, long now) {
+        long missing = wanted - bucket.tokens();
+        if (missing <= 0) {
+            return 0;
+        }
+        long intervals = (missing + limit.tokensPerMinute() - 1) / limit.tokensPerMinute();
+        long readyAt = bucket.refilledAt() + intervals * RateLimit.REFILL_INTERVAL.toMillis();
+        return Duration.ofMillis(Math.max(0, readyAt - now)).toNanos();
+    }
+
+    // Persists expired lease leftovers even when the request itself is rejected; lost on a race
+    private Mono<Long> writeReturnedTokens(String key, SharedBucket stored, SharedBucket current, long returned) {
+        if (returned == 0) {
+            return Mono.just(0L);
+        }
+        return databaseClient.sql("UPDATE rate_limit_buckets SET tokens = :tokens, refilled_at = :refilledAt "
+                        + "WHERE client_key = :key AND tokens = :oldTokens AND refilled_at = :oldRefilledAt")
+                .bind("tokens", current.tokens())
+                .bind("refilledAt", current.refilledAt())
+                .bind("key", key)
+                .bind("oldTokens", stored.tokens())
+                .bind("oldRefilledAt", stored.refilledAt())
+                .fetch().rowsUpdated();
+    }
+
+    private ConsumptionProbe granted(Lease lease, long tokens, long granted, long sharedLeft, long now) {
+        lease.renew(granted - tokens, sharedLeft, now + leaseTtlMillis);
+        return ConsumptionProbe.consumed(lease.remaining(now), 0);
+    }
+
+    // Leases cover leaseSize more requests of the same cost, but only a share of what is left,
+    // so nodes stop hoarding as the bucket runs low
+    private long leaseExtra(long available, long cost) {
+        return Math.min(leaseSize * cost, available / 4);
+    }
+
+    // A bucket idle for a full refill period is full again, which is what a missing row means
+    @Scheduled(fixedDelayString = "${app.rate-limiting.cluster.purge-interval:PT5M}")
+    public void purgeIdleBuckets() {
+        long cutoff = clock.millis() - idleTimeoutMillis;
+        databaseClient.sql("DELETE FROM rate_limit_buckets WHERE refilled_at < :cutoff")
+                .bind("cutoff", cutoff)
+                .fetch().rowsUpdated()
+                .doOnNext(purged -> {
+                    if (purged > 0) {
+                        log.debug("Purged {} idle rate-limit buckets", purged);
+                    }
+                })
+                .onErrorResume(e -> {
+                    log.warn("Failed to purge idle rate-limit buckets", e);
+                    return Mono.empty();
+                })
+                .block();
+    }
+
+    // Client keys come from request headers; long ones are hashed to fit the key column
+    static String storageKey(RateLimit limit, String key) {
+        String prefix = limit.name() + ":";
+        if (prefix.length() + key.length() <= MAX_KEY_LENGTH) {
+            return prefix + key;
+        }
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return prefix + "sha256:" + HexFormat.of().formatHex(digest.digest(key.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private record SharedBucket(long tokens, long refilledAt) {
+    }
+
+    // Tokens this node holds for one client, taken lock-free on the request path
+    private static final class Lease {
+        private final AtomicLong tokens = new AtomicLong();
+        private volatile long expiresAt;
+        private volatile long sharedRemaining = -1;
+
+        boolean tryTake(long wanted, long now) {
+            if (now >= expiresAt) {
+                return false;
+            }
+            long current;
+            do {
+                current = tokens.get();
+                if (current < wanted) {
+                    return false;
+                }
+            } while (!tokens.compareAndSet(current, current - wanted));
+            return true;
+        }
+
+        long drainIfExpired(long now) {
+            return now >= expiresAt ? tokens.getAndSet(0) : 0;
+        }
+
+        void giveBack(long drained) {
+            tokens.addAndGet(drained);
+        }
+
+        void renew(long extra, long shared, long newExpiry) {
+            tokens.addAndGet(extra);
+            sharedRemaining = shared;
+            expiresAt = newExpiry;
+        }
+
+        long remaining(long now) {
+            long local = now < expiresAt ? tokens.get() : 0;
+            return Math.max(0, sharedRemaining) + local;
+        }
+    }
+
+    private static final class ConcurrentBucketUpdate extends RuntimeException {
+        ConcurrentBucketUpdate() {
+            super("Shared rate-limit bucket changed concurrently", null, false, false);
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.ragchat.rag_chat_storage.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.r2dbc.spi.Connection;
+import io.r2dbc.spi.ConnectionFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.r2dbc.connection.DelegatingConnectionFactory;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.TimeUnit;
+
+// Times how long callers wait for a connection, which is pool queueing once the pool is drained.
+// Disposing passes through to the pool, whose bean is destroyed through dispose().
+public class MeteredConnectionFactory extends DelegatingConnectionFactory implements Disposable {
+
+    private final ObjectProvider<MeterRegistry> meterRegistry;
+    private volatile Timer acquired;
+    private volatile Timer failed;
+
+    public MeteredConnectionFactory(ConnectionFactory target, ObjectProvider<MeterRegistry> meterRegistry) {
+        super(target);
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public Mono<? extends Connection> create() {
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            return super.create()
+                    .doOnSuccess(connection -> timer(true).record(System.nanoTime() - start, TimeUnit.NANOSECONDS))
+                    .doOnError(ex -> timer(false).record(System.nanoTime() - start, TimeUnit.NANOSECONDS));
+        });
+    }
+
+    @Override
+    public void dispose() {
+        if (getTargetConnectionFactory() instanceof Disposable disposable) {
+            disposable.dispose();
+        }
+    }
+
+    @Override
+    public boolean isDisposed() {
+        return getTargetConnectionFactory() instanceof Disposable disposable && disposable.isDisposed();
+    }
+
+    // Registered on first use so wrapping the factory does not pull the registry in early
+    private Timer timer(boolean success) {
+        Timer timer = success ? acquired : failed;
+        if (timer == null) {
+            timer = Timer.builder("db.connection.acquire")
+                    .description("Time to obtain a database connection")
+                    .tag("outcome", success ? "success" : "error")
+                    .register(meterRegistry.getObject());
+            if (success) {
+                acquired = timer;
+            } else {
+                failed = timer;
+            }
+        }
+        return timer;
+    }
+}
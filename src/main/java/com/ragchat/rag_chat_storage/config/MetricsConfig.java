@@ -0,0 +1,16 @@
+package com.ragchat.rag_chat_storage.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class MetricsConfig {
+
+    // Static so the post-processor is created before, and independently of, the beans it wraps
+    @Bean
+    public static OperationMetricsPostProcessor operationMetricsPostProcessor(ObjectProvider<MeterRegistry> meterRegistry) {
+        return new OperationMetricsPostProcessor(meterRegistry);
+    }
+}
@@ -0,0 +1,213 @@
+package com.ragchat.rag_chat_storage.config;
+
+import com.ragchat.rag_chat_storage.storage.MessageStore;
+import io.github.bucket4j.ConsumptionProbe;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.r2dbc.spi.ConnectionFactory;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.data.repository.Repository;
+import org.springframework.stereotype.Service;
+import org.springframework.util.ClassUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+import reactor.util.context.Context;
+import reactor.util.context.ContextView;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Wraps services, repositories, the message store and rate limiters in proxies that time every
+// call into "app.operation", tagged by layer, bean, method and outcome. Reactive results are timed
+// from subscription to their terminal signal, so a Mono that is built but never subscribed costs
+// nothing. The connection factory is swapped for one that times pool acquisition. Tags only ever
+// come from code, never from request data, so the series count stays fixed.
+public class OperationMetricsPostProcessor implements BeanPostProcessor {
+
+    static final String OPERATION_METRIC = "app.operation";
+
+    private final ObjectProvider<MeterRegistry> meterRegistry;
+
+    public OperationMetricsPostProcessor(ObjectProvider<MeterRegistry> meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (bean instanceof ConnectionFactory connectionFactory && !(bean instanceof MeteredConnectionFactory)) {
+            return new MeteredConnectionFactory(connectionFactory, meterRegistry);
+        }
+        if (bean instanceof Repository<?, ?>) {
+            // Spring Data repositories are already JDK proxies; expose only their repository interfaces
+            ProxyFactory factory = new ProxyFactory();
+            factory.setTarget(bean);
+            factory.setInterfaces(Arrays.stream(ClassUtils.getAllInterfaces(bean))
+                    .filter(Repository.class::isAssignableFrom)
+                    .toArray(Class<?>[]::new));
+            factory.addAdvice(new OperationTimer("repository", beanName, meterRegistry));
+            return factory.getProxy(bean.getClass().getClassLoader());
+        }
+        String layer = layerOf(bean);
+        if (layer == null) {
+            return bean;
+        }
+        // Class proxies keep @Scheduled, @EventListener and destroy callbacks resolving on the target class
+        ProxyFactory factory = new ProxyFactory(bean);
+        factory.setProxyTargetClass(true);
+        if (bean instanceof RateLimiter) {
+            factory.addAdvice(new DecisionCounter(meterRegistry));
+        }
+        factory.addAdvice(new OperationTimer(layer, beanName, meterRegistry));
+        return factory.getProxy(bean.getClass().getClassLoader());
+    }
+
+    private static String layerOf(Object bean) {
+        if (bean instanceof MessageStore) {
+            return "store";
+        }
+        if (bean instanceof RateLimiter) {
+            return "ratelimit";
+        }
+        if (AnnotatedElementUtils.hasAnnotation(bean.getClass(), Service.class)) {
+            return "service";
+        }
+        return null;
+    }
+
+    static final class OperationTimer implements MethodInterceptor {
+
+        private static final Context ROWS_COUNTED = Context.of(AccessLogFilter.ROWS_COUNTED_KEY, true);
+
+        private final String layer;
+        private final String component;
+        private final boolean countsRows;
+        private final ObjectProvider<MeterRegistry> meterRegistry;
+        private final Map<Method, Timers> timers = new ConcurrentHashMap<>();
+
+        OperationTimer(String layer, String component, ObjectProvider<MeterRegistry> meterRegistry) {
+            this.layer = layer;
+            this.component = component;
+            this.countsRows = layer.equals("repository") || layer.equals("store");
+            this.meterRegistry = meterRegistry;
+        }
+
+        @Override
+        public Object invoke(MethodInvocation invocation) throws Throwable {
+            Method method = invocation.getMethod();
+            if (method.getDeclaringClass() == Object.class) {
+                return invocation.proceed();
+            }
+            Timers operation = timers.computeIfAbsent(method, this::register);
+            long start = System.nanoTime();
+            Object result;
+            try {
+                result = invocation.proceed();
+            } catch (Throwable ex) {
+                operation.error.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                throw ex;
+            }
+            if (result instanceof Mono<?> mono) {
+                return Mono.deferContextual(context -> {
+                    long subscribed = System.nanoTime();
+                    return countRows(mono.doFinally(signal -> operation.record(signal, subscribed)), context);
+                });
+            }
+            if (result instanceof Flux<?> flux) {
+                return Flux.deferContextual(context -> {
+                    long subscribed = System.nanoTime();
+                    return countRows(flux.doFinally(signal -> operation.record(signal, subscribed)), context);
+                });
+            }
+            operation.success.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            return result;
+        }
+
+        // Rows handed back by the outermost data-access call of a request, for its access record
+        private <T> Mono<T> countRows(Mono<T> mono, ContextView context) {
+            AtomicLong rows = rowCounter(context);
+            return rows == null ? mono : mono.doOnNext(row -> rows.incrementAndGet()).contextWrite(ROWS_COUNTED);
+        }
+
+        private <T> Flux<T> countRows(Flux<T> flux, ContextView context) {
+            AtomicLong rows = rowCounter(context);
+            return rows == null ? flux : flux.doOnNext(row -> rows.incrementAndGet()).contextWrite(ROWS_COUNTED);
+        }
+
+        // Null outside a request, and inside a call whose caller already counts its rows
+        private AtomicLong rowCounter(ContextView context) {
+            if (!countsRows || context.hasKey(AccessLogFilter.ROWS_COUNTED_KEY)) {
+                return null;
+            }
+            return context.getOrDefault(AccessLogFilter.ROWS_KEY, null);
+        }
+
+        private Timers register(Method method) {
+            MeterRegistry registry = meterRegistry.getObject();
+            return new Timers(timer(registry, method, "success"), timer(registry, method, "error"),
+                    timer(registry, method, "cancelled"));
+        }
+
+        private Timer timer(MeterRegistry registry, Method method, String outcome) {
+            return Timer.builder(OPERATION_METRIC)
+                    .description("Time from call or subscription to completion of service, repository and store operations")
+                    .tag("layer", layer)
+                    .tag("component", component)
+                    .tag("method", method.getName())
+                    .tag("outcome", outcome)
+                    .register(registry);
+        }
+    }
+
+    private record Timers(Timer success, Timer error, Timer cancelled) {
+
+        void record(SignalType signal, long start) {
+            Timer timer = switch (signal) {
+                case ON_ERROR -> error;
+                case CANCEL -> cancelled;
+                default -> success;
+            };
+            timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    // Accepted and rejected rate-limit decisions per limit
+    static final class DecisionCounter implements MethodInterceptor {
+
+        private final ObjectProvider<MeterRegistry> meterRegistry;
+        private final Map<String, Counter> counters = new ConcurrentHashMap<>();
+
+        DecisionCounter(ObjectProvider<MeterRegistry> meterRegistry) {
+            this.meterRegistry = meterRegistry;
+        }
+
+        @Override
+        public Object invoke(MethodInvocation invocation) throws Throwable {
+            Object result = invocation.proceed();
+            if (!invocation.getMethod().getName().equals("tryConsume") || !(result instanceof Mono<?> mono)) {
+                return result;
+            }
+            RateLimit limit = (RateLimit) invocation.getArguments()[0];
+            return mono.doOnNext(probe -> counter(limit, ((ConsumptionProbe) probe).isConsumed()).increment());
+        }
+
+        private Counter counter(RateLimit limit, boolean accepted) {
+            String result = accepted ? "accepted" : "rejected";
+            return counters.computeIfAbsent(limit.name() + ":" + result, key -> Counter.builder("ratelimit.decisions")
+                    .description("Rate-limit checks by limit and result")
+                    .tag("limit", limit.name())
+                    .tag("result", result)
+                    .register(meterRegistry.getObject()));
+        }
+    }
+}
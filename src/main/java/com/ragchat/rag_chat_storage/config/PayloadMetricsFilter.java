@@ -0,0 +1,85 @@
+package com.ragchat.rag_chat_storage.config;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import org.reactivestreams.Publisher;
+import org.springframework.core.annotation.Order;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.server.reactive.ServerHttpRequestDecorator;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.HandlerMapping;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import org.springframework.web.util.pattern.PathPattern;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+// Request and response body sizes per route, counted as the bytes stream through rather than
+// trusted from Content-Length. Routes are tagged by their mapping pattern, never the raw path.
+// Runs ahead of SecurityFilter so rejected requests are counted too.
+@Component
+@Order(-2)
+@RequiredArgsConstructor
+public class PayloadMetricsFilter implements WebFilter {
+
+    static final String UNKNOWN_URI = "UNKNOWN";
+
+    // Running body byte counts, for the access log
+    public static final String REQUEST_BYTES_ATTRIBUTE = PayloadMetricsFilter.class.getName() + ".requestBytes";
+    public static final String RESPONSE_BYTES_ATTRIBUTE = PayloadMetricsFilter.class.getName() + ".responseBytes";
+
+    private final MeterRegistry meterRegistry;
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        AtomicLong requestBytes = new AtomicLong();
+        AtomicLong responseBytes = new AtomicLong();
+        exchange.getAttributes().put(REQUEST_BYTES_ATTRIBUTE, requestBytes);
+        exchange.getAttributes().put(RESPONSE_BYTES_ATTRIBUTE, responseBytes);
+        ServerHttpRequestDecorator request = new ServerHttpRequestDecorator(exchange.getRequest()) {
+            @Override
+            public Flux<DataBuffer> getBody() {
+                return super.getBody().doOnNext(buffer -> requestBytes.addAndGet(buffer.readableByteCount()));
+            }
+        };
+        ServerHttpResponseDecorator response = new ServerHttpResponseDecorator(exchange.getResponse()) {
+            @Override
+            public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+                return super.writeWith(Flux.from(body).doOnNext(buffer -> responseBytes.addAndGet(buffer.readableByteCount())));
+            }
+
+            @Override
+            public Mono<Void> writeAndFlushWith(Publisher<? extends Publisher<? extends DataBuffer>> body) {
+                return super.writeAndFlushWith(Flux.from(body).map(chunk ->
+                        Flux.from(chunk).doOnNext(buffer -> responseBytes.addAndGet(buffer.readableByteCount()))));
+            }
+        };
+        return chain.filter(exchange.mutate().request(request).response(response).build())
+                .doFinally(signal -> {
+                    String method = exchange.getRequest().getMethod().name();
+                    String uri = uriOf(exchange);
+                    if (requestBytes.get() > 0) {
+                        summary("http.server.request.body.size", method, uri).record(requestBytes.get());
+                    }
+                    summary("http.server.response.body.size", method, uri).record(responseBytes.get());
+                });
+    }
+
+    private DistributionSummary summary(String name, String method, String uri) {
+        return DistributionSummary.builder(name)
+                .baseUnit("bytes")
+                .tag("method", method)
+                .tag("uri", uri)
+                .register(meterRegistry);
+    }
+
+    static String uriOf(ServerWebExchange exchange) {
+        Object pattern = exchange.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        return pattern instanceof PathPattern pathPattern ? pathPattern.getPatternString() : UNKNOWN_URI;
+    }
+}
@@ -0,0 +1,20 @@
+package com.ragchat.rag_chat_storage.config;
+
+import java.time.Duration;
+
+// One named token bucket shape: holds up to capacity tokens and regains tokensPerMinute each minute
+public record RateLimit(String name, long capacity, long tokensPerMinute) {
+
+    public static final Duration REFILL_INTERVAL = Duration.ofMinutes(1);
+
+    // How long an emptied bucket takes to refill to capacity
+    public Duration fullRefillTime() {
+        long intervals = (capacity + tokensPerMinute - 1) / tokensPerMinute;
+        return REFILL_INTERVAL.multipliedBy(Math.max(1, intervals));
+    }
+
+    // Costs above capacity could never be paid, so they are charged as a full bucket instead
+    public long clamp(long tokens) {
+        return Math.min(capacity, Math.max(0, tokens));
+    }
+}
@@ -0,0 +1,99 @@
+package com.ragchat.rag_chat_storage.config;
+
+import lombok.Getter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.Stream;
+
+// What a request costs and which buckets pay for it. Reads, writes and searches draw on separate
+// request limits, charged by the work they ask for, and every uploaded byte also draws on a
+// per-client bandwidth limit so a few large payloads cannot crowd out many small requests.
+@Getter
+@Component
+public class RateLimitPolicy {
+
+    private static final List<String> RESULT_COUNT_PARAMS = List.of("size", "limit", "k");
+
+    private final RateLimit reads;
+    private final RateLimit writes;
+    private final RateLimit searches;
+    private final RateLimit bytes;
+    private final long bytesPerWriteToken;
+    private final long resultsPerReadToken;
+
+    public RateLimitPolicy(@Value("${app.rate-limiting.requests-per-minute:60}") int requestsPerMinute,
+                           @Value("${app.rate-limiting.bucket-capacity:100}") int bucketCapacity,
+                           @Value("${app.rate-limiting.writes.requests-per-minute:${app.rate-limiting.requests-per-minute:60}}") int writesPerMinute,
+                           @Value("${app.rate-limiting.writes.bucket-capacity:${app.rate-limiting.bucket-capacity:100}}") int writeCapacity,
+                           @Value("${app.rate-limiting.search.requests-per-minute:${app.rate-limiting.requests-per-minute:60}}") int searchesPerMinute,
+                           @Value("${app.rate-limiting.search.bucket-capacity:${app.rate-limiting.bucket-capacity:100}}") int searchCapacity,
+                           @Value("${app.rate-limiting.bytes-per-minute:10MB}") DataSize bytesPerMinute,
+                           @Value("${app.rate-limiting.bytes-capacity:20MB}") DataSize bytesCapacity,
+                           @Value("${app.rate-limiting.bytes-per-write-token:4KB}") DataSize bytesPerWriteToken,
+                           @Value("${app.rate-limiting.results-per-read-token:50}") int resultsPerReadToken) {
+        this.reads = new RateLimit("reads", bucketCapacity, requestsPerMinute);
+        this.writes = new RateLimit("writes", writeCapacity, writesPerMinute);
+        this.searches = new RateLimit("searches", searchCapacity, searchesPerMinute);
+        this.bytes = new RateLimit("bytes", bytesCapacity.toBytes(), bytesPerMinute.toBytes());
+        this.bytesPerWriteToken = Math.max(1, bytesPerWriteToken.toBytes());
+        this.resultsPerReadToken = Math.max(1, resultsPerReadToken);
+    }
+
+    public RateLimit limitFor(ServerHttpRequest request) {
+        if (request.getPath().value().startsWith("/api/v1/search")) {
+            return searches;
+        }
+        HttpMethod method = request.getMethod();
+        return HttpMethod.GET.equals(method) || HttpMethod.HEAD.equals(method) ? reads : writes;
+    }
+
+    // Writes pay per started bytesPerWriteToken of body, reads per started resultsPerReadToken asked for
+    public long costOf(RateLimit limit, ServerHttpRequest request) {
+        long units = limit == writes
+                ? ceilDiv(request.getHeaders().getContentLength(), bytesPerWriteToken)
+                : ceilDiv(requestedResults(request), resultsPerReadToken);
+        return limit.clamp(Math.max(1, units));
+    }
+
+    // A batch pays at least one write token per message
+    public long batchCost(int messages) {
+        return writes.clamp(messages);
+    }
+
+    public long bytesCost(long contentLength) {
+        return bytes.clamp(contentLength);
+    }
+
+    // Long enough for a bucket of any of the limits to refill completely
+    public Duration longestFullRefillTime() {
+        return Stream.of(reads, writes, searches, bytes)
+                .map(RateLimit::fullRefillTime)
+                .max(Duration::compareTo)
+                .orElseThrow();
+    }
+
+    private static long requestedResults(ServerHttpRequest request) {
+        for (String param : RESULT_COUNT_PARAMS) {
+            String value = request.getQueryParams().getFirst(param);
+            if (value != null) {
+                try {
+                    return Long.parseLong(value.trim());
+                } catch (NumberFormatException e) {
+                    // Validation rejects it later; charge the base cost meanwhile
+                    return 0;
+                }
+            }
+        }
+        return 0;
+    }
+
+    private static long ceilDiv(long value, long unit) {
+        return value <= 0 ? 0 : (value + unit - 1) / unit;
+    }
+}
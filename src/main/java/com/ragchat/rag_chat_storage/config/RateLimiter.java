@@ -0,0 +1,11 @@
+package com.ragchat.rag_chat_storage.config;
+
+import io.github.bucket4j.ConsumptionProbe;
+import reactor.core.publisher.Mono;
+
+// Per-client request budgets, enforced either per node or across the cluster
+public interface RateLimiter {
+
+    // Takes the tokens if the client's bucket for this limit holds enough; the probe reports what is left either way
+    Mono<ConsumptionProbe> tryConsume(RateLimit limit, String key, long tokens);
+}
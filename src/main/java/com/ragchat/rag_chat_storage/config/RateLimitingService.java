@@ -1,36 +1,82 @@
 package com.ragchat.rag_chat_storage.config;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Ticker;
 import io.github.bucket4j.Bandwidth;
 import io.github.bucket4j.Bucket;
+import io.github.bucket4j.ConsumptionProbe;
 import io.github.bucket4j.Refill;
-import lombok.RequiredArgsConstructor;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
 
 import java.time.Duration;
-import java.util.concurrent.ConcurrentHashMap;
 
+// Per-client, per-limit token buckets in a bounded cache. A client without a bucket is treated as
+// having a full one, so buckets are dropped once idle long enough to have refilled completely: idle
+// clients cost nothing and expiry never hands anyone extra tokens. The size bound is a memory guard
+// only; when more clients are active than max-buckets allows, it evicts active buckets too, and their
+// clients start over with full ones. Hits are lock-free reads.
 @Component
-@RequiredArgsConstructor
-public class RateLimitingService {
+@ConditionalOnProperty(name = "app.rate-limiting.mode", havingValue = "local", matchIfMissing = true)
+public class RateLimitingService implements RateLimiter {
 
-    @Value("${app.rate-limiting.requests-per-minute:60}")
-    private int requestsPerMinute;
+    // Rough heap cost of one cached bucket: Bucket4j state, cache node and its key
+    static final long ESTIMATED_BYTES_PER_BUCKET = 320;
 
-    @Value("${app.rate-limiting.bucket-capacity:100}")
-    private int bucketCapacity;
+    private final Cache<BucketKey, Bucket> buckets;
 
-    private final ConcurrentHashMap<String, Bucket> cache = new ConcurrentHashMap<>();
+    @Autowired
+    public RateLimitingService(MeterRegistry meterRegistry,
+                               RateLimitPolicy policy,
+                               @Value("${app.rate-limiting.max-buckets:100000}") long maxBuckets) {
+        this(meterRegistry, policy.longestFullRefillTime(), maxBuckets, Ticker.systemTicker());
+    }
+
+    RateLimitingService(MeterRegistry meterRegistry, Duration idleTimeout, long maxBuckets, Ticker ticker) {
+        this.buckets = Caffeine.newBuilder()
+                .maximumSize(maxBuckets)
+                .expireAfterAccess(idleTimeout)
+                .ticker(ticker)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, buckets, "rateLimitBuckets");
+        Gauge.builder("ratelimit.buckets.memory", buckets, cache -> cache.estimatedSize() * ESTIMATED_BYTES_PER_BUCKET)
+                .description("Estimated heap held by cached rate-limit buckets")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    public Bucket resolveBucket(RateLimit limit, String key) {
+        return buckets.get(new BucketKey(limit, key), k -> newBucket(limit));
+    }
+
+    @Override
+    public Mono<ConsumptionProbe> tryConsume(RateLimit limit, String key, long tokens) {
+        Bucket bucket = resolveBucket(limit, key);
+        return Mono.just(tokens > 0
+                ? bucket.tryConsumeAndReturnRemaining(tokens)
+                : ConsumptionProbe.consumed(bucket.getAvailableTokens(), 0));
+    }
+
+    long bucketCount() {
+        buckets.cleanUp();
+        return buckets.estimatedSize();
+    }
 
-    public Bucket resolveBucket(String key) {
-        return cache.computeIfAbsent(key, this::newBucket);
+    // Saves building a combined string key on every request
+    private record BucketKey(RateLimit limit, String client) {
     }
 
-    private Bucket newBucket(String key) {
-        Bandwidth limit = Bandwidth.classic(bucketCapacity,
-                Refill.intervally(requestsPerMinute, Duration.ofMinutes(1)));
+    private static Bucket newBucket(RateLimit limit) {
         return Bucket.builder()
-                .addLimit(limit)
+                .addLimit(Bandwidth.classic(limit.capacity(), Refill.intervally(limit.tokensPerMinute(), RateLimit.REFILL_INTERVAL)))
                 .build();
     }
 }
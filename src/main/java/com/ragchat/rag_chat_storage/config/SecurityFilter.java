@@ -4,18 +4,24 @@ package com.ragchat.rag_chat_storage.config;
 
 import com.ragchat.rag_chat_storage.exception.RateLimitExceededException;
 import com.ragchat.rag_chat_storage.exception.UnauthorizedException;
-import io.github.bucket4j.Bucket;
 import io.github.bucket4j.ConsumptionProbe;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.annotation.Order;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpRequestDecorator;
 import org.springframework.stereotype.Component;
 import org.springframework.web.server.ServerWebExchange;
 import org.springframework.web.server.WebFilter;
 import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.time.Duration;
+
 @Slf4j
 @Component
 @Order(-1)
@@ -25,10 +31,15 @@ public class SecurityFilter implements WebFilter {
     @Value("${app.security.api-key}")
     private String apiKey;
 
-    private final RateLimitingService rateLimitingService;
+    private final RateLimiter rateLimiter;
+    private final RateLimitPolicy rateLimitPolicy;
 
     private static final String API_KEY_HEADER = "X-API-Key";
 
+    // Resolved rate-limit key, for handlers that charge more than the base cost
+    public static final String CLIENT_ID_ATTRIBUTE = SecurityFilter.class.getName() + ".clientId";
+    public static final String CHARGED_TOKENS_ATTRIBUTE = SecurityFilter.class.getName() + ".chargedTokens";
+
     @Override
     public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
         String path = exchange.getRequest().getPath().value();
@@ -45,24 +56,69 @@ public class SecurityFilter implements WebFilter {
             return Mono.error(new UnauthorizedException("Invalid or missing API key"));
         }
 
-        // Apply rate limiting
+        // Apply rate limiting: upload bandwidth first, so a body over its limit never spends
+        // request tokens, then the route's request limit
         String clientId = getClientIdentifier(exchange);
-        Bucket bucket = rateLimitingService.resolveBucket(clientId);
-        ConsumptionProbe probe = bucket.tryConsumeAndReturnRemaining(1);
+        RateLimit limit = rateLimitPolicy.limitFor(exchange.getRequest());
+        long cost = rateLimitPolicy.costOf(limit, exchange.getRequest());
+        exchange.getAttributes().put(CLIENT_ID_ATTRIBUTE, clientId);
+        exchange.getAttributes().put(CHARGED_TOKENS_ATTRIBUTE, cost);
+        return chargeBody(exchange, clientId).flatMap(charged -> rateLimiter.tryConsume(limit, clientId, cost)
+                .flatMap(probe -> {
+                    if (!probe.isConsumed()) {
+                        log.warn("Rate limit '{}' exceeded for client: {}", limit.name(), clientId);
+                        return Mono.error(rateLimitExceeded(limit, probe));
+                    }
+
+                    // Add rate limit headers
+                    exchange.getResponse().getHeaders().add("X-Rate-Limit-Remaining",
+                            String.valueOf(probe.getRemainingTokens()));
+
+                    return chain.filter(charged);
+                }));
+    }
 
-        if (!probe.isConsumed()) {
-            log.warn("Rate limit exceeded for client: {}", clientId);
-            return Mono.error(new RateLimitExceededException("Rate limit exceeded. Try again later."));
+    // Bodies of known length are charged up front; chunked ones as their bytes arrive
+    private Mono<ServerWebExchange> chargeBody(ServerWebExchange exchange, String clientId) {
+        long contentLength = exchange.getRequest().getHeaders().getContentLength();
+        if (contentLength > 0) {
+            RateLimit bytes = rateLimitPolicy.getBytes();
+            return rateLimiter.tryConsume(bytes, clientId, rateLimitPolicy.bytesCost(contentLength))
+                    .flatMap(probe -> probe.isConsumed()
+                            ? Mono.just(exchange)
+                            : Mono.error(rateLimitExceeded(bytes, probe)));
         }
+        if (contentLength == 0) {
+            return Mono.just(exchange);
+        }
+        ServerHttpRequest metered = new ServerHttpRequestDecorator(exchange.getRequest()) {
+            @Override
+            public Flux<DataBuffer> getBody() {
+                RateLimit bytes = rateLimitPolicy.getBytes();
+                return super.getBody().concatMap(buffer -> rateLimiter
+                        .tryConsume(bytes, clientId, rateLimitPolicy.bytesCost(buffer.readableByteCount()))
+                        .flatMap(probe -> {
+                            if (probe.isConsumed()) {
+                                return Mono.just(buffer);
+                            }
+                            DataBufferUtils.release(buffer);
+                            return Mono.error(rateLimitExceeded(bytes, probe));
+                        }));
+            }
+        };
+        return Mono.just(exchange.mutate().request(metered).build());
+    }
 
-        // Add rate limit headers
-        exchange.getResponse().getHeaders().add("X-Rate-Limit-Remaining",
-                String.valueOf(probe.getRemainingTokens()));
-
-        return chain.filter(exchange);
+    public static RateLimitExceededException rateLimitExceeded(RateLimit limit, ConsumptionProbe probe) {
+        return new RateLimitExceededException("Rate limit exceeded for " + limit.name() + ". Try again later.",
+                Duration.ofNanos(probe.getNanosToWaitForRefill()));
     }
 
     private boolean isPublicPath(String path) {
+        // Log levels can be changed through this endpoint, so it stays behind the API key
+        if (path.startsWith("/actuator/loggers")) {
+            return false;
+        }
         return path.startsWith("/actuator") ||
                 path.startsWith("/api/v1/health") ||
                 path.startsWith("/swagger-ui") ||
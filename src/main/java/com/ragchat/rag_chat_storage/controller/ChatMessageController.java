@@ -2,6 +2,10 @@ package com.ragchat.rag_chat_storage.controller;
 
 
 
+import com.ragchat.rag_chat_storage.config.RateLimit;
+import com.ragchat.rag_chat_storage.config.RateLimitPolicy;
+import com.ragchat.rag_chat_storage.config.RateLimiter;
+import com.ragchat.rag_chat_storage.config.SecurityFilter;
 import com.ragchat.rag_chat_storage.dto.CreateMessageRequest;
 import com.ragchat.rag_chat_storage.dto.MessageResponse;
 import com.ragchat.rag_chat_storage.dto.PagedResponse;
@@ -14,13 +18,23 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.Max;
 import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
 
+import java.time.Duration;
+import java.util.List;
 import java.util.UUID;
 
 @Slf4j
@@ -32,6 +46,11 @@ import java.util.UUID;
 public class ChatMessageController {
 
     private final ChatMessageService messageService;
+    private final RateLimiter rateLimiter;
+    private final RateLimitPolicy rateLimitPolicy;
+
+    @Value("${app.tail.heartbeat-interval:15s}")
+    private Duration heartbeatInterval;
 
     @Operation(summary = "Add a message to a session")
     @ApiResponses(value = {
@@ -45,23 +64,170 @@ public class ChatMessageController {
     public Mono<MessageResponse> createMessage(
             @Parameter(description = "Session ID") @PathVariable UUID sessionId,
             @Valid @RequestBody CreateMessageRequest request) {
-        log.info("POST /api/v1/sessions/{}/messages - Creating message", sessionId);
+        log.debug("POST /api/v1/sessions/{}/messages - Creating message", sessionId);
         return messageService.createMessage(sessionId, request);
     }
 
-    @Operation(summary = "Get messages for a session with pagination")
+    @Operation(summary = "Add an ordered batch of messages to a session",
+            description = "Inserts all messages in one transaction, preserving request order. " +
+                    "Each message costs at least one write token against the rate limit.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "201", description = "Messages created successfully"),
+            @ApiResponse(responseCode = "400", description = "Invalid request data"),
+            @ApiResponse(responseCode = "404", description = "Session not found"),
+            @ApiResponse(responseCode = "401", description = "Unauthorized"),
+            @ApiResponse(responseCode = "429", description = "Rate limit exceeded")
+    })
+    @PostMapping("/batch")
+    @ResponseStatus(HttpStatus.CREATED)
+    public Mono<List<MessageResponse>> createMessages(
+            @Parameter(description = "Session ID") @PathVariable UUID sessionId,
+            @RequestBody @NotEmpty @Size(max = 100) List<@Valid CreateMessageRequest> requests,
+            ServerWebExchange exchange) {
+        log.debug("POST /api/v1/sessions/{}/messages/batch - Creating {} messages", sessionId, requests.size());
+        // The filter charged the request by body size; a batch pays at least one write token per message
+        String clientId = exchange.getAttribute(SecurityFilter.CLIENT_ID_ATTRIBUTE);
+        Long charged = exchange.getAttribute(SecurityFilter.CHARGED_TOKENS_ATTRIBUTE);
+        long extra = rateLimitPolicy.batchCost(requests.size()) - (charged != null ? charged : 0);
+        if (clientId == null || extra <= 0) {
+            return messageService.createMessages(sessionId, requests);
+        }
+        RateLimit writes = rateLimitPolicy.getWrites();
+        return rateLimiter.tryConsume(writes, clientId, extra)
+                .flatMap(probe -> probe.isConsumed()
+                        ? messageService.createMessages(sessionId, requests)
+                        : Mono.error(SecurityFilter.rateLimitExceeded(writes, probe)));
+    }
+
+    @Operation(summary = "Get messages for a session with pagination",
+            description = "Pages by offset by default. Pass 'after' or 'before' with a cursor from a previous " +
+                    "response to page by keyset instead, which stays fast and stable on long sessions.")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Messages retrieved successfully"),
             @ApiResponse(responseCode = "404", description = "Session not found"),
-            @ApiResponse(responseCode = "400", description = "Invalid pagination parameters"),
+            @ApiResponse(responseCode = "400", description = "Invalid pagination parameters or cursor"),
             @ApiResponse(responseCode = "401", description = "Unauthorized")
     })
     @GetMapping
     public Mono<PagedResponse<MessageResponse>> getSessionMessages(
             @Parameter(description = "Session ID") @PathVariable UUID sessionId,
-            @Parameter(description = "Page number (0-based)") @RequestParam(defaultValue = "0") @Min(0) int page,
-            @Parameter(description = "Page size") @RequestParam(defaultValue = "50") @Min(1) @Max(200) int size) {
+            @Parameter(description = "Page number (0-based), ignored when a cursor is supplied") @RequestParam(defaultValue = "0") @Min(0) int page,
+            @Parameter(description = "Page size") @RequestParam(defaultValue = "50") @Min(1) @Max(200) int size,
+            @Parameter(description = "Return messages after this cursor") @RequestParam(required = false) String after,
+            @Parameter(description = "Return messages before this cursor") @RequestParam(required = false) String before,
+            @Parameter(description = "Include totals (defaults to true for offset paging, false for cursor paging)")
+            @RequestParam(required = false) Boolean includeTotal) {
+        if (after != null || before != null) {
+            log.debug("GET /api/v1/sessions/{}/messages - Fetching messages by cursor, size: {}", sessionId, size);
+            return messageService.getSessionMessagesByCursor(sessionId, after, before, size,
+                    Boolean.TRUE.equals(includeTotal));
+        }
         log.debug("GET /api/v1/sessions/{}/messages - Fetching messages, page: {}, size: {}", sessionId, page, size);
-        return messageService.getSessionMessagesPaginated(sessionId, page, size);
+        return messageService.getSessionMessagesPaginated(sessionId, page, size, !Boolean.FALSE.equals(includeTotal));
+    }
+
+    @Operation(summary = "Get the most recent messages of a session",
+            description = "Returns the newest messages in chronological order, as needed to build a prompt. " +
+                    "Served from an in-memory window of recently read sessions when possible.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Messages retrieved successfully"),
+            @ApiResponse(responseCode = "404", description = "Session not found"),
+            @ApiResponse(responseCode = "400", description = "Invalid limit"),
+            @ApiResponse(responseCode = "401", description = "Unauthorized")
+    })
+    @GetMapping("/recent")
+    public Mono<List<MessageResponse>> getRecentMessages(
+            @Parameter(description = "Session ID") @PathVariable UUID sessionId,
+            @Parameter(description = "Number of messages") @RequestParam(defaultValue = "20") @Min(1) @Max(200) int limit) {
+        log.debug("GET /api/v1/sessions/{}/messages/recent - Fetching {} recent messages", sessionId, limit);
+        return messageService.getRecentMessages(sessionId, limit);
+    }
+
+    @Operation(summary = "Assemble a context window for a prompt",
+            description = "Selects the newest messages that fit within maxTokens, using token counts estimated " +
+                    "at ingest, and streams them oldest first as a JSON array or NDJSON. Set includeContext=false " +
+                    "to leave RAG context out of both the budget and the payload.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Context window assembled successfully"),
+            @ApiResponse(responseCode = "404", description = "Session not found"),
+            @ApiResponse(responseCode = "400", description = "Invalid budget or limit"),
+            @ApiResponse(responseCode = "401", description = "Unauthorized")
+    })
+    @GetMapping(value = "/context-window", produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public Flux<MessageResponse> getContextWindow(
+            @Parameter(description = "Session ID") @PathVariable UUID sessionId,
+            @Parameter(description = "Token budget") @RequestParam @Min(1) @Max(1_000_000) int maxTokens,
+            @Parameter(description = "Maximum number of messages") @RequestParam(defaultValue = "100") @Min(1) @Max(1000) int limit,
+            @Parameter(description = "Include RAG context") @RequestParam(defaultValue = "true") boolean includeContext) {
+        log.debug("GET /api/v1/sessions/{}/messages/context-window - Budget: {} tokens", sessionId, maxTokens);
+        return messageService.getContextWindow(sessionId, maxTokens, limit, includeContext);
+    }
+
+    @Operation(summary = "Export the full transcript of a session",
+            description = "Streams every message in order as NDJSON without buffering the session in memory.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Transcript streamed successfully"),
+            @ApiResponse(responseCode = "404", description = "Session not found"),
+            @ApiResponse(responseCode = "401", description = "Unauthorized")
+    })
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<MessageResponse> exportMessages(
+            @Parameter(description = "Session ID") @PathVariable UUID sessionId) {
+        log.debug("GET /api/v1/sessions/{}/messages/export - Streaming NDJSON", sessionId);
+        return messageService.exportSessionMessages(sessionId);
+    }
+
+    @Operation(summary = "Export the full transcript of a session as server-sent events",
+            description = "Streams every message in order as 'message' events without buffering the session in " +
+                    "memory. Event ids are cursors usable with 'after' on the message listing and tail.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Transcript streamed successfully"),
+            @ApiResponse(responseCode = "404", description = "Session not found"),
+            @ApiResponse(responseCode = "401", description = "Unauthorized")
+    })
+    @GetMapping(value = "/export", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<MessageResponse>> exportMessageEvents(
+            @Parameter(description = "Session ID") @PathVariable UUID sessionId) {
+        log.debug("GET /api/v1/sessions/{}/messages/export - Streaming SSE", sessionId);
+        return messageService.exportSessionMessages(sessionId)
+                .map(message -> ServerSentEvent.builder(message)
+                        .id(ChatMessageService.cursorOf(message))
+                        .event("message")
+                        .build());
+    }
+
+    @Operation(summary = "Subscribe to new messages in a session",
+            description = "Server-sent events for messages committed after the subscription opens. Pass 'after' " +
+                    "(or the standard Last-Event-ID header) to first replay everything after that cursor. " +
+                    "Subscribers that fall too far behind are disconnected and should resume from their last event id.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Subscription opened"),
+            @ApiResponse(responseCode = "400", description = "Invalid cursor"),
+            @ApiResponse(responseCode = "404", description = "Session not found"),
+            @ApiResponse(responseCode = "401", description = "Unauthorized"),
+            @ApiResponse(responseCode = "503", description = "Too many live subscriptions")
+    })
+    @GetMapping(value = "/tail", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<MessageResponse>> tailMessages(
+            @Parameter(description = "Session ID") @PathVariable UUID sessionId,
+            @Parameter(description = "Replay messages after this cursor before going live") @RequestParam(required = false) String after,
+            @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId) {
+        log.debug("GET /api/v1/sessions/{}/messages/tail - Opening live tail", sessionId);
+        return Flux.defer(() -> {
+            Sinks.Empty<Void> ended = Sinks.empty();
+            Flux<ServerSentEvent<MessageResponse>> messages = messageService
+                    .tailSessionMessages(sessionId, after != null ? after : lastEventId)
+                    .map(message -> ServerSentEvent.builder(message)
+                            .id(ChatMessageService.cursorOf(message))
+                            .event("message")
+                            .build())
+                    .doFinally(signal -> ended.tryEmitEmpty());
+            // Comment frames keep idle connections open through proxies and surface dead clients;
+            // they stop with the tail, for instance once the session is deleted
+            Flux<ServerSentEvent<MessageResponse>> heartbeats = Flux.interval(heartbeatInterval)
+                    .map(tick -> ServerSentEvent.<MessageResponse>builder().comment("keep-alive").build())
+                    .takeUntilOther(ended.asMono());
+            return Flux.merge(messages, heartbeats);
+        });
     }
 }
@@ -14,6 +14,7 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.Max;
 import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotBlank;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
@@ -42,7 +43,7 @@ public class ChatSessionController {
     @PostMapping
     @ResponseStatus(HttpStatus.CREATED)
     public Mono<SessionResponse> createSession(@Valid @RequestBody CreateSessionRequest request) {
-        log.info("POST /api/v1/sessions - Creating session for user: {}", request.getUserId());
+        log.debug("POST /api/v1/sessions - Creating session for user: {}", request.getUserId());
         return sessionService.createSession(request);
     }
 
@@ -59,19 +60,31 @@ public class ChatSessionController {
         return sessionService.getSession(sessionId);
     }
 
-    @Operation(summary = "Get user sessions with pagination")
+    @Operation(summary = "Get user sessions with pagination",
+            description = "Pages by offset by default. Pass 'after' with a cursor from a previous response to page " +
+                    "by keyset instead, which skips counting and stays stable while sessions are being updated.")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Sessions retrieved successfully"),
-            @ApiResponse(responseCode = "400", description = "Invalid pagination parameters"),
+            @ApiResponse(responseCode = "400", description = "Invalid pagination parameters or cursor"),
             @ApiResponse(responseCode = "401", description = "Unauthorized")
     })
     @GetMapping
     public Mono<PagedResponse<SessionResponse>> getUserSessions(
             @Parameter(description = "User ID") @RequestParam String userId,
-            @Parameter(description = "Page number (0-based)") @RequestParam(defaultValue = "0") @Min(0) int page,
-            @Parameter(description = "Page size") @RequestParam(defaultValue = "20") @Min(1) @Max(100) int size) {
+            @Parameter(description = "Page number (0-based), ignored when a cursor is supplied") @RequestParam(defaultValue = "0") @Min(0) int page,
+            @Parameter(description = "Page size") @RequestParam(defaultValue = "20") @Min(1) @Max(100) int size,
+            @Parameter(description = "Return sessions after this cursor") @RequestParam(required = false) String after,
+            @Parameter(description = "Only return favorite sessions") @RequestParam(defaultValue = "false") boolean favoritesOnly,
+            @Parameter(description = "Include totals (defaults to true for offset paging, false for cursor paging)")
+            @RequestParam(required = false) Boolean includeTotal) {
+        if (after != null) {
+            log.debug("GET /api/v1/sessions - Fetching sessions for user: {} by cursor, size: {}", userId, size);
+            return sessionService.getUserSessionsByCursor(userId, after, size, favoritesOnly,
+                    Boolean.TRUE.equals(includeTotal));
+        }
         log.debug("GET /api/v1/sessions - Fetching sessions for user: {}, page: {}, size: {}", userId, page, size);
-        return sessionService.getUserSessionsPaginated(userId, page, size);
+        return sessionService.getUserSessionsPaginated(userId, page, size, favoritesOnly,
+                !Boolean.FALSE.equals(includeTotal));
     }
 
     @Operation(summary = "Update session (rename or toggle favorite)")
@@ -85,11 +98,12 @@ public class ChatSessionController {
     public Mono<SessionResponse> updateSession(
             @Parameter(description = "Session ID") @PathVariable UUID sessionId,
             @Valid @RequestBody UpdateSessionRequest request) {
-        log.info("PUT /api/v1/sessions/{} - Updating session", sessionId);
+        log.debug("PUT /api/v1/sessions/{} - Updating session", sessionId);
         return sessionService.updateSession(sessionId, request);
     }
 
-    @Operation(summary = "Delete session and all its messages")
+    @Operation(summary = "Delete session and all its messages",
+            description = "The session disappears immediately; its messages are removed in the background.")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "204", description = "Session deleted successfully"),
             @ApiResponse(responseCode = "404", description = "Session not found"),
@@ -99,7 +113,22 @@ public class ChatSessionController {
     @ResponseStatus(HttpStatus.NO_CONTENT)
     public Mono<Void> deleteSession(
             @Parameter(description = "Session ID") @PathVariable UUID sessionId) {
-        log.info("DELETE /api/v1/sessions/{} - Deleting session", sessionId);
+        log.debug("DELETE /api/v1/sessions/{} - Deleting session", sessionId);
         return sessionService.deleteSession(sessionId);
     }
+
+    @Operation(summary = "Delete every session of a user",
+            description = "The sessions disappear immediately; their messages are removed in the background.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "204", description = "Sessions deleted successfully"),
+            @ApiResponse(responseCode = "400", description = "Missing user ID"),
+            @ApiResponse(responseCode = "401", description = "Unauthorized")
+    })
+    @DeleteMapping
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    public Mono<Void> deleteUserSessions(
+            @Parameter(description = "User ID") @RequestParam @NotBlank String userId) {
+        log.debug("DELETE /api/v1/sessions - Deleting all sessions for user: {}", userId);
+        return sessionService.deleteUserSessions(userId).then();
+    }
 }
@@ -0,0 +1,73 @@
+package com.ragchat.rag_chat_storage.controller;
+
+import com.ragchat.rag_chat_storage.dto.SearchResponse;
+import com.ragchat.rag_chat_storage.dto.SimilarityHit;
+import com.ragchat.rag_chat_storage.dto.SimilarityRequest;
+import com.ragchat.rag_chat_storage.search.MessageSearchIndex;
+import com.ragchat.rag_chat_storage.vector.MessageVectorIndex;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Size;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+@Slf4j
+@RestController
+@RequestMapping("/api/v1/search")
+@RequiredArgsConstructor
+@Validated
+@Tag(name = "Search", description = "Full-text and similarity search over chat messages")
+public class SearchController {
+
+    private final MessageSearchIndex searchIndex;
+    private final MessageVectorIndex vectorIndex;
+
+    @Operation(summary = "Search a user's messages",
+            description = "Ranks messages across all of the user's sessions by relevance. Each hit carries a snippet " +
+                    "and the [start, end) offsets of matched terms within it. 'complete' is false while the index " +
+                    "is still being rebuilt after a restart.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Search results returned"),
+            @ApiResponse(responseCode = "400", description = "Invalid query or limit"),
+            @ApiResponse(responseCode = "401", description = "Unauthorized")
+    })
+    @GetMapping
+    public Mono<SearchResponse> search(
+            @Parameter(description = "User ID") @RequestParam String userId,
+            @Parameter(description = "Query text") @RequestParam @NotBlank @Size(max = 200) String q,
+            @Parameter(description = "Maximum number of hits") @RequestParam(defaultValue = "20") @Min(1) @Max(100) int limit) {
+        log.debug("GET /api/v1/search - Searching messages for user: {}", userId);
+        return searchIndex.search(userId, q, limit);
+    }
+
+    @Operation(summary = "Find messages with similar embeddings",
+            description = "Returns the user's messages whose embeddings are closest to the query embedding by cosine " +
+                    "similarity. Results are approximate; filtering to a few sessions makes them exact.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Similar messages returned"),
+            @ApiResponse(responseCode = "400", description = "Invalid embedding or dimension mismatch"),
+            @ApiResponse(responseCode = "401", description = "Unauthorized")
+    })
+    @PostMapping("/similar")
+    public Mono<List<SimilarityHit>> similar(@Valid @RequestBody SimilarityRequest request) {
+        log.debug("POST /api/v1/search/similar - Finding {} similar messages for user: {}", request.getK(), request.getUserId());
+        return vectorIndex.search(request.getUserId(), request.getEmbedding(), request.getK(), request.getSessionIds());
+    }
+}
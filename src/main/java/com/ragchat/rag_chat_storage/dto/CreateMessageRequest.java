@@ -23,4 +23,8 @@ public class CreateMessageRequest {
 
     @Size(max = 5000, message = "Context must not exceed 5000 characters")
     private String context;
+
+    // Optional embedding computed by the caller, indexed for similarity search
+    @Size(min = 1, max = 4096, message = "Embedding must have between 1 and 4096 dimensions")
+    private float[] embedding;
 }
\ No newline at end of file
@@ -11,10 +11,14 @@ import lombok.NoArgsConstructor;
 @AllArgsConstructor
 public class PagedResponse<T> {
     private java.util.List<T> content;
-    private int page;
+    private Integer page;
     private int size;
-    private long totalElements;
-    private int totalPages;
+    // Totals are omitted when the caller opts out of counting
+    private Long totalElements;
+    private Integer totalPages;
     private boolean first;
     private boolean last;
+    private String nextCursor;
+    private String prevCursor;
 }
+
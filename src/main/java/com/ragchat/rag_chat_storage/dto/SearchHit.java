@@ -0,0 +1,25 @@
+package com.ragchat.rag_chat_storage.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SearchHit {
+    private UUID sessionId;
+    private UUID messageId;
+    private String sender;
+    private double score;
+    private String snippet;
+    // [start, end) character ranges of matched terms within the snippet
+    private List<int[]> highlights;
+    private LocalDateTime createdAt;
+}
@@ -0,0 +1,18 @@
+package com.ragchat.rag_chat_storage.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SearchResponse {
+    private List<SearchHit> hits;
+    // False while the index is still being rebuilt after a restart
+    private boolean complete;
+}
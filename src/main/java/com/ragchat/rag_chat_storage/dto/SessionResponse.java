@@ -20,4 +20,6 @@ public class SessionResponse {
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
     private Long messageCount;
-}
\ No newline at end of file
+    private LocalDateTime lastMessageAt;
+    private String lastMessagePreview;
+}
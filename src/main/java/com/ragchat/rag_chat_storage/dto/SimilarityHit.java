@@ -0,0 +1,23 @@
+package com.ragchat.rag_chat_storage.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SimilarityHit {
+    private UUID sessionId;
+    private UUID messageId;
+    private String sender;
+    private String content;
+    // Cosine similarity between the query and the message embedding
+    private double score;
+    private LocalDateTime createdAt;
+}
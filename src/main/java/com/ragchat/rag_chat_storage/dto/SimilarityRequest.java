@@ -0,0 +1,36 @@
+package com.ragchat.rag_chat_storage.dto;
+
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Set;
+import java.util.UUID;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SimilarityRequest {
+    @NotBlank(message = "User ID is required")
+    private String userId;
+
+    @NotNull(message = "Embedding is required")
+    @Size(min = 1, max = 4096, message = "Embedding must have between 1 and 4096 dimensions")
+    private float[] embedding;
+
+    @Builder.Default
+    @Min(1)
+    @Max(100)
+    private int k = 10;
+
+    // Only consider messages from these sessions; all of the user's sessions when empty
+    @Size(max = 100, message = "At most 100 sessions can be filtered on")
+    private Set<UUID> sessionIds;
+}
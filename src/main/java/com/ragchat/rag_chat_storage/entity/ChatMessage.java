@@ -3,16 +3,19 @@ package com.ragchat.rag_chat_storage.entity;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
 import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Transient;
 import org.springframework.data.relational.core.mapping.Table;
 
 import java.time.LocalDateTime;
 import java.util.UUID;
 
 @Data
-@Builder
+@Builder(toBuilder = true)
 @NoArgsConstructor
 @AllArgsConstructor
 @Table("chat_messages")
@@ -31,4 +34,15 @@ public class ChatMessage {
 
     @CreatedDate
     private LocalDateTime createdAt;
+
+    // Estimated at ingest; null on rows written before estimates existed and in the segment backend
+    private Integer contentTokens;
+
+    private Integer contextTokens;
+
+    // Client-supplied embedding; handed to the vector index on append, never stored with the row
+    @Transient
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private float[] embedding;
 }
\ No newline at end of file
@@ -7,12 +7,13 @@ import lombok.NoArgsConstructor;
 import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.annotation.Id;
 import org.springframework.data.annotation.LastModifiedDate;
+import org.springframework.data.annotation.ReadOnlyProperty;
 import org.springframework.data.relational.core.mapping.Table;
 import java.time.LocalDateTime;
 import java.util.UUID;
 
 @Data
-@Builder
+@Builder(toBuilder = true)
 @NoArgsConstructor
 @AllArgsConstructor
 @Table("chat_sessions")
@@ -33,4 +34,23 @@ public class ChatSession {
 
     @LastModifiedDate
     private LocalDateTime updatedAt;
-}
\ No newline at end of file
+
+    // Maintained atomically by message appends, never written through save()
+    @ReadOnlyProperty
+    @Builder.Default
+    private Long messageCount = 0L;
+
+    @ReadOnlyProperty
+    private LocalDateTime lastMessageAt;
+
+    @ReadOnlyProperty
+    private String lastMessagePreview;
+
+    // Set only by the tombstone update; a tombstoned session is treated as gone
+    @ReadOnlyProperty
+    private LocalDateTime deletedAt;
+
+    // Set while the messages live in the cold-tier archive instead of the message store
+    @ReadOnlyProperty
+    private LocalDateTime archivedAt;
+}
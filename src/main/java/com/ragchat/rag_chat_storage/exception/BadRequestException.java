@@ -0,0 +1,7 @@
+package com.ragchat.rag_chat_storage.exception;
+
+public class BadRequestException extends RuntimeException {
+    public BadRequestException(String message) {
+        super(message);
+    }
+}
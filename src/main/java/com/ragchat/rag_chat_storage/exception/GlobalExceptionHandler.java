@@ -1,7 +1,9 @@
 package com.ragchat.rag_chat_storage.exception;
 
 
+import jakarta.validation.ConstraintViolationException;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.FieldError;
@@ -34,6 +36,22 @@ public class GlobalExceptionHandler {
         return Mono.just(ResponseEntity.status(HttpStatus.NOT_FOUND).body(errorResponse));
     }
 
+    @ExceptionHandler(BadRequestException.class)
+    public Mono<ResponseEntity<ErrorResponse>> handleBadRequest(
+            BadRequestException ex, ServerWebExchange exchange) {
+        log.warn("Bad request: {}", ex.getMessage());
+
+        ErrorResponse errorResponse = ErrorResponse.builder()
+                .error("BAD_REQUEST")
+                .message(ex.getMessage())
+                .status(HttpStatus.BAD_REQUEST.value())
+                .path(exchange.getRequest().getPath().value())
+                .timestamp(LocalDateTime.now())
+                .build();
+
+        return Mono.just(ResponseEntity.status(HttpStatus.BAD_REQUEST).body(errorResponse));
+    }
+
     @ExceptionHandler(UnauthorizedException.class)
     public Mono<ResponseEntity<ErrorResponse>> handleUnauthorized(
             UnauthorizedException ex, ServerWebExchange exchange) {
@@ -63,7 +81,27 @@ public class GlobalExceptionHandler {
                 .timestamp(LocalDateTime.now())
                 .build();
 
-        return Mono.just(ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).body(errorResponse));
+        ResponseEntity.BodyBuilder response = ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS);
+        if (ex.getRetryAfterSeconds() != null) {
+            response.header(HttpHeaders.RETRY_AFTER, String.valueOf(ex.getRetryAfterSeconds()));
+        }
+        return Mono.just(response.body(errorResponse));
+    }
+
+    @ExceptionHandler(ServiceOverloadedException.class)
+    public Mono<ResponseEntity<ErrorResponse>> handleServiceOverloaded(
+            ServiceOverloadedException ex, ServerWebExchange exchange) {
+        log.warn("Service overloaded: {}", ex.getMessage());
+
+        ErrorResponse errorResponse = ErrorResponse.builder()
+                .error("SERVICE_OVERLOADED")
+                .message(ex.getMessage())
+                .status(HttpStatus.SERVICE_UNAVAILABLE.value())
+                .path(exchange.getRequest().getPath().value())
+                .timestamp(LocalDateTime.now())
+                .build();
+
+        return Mono.just(ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(errorResponse));
     }
 
     @ExceptionHandler(WebExchangeBindException.class)
@@ -89,6 +127,32 @@ public class GlobalExceptionHandler {
         return Mono.just(ResponseEntity.status(HttpStatus.BAD_REQUEST).body(errorResponse));
     }
 
+    @ExceptionHandler(ConstraintViolationException.class)
+    public Mono<ResponseEntity<ErrorResponse>> handleConstraintViolations(
+            ConstraintViolationException ex, ServerWebExchange exchange) {
+        log.warn("Constraint violations: {}", ex.getMessage());
+
+        List<ErrorResponse.ValidationError> validationErrors = ex.getConstraintViolations()
+                .stream()
+                .map(violation -> ErrorResponse.ValidationError.builder()
+                        .field(violation.getPropertyPath().toString())
+                        .message(violation.getMessage())
+                        .rejectedValue(violation.getInvalidValue())
+                        .build())
+                .collect(Collectors.toList());
+
+        ErrorResponse errorResponse = ErrorResponse.builder()
+                .error("VALIDATION_ERROR")
+                .message("Request validation failed")
+                .status(HttpStatus.BAD_REQUEST.value())
+                .path(exchange.getRequest().getPath().value())
+                .timestamp(LocalDateTime.now())
+                .validationErrors(validationErrors)
+                .build();
+
+        return Mono.just(ResponseEntity.status(HttpStatus.BAD_REQUEST).body(errorResponse));
+    }
+
     @ExceptionHandler(Exception.class)
     public Mono<ResponseEntity<ErrorResponse>> handleGenericException(
             Exception ex, ServerWebExchange exchange) {
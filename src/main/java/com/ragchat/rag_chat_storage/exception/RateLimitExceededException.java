@@ -1,7 +1,27 @@
 package com.ragchat.rag_chat_storage.exception;
 
+import java.time.Duration;
+
 public class RateLimitExceededException extends RuntimeException {
+
+    private final Duration retryAfter;
+
     public RateLimitExceededException(String message) {
+        this(message, null);
+    }
+
+    public RateLimitExceededException(String message, Duration retryAfter) {
         super(message);
+        this.retryAfter = retryAfter;
+    }
+
+    // How long until the request could succeed, or null when unknown
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+
+    // Retry-After value in whole seconds, rounded up so clients never come back early; null when unknown
+    public Long getRetryAfterSeconds() {
+        return retryAfter == null ? null : Math.max(1, (retryAfter.toMillis() + 999) / 1000);
     }
-}
\ No newline at end of file
+}
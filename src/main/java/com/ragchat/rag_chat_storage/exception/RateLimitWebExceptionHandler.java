@@ -0,0 +1,53 @@
+package com.ragchat.rag_chat_storage.exception;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebExceptionHandler;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+
+// Rate limits are mostly enforced in SecurityFilter, where @ControllerAdvice never sees the
+// rejection. Answers those with the same 429 body and Retry-After as GlobalExceptionHandler,
+// ahead of Boot's error handler, which would turn them into a 500.
+@Slf4j
+@Component
+@Order(-2)
+@RequiredArgsConstructor
+public class RateLimitWebExceptionHandler implements WebExceptionHandler {
+
+    private final ObjectMapper objectMapper;
+
+    @Override
+    public Mono<Void> handle(ServerWebExchange exchange, Throwable ex) {
+        ServerHttpResponse response = exchange.getResponse();
+        if (!(ex instanceof RateLimitExceededException rateLimitExceeded) || response.isCommitted()) {
+            return Mono.error(ex);
+        }
+        log.warn("Rate limit exceeded: {}", ex.getMessage());
+
+        ErrorResponse errorResponse = ErrorResponse.builder()
+                .error("RATE_LIMIT_EXCEEDED")
+                .message(ex.getMessage())
+                .status(HttpStatus.TOO_MANY_REQUESTS.value())
+                .path(exchange.getRequest().getPath().value())
+                .timestamp(LocalDateTime.now())
+                .build();
+
+        response.setStatusCode(HttpStatus.TOO_MANY_REQUESTS);
+        response.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+        if (rateLimitExceeded.getRetryAfterSeconds() != null) {
+            response.getHeaders().set(HttpHeaders.RETRY_AFTER, String.valueOf(rateLimitExceeded.getRetryAfterSeconds()));
+        }
+        return Mono.fromCallable(() -> response.bufferFactory().wrap(objectMapper.writeValueAsBytes(errorResponse)))
+                .flatMap(body -> response.writeWith(Mono.just(body)));
+    }
+}
@@ -0,0 +1,7 @@
+package com.ragchat.rag_chat_storage.exception;
+
+public class ServiceOverloadedException extends RuntimeException {
+    public ServiceOverloadedException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,12 @@
+package com.ragchat.rag_chat_storage.repository;
+
+import com.ragchat.rag_chat_storage.entity.ChatMessage;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+public interface ChatMessageBatchRepository {
+
+    // Inserts all messages with multi-row INSERT statements; callers supply the transaction
+    Mono<Void> insertAll(List<ChatMessage> messages);
+}
@@ -0,0 +1,66 @@
+package com.ragchat.rag_chat_storage.repository;
+
+import com.ragchat.rag_chat_storage.entity.ChatMessage;
+import lombok.RequiredArgsConstructor;
+import org.springframework.r2dbc.core.DatabaseClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+@RequiredArgsConstructor
+public class ChatMessageBatchRepositoryImpl implements ChatMessageBatchRepository {
+
+    // Keeps the bind-parameter count per statement well inside driver limits
+    private static final int MAX_ROWS_PER_STATEMENT = 100;
+
+    private final DatabaseClient databaseClient;
+
+    @Override
+    public Mono<Void> insertAll(List<ChatMessage> messages) {
+        return Flux.range(0, (messages.size() + MAX_ROWS_PER_STATEMENT - 1) / MAX_ROWS_PER_STATEMENT)
+                .map(chunk -> messages.subList(chunk * MAX_ROWS_PER_STATEMENT,
+                        Math.min(messages.size(), (chunk + 1) * MAX_ROWS_PER_STATEMENT)))
+                .concatMap(this::insertChunk)
+                .then();
+    }
+
+    private Mono<Long> insertChunk(List<ChatMessage> chunk) {
+        StringBuilder sql = new StringBuilder(
+                "INSERT INTO chat_messages (id, session_id, sender, content, context, created_at, content_tokens, context_tokens) VALUES ");
+        for (int i = 0; i < chunk.size(); i++) {
+            if (i > 0) {
+                sql.append(", ");
+            }
+            sql.append("(:id").append(i)
+                    .append(", :sessionId").append(i)
+                    .append(", :sender").append(i)
+                    .append(", :content").append(i)
+                    .append(", :context").append(i)
+                    .append(", :createdAt").append(i)
+                    .append(", :contentTokens").append(i)
+                    .append(", :contextTokens").append(i)
+                    .append(')');
+        }
+
+        DatabaseClient.GenericExecuteSpec spec = databaseClient.sql(sql.toString());
+        for (int i = 0; i < chunk.size(); i++) {
+            ChatMessage message = chunk.get(i);
+            spec = spec.bind("id" + i, message.getId())
+                    .bind("sessionId" + i, message.getSessionId())
+                    .bind("sender" + i, message.getSender())
+                    .bind("content" + i, message.getContent())
+                    .bind("createdAt" + i, message.getCreatedAt());
+            spec = message.getContext() != null
+                    ? spec.bind("context" + i, message.getContext())
+                    : spec.bindNull("context" + i, String.class);
+            spec = message.getContentTokens() != null
+                    ? spec.bind("contentTokens" + i, message.getContentTokens())
+                    : spec.bindNull("contentTokens" + i, Integer.class);
+            spec = message.getContextTokens() != null
+                    ? spec.bind("contextTokens" + i, message.getContextTokens())
+                    : spec.bindNull("contextTokens" + i, Integer.class);
+        }
+        return spec.fetch().rowsUpdated();
+    }
+}
@@ -3,21 +3,61 @@ package com.ragchat.rag_chat_storage.repository;
 
 import com.ragchat.rag_chat_storage.entity.ChatMessage;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.r2dbc.repository.Modifying;
+import org.springframework.data.r2dbc.repository.Query;
 import org.springframework.data.repository.reactive.ReactiveCrudRepository;
 import org.springframework.stereotype.Repository;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.UUID;
 
 @Repository
-public interface ChatMessageRepository extends ReactiveCrudRepository<ChatMessage, UUID> {
+public interface ChatMessageRepository extends ReactiveCrudRepository<ChatMessage, UUID>, ChatMessageBatchRepository {
 
-    Flux<ChatMessage> findBySessionIdOrderByCreatedAtAsc(UUID sessionId);
+    // Offset reads share the keyset order, so the cursor an offset page hands out continues where it stops
+    Flux<ChatMessage> findBySessionIdOrderByCreatedAtAscIdAsc(UUID sessionId);
 
-    Flux<ChatMessage> findBySessionIdOrderByCreatedAtAsc(UUID sessionId, Pageable pageable);
+    Flux<ChatMessage> findBySessionIdOrderByCreatedAtAscIdAsc(UUID sessionId, Pageable pageable);
 
     Mono<Long> countBySessionId(UUID sessionId);
 
-    Mono<Void> deleteBySessionId(UUID sessionId);
+    Flux<ChatMessage> findBySessionIdAndIdIn(UUID sessionId, Collection<UUID> ids);
+
+    // Keyset (seek) pages over idx_chat_messages_session_id_created_at, ordered by (created_at, id)
+    @Query("SELECT * FROM chat_messages WHERE session_id = :sessionId " +
+            "ORDER BY created_at ASC, id ASC LIMIT :limit")
+    Flux<ChatMessage> findFirstPage(UUID sessionId, int limit);
+
+    @Query("SELECT * FROM chat_messages WHERE session_id = :sessionId " +
+            "AND (created_at > :createdAt OR (created_at = :createdAt AND id > :id)) " +
+            "ORDER BY created_at ASC, id ASC LIMIT :limit")
+    Flux<ChatMessage> findPageAfter(UUID sessionId, LocalDateTime createdAt, UUID id, int limit);
+
+    @Query("SELECT * FROM chat_messages WHERE session_id = :sessionId " +
+            "AND (created_at < :createdAt OR (created_at = :createdAt AND id < :id)) " +
+            "ORDER BY created_at DESC, id DESC LIMIT :limit")
+    Flux<ChatMessage> findPageBefore(UUID sessionId, LocalDateTime createdAt, UUID id, int limit);
+
+    @Query("SELECT * FROM chat_messages WHERE session_id = :sessionId " +
+            "ORDER BY created_at DESC, id DESC LIMIT :limit")
+    Flux<ChatMessage> findLatest(UUID sessionId, int limit);
+
+    // Unbounded scan for streaming export; rows are emitted as downstream demand allows
+    @Query("SELECT * FROM chat_messages WHERE session_id = :sessionId ORDER BY created_at ASC, id ASC")
+    Flux<ChatMessage> streamBySessionId(UUID sessionId);
+
+    @Query("SELECT * FROM chat_messages WHERE session_id = :sessionId " +
+            "AND (created_at > :createdAt OR (created_at = :createdAt AND id > :id)) " +
+            "ORDER BY created_at ASC, id ASC")
+    Flux<ChatMessage> streamAfter(UUID sessionId, LocalDateTime createdAt, UUID id);
+
+    @Query("SELECT id FROM chat_messages WHERE session_id = :sessionId LIMIT :limit")
+    Flux<UUID> findIdsBySessionId(UUID sessionId, int limit);
+
+    @Modifying
+    @Query("DELETE FROM chat_messages WHERE session_id = :sessionId AND id IN (:ids)")
+    Mono<Integer> deleteBySessionIdAndIdIn(UUID sessionId, Collection<UUID> ids);
 }
\ No newline at end of file
@@ -3,30 +3,124 @@ package com.ragchat.rag_chat_storage.repository;
 
 import com.ragchat.rag_chat_storage.entity.ChatSession;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.r2dbc.repository.Modifying;
 import org.springframework.data.r2dbc.repository.Query;
 import org.springframework.data.repository.reactive.ReactiveCrudRepository;
 import org.springframework.stereotype.Repository;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.UUID;
 
 @Repository
 public interface ChatSessionRepository extends ReactiveCrudRepository<ChatSession, UUID> {
 
-    Flux<ChatSession> findByUserIdOrderByUpdatedAtDesc(String userId);
+    // Every user-facing query skips tombstoned sessions
+    Flux<ChatSession> findByUserIdAndDeletedAtIsNullOrderByUpdatedAtDesc(String userId);
 
-    Flux<ChatSession> findByUserIdOrderByUpdatedAtDesc(String userId, Pageable pageable);
+    // Offset pages share the keyset order below, so the cursor they hand out continues where they stop
+    Flux<ChatSession> findByUserIdAndDeletedAtIsNullOrderByUpdatedAtDescIdDesc(String userId, Pageable pageable);
 
-    Flux<ChatSession> findByUserIdAndIsFavoriteTrueOrderByUpdatedAtDesc(String userId);
+    Flux<ChatSession> findByUserIdAndIsFavoriteTrueAndDeletedAtIsNullOrderByUpdatedAtDesc(String userId);
 
-    Mono<Long> countByUserId(String userId);
+    Flux<ChatSession> findByUserIdAndIsFavoriteTrueAndDeletedAtIsNullOrderByUpdatedAtDescIdDesc(String userId, Pageable pageable);
+
+    Mono<Long> countByUserIdAndDeletedAtIsNull(String userId);
+
+    Mono<Long> countByUserIdAndIsFavoriteTrueAndDeletedAtIsNull(String userId);
+
+    // Keyset pages ordered by (updated_at, id) descending; a session bumped by an update simply moves ahead of the cursor
+    @Query("SELECT * FROM chat_sessions WHERE user_id = :userId AND deleted_at IS NULL " +
+            "ORDER BY updated_at DESC, id DESC LIMIT :limit")
+    Flux<ChatSession> findFirstPageByUserId(String userId, int limit);
+
+    @Query("SELECT * FROM chat_sessions WHERE user_id = :userId AND deleted_at IS NULL " +
+            "AND (updated_at < :updatedAt OR (updated_at = :updatedAt AND id < :id)) " +
+            "ORDER BY updated_at DESC, id DESC LIMIT :limit")
+    Flux<ChatSession> findPageByUserIdAfter(String userId, LocalDateTime updatedAt, UUID id, int limit);
+
+    @Query("SELECT * FROM chat_sessions WHERE user_id = :userId AND is_favorite = TRUE AND deleted_at IS NULL " +
+            "ORDER BY updated_at DESC, id DESC LIMIT :limit")
+    Flux<ChatSession> findFirstFavoritePageByUserId(String userId, int limit);
+
+    @Query("SELECT * FROM chat_sessions WHERE user_id = :userId AND is_favorite = TRUE AND deleted_at IS NULL " +
+            "AND (updated_at < :updatedAt OR (updated_at = :updatedAt AND id < :id)) " +
+            "ORDER BY updated_at DESC, id DESC LIMIT :limit")
+    Flux<ChatSession> findFavoritePageByUserIdAfter(String userId, LocalDateTime updatedAt, UUID id, int limit);
 
     @Query("SELECT s.*, COUNT(m.id) as message_count " +
             "FROM chat_sessions s " +
             "LEFT JOIN chat_messages m ON s.id = m.session_id " +
-            "WHERE s.user_id = :userId " +
+            "WHERE s.user_id = :userId AND s.deleted_at IS NULL " +
             "GROUP BY s.id " +
             "ORDER BY s.updated_at DESC")
     Flux<Object[]> findSessionsWithMessageCount(String userId);
+
+    // Relative update so concurrent appends to the same session never lose increments
+    @Modifying
+    @Query("UPDATE chat_sessions SET " +
+            "message_count = message_count + :delta, " +
+            "last_message_preview = CASE WHEN last_message_at IS NULL OR last_message_at <= :lastMessageAt " +
+            "THEN :preview ELSE last_message_preview END, " +
+            "last_message_at = CASE WHEN last_message_at IS NULL OR last_message_at < :lastMessageAt " +
+            "THEN :lastMessageAt ELSE last_message_at END " +
+            "WHERE id = :sessionId")
+    Mono<Integer> incrementMessageStats(UUID sessionId, long delta, LocalDateTime lastMessageAt, String preview);
+
+    // Live sessions whose stored count or last_message_at disagrees with chat_messages. Archived
+    // sessions are skipped: their rows have moved to the archive, so chat_messages no longer reflects them.
+    @Query("SELECT s.id FROM chat_sessions s WHERE s.deleted_at IS NULL AND s.archived_at IS NULL " +
+            "AND (s.message_count <> (SELECT COUNT(*) FROM chat_messages m WHERE m.session_id = s.id) " +
+            "OR s.last_message_at IS DISTINCT FROM (SELECT MAX(m.created_at) FROM chat_messages m WHERE m.session_id = s.id))")
+    Flux<UUID> findIdsWithStaleMessageStats();
+
+    // Recounts from chat_messages; the preview comes from the caller, since stored content may be encoded
+    @Modifying
+    @Query("UPDATE chat_sessions s SET " +
+            "message_count = (SELECT COUNT(*) FROM chat_messages m WHERE m.session_id = s.id), " +
+            "last_message_at = (SELECT MAX(m.created_at) FROM chat_messages m WHERE m.session_id = s.id), " +
+            "last_message_preview = :preview " +
+            "WHERE s.id = :id")
+    Mono<Integer> repairMessageStats(UUID id, String preview);
+
+    @Query("SELECT id FROM chat_sessions WHERE user_id = :userId AND deleted_at IS NULL")
+    Flux<UUID> findLiveIdsByUserId(String userId);
+
+    // Returns how many live sessions were tombstoned, so a repeated delete reports zero
+    @Modifying
+    @Query("UPDATE chat_sessions SET deleted_at = :deletedAt WHERE id IN (:ids) AND deleted_at IS NULL")
+    Mono<Integer> tombstone(Collection<UUID> ids, LocalDateTime deletedAt);
+
+    // Oldest tombstones first, so a backlog drains in deletion order
+    @Query("SELECT id FROM chat_sessions WHERE deleted_at IS NOT NULL ORDER BY deleted_at ASC LIMIT :limit")
+    Flux<UUID> findTombstonedIds(int limit);
+
+    // Live sessions neither updated nor appended to since the cutoff, least recently touched first
+    @Query("SELECT * FROM chat_sessions WHERE archived_at IS NULL AND deleted_at IS NULL AND message_count > 0 " +
+            "AND updated_at < :cutoff AND (last_message_at IS NULL OR last_message_at < :cutoff) " +
+            "ORDER BY updated_at ASC LIMIT :limit")
+    Flux<ChatSession> findArchivable(LocalDateTime cutoff, int limit);
+
+    // Only succeeds if nothing was appended since the archive was written
+    @Modifying
+    @Query("UPDATE chat_sessions SET archived_at = :archivedAt " +
+            "WHERE id = :id AND archived_at IS NULL AND deleted_at IS NULL AND message_count = :messageCount")
+    Mono<Integer> markArchived(UUID id, LocalDateTime archivedAt, long messageCount);
+
+    // Archived before the cutoff but still holding rows in chat_messages
+    @Query("SELECT * FROM chat_sessions s WHERE s.archived_at < :cutoff AND s.deleted_at IS NULL " +
+            "AND EXISTS (SELECT 1 FROM chat_messages m WHERE m.session_id = s.id) LIMIT :limit")
+    Flux<ChatSession> findArchivedWithMessages(LocalDateTime cutoff, int limit);
+
+    // Row lock held until the caller's transaction ends, so a restore cannot interleave
+    @Modifying
+    @Query("UPDATE chat_sessions SET archived_at = archived_at WHERE id = :id AND archived_at = :archivedAt")
+    Mono<Integer> lockArchived(UUID id, LocalDateTime archivedAt);
+
+    @Modifying
+    @Query("UPDATE chat_sessions SET archived_at = NULL WHERE id = :id AND archived_at IS NOT NULL")
+    Mono<Integer> clearArchived(UUID id);
 }
+
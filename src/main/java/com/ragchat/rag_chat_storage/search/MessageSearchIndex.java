@@ -0,0 +1,291 @@
+package com.ragchat.rag_chat_storage.search;
+
+import com.ragchat.rag_chat_storage.dto.SearchHit;
+import com.ragchat.rag_chat_storage.dto.SearchResponse;
+import com.ragchat.rag_chat_storage.entity.ChatMessage;
+import com.ragchat.rag_chat_storage.entity.ChatSession;
+import com.ragchat.rag_chat_storage.repository.ChatSessionRepository;
+import com.ragchat.rag_chat_storage.service.MessagesAppendedEvent;
+import com.ragchat.rag_chat_storage.service.SessionDeletedEvent;
+import com.ragchat.rag_chat_storage.service.SessionMetadataCache;
+import com.ragchat.rag_chat_storage.service.SessionRestoredEvent;
+import com.ragchat.rag_chat_storage.storage.MessageStore;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+// Per-node full-text index over message content, partitioned by user. Kept current from
+// append and delete events, snapshotted to a local file, and on startup reloaded and
+// reconciled against the session stats in the background while searches keep working.
+@Slf4j
+@Component
+public class MessageSearchIndex implements SmartLifecycle {
+
+    private static final int SNAPSHOT_VERSION = 1;
+    private static final int SNIPPET_LENGTH = 160;
+    private static final int SNIPPET_LEAD = 40;
+
+    private final ChatSessionRepository sessionRepository;
+    private final SessionMetadataCache sessionCache;
+    private final MessageStore messageStore;
+    private final Path snapshotFile;
+    private final Duration snapshotInterval;
+
+    private final ConcurrentHashMap<String, SearchPartition> partitions = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<UUID, String> sessionUsers = new ConcurrentHashMap<>();
+
+    private volatile boolean ready;
+    private volatile boolean running;
+    private Disposable rebuild;
+    private Disposable snapshots;
+
+    public MessageSearchIndex(ChatSessionRepository sessionRepository,
+                              SessionMetadataCache sessionCache,
+                              MessageStore messageStore,
+                              @Value("${app.search.directory:./data/search}") Path directory,
+                              @Value("${app.search.snapshot-interval:5m}") Duration snapshotInterval) {
+        this.sessionRepository = sessionRepository;
+        this.sessionCache = sessionCache;
+        this.messageStore = messageStore;
+        this.snapshotFile = directory.resolve("index.snapshot");
+        this.snapshotInterval = snapshotInterval;
+    }
+
+    public Mono<SearchResponse> search(String userId, String query, int limit) {
+        List<String> terms = Tokenizer.tokenize(query);
+        SearchPartition partition = partitions.get(userId);
+        List<SearchPartition.ScoredDoc> ranked = partition != null ? partition.search(terms, limit) : List.of();
+        boolean complete = ready;
+        if (ranked.isEmpty()) {
+            return Mono.just(SearchResponse.builder().hits(List.of()).complete(complete).build());
+        }
+
+        Set<String> termSet = new HashSet<>(terms);
+        Map<UUID, List<UUID>> idsBySession = ranked.stream()
+                .collect(Collectors.groupingBy(scored -> scored.doc().sessionId(), LinkedHashMap::new,
+                        Collectors.mapping(scored -> scored.doc().messageId(), Collectors.toList())));
+        return Flux.fromIterable(idsBySession.entrySet())
+                .concatMap(entry -> messageStore.findAllById(entry.getKey(), entry.getValue()))
+                .collectMap(ChatMessage::getId, Function.identity())
+                .map(messages -> {
+                    List<SearchHit> hits = new ArrayList<>();
+                    for (SearchPartition.ScoredDoc scored : ranked) {
+                        ChatMessage message = messages.get(scored.doc().messageId());
+                        if (message != null) {
+                            hits.add(toHit(message, scored.score(), termSet));
+                        }
+                    }
+                    return SearchResponse.builder().hits(hits).complete(complete).build();
+                });
+    }
+
+    @EventListener
+    public void onMessagesAppended(MessagesAppendedEvent event) {
+        event.getMessages().stream()
+                .collect(Collectors.groupingBy(ChatMessage::getSessionId))
+                .forEach((sessionId, messages) -> userOf(sessionId)
+                        .subscribe(userId -> messages.forEach(partition(userId)::add),
+                                e -> log.warn("Failed to index messages for session {}", sessionId, e)));
+    }
+
+    @EventListener
+    public void onSessionDeleted(SessionDeletedEvent event) {
+        String userId = sessionUsers.remove(event.getSessionId());
+        if (userId != null) {
+            partition(userId).removeSession(event.getSessionId());
+        }
+    }
+
+    @EventListener
+    public void onSessionRestored(SessionRestoredEvent event) {
+        UUID sessionId = event.getSessionId();
+        userOf(sessionId)
+                .flatMap(userId -> reindex(sessionId, partition(userId)))
+                .subscribe(null, e -> log.warn("Failed to reindex restored session {}", sessionId, e));
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        rebuild = Mono.fromCallable(this::loadSnapshot)
+                .subscribeOn(Schedulers.boundedElastic())
+                .flatMap(this::reconcile)
+                .subscribe(reindexed -> {
+                    ready = true;
+                    log.info("Search index ready: {} users, {} sessions reindexed", partitions.size(), reindexed);
+                }, e -> log.error("Search index rebuild failed; serving partial results", e));
+        snapshots = Flux.interval(snapshotInterval, Schedulers.boundedElastic())
+                .filter(tick -> ready)
+                .subscribe(tick -> writeSnapshot());
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        if (snapshots != null) {
+            snapshots.dispose();
+        }
+        if (rebuild != null) {
+            rebuild.dispose();
+        }
+        if (ready) {
+            writeSnapshot();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    // Sessions restored from the snapshot; anything not found in the database afterwards is dropped
+    private Set<UUID> loadSnapshot() {
+        if (!Files.exists(snapshotFile)) {
+            return Set.of();
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(snapshotFile)))) {
+            if (in.readInt() != SNAPSHOT_VERSION) {
+                log.warn("Ignoring search snapshot with unknown version");
+                return Set.of();
+            }
+            int partitionCount = in.readInt();
+            Set<UUID> restored = new HashSet<>();
+            for (int i = 0; i < partitionCount; i++) {
+                String userId = in.readUTF();
+                SearchPartition partition = SearchPartition.read(in);
+                partitions.put(userId, partition);
+                partition.sessions().forEach(sessionId -> {
+                    sessionUsers.put(sessionId, userId);
+                    restored.add(sessionId);
+                });
+            }
+            return restored;
+        } catch (IOException e) {
+            log.warn("Failed to read search snapshot {}; rebuilding from storage", snapshotFile, e);
+            partitions.clear();
+            sessionUsers.clear();
+            return Set.of();
+        }
+    }
+
+    // Reindexes every session whose indexed message count disagrees with its stats. Archived
+    // sessions keep their entries as they are: their rows are out of the store until restored,
+    // and restoring reindexes them.
+    private Mono<Long> reconcile(Set<UUID> restored) {
+        Set<UUID> seen = ConcurrentHashMap.newKeySet();
+        return sessionRepository.findAll()
+                .filter(session -> session.getDeletedAt() == null)
+                .concatMap(session -> {
+                    seen.add(session.getId());
+                    sessionUsers.put(session.getId(), session.getUserId());
+                    SearchPartition partition = partition(session.getUserId());
+                    if (session.getArchivedAt() != null
+                            || partition.sessionDocCount(session.getId()) == session.getMessageCount()) {
+                        return Mono.empty();
+                    }
+                    return reindex(session.getId(), partition).thenReturn(1L);
+                })
+                .count()
+                .doOnSuccess(reindexed -> restored.stream()
+                        .filter(sessionId -> !seen.contains(sessionId))
+                        .forEach(sessionId -> onSessionDeleted(new SessionDeletedEvent(sessionId))));
+    }
+
+    private Mono<Void> reindex(UUID sessionId, SearchPartition partition) {
+        partition.removeSession(sessionId);
+        return messageStore.streamBySessionId(sessionId)
+                .doOnNext(partition::add)
+                .then();
+    }
+
+    private synchronized void writeSnapshot() {
+        try {
+            Files.createDirectories(snapshotFile.getParent());
+            Path temp = snapshotFile.resolveSibling(snapshotFile.getFileName() + ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                Map<String, SearchPartition> current = Map.copyOf(partitions);
+                out.writeInt(SNAPSHOT_VERSION);
+                out.writeInt(current.size());
+                for (Map.Entry<String, SearchPartition> entry : current.entrySet()) {
+                    out.writeUTF(entry.getKey());
+                    entry.getValue().write(out);
+                }
+            }
+            Files.move(temp, snapshotFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            log.error("Failed to write search snapshot {}", snapshotFile, e);
+        }
+    }
+
+    private Mono<String> userOf(UUID sessionId) {
+        String userId = sessionUsers.get(sessionId);
+        if (userId != null) {
+            return Mono.just(userId);
+        }
+        return sessionCache.get(sessionId)
+                .map(ChatSession::getUserId)
+                .doOnNext(user -> sessionUsers.put(sessionId, user));
+    }
+
+    private SearchPartition partition(String userId) {
+        return partitions.computeIfAbsent(userId, id -> new SearchPartition());
+    }
+
+    // A window of the content around the first match, with every matched term marked
+    static SearchHit toHit(ChatMessage message, double score, Set<String> terms) {
+        String content = message.getContent();
+        List<int[]> matches = new ArrayList<>();
+        Tokenizer.forEachToken(content, (start, end) -> {
+            if (terms.contains(content.substring(start, end).toLowerCase(Locale.ROOT))) {
+                matches.add(new int[]{start, end});
+            }
+        });
+        int from = matches.isEmpty() ? 0 : Math.max(0, matches.get(0)[0] - SNIPPET_LEAD);
+        int to = Math.min(content.length(), from + SNIPPET_LENGTH);
+        List<int[]> highlights = matches.stream()
+                .filter(match -> match[0] >= from && match[1] <= to)
+                .map(match -> new int[]{match[0] - from, match[1] - from})
+                .toList();
+
+        return SearchHit.builder()
+                .sessionId(message.getSessionId())
+                .messageId(message.getId())
+                .sender(message.getSender())
+                .score(score)
+                .snippet(content.substring(from, to))
+                .highlights(highlights)
+                .createdAt(message.getCreatedAt())
+                .build();
+    }
+}
@@ -0,0 +1,91 @@
+package com.ragchat.rag_chat_storage.search;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+// Doc ids and term frequencies for one term, stored as variable-byte encoded
+// (doc id delta, frequency) pairs. Doc ids must be appended in increasing order.
+final class PostingList {
+
+    private byte[] bytes = new byte[8];
+    private int size;
+    private int lastDocId = -1;
+    private int documentCount;
+
+    void add(int docId, int frequency) {
+        if (docId <= lastDocId) {
+            throw new IllegalArgumentException("Doc ids must increase: " + docId + " after " + lastDocId);
+        }
+        writeVarInt(docId - lastDocId);
+        writeVarInt(frequency);
+        lastDocId = docId;
+        documentCount++;
+    }
+
+    int documentCount() {
+        return documentCount;
+    }
+
+    int sizeInBytes() {
+        return size;
+    }
+
+    void forEach(PostingConsumer consumer) {
+        int position = 0;
+        int docId = -1;
+        while (position < size) {
+            int delta = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = bytes[position++];
+                delta |= (b & 0x7f) << shift;
+                shift += 7;
+            } while (b < 0);
+            int frequency = 0;
+            shift = 0;
+            do {
+                b = bytes[position++];
+                frequency |= (b & 0x7f) << shift;
+                shift += 7;
+            } while (b < 0);
+            docId += delta;
+            consumer.accept(docId, frequency);
+        }
+    }
+
+    void write(DataOutput out) throws IOException {
+        out.writeInt(lastDocId);
+        out.writeInt(documentCount);
+        out.writeInt(size);
+        out.write(bytes, 0, size);
+    }
+
+    static PostingList read(DataInput in) throws IOException {
+        PostingList postings = new PostingList();
+        postings.lastDocId = in.readInt();
+        postings.documentCount = in.readInt();
+        postings.size = in.readInt();
+        postings.bytes = new byte[Math.max(8, postings.size)];
+        in.readFully(postings.bytes, 0, postings.size);
+        return postings;
+    }
+
+    private void writeVarInt(int value) {
+        if (size + 5 > bytes.length) {
+            bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, size + 5));
+        }
+        while ((value & ~0x7f) != 0) {
+            bytes[size++] = (byte) ((value & 0x7f) | 0x80);
+            value >>>= 7;
+        }
+        bytes[size++] = (byte) value;
+    }
+
+    @FunctionalInterface
+    interface PostingConsumer {
+        void accept(int docId, int frequency);
+    }
+}
@@ -0,0 +1,194 @@
+package com.ragchat.rag_chat_storage.search;
+
+import com.ragchat.rag_chat_storage.entity.ChatMessage;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.UUID;
+
+// Inverted index over one user's messages. Doc ids are dense and assigned in insertion order,
+// so posting lists only ever append; deleted docs are masked until the next compaction.
+final class SearchPartition {
+
+    // Standard BM25 parameters
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+
+    private final List<Doc> docs = new ArrayList<>();
+    private final Map<String, PostingList> postings = new HashMap<>();
+    private final Map<UUID, Integer> liveDocsBySession = new HashMap<>();
+    private final Set<UUID> liveMessageIds = new HashSet<>();
+    private BitSet deleted = new BitSet();
+    private long liveLength;
+
+    record Doc(UUID messageId, UUID sessionId, LocalDateTime createdAt, int length) {
+    }
+
+    record ScoredDoc(Doc doc, double score) {
+    }
+
+    // Returns false for a message that is already indexed
+    synchronized boolean add(ChatMessage message) {
+        if (!liveMessageIds.add(message.getId())) {
+            return false;
+        }
+        Map<String, Integer> frequencies = new HashMap<>();
+        List<String> tokens = Tokenizer.tokenize(message.getContent());
+        tokens.forEach(token -> frequencies.merge(token, 1, Integer::sum));
+
+        int docId = docs.size();
+        docs.add(new Doc(message.getId(), message.getSessionId(), message.getCreatedAt(), tokens.size()));
+        frequencies.forEach((term, frequency) -> postings.computeIfAbsent(term, t -> new PostingList()).add(docId, frequency));
+        liveDocsBySession.merge(message.getSessionId(), 1, Integer::sum);
+        liveLength += tokens.size();
+        return true;
+    }
+
+    synchronized int removeSession(UUID sessionId) {
+        if (liveDocsBySession.remove(sessionId) == null) {
+            return 0;
+        }
+        int removed = 0;
+        for (int docId = 0; docId < docs.size(); docId++) {
+            Doc doc = docs.get(docId);
+            if (!deleted.get(docId) && doc.sessionId().equals(sessionId)) {
+                deleted.set(docId);
+                liveMessageIds.remove(doc.messageId());
+                liveLength -= doc.length();
+                removed++;
+            }
+        }
+        return removed;
+    }
+
+    synchronized int sessionDocCount(UUID sessionId) {
+        return liveDocsBySession.getOrDefault(sessionId, 0);
+    }
+
+    synchronized Set<UUID> sessions() {
+        return new HashSet<>(liveDocsBySession.keySet());
+    }
+
+    synchronized int liveDocCount() {
+        return liveMessageIds.size();
+    }
+
+    synchronized List<ScoredDoc> search(List<String> terms, int limit) {
+        int liveDocs = liveMessageIds.size();
+        if (liveDocs == 0 || terms.isEmpty()) {
+            return List.of();
+        }
+        double averageLength = Math.max(1.0, (double) liveLength / liveDocs);
+        Map<Integer, Double> scores = new HashMap<>();
+        for (String term : new LinkedHashSet<>(terms)) {
+            PostingList termPostings = postings.get(term);
+            if (termPostings == null) {
+                continue;
+            }
+            int documentFrequency = Math.min(termPostings.documentCount(), liveDocs);
+            double idf = Math.log(1 + (liveDocs - documentFrequency + 0.5) / (documentFrequency + 0.5));
+            termPostings.forEach((docId, frequency) -> {
+                if (!deleted.get(docId)) {
+                    double norm = K1 * (1 - B + B * docs.get(docId).length() / averageLength);
+                    scores.merge(docId, idf * frequency * (K1 + 1) / (frequency + norm), Double::sum);
+                }
+            });
+        }
+
+        PriorityQueue<ScoredDoc> top = new PriorityQueue<>(Comparator.comparingDouble(ScoredDoc::score));
+        scores.forEach((docId, score) -> {
+            top.add(new ScoredDoc(docs.get(docId), score));
+            if (top.size() > limit) {
+                top.poll();
+            }
+        });
+        List<ScoredDoc> ranked = new ArrayList<>(top);
+        ranked.sort(Comparator.comparingDouble(ScoredDoc::score).reversed());
+        return ranked;
+    }
+
+    // Drops masked docs and renumbers the rest once they make up most of the partition
+    synchronized void compactIfNeeded() {
+        int deletedDocs = deleted.cardinality();
+        if (deletedDocs == 0 || deletedDocs < liveMessageIds.size()) {
+            return;
+        }
+        int[] remap = new int[docs.size()];
+        List<Doc> liveDocs = new ArrayList<>(liveMessageIds.size());
+        for (int docId = 0; docId < docs.size(); docId++) {
+            if (deleted.get(docId)) {
+                remap[docId] = -1;
+            } else {
+                remap[docId] = liveDocs.size();
+                liveDocs.add(docs.get(docId));
+            }
+        }
+        Map<String, PostingList> compacted = new HashMap<>();
+        postings.forEach((term, termPostings) -> termPostings.forEach((docId, frequency) -> {
+            if (remap[docId] >= 0) {
+                compacted.computeIfAbsent(term, t -> new PostingList()).add(remap[docId], frequency);
+            }
+        }));
+        docs.clear();
+        docs.addAll(liveDocs);
+        postings.clear();
+        postings.putAll(compacted);
+        deleted = new BitSet();
+    }
+
+    synchronized void write(DataOutput out) throws IOException {
+        compactIfNeeded();
+        out.writeInt(docs.size());
+        for (int docId = 0; docId < docs.size(); docId++) {
+            Doc doc = docs.get(docId);
+            out.writeLong(doc.messageId().getMostSignificantBits());
+            out.writeLong(doc.messageId().getLeastSignificantBits());
+            out.writeLong(doc.sessionId().getMostSignificantBits());
+            out.writeLong(doc.sessionId().getLeastSignificantBits());
+            out.writeLong(doc.createdAt().toEpochSecond(ZoneOffset.UTC));
+            out.writeInt(doc.createdAt().getNano());
+            out.writeInt(doc.length());
+            out.writeBoolean(deleted.get(docId));
+        }
+        out.writeInt(postings.size());
+        for (Map.Entry<String, PostingList> entry : postings.entrySet()) {
+            out.writeUTF(entry.getKey());
+            entry.getValue().write(out);
+        }
+    }
+
+    static SearchPartition read(DataInput in) throws IOException {
+        SearchPartition partition = new SearchPartition();
+        int docCount = in.readInt();
+        for (int docId = 0; docId < docCount; docId++) {
+            Doc doc = new Doc(new UUID(in.readLong(), in.readLong()), new UUID(in.readLong(), in.readLong()),
+                    LocalDateTime.ofEpochSecond(in.readLong(), in.readInt(), ZoneOffset.UTC), in.readInt());
+            partition.docs.add(doc);
+            if (in.readBoolean()) {
+                partition.deleted.set(docId);
+            } else {
+                partition.liveMessageIds.add(doc.messageId());
+                partition.liveDocsBySession.merge(doc.sessionId(), 1, Integer::sum);
+                partition.liveLength += doc.length();
+            }
+        }
+        int termCount = in.readInt();
+        for (int i = 0; i < termCount; i++) {
+            partition.postings.put(in.readUTF(), PostingList.read(in));
+        }
+        return partition;
+    }
+}
@@ -0,0 +1,46 @@
+package com.ragchat.rag_chat_storage.search;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+// Lower-cased runs of letters and digits; no stemming or stop words, BM25 discounts common terms
+final class Tokenizer {
+
+    static final int MIN_TOKEN_LENGTH = 2;
+    static final int MAX_TOKEN_LENGTH = 40;
+
+    private Tokenizer() {
+    }
+
+    static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        forEachToken(text, (start, end) -> tokens.add(text.substring(start, end).toLowerCase(Locale.ROOT)));
+        return tokens;
+    }
+
+    // Reports the [start, end) offsets of every token in the text
+    static void forEachToken(String text, TokenConsumer consumer) {
+        if (text == null) {
+            return;
+        }
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean wordChar = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                int length = i - start;
+                if (length >= MIN_TOKEN_LENGTH && length <= MAX_TOKEN_LENGTH) {
+                    consumer.accept(start, i);
+                }
+                start = -1;
+            }
+        }
+    }
+
+    @FunctionalInterface
+    interface TokenConsumer {
+        void accept(int start, int end);
+    }
+}
@@ -0,0 +1,194 @@
+package com.ragchat.rag_chat_storage.service;
+
+import com.ragchat.rag_chat_storage.entity.ChatMessage;
+import com.ragchat.rag_chat_storage.exception.ServiceOverloadedException;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+// Write-behind ingestion: appends queue up per node and are flushed as multi-row inserts
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class BatchingMessageWriter implements SmartLifecycle {
+
+    // Stop after the web server has finished its graceful shutdown so in-flight appends still drain
+    private static final int PHASE = SmartLifecycle.DEFAULT_PHASE - 4096;
+
+    private final MessageAppendWriter appendWriter;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${app.ingestion.mode:direct}")
+    private String mode;
+
+    @Value("${app.ingestion.ack:commit}")
+    private String ack;
+
+    @Value("${app.ingestion.queue-capacity:10000}")
+    private int queueCapacity;
+
+    @Value("${app.ingestion.max-batch-size:256}")
+    private int maxBatchSize;
+
+    @Value("${app.ingestion.max-batch-delay:20ms}")
+    private Duration maxBatchDelay;
+
+    @Value("${app.ingestion.shutdown-timeout:30s}")
+    private Duration shutdownTimeout;
+
+    private BlockingQueue<PendingAppend> queue;
+    private Thread worker;
+    private volatile boolean running;
+
+    public boolean isEnabled() {
+        return "batched".equalsIgnoreCase(mode);
+    }
+
+    public Mono<ChatMessage> submit(ChatMessage message) {
+        return Mono.defer(() -> {
+            PendingAppend pending = new PendingAppend(message, new CompletableFuture<>());
+            if (!running) {
+                return Mono.error(new ServiceOverloadedException("Message writer is not running."));
+            }
+            if (!queue.offer(pending)) {
+                return Mono.error(new ServiceOverloadedException("Message ingestion queue is full. Try again later."));
+            }
+            // Lost a race with stop(): take the entry back unless the draining worker already has it
+            if (!running && queue.remove(pending)) {
+                return Mono.error(new ServiceOverloadedException("Message ingestion is shutting down."));
+            }
+            if ("enqueue".equalsIgnoreCase(ack)) {
+                return Mono.just(message);
+            }
+            return Mono.fromFuture(pending.committed(), true);
+        });
+    }
+
+    @Override
+    public void start() {
+        if (!isEnabled() || running) {
+            return;
+        }
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+        meterRegistry.gauge("ingestion.queue.size", queue, BlockingQueue::size);
+        running = true;
+        worker = new Thread(this::drainLoop, "message-batch-writer");
+        worker.setDaemon(true);
+        worker.start();
+        log.info("Batched message ingestion started (ack: {}, max batch: {}, max delay: {})", ack, maxBatchSize, maxBatchDelay);
+    }
+
+    @Override
+    public void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        try {
+            worker.join(shutdownTimeout.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        List<PendingAppend> abandoned = new ArrayList<>();
+        queue.drainTo(abandoned);
+        abandoned.forEach(pending -> pending.committed().completeExceptionally(
+                new ServiceOverloadedException("Message ingestion is shutting down.")));
+        if (!abandoned.isEmpty()) {
+            log.error("Abandoned {} queued messages after the shutdown timeout", abandoned.size());
+        }
+        log.info("Batched message ingestion stopped");
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        return PHASE;
+    }
+
+    private void drainLoop() {
+        List<PendingAppend> batch = new ArrayList<>(maxBatchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingAppend first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                fillBatch(batch);
+                flush(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    // Waits up to the latency threshold for the batch to fill; skips waiting while shutting down
+    private void fillBatch(List<PendingAppend> batch) throws InterruptedException {
+        long deadline = System.nanoTime() + maxBatchDelay.toNanos();
+        while (batch.size() < maxBatchSize) {
+            queue.drainTo(batch, maxBatchSize - batch.size());
+            long remaining = deadline - System.nanoTime();
+            if (batch.size() >= maxBatchSize || remaining <= 0 || !running) {
+                return;
+            }
+            PendingAppend next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (next == null) {
+                return;
+            }
+            batch.add(next);
+        }
+    }
+
+    private void flush(List<PendingAppend> batch) {
+        List<ChatMessage> messages = batch.stream().map(PendingAppend::message).toList();
+        try {
+            appendWriter.append(messages).block();
+            batch.forEach(pending -> pending.committed().complete(pending.message()));
+        } catch (RuntimeException e) {
+            if (batch.size() == 1) {
+                fail(batch.get(0), e);
+                return;
+            }
+            // One bad row (e.g. a session deleted meanwhile) must not fail its neighbours
+            log.warn("Batch insert of {} messages failed, retrying individually", batch.size(), e);
+            for (PendingAppend pending : batch) {
+                try {
+                    appendWriter.append(List.of(pending.message())).block();
+                    pending.committed().complete(pending.message());
+                } catch (RuntimeException single) {
+                    fail(pending, single);
+                }
+            }
+        }
+    }
+
+    private void fail(PendingAppend pending, RuntimeException e) {
+        if ("enqueue".equalsIgnoreCase(ack)) {
+            log.error("Dropped acknowledged message {} for session {}",
+                    pending.message().getId(), pending.message().getSessionId(), e);
+        }
+        pending.committed().completeExceptionally(e);
+    }
+
+    private record PendingAppend(ChatMessage message, CompletableFuture<ChatMessage> committed) {
+    }
+}
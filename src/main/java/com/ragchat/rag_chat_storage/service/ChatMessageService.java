@@ -5,9 +5,12 @@ import com.ragchat.rag_chat_storage.dto.CreateMessageRequest;
 import com.ragchat.rag_chat_storage.dto.MessageResponse;
 import com.ragchat.rag_chat_storage.dto.PagedResponse;
 import com.ragchat.rag_chat_storage.entity.ChatMessage;
+import com.ragchat.rag_chat_storage.entity.ChatSession;
+import com.ragchat.rag_chat_storage.exception.BadRequestException;
 import com.ragchat.rag_chat_storage.exception.ResourceNotFoundException;
-import com.ragchat.rag_chat_storage.repository.ChatMessageRepository;
-import com.ragchat.rag_chat_storage.repository.ChatSessionRepository;
+import com.ragchat.rag_chat_storage.storage.MessageStore;
+import com.ragchat.rag_chat_storage.storage.RecentMessageCache;
+import com.ragchat.rag_chat_storage.vector.MessageVectorIndex;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.PageRequest;
@@ -15,7 +18,15 @@ import org.springframework.stereotype.Service;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
 
 @Slf4j
@@ -23,81 +34,366 @@ import java.util.UUID;
 @RequiredArgsConstructor
 public class ChatMessageService {
 
-    private final ChatMessageRepository messageRepository;
-    private final ChatSessionRepository sessionRepository;
+    private final MessageStore messageStore;
+    private final SessionMetadataCache sessionCache;
+    private final MessageAppendWriter appendWriter;
+    private final BatchingMessageWriter batchingWriter;
+    private final MessageTailHub tailHub;
+    private final MessageVectorIndex vectorIndex;
+    private final SessionArchiver sessionArchiver;
+    private final RecentMessageCache recentCache;
+
+    static final int PREVIEW_LENGTH = 200;
+
+    // Rows requested from the database per round of demand while exporting
+    static final int EXPORT_PREFETCH = 256;
+
+    // Replayed rows this recent may also arrive live and are remembered for de-duplication
+    static final Duration TAIL_OVERLAP = Duration.ofMinutes(1);
+
+    // Rows read per round while walking back from the newest message to fill a context window
+    static final int CONTEXT_WINDOW_PAGE_SIZE = 64;
+
+    // Role and separator tokens a chat message costs on top of its text
+    static final int MESSAGE_OVERHEAD_TOKENS = 4;
 
     public Mono<MessageResponse> createMessage(UUID sessionId, CreateMessageRequest request) {
-        log.info("Creating new message for session: {}", sessionId);
+        log.debug("Creating new message for session: {}", sessionId);
 
-        return sessionRepository.existsById(sessionId)
-                .flatMap(exists -> {
-                    if (!exists) {
-                        return Mono.error(new ResourceNotFoundException("Session not found with ID: " + sessionId));
+        return requireSession(sessionId)
+                .flatMap(session -> {
+                    if (request.getEmbedding() != null) {
+                        vectorIndex.validate(session.getUserId(), request.getEmbedding());
                     }
-
                     ChatMessage message = ChatMessage.builder()
                             .id(UUID.randomUUID())
                             .sessionId(sessionId)
                             .sender(request.getSender())
                             .content(request.getContent())
                             .context(request.getContext())
+                            .embedding(request.getEmbedding())
                             .createdAt(LocalDateTime.now())
+                            .contentTokens(TokenEstimator.estimate(request.getContent()))
+                            .contextTokens(TokenEstimator.estimate(request.getContext()))
                             .build();
 
-                    return messageRepository.save(message)
-                            .doOnSuccess(saved -> log.info("Created message with ID: {}", saved.getId()))
-                            .map(this::toMessageResponse);
+                    Mono<ChatMessage> saved = batchingWriter.isEnabled()
+                            ? batchingWriter.submit(message)
+                            : appendWriter.append(List.of(message)).map(appended -> appended.get(0));
+
+                    return saved
+                            .doOnSuccess(created -> log.debug("Created message with ID: {}", created.getId()))
+                            .doOnError(ResourceNotFoundException.class, e -> sessionCache.invalidate(sessionId))
+                            .map(ChatMessageService::toMessageResponse);
+                });
+    }
+
+    public Mono<List<MessageResponse>> createMessages(UUID sessionId, List<CreateMessageRequest> requests) {
+        log.debug("Creating {} messages for session: {}", requests.size(), sessionId);
+
+        return requireSession(sessionId)
+                .flatMap(session -> {
+                    // Spread timestamps a microsecond apart so (created_at, id) ordering keeps the request order
+                    LocalDateTime base = LocalDateTime.now().truncatedTo(ChronoUnit.MICROS);
+                    List<ChatMessage> messages = new ArrayList<>(requests.size());
+                    for (int i = 0; i < requests.size(); i++) {
+                        CreateMessageRequest request = requests.get(i);
+                        if (request.getEmbedding() != null) {
+                            vectorIndex.validate(session.getUserId(), request.getEmbedding());
+                        }
+                        messages.add(ChatMessage.builder()
+                                .id(UUID.randomUUID())
+                                .sessionId(sessionId)
+                                .sender(request.getSender())
+                                .content(request.getContent())
+                                .context(request.getContext())
+                                .embedding(request.getEmbedding())
+                                .createdAt(base.plus(i, ChronoUnit.MICROS))
+                                .contentTokens(TokenEstimator.estimate(request.getContent()))
+                                .contextTokens(TokenEstimator.estimate(request.getContext()))
+                                .build());
+                    }
+
+                    return appendWriter.append(messages)
+                            .doOnSuccess(created -> log.debug("Created {} messages for session: {}", created.size(), sessionId))
+                            .doOnError(ResourceNotFoundException.class, e -> sessionCache.invalidate(sessionId))
+                            .map(created -> created.stream().map(ChatMessageService::toMessageResponse).toList());
                 });
     }
 
     public Flux<MessageResponse> getSessionMessages(UUID sessionId, int page, int size) {
         log.debug("Fetching messages for session: {}, page: {}, size: {}", sessionId, page, size);
 
-        return sessionRepository.existsById(sessionId)
-                .flatMapMany(exists -> {
-                    if (!exists) {
-                        return Flux.error(new ResourceNotFoundException("Session not found with ID: " + sessionId));
-                    }
+        return requireSession(sessionId)
+                .flatMapMany(session -> findSessionMessages(sessionId, page, size))
+                .map(ChatMessageService::toMessageResponse);
+    }
 
-                    if (page >= 0 && size > 0) {
-                        PageRequest pageRequest = PageRequest.of(page, size);
-                        return messageRepository.findBySessionIdOrderByCreatedAtAsc(sessionId, pageRequest);
-                    } else {
-                        return messageRepository.findBySessionIdOrderByCreatedAtAsc(sessionId);
+    // The newest messages oldest first, as read when building a prompt. Served from the recent
+    // window cache when it is current; a miss reads at least a full window to repopulate it.
+    public Mono<List<MessageResponse>> getRecentMessages(UUID sessionId, int limit) {
+        log.debug("Fetching {} recent messages for session: {}", limit, sessionId);
+
+        return requireSession(sessionId)
+                .flatMap(session -> {
+                    Optional<List<ChatMessage>> cached = recentCache.get(sessionId, limit, session.getLastMessageAt());
+                    if (cached.isPresent()) {
+                        return Mono.just(cached.get());
                     }
+                    int window = Math.max(limit, recentCache.getMessagesPerSession());
+                    return messageStore.findLatest(sessionId, window)
+                            .collectList()
+                            .map(newestFirst -> {
+                                List<ChatMessage> messages = new ArrayList<>(newestFirst);
+                                Collections.reverse(messages);
+                                recentCache.load(sessionId, messages, messages.size() < window);
+                                return messages.subList(Math.max(0, messages.size() - limit), messages.size());
+                            });
                 })
-                .map(this::toMessageResponse);
+                .map(messages -> messages.stream().map(ChatMessageService::toMessageResponse).toList());
     }
 
+    // The newest messages that fit the token budget, streamed oldest first. Selection walks back
+    // a page at a time and stops at the first message that would overflow, so older, smaller
+    // messages never leave a gap in the conversation.
+    public Flux<MessageResponse> getContextWindow(UUID sessionId, int maxTokens, int maxMessages, boolean includeContext) {
+        log.debug("Assembling context window of {} tokens for session: {}", maxTokens, sessionId);
+
+        return requireSession(sessionId)
+                .flatMapMany(session -> Flux.defer(() -> {
+                    int[] remaining = {maxTokens};
+                    return newestFirst(sessionId, Math.min(maxMessages, CONTEXT_WINDOW_PAGE_SIZE))
+                            .take(maxMessages)
+                            .takeWhile(message -> (remaining[0] -= tokensOf(message, includeContext)) >= 0);
+                }))
+                .collectList()
+                .flatMapIterable(selected -> {
+                    List<ChatMessage> chronological = new ArrayList<>(selected);
+                    Collections.reverse(chronological);
+                    return chronological;
+                })
+                .map(message -> {
+                    MessageResponse response = toMessageResponse(message);
+                    if (!includeContext) {
+                        response.setContext(null);
+                    }
+                    return response;
+                });
+    }
+
+    public Flux<MessageResponse> exportSessionMessages(UUID sessionId) {
+        log.info("Exporting messages for session: {}", sessionId);
+
+        return requireSession(sessionId)
+                .flatMapMany(session -> messageStore.streamBySessionId(sessionId))
+                .limitRate(EXPORT_PREFETCH)
+                .map(ChatMessageService::toMessageResponse);
+    }
+
+    public Flux<MessageResponse> tailSessionMessages(UUID sessionId, String after) {
+        log.debug("Opening live tail for session: {}", sessionId);
+
+        return Mono.justOrEmpty(after)
+                .map(PageCursor::decode)
+                .map(Optional::of)
+                .defaultIfEmpty(Optional.empty())
+                .flatMapMany(cursor -> requireSession(sessionId)
+                        .flatMapMany(session -> {
+                            Flux<ChatMessage> live = tailHub.subscribe(sessionId);
+                            if (cursor.isEmpty()) {
+                                return live;
+                            }
+                            // Both sources are subscribed up front so nothing committed during the replay is missed;
+                            // live messages are held back until the replay completes
+                            LocalDateTime overlapFrom = LocalDateTime.now().minus(TAIL_OVERLAP);
+                            Set<UUID> recent = new HashSet<>();
+                            Flux<TailItem> replay = messageStore
+                                    .streamAfter(sessionId, cursor.get().getPosition(), cursor.get().getId())
+                                    .limitRate(EXPORT_PREFETCH)
+                                    .map(message -> new TailItem(message, true));
+                            return Flux.mergeSequential(replay, live.map(message -> new TailItem(message, false)))
+                                    .filter(item -> {
+                                        UUID id = item.message().getId();
+                                        if (!item.replayed()) {
+                                            return !recent.remove(id);
+                                        }
+                                        if (!item.message().getCreatedAt().isBefore(overlapFrom)) {
+                                            recent.add(id);
+                                        }
+                                        return true;
+                                    })
+                                    .map(TailItem::message);
+                        }))
+                .map(ChatMessageService::toMessageResponse);
+    }
+
+    // Count-free; callers that need totals ask for them explicitly
     public Mono<PagedResponse<MessageResponse>> getSessionMessagesPaginated(UUID sessionId, int page, int size) {
+        return getSessionMessagesPaginated(sessionId, page, size, false);
+    }
+
+    public Mono<PagedResponse<MessageResponse>> getSessionMessagesPaginated(UUID sessionId, int page, int size,
+                                                                          boolean includeTotal) {
         log.debug("Fetching paginated messages for session: {}", sessionId);
 
-        return sessionRepository.existsById(sessionId)
-                .flatMap(exists -> {
-                    if (!exists) {
-                        return Mono.error(new ResourceNotFoundException("Session not found with ID: " + sessionId));
+        return requireSession(sessionId)
+                .flatMap(session -> {
+                    Mono<List<MessageResponse>> content = findSessionMessages(sessionId, page, size)
+                            .map(ChatMessageService::toMessageResponse)
+                            .collectList();
+                    if (!includeTotal) {
+                        return content.map(messages -> offsetPage(messages, page, size, null));
                     }
 
-                    return messageRepository.countBySessionId(sessionId)
-                            .flatMap(totalElements -> {
-                                int totalPages = (int) Math.ceil((double) totalElements / size);
-
-                                return getSessionMessages(sessionId, page, size)
-                                        .collectList()
-                                        .map(content -> PagedResponse.<MessageResponse>builder()
-                                                .content(content)
-                                                .page(page)
-                                                .size(size)
-                                                .totalElements(totalElements)
-                                                .totalPages(totalPages)
-                                                .first(page == 0)
-                                                .last(page >= totalPages - 1)
-                                                .build());
-                            });
+                    return messageStore.countBySessionId(sessionId)
+                            .flatMap(totalElements -> content
+                                    .map(messages -> offsetPage(messages, page, size, totalElements)));
                 });
     }
 
-    private MessageResponse toMessageResponse(ChatMessage message) {
+    public Mono<PagedResponse<MessageResponse>> getSessionMessagesByCursor(UUID sessionId, String after, String before,
+                                                                         int size, boolean includeTotal) {
+        log.debug("Fetching messages for session: {} by cursor, after: {}, before: {}", sessionId, after, before);
+
+        return Mono.fromCallable(() -> {
+                    if (after != null && before != null) {
+                        throw new BadRequestException("Only one of 'after' or 'before' may be supplied");
+                    }
+                    return Optional.ofNullable(after != null ? after : before).map(PageCursor::decode);
+                })
+                .flatMap(cursor -> requireSession(sessionId)
+                        .flatMap(session -> {
+                            boolean backward = before != null;
+                            // Fetch one extra row to learn whether another page follows without counting
+                            Flux<ChatMessage> rows = cursor
+                                    .map(c -> backward
+                                            ? messageStore.findPageBefore(sessionId, c.getPosition(), c.getId(), size + 1)
+                                            : messageStore.findPageAfter(sessionId, c.getPosition(), c.getId(), size + 1))
+                                    .orElseGet(() -> messageStore.findFirstPage(sessionId, size + 1));
+
+                            Mono<PagedResponse<MessageResponse>> response = rows.collectList()
+                                    .map(messages -> cursorPage(messages, size, backward, after, before));
+                            if (!includeTotal) {
+                                return response;
+                            }
+
+                            return response.flatMap(paged -> messageStore.countBySessionId(sessionId)
+                                    .map(totalElements -> {
+                                        paged.setTotalElements(totalElements);
+                                        paged.setTotalPages((int) Math.ceil((double) totalElements / size));
+                                        return paged;
+                                    }));
+                        }));
+    }
+
+    // Archived sessions are restored first, so reads and appends always see the message store
+    private Mono<ChatSession> requireSession(UUID sessionId) {
+        return sessionCache.get(sessionId)
+                .switchIfEmpty(Mono.error(new ResourceNotFoundException("Session not found with ID: " + sessionId)))
+                .flatMap(sessionArchiver::rehydrate);
+    }
+
+    private Flux<ChatMessage> newestFirst(UUID sessionId, int pageSize) {
+        return messageStore.findLatest(sessionId, pageSize)
+                .collectList()
+                .expand(page -> {
+                    if (page.size() < pageSize) {
+                        return Mono.empty();
+                    }
+                    ChatMessage oldest = page.get(page.size() - 1);
+                    return messageStore.findPageBefore(sessionId, oldest.getCreatedAt(), oldest.getId(), pageSize)
+                            .collectList();
+                })
+                .flatMapIterable(page -> page);
+    }
+
+    // Counts missing from older rows are estimated on the spot
+    static int tokensOf(ChatMessage message, boolean includeContext) {
+        int tokens = MESSAGE_OVERHEAD_TOKENS + (message.getContentTokens() != null
+                ? message.getContentTokens()
+                : TokenEstimator.estimate(message.getContent()));
+        if (includeContext) {
+            tokens += message.getContextTokens() != null
+                    ? message.getContextTokens()
+                    : TokenEstimator.estimate(message.getContext());
+        }
+        return tokens;
+    }
+
+    private Flux<ChatMessage> findSessionMessages(UUID sessionId, int page, int size) {
+        if (page >= 0 && size > 0) {
+            PageRequest pageRequest = PageRequest.of(page, size);
+            return messageStore.findBySessionIdOrderByCreatedAtAsc(sessionId, pageRequest);
+        }
+        return messageStore.findBySessionIdOrderByCreatedAtAsc(sessionId);
+    }
+
+    private PagedResponse<MessageResponse> offsetPage(List<MessageResponse> content, int page, int size,
+                                                      Long totalElements) {
+        Integer totalPages = totalElements != null ? (int) Math.ceil((double) totalElements / size) : null;
+        boolean last = totalPages != null ? page >= totalPages - 1 : content.size() < size;
+        MessageResponse tail = content.isEmpty() ? null : content.get(content.size() - 1);
+
+        return PagedResponse.<MessageResponse>builder()
+                .content(content)
+                .page(page)
+                .size(size)
+                .totalElements(totalElements)
+                .totalPages(totalPages)
+                .first(page == 0)
+                .last(last)
+                .nextCursor(!last && tail != null ? cursorOf(tail) : null)
+                .build();
+    }
+
+    private PagedResponse<MessageResponse> cursorPage(List<ChatMessage> rows, int size, boolean backward,
+                                                      String after, String before) {
+        boolean hasMore = rows.size() > size;
+        List<ChatMessage> page = new ArrayList<>(hasMore ? rows.subList(0, size) : rows);
+        if (backward) {
+            Collections.reverse(page);
+        }
+
+        List<MessageResponse> content = page.stream().map(ChatMessageService::toMessageResponse).toList();
+        boolean hasNext = backward || hasMore;
+        boolean hasPrev = backward ? hasMore : after != null;
+
+        String nextCursor = null;
+        String prevCursor = null;
+        if (content.isEmpty()) {
+            // Nothing on this side of the cursor; hand the caller's cursor back for the other direction
+            nextCursor = backward ? before : null;
+            prevCursor = backward ? null : after;
+        } else {
+            nextCursor = hasNext ? cursorOf(content.get(content.size() - 1)) : null;
+            prevCursor = hasPrev ? cursorOf(content.get(0)) : null;
+        }
+
+        return PagedResponse.<MessageResponse>builder()
+                .content(content)
+                .size(size)
+                .first(prevCursor == null)
+                .last(nextCursor == null)
+                .nextCursor(nextCursor)
+                .prevCursor(prevCursor)
+                .build();
+    }
+
+    public static String cursorOf(MessageResponse message) {
+        return new PageCursor(message.getCreatedAt(), message.getId()).encode();
+    }
+
+    private record TailItem(ChatMessage message, boolean replayed) {
+    }
+
+    static String preview(String content) {
+        if (content == null || content.length() <= PREVIEW_LENGTH) {
+            return content;
+        }
+        return content.substring(0, PREVIEW_LENGTH);
+    }
+
+    static MessageResponse toMessageResponse(ChatMessage message) {
         return MessageResponse.builder()
                 .id(message.getId())
                 .sessionId(message.getSessionId())
@@ -6,18 +6,19 @@ import com.ragchat.rag_chat_storage.dto.SessionResponse;
 import com.ragchat.rag_chat_storage.dto.UpdateSessionRequest;
 import com.ragchat.rag_chat_storage.entity.ChatSession;
 import com.ragchat.rag_chat_storage.exception.ResourceNotFoundException;
-import com.ragchat.rag_chat_storage.repository.ChatMessageRepository;
 import com.ragchat.rag_chat_storage.repository.ChatSessionRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 
 
@@ -27,8 +28,12 @@ import java.util.UUID;
 public class ChatSessionService {
 
     private final ChatSessionRepository sessionRepository;
-    private final ChatMessageRepository messageRepository;
     private final R2dbcEntityTemplate template;
+    private final SessionMetadataCache sessionCache;
+    private final ApplicationEventPublisher eventPublisher;
+
+    // Sessions tombstoned per UPDATE when deleting a user's sessions
+    private static final int TOMBSTONE_BATCH_SIZE = 500;
 
     public Mono<SessionResponse> createSession(CreateSessionRequest request) {
         log.info("Creating new chat session for user: {}", request.getUserId());
@@ -44,36 +49,37 @@ public class ChatSessionService {
 
         return template.insert(ChatSession.class).using(session)  // forces INSERT
                 .doOnSuccess(saved -> log.info("Created session with ID: {}", saved.getId()))
-                .map(this::toSessionResponse);
+                .map(ChatSessionService::toSessionResponse);
     }
 
     public Mono<SessionResponse> getSession(UUID sessionId) {
         log.debug("Fetching session: {}", sessionId);
 
-        return sessionRepository.findById(sessionId)
+        return sessionCache.get(sessionId)
                 .switchIfEmpty(Mono.error(new ResourceNotFoundException("Session not found with ID: " + sessionId)))
-                .flatMap(session ->
-                        messageRepository.countBySessionId(sessionId)
-                                .map(count -> toSessionResponse(session, count))
-                );
+                .map(ChatSessionService::toSessionResponse);
     }
 
     public Flux<SessionResponse> getUserSessions(String userId, int page, int size) {
-        log.debug("Fetching sessions for user: {}, page: {}, size: {}", userId, page, size);
+        return getUserSessions(userId, page, size, false);
+    }
+
+    public Flux<SessionResponse> getUserSessions(String userId, int page, int size, boolean favoritesOnly) {
+        log.debug("Fetching sessions for user: {}, page: {}, size: {}, favoritesOnly: {}", userId, page, size, favoritesOnly);
 
         PageRequest pageRequest = PageRequest.of(page, size);
+        Flux<ChatSession> sessions = favoritesOnly
+                ? sessionRepository.findByUserIdAndIsFavoriteTrueAndDeletedAtIsNullOrderByUpdatedAtDescIdDesc(userId, pageRequest)
+                : sessionRepository.findByUserIdAndDeletedAtIsNullOrderByUpdatedAtDescIdDesc(userId, pageRequest);
 
-        return sessionRepository.findByUserIdOrderByUpdatedAtDesc(userId, pageRequest)
-                .flatMap(session ->
-                        messageRepository.countBySessionId(session.getId())
-                                .map(count -> toSessionResponse(session, count))
-                );
+        return sessions.map(ChatSessionService::toSessionResponse);
     }
 
     public Mono<SessionResponse> updateSession(UUID sessionId, UpdateSessionRequest request) {
         log.info("Updating session: {}", sessionId);
 
         return sessionRepository.findById(sessionId)
+                .filter(session -> session.getDeletedAt() == null)
                 .switchIfEmpty(Mono.error(new ResourceNotFoundException("Session not found with ID: " + sessionId)))
                 .flatMap(session -> {
                     if (request.getTitle() != null) {
@@ -86,52 +92,138 @@ public class ChatSessionService {
 
                     return sessionRepository.save(session);
                 })
-                .doOnSuccess(updated -> log.info("Updated session: {}", sessionId))
-                .map(this::toSessionResponse);
+                .doOnSuccess(updated -> {
+                    sessionCache.invalidate(sessionId);
+                    log.info("Updated session: {}", sessionId);
+                })
+                .map(ChatSessionService::toSessionResponse);
     }
 
-    @Transactional
+    // Tombstones the session and returns at once; SessionPurger removes its messages in the background
     public Mono<Void> deleteSession(UUID sessionId) {
         log.info("Deleting session: {}", sessionId);
 
-        return sessionRepository.existsById(sessionId)
-                .flatMap(exists -> {
-                    if (!exists) {
+        return sessionRepository.tombstone(List.of(sessionId), LocalDateTime.now())
+                .flatMap(tombstoned -> {
+                    if (tombstoned == 0) {
                         return Mono.error(new ResourceNotFoundException("Session not found with ID: " + sessionId));
                     }
-
-                    return messageRepository.deleteBySessionId(sessionId)
-                            .then(sessionRepository.deleteById(sessionId))
-                            .doOnSuccess(v -> log.info("Deleted session and messages: {}", sessionId));
+                    onTombstoned(sessionId);
+                    log.info("Tombstoned session: {}", sessionId);
+                    return Mono.empty();
                 });
     }
 
+    // Tombstones every live session of the user, returning how many there were
+    public Mono<Long> deleteUserSessions(String userId) {
+        log.info("Deleting all sessions for user: {}", userId);
+
+        return sessionRepository.findLiveIdsByUserId(userId)
+                .buffer(TOMBSTONE_BATCH_SIZE)
+                .concatMap(ids -> sessionRepository.tombstone(ids, LocalDateTime.now())
+                        .doOnSuccess(tombstoned -> ids.forEach(this::onTombstoned))
+                        .map(Integer::longValue))
+                .reduce(0L, Long::sum)
+                .doOnSuccess(total -> log.info("Tombstoned {} sessions for user: {}", total, userId));
+    }
+
+    private void onTombstoned(UUID sessionId) {
+        sessionCache.invalidate(sessionId);
+        eventPublisher.publishEvent(new SessionDeletedEvent(sessionId));
+    }
+
+    // Count-free; callers that need totals ask for them explicitly
     public Mono<PagedResponse<SessionResponse>> getUserSessionsPaginated(String userId, int page, int size) {
+        return getUserSessionsPaginated(userId, page, size, false, false);
+    }
+
+    public Mono<PagedResponse<SessionResponse>> getUserSessionsPaginated(String userId, int page, int size,
+                                                                         boolean favoritesOnly, boolean includeTotal) {
         log.debug("Fetching paginated sessions for user: {}", userId);
 
-        return sessionRepository.countByUserId(userId)
-                .flatMap(totalElements -> {
-                    int totalPages = (int) Math.ceil((double) totalElements / size);
-
-                    return getUserSessions(userId, page, size)
-                            .collectList()
-                            .map(content -> PagedResponse.<SessionResponse>builder()
-                                    .content(content)
-                                    .page(page)
-                                    .size(size)
-                                    .totalElements(totalElements)
-                                    .totalPages(totalPages)
-                                    .first(page == 0)
-                                    .last(page >= totalPages - 1)
-                                    .build());
+        Mono<List<SessionResponse>> content = getUserSessions(userId, page, size, favoritesOnly).collectList();
+        if (!includeTotal) {
+            return content.map(sessions -> offsetPage(sessions, page, size, null));
+        }
+
+        Mono<Long> count = favoritesOnly
+                ? sessionRepository.countByUserIdAndIsFavoriteTrueAndDeletedAtIsNull(userId)
+                : sessionRepository.countByUserIdAndDeletedAtIsNull(userId);
+
+        return count.flatMap(totalElements -> content
+                .map(sessions -> offsetPage(sessions, page, size, totalElements)));
+    }
+
+    public Mono<PagedResponse<SessionResponse>> getUserSessionsByCursor(String userId, String after, int size,
+                                                                        boolean favoritesOnly, boolean includeTotal) {
+        log.debug("Fetching sessions for user: {} by cursor, after: {}", userId, after);
+
+        return Mono.fromCallable(() -> Optional.ofNullable(after).map(PageCursor::decode))
+                .flatMap(cursor -> {
+                    // Fetch one extra row to learn whether another page follows without counting
+                    Flux<ChatSession> rows = cursor
+                            .map(c -> favoritesOnly
+                                    ? sessionRepository.findFavoritePageByUserIdAfter(userId, c.getPosition(), c.getId(), size + 1)
+                                    : sessionRepository.findPageByUserIdAfter(userId, c.getPosition(), c.getId(), size + 1))
+                            .orElseGet(() -> favoritesOnly
+                                    ? sessionRepository.findFirstFavoritePageByUserId(userId, size + 1)
+                                    : sessionRepository.findFirstPageByUserId(userId, size + 1));
+
+                    Mono<PagedResponse<SessionResponse>> response = rows.collectList()
+                            .map(sessions -> cursorPage(sessions, size, after));
+                    if (!includeTotal) {
+                        return response;
+                    }
+
+                    Mono<Long> count = favoritesOnly
+                            ? sessionRepository.countByUserIdAndIsFavoriteTrueAndDeletedAtIsNull(userId)
+                            : sessionRepository.countByUserIdAndDeletedAtIsNull(userId);
+                    return response.flatMap(paged -> count.map(totalElements -> {
+                        paged.setTotalElements(totalElements);
+                        paged.setTotalPages((int) Math.ceil((double) totalElements / size));
+                        return paged;
+                    }));
                 });
     }
 
-    private SessionResponse toSessionResponse(ChatSession session) {
-        return toSessionResponse(session, 0L);
+    private PagedResponse<SessionResponse> offsetPage(List<SessionResponse> content, int page, int size,
+                                                      Long totalElements) {
+        Integer totalPages = totalElements != null ? (int) Math.ceil((double) totalElements / size) : null;
+        boolean last = totalPages != null ? page >= totalPages - 1 : content.size() < size;
+        SessionResponse tail = content.isEmpty() ? null : content.get(content.size() - 1);
+
+        return PagedResponse.<SessionResponse>builder()
+                .content(content)
+                .page(page)
+                .size(size)
+                .totalElements(totalElements)
+                .totalPages(totalPages)
+                .first(page == 0)
+                .last(last)
+                .nextCursor(!last && tail != null ? cursorOf(tail) : null)
+                .build();
+    }
+
+    private PagedResponse<SessionResponse> cursorPage(List<ChatSession> rows, int size, String after) {
+        boolean hasMore = rows.size() > size;
+        List<SessionResponse> content = (hasMore ? rows.subList(0, size) : rows).stream()
+                .map(ChatSessionService::toSessionResponse)
+                .toList();
+
+        return PagedResponse.<SessionResponse>builder()
+                .content(content)
+                .size(size)
+                .first(after == null)
+                .last(!hasMore)
+                .nextCursor(hasMore ? cursorOf(content.get(content.size() - 1)) : null)
+                .build();
+    }
+
+    private String cursorOf(SessionResponse session) {
+        return new PageCursor(session.getUpdatedAt(), session.getId()).encode();
     }
 
-    private SessionResponse toSessionResponse(ChatSession session, Long messageCount) {
+    static SessionResponse toSessionResponse(ChatSession session) {
         return SessionResponse.builder()
                 .id(session.getId())
                 .userId(session.getUserId())
@@ -139,7 +231,9 @@ public class ChatSessionService {
                 .isFavorite(session.getIsFavorite())
                 .createdAt(session.getCreatedAt())
                 .updatedAt(session.getUpdatedAt())
-                .messageCount(messageCount)
+                .messageCount(session.getMessageCount() != null ? session.getMessageCount() : 0L)
+                .lastMessageAt(session.getLastMessageAt())
+                .lastMessagePreview(session.getLastMessagePreview())
                 .build();
     }
 }
\ No newline at end of file
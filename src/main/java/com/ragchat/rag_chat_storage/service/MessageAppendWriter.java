@@ -0,0 +1,71 @@
+package com.ragchat.rag_chat_storage.service;
+
+import com.ragchat.rag_chat_storage.entity.ChatMessage;
+import com.ragchat.rag_chat_storage.exception.ResourceNotFoundException;
+import com.ragchat.rag_chat_storage.repository.ChatSessionRepository;
+import com.ragchat.rag_chat_storage.storage.MessageStore;
+import com.ragchat.rag_chat_storage.storage.SelfCommittingMessageStore;
+import com.ragchat.rag_chat_storage.storage.SessionStatsDelta;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.stream.Collectors;
+
+// Persists appends and their session stats in one transaction, then announces them. Stores that
+// commit separately (SelfCommittingMessageStore) run that transaction themselves.
+@Component
+@RequiredArgsConstructor
+public class MessageAppendWriter {
+
+    private final MessageStore messageStore;
+    private final ChatSessionRepository sessionRepository;
+    private final TransactionalOperator transactionalOperator;
+    private final ApplicationEventPublisher eventPublisher;
+
+    public Mono<List<ChatMessage>> append(List<ChatMessage> messages) {
+        List<SessionStatsDelta> stats = messages.stream()
+                .collect(Collectors.groupingBy(ChatMessage::getSessionId, LinkedHashMap::new, Collectors.toList()))
+                .entrySet().stream()
+                .map(entry -> {
+                    ChatMessage latest = entry.getValue().stream()
+                            .max(Comparator.comparing(ChatMessage::getCreatedAt))
+                            .orElseThrow();
+                    return new SessionStatsDelta(entry.getKey(), entry.getValue().size(),
+                            latest.getCreatedAt(), ChatMessageService.preview(latest.getContent()));
+                })
+                .toList();
+
+        Mono<Void> write;
+        if (messageStore instanceof SelfCommittingMessageStore selfCommitting) {
+            write = selfCommitting.insertAllWithStats(messages, stats);
+        } else {
+            // Stats first, so a missing session fails before anything reaches a non-transactional store
+            write = transactionalOperator.transactional(incrementStats(stats).then(messageStore.insertAll(messages)));
+        }
+        return write
+                // Two appends can race to create the same shared context blob; the loser retries once
+                .retryWhen(Retry.max(1).filter(DataIntegrityViolationException.class::isInstance))
+                .thenReturn(messages)
+                .doOnSuccess(appended -> eventPublisher.publishEvent(new MessagesAppendedEvent(appended)));
+    }
+
+    // The stats update doubles as the existence check: zero rows means the session is gone
+    private Mono<Void> incrementStats(List<SessionStatsDelta> stats) {
+        return Flux.fromIterable(stats)
+                .concatMap(delta -> sessionRepository.incrementMessageStats(delta.sessionId(), delta.delta(),
+                                delta.lastMessageAt(), delta.preview())
+                        .flatMap(updated -> updated > 0
+                                ? Mono.<Void>empty()
+                                : Mono.error(new ResourceNotFoundException("Session not found with ID: " + delta.sessionId()))))
+                .then();
+    }
+}
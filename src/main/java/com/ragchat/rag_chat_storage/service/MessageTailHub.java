@@ -0,0 +1,125 @@
+package com.ragchat.rag_chat_storage.service;
+
+import com.ragchat.rag_chat_storage.entity.ChatMessage;
+import com.ragchat.rag_chat_storage.exception.ServiceOverloadedException;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import reactor.core.Exceptions;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// In-process fan-out of committed messages to live subscribers, one topic per watched session
+@Slf4j
+@Component
+public class MessageTailHub {
+
+    private final ConcurrentHashMap<UUID, Topic> topics = new ConcurrentHashMap<>();
+    private final AtomicInteger subscribers = new AtomicInteger();
+    private final int bufferSize;
+    private final int maxSubscribers;
+
+    public MessageTailHub(MeterRegistry meterRegistry,
+                          @Value("${app.tail.buffer-size:256}") int bufferSize,
+                          @Value("${app.tail.max-subscribers:10000}") int maxSubscribers) {
+        this.bufferSize = bufferSize;
+        this.maxSubscribers = maxSubscribers;
+        Gauge.builder("tail.subscribers", subscribers, AtomicInteger::get)
+                .description("Open live tail subscriptions on this node")
+                .register(meterRegistry);
+    }
+
+    // Each subscriber gets its own bounded buffer; overflowing it ends that subscription at once,
+    // even while the subscriber requests nothing, so a slow reader can never hold up the write
+    // path or other readers, nor keep its topic and subscription slot
+    public Flux<ChatMessage> subscribe(UUID sessionId) {
+        return Flux.defer(() -> {
+            if (subscribers.incrementAndGet() > maxSubscribers) {
+                subscribers.decrementAndGet();
+                return Flux.error(new ServiceOverloadedException("Too many live subscriptions. Try again later."));
+            }
+            Subscriber subscriber = new Subscriber(bufferSize);
+            topics.compute(sessionId, (id, existing) -> {
+                Topic current = existing != null ? existing : new Topic();
+                current.subscribers.add(subscriber);
+                return current;
+            });
+            // The overflow error bypasses the buffer, which only drains as fast as the subscriber requests
+            return subscriber.messages.asFlux()
+                    .takeUntilOther(subscriber.overflow.asMono())
+                    .doOnError(e -> log.debug("Dropping live subscriber for session {}: {}", sessionId, e.toString()))
+                    .doFinally(signal -> release(sessionId, subscriber));
+        });
+    }
+
+    @EventListener
+    public void onMessagesAppended(MessagesAppendedEvent event) {
+        for (ChatMessage message : event.getMessages()) {
+            Topic topic = topics.get(message.getSessionId());
+            if (topic != null) {
+                topic.emit(message);
+            }
+        }
+    }
+
+    // A deleted session gets no more messages, so its subscribers finish once their buffers drain
+    @EventListener
+    public void onSessionDeleted(SessionDeletedEvent event) {
+        Topic topic = topics.get(event.getSessionId());
+        if (topic != null) {
+            topic.complete();
+        }
+    }
+
+    int activeTopics() {
+        return topics.size();
+    }
+
+    private void release(UUID sessionId, Subscriber subscriber) {
+        subscribers.decrementAndGet();
+        topics.computeIfPresent(sessionId, (id, topic) -> {
+            topic.subscribers.remove(subscriber);
+            return topic.subscribers.isEmpty() ? null : topic;
+        });
+    }
+
+    private static final class Topic {
+        private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+
+        // Appends commit on several threads; each subscriber's sink requires serialized emission
+        private synchronized void emit(ChatMessage message) {
+            subscribers.forEach(subscriber -> subscriber.emit(message));
+        }
+
+        private synchronized void complete() {
+            subscribers.forEach(subscriber -> subscriber.messages.tryEmitComplete());
+        }
+    }
+
+    private static final class Subscriber {
+        private final Sinks.Many<ChatMessage> messages;
+        private final Sinks.Empty<ChatMessage> overflow = Sinks.empty();
+        private final int bufferSize;
+
+        private Subscriber(int bufferSize) {
+            this.messages = Sinks.many().unicast().onBackpressureBuffer(new ArrayBlockingQueue<>(bufferSize));
+            this.bufferSize = bufferSize;
+        }
+
+        private void emit(ChatMessage message) {
+            if (messages.tryEmitNext(message) == Sinks.EmitResult.FAIL_OVERFLOW) {
+                overflow.tryEmitError(Exceptions.failWithOverflow(
+                        "Live subscriber fell more than " + bufferSize + " messages behind"));
+            }
+        }
+    }
+}
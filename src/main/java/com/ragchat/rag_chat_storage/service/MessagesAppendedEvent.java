@@ -0,0 +1,12 @@
+package com.ragchat.rag_chat_storage.service;
+
+import com.ragchat.rag_chat_storage.entity.ChatMessage;
+import lombok.Value;
+
+import java.util.List;
+
+// Published once an append transaction has committed
+@Value
+public class MessagesAppendedEvent {
+    List<ChatMessage> messages;
+}
@@ -0,0 +1,41 @@
+package com.ragchat.rag_chat_storage.service;
+
+import com.ragchat.rag_chat_storage.exception.BadRequestException;
+import lombok.Value;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.UUID;
+
+// Opaque keyset position: a (timestamp, id) pair encoded as URL-safe base64
+@Value
+public class PageCursor {
+
+    private static final char SEPARATOR = '|';
+
+    LocalDateTime position;
+    UUID id;
+
+    public String encode() {
+        String raw = position.toString() + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static PageCursor decode(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = raw.indexOf(SEPARATOR);
+            if (separator < 0) {
+                throw new BadRequestException("Invalid cursor: " + cursor);
+            }
+            return new PageCursor(
+                    LocalDateTime.parse(raw.substring(0, separator)),
+                    UUID.fromString(raw.substring(separator + 1)));
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new BadRequestException("Invalid cursor: " + cursor);
+        }
+    }
+}
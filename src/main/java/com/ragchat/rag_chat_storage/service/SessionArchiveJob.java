@@ -0,0 +1,93 @@
+package com.ragchat.rag_chat_storage.service;
+
+import com.ragchat.rag_chat_storage.entity.ChatSession;
+import com.ragchat.rag_chat_storage.repository.ChatSessionRepository;
+import com.ragchat.rag_chat_storage.storage.MessageStore;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.function.Function;
+
+// Archives sessions idle for longer than max-idle and, once the grace period has passed, drops
+// their rows from chat_messages. Stays idle on stores that do not support archiving, such as the
+// segment log, which cannot delete individual messages. Safe to run on several nodes at once.
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "app.archive.enabled", havingValue = "true")
+public class SessionArchiveJob {
+
+    private final ChatSessionRepository sessionRepository;
+    private final SessionArchiver archiver;
+    private final boolean supported;
+    private final Duration maxIdle;
+    private final Duration gracePeriod;
+    private final int sessionsPerRun;
+    private final Counter archivedSessions;
+
+    public SessionArchiveJob(ChatSessionRepository sessionRepository,
+                             SessionArchiver archiver,
+                             MessageStore messageStore,
+                             MeterRegistry meterRegistry,
+                             @Value("${app.archive.max-idle:7d}") Duration maxIdle,
+                             @Value("${app.archive.grace-period:5m}") Duration gracePeriod,
+                             @Value("${app.archive.sessions-per-run:100}") int sessionsPerRun) {
+        this.sessionRepository = sessionRepository;
+        this.archiver = archiver;
+        this.supported = messageStore.supportsArchiving();
+        if (!supported) {
+            log.warn("Session archiving is enabled, but {} does not support it; no sessions will be archived",
+                    messageStore.getClass().getSimpleName());
+        }
+        this.maxIdle = maxIdle;
+        this.gracePeriod = gracePeriod;
+        this.sessionsPerRun = sessionsPerRun;
+        this.archivedSessions = Counter.builder("sessions.archive.archived")
+                .description("Idle sessions moved to the archive")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${app.archive.interval:PT1H}")
+    public void scheduledArchive() {
+        run().block();
+    }
+
+    Mono<Void> run() {
+        if (!supported) {
+            return Mono.empty();
+        }
+        LocalDateTime now = LocalDateTime.now();
+        Mono<Long> archived = each(sessionRepository.findArchivable(now.minus(maxIdle), sessionsPerRun),
+                session -> archiver.archive(session).filter(Boolean::booleanValue).map(done -> 1L));
+        Mono<Long> removed = each(sessionRepository.findArchivedWithMessages(now.minus(gracePeriod), sessionsPerRun),
+                session -> archiver.removeArchivedMessages(session).thenReturn(1L));
+        return archived
+                .doOnNext(archivedSessions::increment)
+                .flatMap(archivedCount -> removed.doOnNext(removedCount -> {
+                    if (archivedCount > 0 || removedCount > 0) {
+                        log.info("Archived {} idle sessions, dropped the rows of {}", archivedCount, removedCount);
+                    }
+                }))
+                .then();
+    }
+
+    // Drains the query before working, so no cursor stays open; one failing session does not stop the rest
+    private Mono<Long> each(Flux<ChatSession> sessions, Function<ChatSession, Mono<Long>> work) {
+        return sessions.collectList()
+                .flatMapMany(Flux::fromIterable)
+                .concatMap(session -> work.apply(session)
+                        .onErrorResume(e -> {
+                            log.warn("Failed to archive session {}, will retry", session.getId(), e);
+                            return Mono.empty();
+                        }))
+                .count();
+    }
+}
@@ -0,0 +1,121 @@
+package com.ragchat.rag_chat_storage.service;
+
+import com.ragchat.rag_chat_storage.entity.ChatMessage;
+import com.ragchat.rag_chat_storage.entity.ChatSession;
+import com.ragchat.rag_chat_storage.repository.ChatSessionRepository;
+import com.ragchat.rag_chat_storage.storage.MessageStore;
+import com.ragchat.rag_chat_storage.storage.SessionArchive;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.stream.Collectors;
+
+// Moves idle sessions between chat_messages and their archive file. Archiving is two-phase:
+// the file is written and the session flagged first, and the rows are only dropped after a
+// grace period, so nodes still holding an unflagged session in their cache keep reading
+// complete data. Any access to a flagged session restores its rows before serving it.
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class SessionArchiver {
+
+    static final int BATCH_SIZE = 500;
+
+    private final ChatSessionRepository sessionRepository;
+    private final MessageStore messageStore;
+    private final SessionArchive archive;
+    private final SessionMetadataCache sessionCache;
+    private final TransactionalOperator transactionalOperator;
+    private final ApplicationEventPublisher eventPublisher;
+
+    // Concurrent requests for one archived session share a single restore
+    private final ConcurrentMap<UUID, Mono<Void>> restoring = new ConcurrentHashMap<>();
+
+    // The session, ready to be served from the message store
+    public Mono<ChatSession> rehydrate(ChatSession session) {
+        if (session.getArchivedAt() == null) {
+            return Mono.just(session);
+        }
+        UUID sessionId = session.getId();
+        LocalDateTime archivedAt = session.getArchivedAt();
+        return restoring.computeIfAbsent(sessionId, id -> restore(id, archivedAt)
+                        .doFinally(signal -> restoring.remove(id))
+                        .cache())
+                .then(Mono.fromCallable(() -> session.toBuilder().archivedAt(null).build()));
+    }
+
+    // Phase one; false if the session changed while it was being written
+    public Mono<Boolean> archive(ChatSession session) {
+        UUID sessionId = session.getId();
+        LocalDateTime archivedAt = LocalDateTime.now().truncatedTo(ChronoUnit.MILLIS);
+        return archive.write(sessionId, archivedAt, messageStore.streamBySessionId(sessionId))
+                .flatMap(ids -> sessionRepository.markArchived(sessionId, archivedAt, ids.size()))
+                .flatMap(marked -> {
+                    if (marked == 0) {
+                        return archive.delete(sessionId, archivedAt).thenReturn(false);
+                    }
+                    sessionCache.invalidate(sessionId);
+                    return Mono.just(true);
+                });
+    }
+
+    // Phase two: drops the archived rows in chunks, each under the session's row lock so a
+    // restore cannot interleave. Rows appended meanwhile by a node with a stale cache entry
+    // cannot be dropped, so such a session is restored instead.
+    public Mono<Void> removeArchivedMessages(ChatSession session) {
+        UUID sessionId = session.getId();
+        LocalDateTime archivedAt = session.getArchivedAt();
+        return archive.read(sessionId, archivedAt)
+                .map(ChatMessage::getId)
+                .buffer(BATCH_SIZE)
+                .concatMap(ids -> transactionalOperator.transactional(sessionRepository.lockArchived(sessionId, archivedAt)
+                        .flatMap(locked -> locked == 0 ? Mono.just(-1) : messageStore.deleteAllById(sessionId, ids))))
+                .takeWhile(deleted -> deleted >= 0)
+                .then(Mono.defer(() -> messageStore.countBySessionId(sessionId)))
+                .flatMap(left -> left == 0 ? Mono.empty() : restore(sessionId, archivedAt));
+    }
+
+    // Rows the job had not yet dropped are kept, so a restore at any point of phase two is complete
+    private Mono<Void> restore(UUID sessionId, LocalDateTime archivedAt) {
+        return transactionalOperator.transactional(sessionRepository.clearArchived(sessionId)
+                        .flatMap(cleared -> cleared == 0
+                                // Restored by someone else, who also removes the file
+                                ? Mono.just(false)
+                                : archive.read(sessionId, archivedAt)
+                                        .buffer(BATCH_SIZE)
+                                        .concatMap(batch -> insertMissing(sessionId, batch))
+                                        .then(Mono.just(true))))
+                .flatMap(restored -> {
+                    sessionCache.invalidate(sessionId);
+                    if (!restored) {
+                        return Mono.empty();
+                    }
+                    // Restored rows bypass the append path, so indexes and caches refill from this
+                    eventPublisher.publishEvent(new SessionRestoredEvent(sessionId));
+                    return archive.delete(sessionId, archivedAt)
+                            .doOnSuccess(v -> log.info("Restored archived session {}", sessionId));
+                });
+    }
+
+    private Mono<Void> insertMissing(UUID sessionId, List<ChatMessage> batch) {
+        return messageStore.findAllById(sessionId, batch.stream().map(ChatMessage::getId).toList())
+                .map(ChatMessage::getId)
+                .collect(Collectors.toSet())
+                .flatMap(present -> {
+                    List<ChatMessage> missing = batch.stream()
+                            .filter(message -> !present.contains(message.getId()))
+                            .toList();
+                    return missing.isEmpty() ? Mono.empty() : messageStore.insertAll(missing);
+                });
+    }
+}
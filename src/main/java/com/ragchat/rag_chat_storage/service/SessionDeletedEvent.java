@@ -0,0 +1,11 @@
+package com.ragchat.rag_chat_storage.service;
+
+import lombok.Value;
+
+import java.util.UUID;
+
+// Published once a session has been deleted (tombstoned); its messages may still be awaiting purge
+@Value
+public class SessionDeletedEvent {
+    UUID sessionId;
+}
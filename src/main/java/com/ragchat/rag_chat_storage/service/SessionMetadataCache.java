@@ -0,0 +1,109 @@
+package com.ragchat.rag_chat_storage.service;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.ragchat.rag_chat_storage.entity.ChatMessage;
+import com.ragchat.rag_chat_storage.entity.ChatSession;
+import com.ragchat.rag_chat_storage.repository.ChatSessionRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+
+// Bounded per-node cache of session rows so hot paths can skip existsById/findById round trips
+@Component
+public class SessionMetadataCache {
+
+    private final ChatSessionRepository sessionRepository;
+    private final AsyncCache<UUID, ChatSession> cache;
+
+    public SessionMetadataCache(ChatSessionRepository sessionRepository,
+                                MeterRegistry meterRegistry,
+                                @Value("${app.session-cache.maximum-size:10000}") long maximumSize,
+                                @Value("${app.session-cache.expire-after-write:60s}") Duration expireAfterWrite) {
+        this.sessionRepository = sessionRepository;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfter(new LoadTimeExpiry(expireAfterWrite))
+                .recordStats()
+                .buildAsync();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "sessionMetadata");
+    }
+
+    // Concurrent misses for the same id share one findById; callers get their own copy to mutate.
+    // Tombstoned sessions load as absent.
+    public Mono<ChatSession> get(UUID sessionId) {
+        return Mono.fromFuture(() -> cache.get(sessionId, (id, executor) -> sessionRepository.findById(id)
+                        .filter(session -> session.getDeletedAt() == null)
+                        .toFuture()), true)
+                .map(session -> session.toBuilder().build());
+    }
+
+    // Applies an append to the cached stats; an in-flight or failed load is dropped instead
+    public void recordAppend(UUID sessionId, long count, LocalDateTime lastMessageAt, String preview) {
+        cache.asMap().computeIfPresent(sessionId, (id, future) -> {
+            ChatSession cached = future.isDone() && !future.isCompletedExceptionally() ? future.join() : null;
+            if (cached == null) {
+                return null;
+            }
+            ChatSession.ChatSessionBuilder updated = cached.toBuilder()
+                    .messageCount(cached.getMessageCount() + count);
+            if (cached.getLastMessageAt() == null || !cached.getLastMessageAt().isAfter(lastMessageAt)) {
+                updated.lastMessageAt(lastMessageAt).lastMessagePreview(preview);
+            }
+            return CompletableFuture.completedFuture(updated.build());
+        });
+    }
+
+    @EventListener
+    public void onMessagesAppended(MessagesAppendedEvent event) {
+        event.getMessages().stream()
+                .collect(Collectors.groupingBy(ChatMessage::getSessionId))
+                .forEach((sessionId, messages) -> {
+                    ChatMessage latest = messages.stream()
+                            .max(Comparator.comparing(ChatMessage::getCreatedAt))
+                            .orElseThrow();
+                    recordAppend(sessionId, messages.size(), latest.getCreatedAt(),
+                            ChatMessageService.preview(latest.getContent()));
+                });
+    }
+
+    public void invalidate(UUID sessionId) {
+        cache.synchronous().invalidate(sessionId);
+    }
+
+    // Entries live for a fixed time from load; in-place stat updates must not extend that
+    private static final class LoadTimeExpiry implements Expiry<UUID, ChatSession> {
+
+        private final long ttlNanos;
+
+        private LoadTimeExpiry(Duration ttl) {
+            this.ttlNanos = ttl.toNanos();
+        }
+
+        @Override
+        public long expireAfterCreate(UUID key, ChatSession value, long currentTime) {
+            return ttlNanos;
+        }
+
+        @Override
+        public long expireAfterUpdate(UUID key, ChatSession value, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+
+        @Override
+        public long expireAfterRead(UUID key, ChatSession value, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
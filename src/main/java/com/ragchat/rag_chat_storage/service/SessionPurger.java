@@ -0,0 +1,90 @@
+package com.ragchat.rag_chat_storage.service;
+
+import com.ragchat.rag_chat_storage.repository.ChatSessionRepository;
+import com.ragchat.rag_chat_storage.storage.MessageStore;
+import com.ragchat.rag_chat_storage.storage.SessionArchive;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.UUID;
+
+// Removes the messages of tombstoned sessions in small chunks with a pause between them, so a
+// huge session never holds a long write lock or crowds out foreground requests. The session row
+// goes last, after any archive files; until then it stays tombstoned and hidden. Safe to run on several nodes at once.
+@Slf4j
+@Component
+public class SessionPurger {
+
+    private final ChatSessionRepository sessionRepository;
+    private final MessageStore messageStore;
+    private final SessionArchive archive;
+    private final int chunkSize;
+    private final Duration chunkDelay;
+    private final int sessionsPerRun;
+    private final Counter purgedMessages;
+    private final Counter purgedSessions;
+
+    public SessionPurger(ChatSessionRepository sessionRepository,
+                         MessageStore messageStore,
+                         SessionArchive archive,
+                         MeterRegistry meterRegistry,
+                         @Value("${app.session-purge.chunk-size:500}") int chunkSize,
+                         @Value("${app.session-purge.chunk-delay:50ms}") Duration chunkDelay,
+                         @Value("${app.session-purge.sessions-per-run:100}") int sessionsPerRun) {
+        this.sessionRepository = sessionRepository;
+        this.messageStore = messageStore;
+        this.archive = archive;
+        this.chunkSize = chunkSize;
+        this.chunkDelay = chunkDelay;
+        this.sessionsPerRun = sessionsPerRun;
+        this.purgedMessages = Counter.builder("sessions.purge.messages")
+                .description("Messages removed from tombstoned sessions")
+                .register(meterRegistry);
+        this.purgedSessions = Counter.builder("sessions.purge.sessions")
+                .description("Tombstoned sessions removed completely")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${app.session-purge.interval:PT10S}")
+    public void scheduledPurge() {
+        purge().block();
+    }
+
+    // Purges up to sessionsPerRun tombstoned sessions one after another, returning how many finished
+    public Mono<Long> purge() {
+        return sessionRepository.findTombstonedIds(sessionsPerRun)
+                // Drains the id query before deleting, so no cursor stays open during the purge
+                .collectList()
+                .flatMapMany(Flux::fromIterable)
+                .concatMap(sessionId -> purgeSession(sessionId)
+                        .thenReturn(1L)
+                        .onErrorResume(e -> {
+                            log.warn("Failed to purge session {}, will retry", sessionId, e);
+                            return Mono.empty();
+                        }))
+                .count()
+                .doOnSuccess(purged -> {
+                    if (purged > 0) {
+                        log.info("Purged {} deleted sessions", purged);
+                    }
+                });
+    }
+
+    private Mono<Void> purgeSession(UUID sessionId) {
+        return messageStore.deleteBySessionId(sessionId, chunkSize)
+                .expand(deleted -> deleted > 0
+                        ? Mono.delay(chunkDelay).then(messageStore.deleteBySessionId(sessionId, chunkSize))
+                        : Mono.empty())
+                .doOnNext(purgedMessages::increment)
+                .then(Mono.defer(() -> archive.deleteAll(sessionId)))
+                .then(Mono.defer(() -> sessionRepository.deleteById(sessionId)))
+                .doOnSuccess(v -> purgedSessions.increment());
+    }
+}
@@ -0,0 +1,11 @@
+package com.ragchat.rag_chat_storage.service;
+
+import lombok.Value;
+
+import java.util.UUID;
+
+// Published once an archived session's messages are back in the message store
+@Value
+public class SessionRestoredEvent {
+    UUID sessionId;
+}
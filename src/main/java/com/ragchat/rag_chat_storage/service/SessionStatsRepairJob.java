@@ -0,0 +1,59 @@
+package com.ragchat.rag_chat_storage.service;
+
+import com.ragchat.rag_chat_storage.repository.ChatSessionRepository;
+import com.ragchat.rag_chat_storage.storage.MessageStore;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.util.Optional;
+
+// Backfills and repairs the denormalized message stats on chat_sessions.
+// Only meaningful when messages live in chat_messages.
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnExpression("'${app.message-store.backend:r2dbc}' != 'segment'")
+public class SessionStatsRepairJob {
+
+    private final ChatSessionRepository sessionRepository;
+    private final MessageStore messageStore;
+
+    @Value("${app.session-stats.repair-on-startup:true}")
+    private boolean repairOnStartup;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void repairOnStartup() {
+        if (repairOnStartup) {
+            repair().subscribe();
+        }
+    }
+
+    @Scheduled(cron = "${app.session-stats.repair-cron:-}")
+    public void scheduledRepair() {
+        repair().block();
+    }
+
+    public Mono<Integer> repair() {
+        return sessionRepository.findIdsWithStaleMessageStats()
+                // Previews are taken from decoded messages, never from the stored column text
+                .concatMap(sessionId -> messageStore.findLatest(sessionId, 1)
+                        .next()
+                        .map(latest -> Optional.ofNullable(ChatMessageService.preview(latest.getContent())))
+                        .defaultIfEmpty(Optional.empty())
+                        .flatMap(preview -> sessionRepository.repairMessageStats(sessionId, preview.orElse(null))))
+                .reduce(0, Integer::sum)
+                .doOnSuccess(repaired -> {
+                    if (repaired != null && repaired > 0) {
+                        log.info("Repaired message stats for {} sessions", repaired);
+                    }
+                })
+                .doOnError(e -> log.error("Failed to repair session message stats", e));
+    }
+}
@@ -0,0 +1,38 @@
+package com.ragchat.rag_chat_storage.service;
+
+// Single-pass token estimate for budgeting prompts without a model tokenizer. A run of ASCII
+// letters and digits costs one token per four characters started, any other letter or symbol
+// one token each, and whitespace nothing. It errs high on code and non-Latin scripts, which
+// keeps an assembled window inside the caller's budget.
+final class TokenEstimator {
+
+    static final int CHARS_PER_WORD_TOKEN = 4;
+
+    private TokenEstimator() {
+    }
+
+    static int estimate(String text) {
+        if (text == null) {
+            return 0;
+        }
+        int tokens = 0;
+        int run = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c < 128 && Character.isLetterOrDigit(c)) {
+                run++;
+                continue;
+            }
+            tokens += wordTokens(run);
+            run = 0;
+            if (!Character.isWhitespace(c)) {
+                tokens++;
+            }
+        }
+        return tokens + wordTokens(run);
+    }
+
+    private static int wordTokens(int length) {
+        return (length + CHARS_PER_WORD_TOKEN - 1) / CHARS_PER_WORD_TOKEN;
+    }
+}
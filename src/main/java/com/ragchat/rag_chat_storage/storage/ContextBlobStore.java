@@ -0,0 +1,179 @@
+package com.ragchat.rag_chat_storage.storage;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HexFormat;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.regex.Pattern;
+
+// Content-addressed storage for RAG context chunks in context_blobs. A context is split into
+// passages at blank lines; each distinct passage is stored once under its SHA-256 and reference
+// counted by the messages that use it. All writes join the caller's transaction. The jdbc backend
+// shares the passage splitting and hot cache but runs its own statements.
+@Component
+@ConditionalOnExpression("'${app.message-store.backend:r2dbc}' != 'segment'")
+public class ContextBlobStore {
+
+    // Keeps the separator with the preceding passage so joining the chunks restores the exact text
+    private static final Pattern PASSAGE_BOUNDARY = Pattern.compile("(?<=\\n\\n)");
+
+    private static final int MAX_HASHES_PER_QUERY = 100;
+
+    private final DatabaseClient databaseClient;
+    private final MessageCodec codec;
+    private final int minContextLength;
+    private final Cache<String, String> hotBlobs;
+
+    public ContextBlobStore(DatabaseClient databaseClient,
+                            MessageCodec codec,
+                            MeterRegistry meterRegistry,
+                            @Value("${app.context-blobs.min-context-length:256}") int minContextLength,
+                            @Value("${app.context-blobs.cache-max-chars:16000000}") long cacheMaxChars) {
+        this.databaseClient = databaseClient;
+        this.codec = codec;
+        this.minContextLength = minContextLength;
+        this.hotBlobs = Caffeine.newBuilder()
+                .maximumWeight(cacheMaxChars)
+                .weigher((String hash, String content) -> content.length())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, hotBlobs, "contextBlobs");
+    }
+
+    // Stored context for the given text: a blob reference list, or null to keep it inline
+    String reference(String context, Map<String, String> chunksByHash) {
+        if (context == null || context.length() < minContextLength) {
+            return null;
+        }
+        List<String> hashes = new ArrayList<>();
+        for (String chunk : PASSAGE_BOUNDARY.split(context)) {
+            String hash = hash(chunk);
+            chunksByHash.putIfAbsent(hash, chunk);
+            hashes.add(hash);
+        }
+        return codec.encodeBlobRefs(hashes);
+    }
+
+    // Adds references for every listed hash, creating blobs that do not exist yet. Only new
+    // passages are sent to the database; known ones cost a counter update.
+    Mono<Void> retain(Map<String, String> chunksByHash, Map<String, Long> refCounts) {
+        return Flux.fromIterable(refCounts.entrySet())
+                .concatMap(entry -> databaseClient
+                        .sql("UPDATE context_blobs SET ref_count = ref_count + :delta WHERE hash = :hash")
+                        .bind("delta", entry.getValue())
+                        .bind("hash", entry.getKey())
+                        .fetch().rowsUpdated()
+                        .flatMap(updated -> updated > 0 ? Mono.<Long>empty() : databaseClient
+                                .sql("INSERT INTO context_blobs (hash, content, ref_count) VALUES (:hash, :content, :refCount)")
+                                .bind("hash", entry.getKey())
+                                .bind("content", codec.encodeText(chunksByHash.get(entry.getKey())))
+                                .bind("refCount", entry.getValue())
+                                .fetch().rowsUpdated()))
+                .then();
+    }
+
+    // Drops the references held by the listed messages and deletes blobs nobody uses any more
+    Mono<Void> releaseMessages(Collection<UUID> messageIds) {
+        return databaseClient.sql("SELECT context FROM chat_messages WHERE id IN (:ids) AND context IS NOT NULL")
+                .bind("ids", messageIds)
+                .map(row -> row.get("context", String.class))
+                .all()
+                .mapNotNull(codec::blobRefs)
+                .collectList()
+                .map(ContextBlobStore::countReferences)
+                .flatMap(this::release);
+    }
+
+    private Mono<Void> release(Map<String, Long> refCounts) {
+        if (refCounts.isEmpty()) {
+            return Mono.empty();
+        }
+        return Flux.fromIterable(refCounts.entrySet())
+                .concatMap(entry -> databaseClient
+                        .sql("UPDATE context_blobs SET ref_count = ref_count - :delta WHERE hash = :hash")
+                        .bind("delta", entry.getValue())
+                        .bind("hash", entry.getKey())
+                        .fetch().rowsUpdated())
+                .thenMany(Flux.fromIterable(partition(refCounts.keySet())))
+                .concatMap(hashes -> databaseClient
+                        .sql("DELETE FROM context_blobs WHERE ref_count <= 0 AND hash IN (:hashes)")
+                        .bind("hashes", hashes)
+                        .fetch().rowsUpdated())
+                .then(Mono.fromRunnable(() -> hotBlobs.invalidateAll(refCounts.keySet())));
+    }
+
+    // Blob texts for the hashes, served from the hot cache where possible
+    Mono<Map<String, String>> load(Set<String> hashes) {
+        Map<String, String> found = new HashMap<>(hotBlobs.getAllPresent(hashes));
+        List<String> missing = hashes.stream().filter(hash -> !found.containsKey(hash)).toList();
+        if (missing.isEmpty()) {
+            return Mono.just(found);
+        }
+        return Flux.fromIterable(partition(missing))
+                .concatMap(batch -> databaseClient.sql("SELECT hash, content FROM context_blobs WHERE hash IN (:hashes)")
+                        .bind("hashes", batch)
+                        .map(row -> Map.entry(row.get("hash", String.class), codec.decodeText(row.get("content", String.class))))
+                        .all())
+                .doOnNext(entry -> hotBlobs.put(entry.getKey(), entry.getValue()))
+                .collect(() -> found, (blobs, entry) -> blobs.put(entry.getKey(), entry.getValue()))
+                .flatMap(blobs -> blobs.keySet().containsAll(missing)
+                        ? Mono.just(blobs)
+                        : Mono.error(new IllegalStateException("Missing context blobs for " + missing)));
+    }
+
+    Map<String, String> cached(Collection<String> hashes) {
+        return hotBlobs.getAllPresent(hashes);
+    }
+
+    void cache(String hash, String content) {
+        hotBlobs.put(hash, content);
+    }
+
+    void evict(Collection<String> hashes) {
+        hotBlobs.invalidateAll(hashes);
+    }
+
+    static List<List<String>> partition(Collection<String> hashes) {
+        List<String> all = new ArrayList<>(hashes);
+        List<List<String>> batches = new ArrayList<>();
+        for (int from = 0; from < all.size(); from += MAX_HASHES_PER_QUERY) {
+            batches.add(all.subList(from, Math.min(all.size(), from + MAX_HASHES_PER_QUERY)));
+        }
+        return batches;
+    }
+
+    private static String hash(String chunk) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(chunk.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    // Sorted, so concurrent transactions touch blob rows in the same order
+    static Map<String, Long> countReferences(Collection<List<String>> references) {
+        Map<String, Long> counts = new TreeMap<>();
+        references.forEach(hashes -> hashes.forEach(hash -> counts.merge(hash, 1L, Long::sum)));
+        return counts;
+    }
+}
@@ -0,0 +1,162 @@
+package com.ragchat.rag_chat_storage.storage;
+
+import com.ragchat.rag_chat_storage.entity.ChatMessage;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+// Storage encoding for message content and RAG context. Values at or above the threshold are
+// deflated when that makes them smaller. Text columns carry a marker prefix so rows written
+// before compression existed still read back unchanged.
+@Component
+public class MessageCodec {
+
+    // Stored text starting with MARKER is encoded; the next character names the format
+    static final char MARKER = '\u0001';
+    static final char FORMAT_RAW = 'R';
+    static final char FORMAT_DEFLATE = 'D';
+    // Context stored as a list of content hashes into context_blobs
+    static final char FORMAT_BLOB_REFS = 'H';
+
+    private static final ThreadLocal<Deflater> DEFLATER = ThreadLocal.withInitial(() -> new Deflater(Deflater.BEST_SPEED, true));
+    private static final ThreadLocal<Inflater> INFLATER = ThreadLocal.withInitial(() -> new Inflater(true));
+
+    private final int compressionThreshold;
+
+    public MessageCodec(@Value("${app.message-codec.compression-threshold:512}") int compressionThreshold) {
+        this.compressionThreshold = compressionThreshold;
+    }
+
+    public ChatMessage encode(ChatMessage message) {
+        return message.toBuilder()
+                .content(encodeText(message.getContent()))
+                .context(encodeText(message.getContext()))
+                .build();
+    }
+
+    public ChatMessage decode(ChatMessage message) {
+        return message.toBuilder()
+                .content(decodeText(message.getContent()))
+                .context(decodeText(message.getContext()))
+                .build();
+    }
+
+    // Decodes a stored row whose context may be a blob reference list, given the referenced blob texts
+    ChatMessage decode(ChatMessage message, Map<String, String> blobs) {
+        List<String> refs = blobRefs(message.getContext());
+        if (refs == null) {
+            return decode(message);
+        }
+        StringBuilder context = new StringBuilder();
+        refs.forEach(hash -> context.append(blobs.get(hash)));
+        return message.toBuilder()
+                .content(decodeText(message.getContent()))
+                .context(context.toString())
+                .build();
+    }
+
+    String encodeText(String text) {
+        if (text == null) {
+            return null;
+        }
+        byte[] compressed = compress(text.getBytes(StandardCharsets.UTF_8));
+        if (compressed != null) {
+            String encoded = MARKER + String.valueOf(FORMAT_DEFLATE) + Base64.getEncoder().encodeToString(compressed);
+            if (encoded.length() < text.length()) {
+                return encoded;
+            }
+        }
+        // Plain text only needs escaping in the unlikely case it already looks encoded
+        return !text.isEmpty() && text.charAt(0) == MARKER ? MARKER + String.valueOf(FORMAT_RAW) + text : text;
+    }
+
+    String decodeText(String stored) {
+        if (stored == null || stored.length() < 2 || stored.charAt(0) != MARKER) {
+            return stored;
+        }
+        return switch (stored.charAt(1)) {
+            case FORMAT_RAW -> stored.substring(2);
+            case FORMAT_DEFLATE -> new String(inflate(Base64.getDecoder().decode(stored.substring(2))), StandardCharsets.UTF_8);
+            case FORMAT_BLOB_REFS -> throw new IllegalStateException("Context blob references must be resolved first");
+            default -> throw new IllegalStateException("Unknown stored text format: " + stored.charAt(1));
+        };
+    }
+
+    String encodeBlobRefs(List<String> hashes) {
+        return MARKER + String.valueOf(FORMAT_BLOB_REFS) + String.join(",", hashes);
+    }
+
+    // Hashes referenced by a stored context, or null when the context is stored inline
+    List<String> blobRefs(String stored) {
+        if (stored == null || stored.length() < 2 || stored.charAt(0) != MARKER || stored.charAt(1) != FORMAT_BLOB_REFS) {
+            return null;
+        }
+        return List.of(stored.substring(2).split(","));
+    }
+
+    // Raw deflate of the bytes, or null when below the threshold or not worth it
+    byte[] compress(byte[] data) {
+        if (data.length < compressionThreshold) {
+            return null;
+        }
+        Deflater deflater = DEFLATER.get();
+        deflater.reset();
+        deflater.setInput(data);
+        deflater.finish();
+        ByteArrayOutputStream out = new ByteArrayOutputStream(data.length / 2);
+        byte[] buffer = new byte[Math.min(data.length, 8192)];
+        while (!deflater.finished()) {
+            int written = deflater.deflate(buffer);
+            out.write(buffer, 0, written);
+            if (out.size() >= data.length) {
+                return null;
+            }
+        }
+        return out.toByteArray();
+    }
+
+    static byte[] inflate(byte[] data) {
+        Inflater inflater = INFLATER.get();
+        inflater.reset();
+        inflater.setInput(data);
+        ByteArrayOutputStream out = new ByteArrayOutputStream(data.length * 3);
+        byte[] buffer = new byte[8192];
+        try {
+            while (!inflater.finished()) {
+                int read = inflater.inflate(buffer);
+                if (read == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IllegalStateException("Truncated compressed message text");
+                }
+                out.write(buffer, 0, read);
+            }
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("Corrupt compressed message text", e);
+        }
+        return out.toByteArray();
+    }
+
+    // Compact sender codes used by the segment record format
+    static byte senderCode(String sender) {
+        return switch (sender) {
+            case "USER" -> 1;
+            case "ASSISTANT" -> 2;
+            default -> throw new IllegalArgumentException("Unknown sender: " + sender);
+        };
+    }
+
+    static String sender(byte code) {
+        return switch (code) {
+            case 1 -> "USER";
+            case 2 -> "ASSISTANT";
+            default -> throw new IllegalStateException("Unknown sender code: " + code);
+        };
+    }
+}
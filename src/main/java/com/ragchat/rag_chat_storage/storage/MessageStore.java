@@ -0,0 +1,55 @@
+package com.ragchat.rag_chat_storage.storage;
+
+import com.ragchat.rag_chat_storage.entity.ChatMessage;
+import org.springframework.data.domain.Pageable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+// Message storage backend, selected with app.message-store.backend.
+// Every ordered read is by (created_at, id), matching the keyset cursors handed out to clients.
+public interface MessageStore {
+
+    // Persists all messages; the database backend joins the caller's transaction
+    Mono<Void> insertAll(List<ChatMessage> messages);
+
+    Flux<ChatMessage> findBySessionIdOrderByCreatedAtAsc(UUID sessionId);
+
+    Flux<ChatMessage> findBySessionIdOrderByCreatedAtAsc(UUID sessionId, Pageable pageable);
+
+    Mono<Long> countBySessionId(UUID sessionId);
+
+    Flux<ChatMessage> findFirstPage(UUID sessionId, int limit);
+
+    Flux<ChatMessage> findPageAfter(UUID sessionId, LocalDateTime createdAt, UUID id, int limit);
+
+    // Newest first, for paging backwards
+    Flux<ChatMessage> findPageBefore(UUID sessionId, LocalDateTime createdAt, UUID id, int limit);
+
+    // The newest messages of the session, newest first
+    Flux<ChatMessage> findLatest(UUID sessionId, int limit);
+
+    // The listed messages of one session, in no particular order; unknown ids are skipped
+    Flux<ChatMessage> findAllById(UUID sessionId, Collection<UUID> ids);
+
+    Flux<ChatMessage> streamBySessionId(UUID sessionId);
+
+    Flux<ChatMessage> streamAfter(UUID sessionId, LocalDateTime createdAt, UUID id);
+
+    // Deletes up to limit of the session's messages, returning how many went; zero means none are left
+    Mono<Integer> deleteBySessionId(UUID sessionId, int limit);
+
+    // Deletes the listed messages of one session, returning how many existed; joins the caller's
+    // transaction unless it is a SelfCommittingMessageStore
+    Mono<Integer> deleteAllById(UUID sessionId, Collection<UUID> ids);
+
+    // True when deleteAllById drops single messages inside the caller's transaction, which archiving
+    // needs to remove rows under the session's lock
+    default boolean supportsArchiving() {
+        return true;
+    }
+}
@@ -0,0 +1,139 @@
+package com.ragchat.rag_chat_storage.storage;
+
+import com.ragchat.rag_chat_storage.entity.ChatMessage;
+import com.ragchat.rag_chat_storage.repository.ChatMessageRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+// Default backend: the chat_messages table through Spring Data R2DBC. Content and context
+// are encoded by MessageCodec on the way in and decoded only for the rows a query returns;
+// long contexts are stored as references into ContextBlobStore.
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "app.message-store.backend", havingValue = "r2dbc", matchIfMissing = true)
+public class R2dbcMessageStore implements MessageStore {
+
+    private final ChatMessageRepository messageRepository;
+    private final MessageCodec codec;
+    private final ContextBlobStore contextBlobs;
+    private final TransactionalOperator transactionalOperator;
+
+    // Rows resolved against the blob store per lookup
+    private static final int RESOLVE_BATCH_SIZE = 64;
+
+    @Override
+    public Mono<Void> insertAll(List<ChatMessage> messages) {
+        return Mono.defer(() -> {
+            Map<String, String> chunksByHash = new HashMap<>();
+            List<List<String>> references = new ArrayList<>();
+            List<ChatMessage> stored = new ArrayList<>(messages.size());
+            for (ChatMessage message : messages) {
+                String reference = contextBlobs.reference(message.getContext(), chunksByHash);
+                ChatMessage encoded = codec.encode(reference != null ? message.toBuilder().context(null).build() : message);
+                if (reference != null) {
+                    references.add(codec.blobRefs(reference));
+                    encoded.setContext(reference);
+                }
+                stored.add(encoded);
+            }
+            return contextBlobs.retain(chunksByHash, ContextBlobStore.countReferences(references))
+                    .then(messageRepository.insertAll(stored));
+        });
+    }
+
+    @Override
+    public Flux<ChatMessage> findBySessionIdOrderByCreatedAtAsc(UUID sessionId) {
+        return decode(messageRepository.findBySessionIdOrderByCreatedAtAscIdAsc(sessionId));
+    }
+
+    @Override
+    public Flux<ChatMessage> findBySessionIdOrderByCreatedAtAsc(UUID sessionId, Pageable pageable) {
+        return decode(messageRepository.findBySessionIdOrderByCreatedAtAscIdAsc(sessionId, pageable));
+    }
+
+    @Override
+    public Mono<Long> countBySessionId(UUID sessionId) {
+        return messageRepository.countBySessionId(sessionId);
+    }
+
+    @Override
+    public Flux<ChatMessage> findFirstPage(UUID sessionId, int limit) {
+        return decode(messageRepository.findFirstPage(sessionId, limit));
+    }
+
+    @Override
+    public Flux<ChatMessage> findPageAfter(UUID sessionId, LocalDateTime createdAt, UUID id, int limit) {
+        return decode(messageRepository.findPageAfter(sessionId, createdAt, id, limit));
+    }
+
+    @Override
+    public Flux<ChatMessage> findPageBefore(UUID sessionId, LocalDateTime createdAt, UUID id, int limit) {
+        return decode(messageRepository.findPageBefore(sessionId, createdAt, id, limit));
+    }
+
+    @Override
+    public Flux<ChatMessage> findLatest(UUID sessionId, int limit) {
+        return decode(messageRepository.findLatest(sessionId, limit));
+    }
+
+    @Override
+    public Flux<ChatMessage> findAllById(UUID sessionId, Collection<UUID> ids) {
+        return decode(messageRepository.findBySessionIdAndIdIn(sessionId, ids));
+    }
+
+    @Override
+    public Flux<ChatMessage> streamBySessionId(UUID sessionId) {
+        return decode(messageRepository.streamBySessionId(sessionId));
+    }
+
+    @Override
+    public Flux<ChatMessage> streamAfter(UUID sessionId, LocalDateTime createdAt, UUID id) {
+        return decode(messageRepository.streamAfter(sessionId, createdAt, id));
+    }
+
+    @Override
+    public Mono<Integer> deleteBySessionId(UUID sessionId, int limit) {
+        return transactionalOperator.transactional(messageRepository.findIdsBySessionId(sessionId, limit)
+                .collectList()
+                .flatMap(ids -> deleteAllById(sessionId, ids)));
+    }
+
+    @Override
+    public Mono<Integer> deleteAllById(UUID sessionId, Collection<UUID> ids) {
+        if (ids.isEmpty()) {
+            return Mono.just(0);
+        }
+        return transactionalOperator.transactional(
+                contextBlobs.releaseMessages(ids).then(messageRepository.deleteBySessionIdAndIdIn(sessionId, ids)));
+    }
+
+    private Flux<ChatMessage> decode(Flux<ChatMessage> rows) {
+        return rows.buffer(RESOLVE_BATCH_SIZE)
+                .concatMap(batch -> {
+                    Set<String> hashes = new HashSet<>();
+                    batch.forEach(row -> {
+                        List<String> refs = codec.blobRefs(row.getContext());
+                        if (refs != null) {
+                            hashes.addAll(refs);
+                        }
+                    });
+                    Mono<Map<String, String>> blobs = hashes.isEmpty() ? Mono.just(Map.of()) : contextBlobs.load(hashes);
+                    return blobs.flatMapIterable(loaded -> batch.stream().map(row -> codec.decode(row, loaded)).toList());
+                });
+    }
+}
@@ -0,0 +1,276 @@
+package com.ragchat.rag_chat_storage.storage;
+
+import com.ragchat.rag_chat_storage.entity.ChatMessage;
+import com.ragchat.rag_chat_storage.service.MessagesAppendedEvent;
+import com.ragchat.rag_chat_storage.service.SessionDeletedEvent;
+import com.ragchat.rag_chat_storage.service.SessionRestoredEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.Getter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.ByteBuffer;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+// Per-node window of the newest messages of recently read sessions, so prompt building can skip
+// the message store. Windows live off-heap: one direct slab is cut into fixed-size blocks, each
+// cached session owns a block holding its newest messages as segment records, and when no block
+// is free the least recently used session gives its block up. A window is always an unbroken
+// run of the session's newest messages and is only served while it reaches the session's
+// last message time, so appends made on other nodes show up once the session cache refreshes.
+@Component
+public class RecentMessageCache {
+
+    private static final Comparator<ChatMessage> ORDER = Comparator.comparing(ChatMessage::getCreatedAt)
+            .thenComparing(ChatMessage::getId);
+
+    private final MessageCodec codec;
+    private final int blockSize;
+    @Getter
+    private final int messagesPerSession;
+    private final ByteBuffer slab;
+    private final int[] freeBlocks;
+    private int freeCount;
+    private final LinkedHashMap<UUID, Window> windows = new LinkedHashMap<>(16, 0.75f, true);
+    // Compaction bounce buffer; only touched under the cache lock
+    private final byte[] scratch;
+    private final Counter hits;
+    private final Counter misses;
+
+    public RecentMessageCache(MessageCodec codec,
+                              MeterRegistry meterRegistry,
+                              @Value("${app.recent-cache.max-memory:64MB}") DataSize maxMemory,
+                              @Value("${app.recent-cache.block-size:32KB}") DataSize blockSize,
+                              @Value("${app.recent-cache.messages-per-session:20}") int messagesPerSession) {
+        if (maxMemory.toBytes() > Integer.MAX_VALUE || blockSize.toBytes() > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("app.recent-cache sizes must stay below 2GB");
+        }
+        this.codec = codec;
+        this.blockSize = (int) Math.max(SegmentRecords.HEADER_SIZE, blockSize.toBytes());
+        this.messagesPerSession = Math.max(1, messagesPerSession);
+        int blocks = (int) (maxMemory.toBytes() / this.blockSize);
+        this.slab = ByteBuffer.allocateDirect(blocks * this.blockSize);
+        this.freeBlocks = new int[blocks];
+        for (int i = 0; i < blocks; i++) {
+            freeBlocks[i] = (blocks - 1 - i) * this.blockSize;
+        }
+        this.freeCount = blocks;
+        this.scratch = new byte[this.blockSize];
+        this.hits = Counter.builder("recent.cache.requests").tag("result", "hit")
+                .description("Recent-message reads served from the off-heap window cache")
+                .register(meterRegistry);
+        this.misses = Counter.builder("recent.cache.requests").tag("result", "miss")
+                .description("Recent-message reads that went to the message store")
+                .register(meterRegistry);
+        Gauge.builder("recent.cache.sessions", this, RecentMessageCache::size)
+                .description("Sessions holding a recent-message window on this node")
+                .register(meterRegistry);
+        Gauge.builder("recent.cache.capacity.bytes", slab, ByteBuffer::capacity)
+                .description("Direct memory reserved for recent-message windows")
+                .register(meterRegistry);
+    }
+
+    // The newest limit messages oldest first, or empty when the window cannot answer for them
+    // all. A window reaching past lastMessageAt is current: stored times may be truncated.
+    public Optional<List<ChatMessage>> get(UUID sessionId, int limit, LocalDateTime lastMessageAt) {
+        synchronized (this) {
+            Window window = windows.get(sessionId);
+            if (window != null && window.reaches(lastMessageAt) && (window.count >= limit || window.holdsAll)) {
+                int served = Math.min(limit, window.count);
+                List<ChatMessage> messages = new ArrayList<>(served);
+                for (int i = window.count - served; i < window.count; i++) {
+                    messages.add(SegmentRecords.decodeMessage(slab, window.base + window.offset(i)));
+                }
+                hits.increment();
+                return Optional.of(messages);
+            }
+        }
+        misses.increment();
+        return Optional.empty();
+    }
+
+    // Installs the newest messages read from the store, oldest first; complete if that is all the session has
+    public void load(UUID sessionId, List<ChatMessage> messages, boolean complete) {
+        int from = Math.max(0, messages.size() - messagesPerSession);
+        List<ChatMessage> kept = messages.subList(from, messages.size());
+        List<byte[]> records = kept.stream().map(message -> SegmentRecords.encodeMessage(message, codec)).toList();
+        synchronized (this) {
+            release(windows.remove(sessionId));
+            Window window = allocate(sessionId);
+            if (window == null) {
+                return;
+            }
+            window.holdsAll = complete && from == 0;
+            for (int i = 0; i < kept.size(); i++) {
+                add(window, kept.get(i), records.get(i));
+            }
+        }
+    }
+
+    // Write-through of a committed append; only windows already cached are extended
+    public void append(ChatMessage message) {
+        synchronized (this) {
+            if (!windows.containsKey(message.getSessionId())) {
+                return;
+            }
+        }
+        byte[] record = SegmentRecords.encodeMessage(message, codec);
+        synchronized (this) {
+            Window window = windows.get(message.getSessionId());
+            if (window == null || message.getId().equals(window.newestId)) {
+                return;
+            }
+            if (window.newestAt != null && !message.getCreatedAt().isAfter(window.newestAt)) {
+                // Committed out of order; a fresh load is cheaper than splicing it in
+                release(windows.remove(message.getSessionId()));
+                return;
+            }
+            add(window, message, record);
+        }
+    }
+
+    public synchronized void invalidate(UUID sessionId) {
+        release(windows.remove(sessionId));
+    }
+
+    public synchronized int size() {
+        return windows.size();
+    }
+
+    @EventListener
+    public void onMessagesAppended(MessagesAppendedEvent event) {
+        event.getMessages().stream().sorted(ORDER).forEach(this::append);
+    }
+
+    @EventListener
+    public void onSessionDeleted(SessionDeletedEvent event) {
+        invalidate(event.getSessionId());
+    }
+
+    // Restored rows never pass through append, so the window is reloaded from the store
+    @EventListener
+    public void onSessionRestored(SessionRestoredEvent event) {
+        invalidate(event.getSessionId());
+    }
+
+    private Window allocate(UUID sessionId) {
+        if (freeCount == 0) {
+            Iterator<Map.Entry<UUID, Window>> eldest = windows.entrySet().iterator();
+            if (!eldest.hasNext()) {
+                return null;
+            }
+            release(eldest.next().getValue());
+            eldest.remove();
+        }
+        Window window = new Window(freeBlocks[--freeCount], messagesPerSession);
+        windows.put(sessionId, window);
+        return window;
+    }
+
+    private void release(Window window) {
+        if (window != null) {
+            freeBlocks[freeCount++] = window.base;
+        }
+    }
+
+    // Drops the oldest records until the new one fits, compacting the survivors to the block start
+    private void add(Window window, ChatMessage message, byte[] record) {
+        window.newestAt = message.getCreatedAt();
+        window.newestId = message.getId();
+        if (record.length > blockSize) {
+            // Too large to cache; the window restarts empty after it
+            window.clear();
+            return;
+        }
+        if (window.count == messagesPerSession) {
+            window.dropOldest();
+        }
+        if (blockSize - window.end < record.length) {
+            while (window.end - window.start() + record.length > blockSize) {
+                window.dropOldest();
+            }
+            compact(window);
+        }
+        slab.put(window.base + window.end, record);
+        window.push(record.length);
+    }
+
+    private void compact(Window window) {
+        int start = window.start();
+        int live = window.end - start;
+        if (start > 0 && live > 0) {
+            slab.get(window.base + start, scratch, 0, live);
+            slab.put(window.base, scratch, 0, live);
+        }
+        window.shift(start);
+    }
+
+    // Record positions within the block, kept in a small ring in append order
+    private static final class Window {
+
+        private final int base;
+        private final int[] offsets;
+        private int first;
+        private int count;
+        private int end;
+        private boolean holdsAll;
+        private LocalDateTime newestAt;
+        private UUID newestId;
+
+        private Window(int base, int capacity) {
+            this.base = base;
+            this.offsets = new int[capacity];
+            this.holdsAll = true;
+        }
+
+        private boolean reaches(LocalDateTime lastMessageAt) {
+            return lastMessageAt == null ? newestAt == null : newestAt != null && !newestAt.isBefore(lastMessageAt);
+        }
+
+        private int offset(int i) {
+            return offsets[(first + i) % offsets.length];
+        }
+
+        private int start() {
+            return count == 0 ? end : offset(0);
+        }
+
+        private void push(int length) {
+            offsets[(first + count) % offsets.length] = end;
+            count++;
+            end += length;
+        }
+
+        private void dropOldest() {
+            first = (first + 1) % offsets.length;
+            count--;
+            holdsAll = false;
+        }
+
+        private void shift(int by) {
+            for (int i = 0; i < count; i++) {
+                offsets[(first + i) % offsets.length] -= by;
+            }
+            end -= by;
+        }
+
+        private void clear() {
+            first = 0;
+            count = 0;
+            end = 0;
+            holdsAll = false;
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.ragchat.rag_chat_storage.storage;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// One fixed-size, memory-mapped segment file. Writes and reads use absolute offsets only,
+// so the shared buffer's position is never touched and readers need no copy of it.
+final class Segment implements AutoCloseable {
+
+    private final int id;
+    private final Path path;
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private int writePosition;
+
+    private Segment(int id, Path path, FileChannel channel, MappedByteBuffer buffer) {
+        this.id = id;
+        this.path = path;
+        this.channel = channel;
+        this.buffer = buffer;
+    }
+
+    static Segment open(Path directory, int id, int size) throws IOException {
+        Path path = directory.resolve(fileName(id));
+        FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        return new Segment(id, path, channel, channel.map(FileChannel.MapMode.READ_WRITE, 0, size));
+    }
+
+    static String fileName(int id) {
+        return String.format("%020d.seg", id);
+    }
+
+    int id() {
+        return id;
+    }
+
+    Path path() {
+        return path;
+    }
+
+    MappedByteBuffer buffer() {
+        return buffer;
+    }
+
+    int capacity() {
+        return buffer.capacity();
+    }
+
+    int writePosition() {
+        return writePosition;
+    }
+
+    void writePosition(int position) {
+        this.writePosition = position;
+    }
+
+    // Returns the record's offset, or -1 when it does not fit and the caller must roll to a new segment
+    int append(byte[] record) {
+        if (writePosition + record.length > buffer.capacity()) {
+            return -1;
+        }
+        int position = writePosition;
+        buffer.put(position, record);
+        writePosition += record.length;
+        return position;
+    }
+
+    void force() {
+        buffer.force();
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,445 @@
+package com.ragchat.rag_chat_storage.storage;
+
+import com.ragchat.rag_chat_storage.entity.ChatMessage;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+// Log-structured backend: messages are appended to memory-mapped, length-prefixed segment files.
+// Appends complete once a group-committed fsync covers them; a per-session in-memory index
+// ordered by (created_at, id) is rebuilt from the segments on startup.
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "app.message-store.backend", havingValue = "segment")
+public class SegmentMessageStore implements MessageStore, SmartLifecycle {
+
+    // Stop after the ingestion queue has drained its last batch into the store
+    private static final int PHASE = SmartLifecycle.DEFAULT_PHASE - 8192;
+
+    private static final Comparator<IndexEntry> ORDER = Comparator
+            .comparing(IndexEntry::createdAt)
+            .thenComparing(IndexEntry::id);
+
+    private final Path directory;
+    private final int segmentSize;
+    private final Duration groupCommitDelay;
+    private final MessageCodec codec;
+
+    private final Object writeLock = new Object();
+    private final List<Segment> segments = new CopyOnWriteArrayList<>();
+    private final ConcurrentHashMap<UUID, SessionIndex> index = new ConcurrentHashMap<>();
+
+    // Guarded by writeLock
+    private final Set<Segment> dirty = new LinkedHashSet<>();
+    private List<CompletableFuture<Void>> pendingSyncs = new ArrayList<>();
+
+    private Thread flusher;
+    private volatile boolean running;
+
+    public SegmentMessageStore(@Value("${app.message-store.segment.directory:./data/segments}") Path directory,
+                               @Value("${app.message-store.segment.segment-size:64MB}") DataSize segmentSize,
+                               @Value("${app.message-store.segment.group-commit-delay:2ms}") Duration groupCommitDelay,
+                               MessageCodec codec) {
+        this.directory = directory;
+        this.segmentSize = Math.toIntExact(segmentSize.toBytes());
+        this.groupCommitDelay = groupCommitDelay;
+        this.codec = codec;
+    }
+
+    @Override
+    public Mono<Void> insertAll(List<ChatMessage> messages) {
+        if (messages.isEmpty()) {
+            return Mono.empty();
+        }
+        return Mono.fromFuture(() -> {
+            List<byte[]> records = messages.stream().map(message -> SegmentRecords.encodeMessage(message, codec)).toList();
+            synchronized (writeLock) {
+                requireRunning();
+                for (int i = 0; i < records.size(); i++) {
+                    ChatMessage message = messages.get(i);
+                    Segment segment = append(records.get(i));
+                    sessionIndex(message.getSessionId()).add(new IndexEntry(message.getCreatedAt(), message.getId(),
+                            segment.id(), segment.writePosition() - records.get(i).length));
+                }
+                return scheduleSync();
+            }
+        });
+    }
+
+    @Override
+    public Flux<ChatMessage> findBySessionIdOrderByCreatedAtAsc(UUID sessionId) {
+        return Flux.defer(() -> read(entries(sessionId, SessionIndex::all)));
+    }
+
+    @Override
+    public Flux<ChatMessage> findBySessionIdOrderByCreatedAtAsc(UUID sessionId, Pageable pageable) {
+        return Flux.defer(() -> read(entries(sessionId,
+                sessionIndex -> sessionIndex.range(pageable.getOffset(), pageable.getPageSize()))));
+    }
+
+    @Override
+    public Mono<Long> countBySessionId(UUID sessionId) {
+        return Mono.fromSupplier(() -> {
+            SessionIndex sessionIndex = index.get(sessionId);
+            return sessionIndex != null ? (long) sessionIndex.size() : 0L;
+        });
+    }
+
+    @Override
+    public Flux<ChatMessage> findFirstPage(UUID sessionId, int limit) {
+        return Flux.defer(() -> read(entries(sessionId, sessionIndex -> sessionIndex.range(0, limit))));
+    }
+
+    @Override
+    public Flux<ChatMessage> findPageAfter(UUID sessionId, LocalDateTime createdAt, UUID id, int limit) {
+        return Flux.defer(() -> read(entries(sessionId, sessionIndex -> sessionIndex.after(createdAt, id, limit))));
+    }
+
+    @Override
+    public Flux<ChatMessage> findPageBefore(UUID sessionId, LocalDateTime createdAt, UUID id, int limit) {
+        return Flux.defer(() -> read(entries(sessionId, sessionIndex -> sessionIndex.before(createdAt, id, limit))));
+    }
+
+    @Override
+    public Flux<ChatMessage> findLatest(UUID sessionId, int limit) {
+        return Flux.defer(() -> read(entries(sessionId, sessionIndex -> sessionIndex.latest(limit))));
+    }
+
+    @Override
+    public Flux<ChatMessage> findAllById(UUID sessionId, Collection<UUID> ids) {
+        Set<UUID> wanted = new HashSet<>(ids);
+        return Flux.defer(() -> read(entries(sessionId, sessionIndex -> sessionIndex.matching(wanted))));
+    }
+
+    @Override
+    public Flux<ChatMessage> streamBySessionId(UUID sessionId) {
+        return findBySessionIdOrderByCreatedAtAsc(sessionId);
+    }
+
+    @Override
+    public Flux<ChatMessage> streamAfter(UUID sessionId, LocalDateTime createdAt, UUID id) {
+        return Flux.defer(() -> read(entries(sessionId,
+                sessionIndex -> sessionIndex.after(createdAt, id, Integer.MAX_VALUE))));
+    }
+
+    // Appends a tombstone so recovery forgets the session; segment space is not reclaimed.
+    // One record drops every message, so the limit never needs to split the work.
+    @Override
+    public Mono<Integer> deleteBySessionId(UUID sessionId, int limit) {
+        return Mono.defer(() -> {
+            if (!index.containsKey(sessionId)) {
+                return Mono.just(0);
+            }
+            byte[] record = SegmentRecords.encodeSessionDeleted(sessionId);
+            return Mono.fromFuture(() -> {
+                synchronized (writeLock) {
+                    requireRunning();
+                    append(record);
+                    SessionIndex removed = index.remove(sessionId);
+                    int deleted = removed != null ? removed.size() : 0;
+                    return scheduleSync().thenApply(synced -> deleted);
+                }
+            });
+        });
+    }
+
+    // The log has no per-message tombstone; archiving, the only caller, checks supportsArchiving first
+    @Override
+    public Mono<Integer> deleteAllById(UUID sessionId, Collection<UUID> ids) {
+        return Mono.error(new UnsupportedOperationException("The segment store cannot delete individual messages"));
+    }
+
+    @Override
+    public boolean supportsArchiving() {
+        return false;
+    }
+
+    @Override
+    public void start() {
+        try {
+            Files.createDirectories(directory);
+            recover();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to open message segments in " + directory, e);
+        }
+        running = true;
+        flusher = new Thread(this::flushLoop, "message-segment-flusher");
+        flusher.setDaemon(true);
+        flusher.start();
+        log.info("Segment message store opened {} segments in {} holding {} sessions",
+                segments.size(), directory, index.size());
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        if (flusher != null) {
+            flusher.interrupt();
+            try {
+                flusher.join(TimeUnit.SECONDS.toMillis(10));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        synchronized (writeLock) {
+            syncPending();
+            for (Segment segment : segments) {
+                try {
+                    segment.close();
+                } catch (IOException e) {
+                    log.warn("Failed to close segment {}", segment.path(), e);
+                }
+            }
+            segments.clear();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        return PHASE;
+    }
+
+    private void requireRunning() {
+        if (!running) {
+            throw new IllegalStateException("Segment message store is not running");
+        }
+    }
+
+    // Callers hold writeLock
+    private Segment append(byte[] record) {
+        if (record.length > segmentSize) {
+            throw new IllegalArgumentException("Record of " + record.length + " bytes exceeds the segment size");
+        }
+        Segment active = segments.get(segments.size() - 1);
+        if (active.append(record) < 0) {
+            active = openSegment(active.id() + 1);
+            active.append(record);
+        }
+        dirty.add(active);
+        return active;
+    }
+
+    // Callers hold writeLock
+    private CompletableFuture<Void> scheduleSync() {
+        CompletableFuture<Void> synced = new CompletableFuture<>();
+        pendingSyncs.add(synced);
+        writeLock.notifyAll();
+        return synced;
+    }
+
+    // One fsync covers every append that arrived while the previous one was running
+    private void flushLoop() {
+        while (running) {
+            try {
+                synchronized (writeLock) {
+                    while (pendingSyncs.isEmpty() && running) {
+                        writeLock.wait();
+                    }
+                }
+                if (!groupCommitDelay.isZero()) {
+                    Thread.sleep(groupCommitDelay.toMillis(), groupCommitDelay.toNanosPart() % 1_000_000);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            List<Segment> toForce;
+            List<CompletableFuture<Void>> synced;
+            synchronized (writeLock) {
+                toForce = new ArrayList<>(dirty);
+                dirty.clear();
+                synced = pendingSyncs;
+                pendingSyncs = new ArrayList<>();
+            }
+            force(toForce, synced);
+        }
+    }
+
+    // Callers hold writeLock
+    private void syncPending() {
+        List<Segment> toForce = new ArrayList<>(dirty);
+        dirty.clear();
+        List<CompletableFuture<Void>> synced = pendingSyncs;
+        pendingSyncs = new ArrayList<>();
+        force(toForce, synced);
+    }
+
+    private void force(List<Segment> toForce, List<CompletableFuture<Void>> synced) {
+        try {
+            toForce.forEach(Segment::force);
+            synced.forEach(future -> future.complete(null));
+        } catch (RuntimeException e) {
+            log.error("Failed to fsync message segments", e);
+            synced.forEach(future -> future.completeExceptionally(e));
+        }
+    }
+
+    private void recover() throws IOException {
+        List<Path> files;
+        try (Stream<Path> listing = Files.list(directory)) {
+            files = listing.filter(path -> path.getFileName().toString().endsWith(".seg")).sorted().toList();
+        }
+        for (Path file : files) {
+            String name = file.getFileName().toString();
+            Segment segment = Segment.open(directory, Integer.parseInt(name.substring(0, name.length() - 4)), segmentSize);
+            segments.add(segment);
+            int position = 0;
+            int length;
+            while ((length = SegmentRecords.validLength(segment.buffer(), position)) > 0) {
+                replay(segment, position);
+                position += SegmentRecords.HEADER_SIZE + length;
+            }
+            segment.writePosition(position);
+        }
+        if (segments.isEmpty()) {
+            openSegment(0);
+        } else {
+            // Anything after the last valid record in the active segment is a torn write; clear it
+            Segment active = segments.get(segments.size() - 1);
+            if (active.writePosition() + 4 <= segmentSize && active.buffer().getInt(active.writePosition()) != 0) {
+                log.warn("Discarding torn write at {} in {}", active.writePosition(), active.path());
+                active.buffer().put(active.writePosition(), new byte[segmentSize - active.writePosition()]);
+                active.force();
+            }
+        }
+    }
+
+    private void replay(Segment segment, int position) {
+        UUID sessionId = SegmentRecords.sessionId(segment.buffer(), position);
+        if (!SegmentRecords.isMessage(segment.buffer(), position)) {
+            index.remove(sessionId);
+            return;
+        }
+        ChatMessage message = SegmentRecords.decodeMessage(segment.buffer(), position);
+        sessionIndex(sessionId).add(new IndexEntry(message.getCreatedAt(), message.getId(), segment.id(), position));
+    }
+
+    private Segment openSegment(int id) {
+        try {
+            Segment segment = Segment.open(directory, id, segmentSize);
+            segments.add(segment);
+            return segment;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to create segment " + id + " in " + directory, e);
+        }
+    }
+
+    private SessionIndex sessionIndex(UUID sessionId) {
+        return index.computeIfAbsent(sessionId, id -> new SessionIndex());
+    }
+
+    private List<IndexEntry> entries(UUID sessionId, Function<SessionIndex, List<IndexEntry>> query) {
+        SessionIndex sessionIndex = index.get(sessionId);
+        return sessionIndex != null ? query.apply(sessionIndex) : List.of();
+    }
+
+    // Records are decoded straight out of the mapped segment as the subscriber asks for them
+    private Flux<ChatMessage> read(List<IndexEntry> entries) {
+        return Flux.fromIterable(entries)
+                .map(entry -> SegmentRecords.decodeMessage(segments.get(entry.segment()).buffer(), entry.position()));
+    }
+
+    private record IndexEntry(LocalDateTime createdAt, UUID id, int segment, int position) {
+    }
+
+    // Entries kept sorted by (created_at, id); appends almost always land at the tail.
+    // Queries copy out only the slice they return.
+    private static final class SessionIndex {
+
+        private final ArrayList<IndexEntry> entries = new ArrayList<>();
+
+        synchronized void add(IndexEntry entry) {
+            int at = entries.size();
+            while (at > 0 && ORDER.compare(entries.get(at - 1), entry) > 0) {
+                at--;
+            }
+            entries.add(at, entry);
+        }
+
+        synchronized int size() {
+            return entries.size();
+        }
+
+        synchronized List<IndexEntry> all() {
+            return new ArrayList<>(entries);
+        }
+
+        synchronized List<IndexEntry> matching(Set<UUID> ids) {
+            return entries.stream().filter(entry -> ids.contains(entry.id())).toList();
+        }
+
+        synchronized List<IndexEntry> range(long offset, int limit) {
+            int from = (int) Math.min(offset, entries.size());
+            return new ArrayList<>(entries.subList(from, (int) Math.min((long) from + limit, entries.size())));
+        }
+
+        synchronized List<IndexEntry> after(LocalDateTime createdAt, UUID id, int limit) {
+            return range(search(createdAt, id, true), limit);
+        }
+
+        // Newest first, for paging backwards
+        synchronized List<IndexEntry> before(LocalDateTime createdAt, UUID id, int limit) {
+            return newestFirst(search(createdAt, id, false), limit);
+        }
+
+        synchronized List<IndexEntry> latest(int limit) {
+            return newestFirst(entries.size(), limit);
+        }
+
+        private List<IndexEntry> newestFirst(int to, int limit) {
+            List<IndexEntry> page = new ArrayList<>(entries.subList(Math.max(0, to - limit), to));
+            Collections.reverse(page);
+            return page;
+        }
+
+        // First position at or past the key; with skipEqual, strictly past it
+        private int search(LocalDateTime createdAt, UUID id, boolean skipEqual) {
+            IndexEntry key = new IndexEntry(createdAt, id, 0, 0);
+            int low = 0;
+            int high = entries.size();
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                int cmp = ORDER.compare(entries.get(mid), key);
+                if (cmp < 0 || (skipEqual && cmp == 0)) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package com.ragchat.rag_chat_storage.storage;
+
+import com.ragchat.rag_chat_storage.entity.ChatMessage;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.UUID;
+import java.util.zip.CRC32;
+
+// Record layout: [int payload length][int CRC32 of payload][payload].
+// A zero length marks the end of written data in a preallocated segment.
+final class SegmentRecords {
+
+    static final int HEADER_SIZE = 8;
+
+    // Plain layout with the sender as a length-prefixed string; still readable, no longer written
+    static final byte TYPE_MESSAGE = 1;
+    static final byte TYPE_SESSION_DELETED = 2;
+    // One-byte sender code plus flags marking deflated content or context
+    static final byte TYPE_COMPACT_MESSAGE = 3;
+
+    private static final byte CONTENT_DEFLATED = 1;
+    private static final byte CONTEXT_DEFLATED = 2;
+
+    // type, message id, session id, epoch second, nanos
+    private static final int MESSAGE_FIXED_SIZE = 1 + 16 + 16 + 8 + 4;
+
+    private SegmentRecords() {
+    }
+
+    static byte[] encodeMessage(ChatMessage message, MessageCodec codec) {
+        byte[] content = message.getContent().getBytes(StandardCharsets.UTF_8);
+        byte[] context = message.getContext() != null ? message.getContext().getBytes(StandardCharsets.UTF_8) : null;
+        byte flags = 0;
+        byte[] compressedContent = codec.compress(content);
+        if (compressedContent != null) {
+            content = compressedContent;
+            flags |= CONTENT_DEFLATED;
+        }
+        byte[] compressedContext = context != null ? codec.compress(context) : null;
+        if (compressedContext != null) {
+            context = compressedContext;
+            flags |= CONTEXT_DEFLATED;
+        }
+
+        int payloadSize = MESSAGE_FIXED_SIZE + 1 + 1 + 4 + content.length
+                + 4 + (context != null ? context.length : 0);
+        ByteBuffer record = ByteBuffer.allocate(HEADER_SIZE + payloadSize);
+        record.position(HEADER_SIZE);
+        record.put(TYPE_COMPACT_MESSAGE);
+        putUuid(record, message.getId());
+        putUuid(record, message.getSessionId());
+        record.putLong(message.getCreatedAt().toEpochSecond(ZoneOffset.UTC));
+        record.putInt(message.getCreatedAt().getNano());
+        record.put(MessageCodec.senderCode(message.getSender()));
+        record.put(flags);
+        record.putInt(content.length).put(content);
+        if (context != null) {
+            record.putInt(context.length).put(context);
+        } else {
+            record.putInt(-1);
+        }
+        return seal(record, payloadSize);
+    }
+
+    static byte[] encodeSessionDeleted(UUID sessionId) {
+        int payloadSize = 1 + 16;
+        ByteBuffer record = ByteBuffer.allocate(HEADER_SIZE + payloadSize);
+        record.position(HEADER_SIZE);
+        record.put(TYPE_SESSION_DELETED);
+        putUuid(record, sessionId);
+        return seal(record, payloadSize);
+    }
+
+    // Payload length of a valid record at the offset, or -1 at the end of data or a torn write
+    static int validLength(ByteBuffer segment, int position) {
+        if (position + HEADER_SIZE > segment.capacity()) {
+            return -1;
+        }
+        int length = segment.getInt(position);
+        if (length <= 0 || position + HEADER_SIZE + length > segment.capacity()) {
+            return -1;
+        }
+        CRC32 crc = new CRC32();
+        crc.update(segment.slice(position + HEADER_SIZE, length));
+        return (int) crc.getValue() == segment.getInt(position + 4) ? length : -1;
+    }
+
+    static byte type(ByteBuffer segment, int position) {
+        return segment.get(position + HEADER_SIZE);
+    }
+
+    static boolean isMessage(ByteBuffer segment, int position) {
+        byte type = type(segment, position);
+        return type == TYPE_MESSAGE || type == TYPE_COMPACT_MESSAGE;
+    }
+
+    // Session id of any record type; it follows the message id in message records
+    static UUID sessionId(ByteBuffer segment, int position) {
+        int offset = position + HEADER_SIZE + 1;
+        return isMessage(segment, position) ? getUuid(segment, offset + 16) : getUuid(segment, offset);
+    }
+
+    static ChatMessage decodeMessage(ByteBuffer segment, int position) {
+        int offset = position + HEADER_SIZE + 1;
+        UUID id = getUuid(segment, offset);
+        UUID sessionId = getUuid(segment, offset + 16);
+        offset += 32;
+        LocalDateTime createdAt = LocalDateTime.ofEpochSecond(segment.getLong(offset), segment.getInt(offset + 8), ZoneOffset.UTC);
+        offset += 12;
+
+        String sender;
+        byte flags = 0;
+        if (type(segment, position) == TYPE_COMPACT_MESSAGE) {
+            sender = MessageCodec.sender(segment.get(offset));
+            flags = segment.get(offset + 1);
+            offset += 2;
+        } else {
+            int senderLength = segment.getShort(offset);
+            sender = getString(segment, offset + 2, senderLength, false);
+            offset += 2 + senderLength;
+        }
+        int contentLength = segment.getInt(offset);
+        String content = getString(segment, offset + 4, contentLength, (flags & CONTENT_DEFLATED) != 0);
+        offset += 4 + contentLength;
+        int contextLength = segment.getInt(offset);
+        String context = contextLength >= 0
+                ? getString(segment, offset + 4, contextLength, (flags & CONTEXT_DEFLATED) != 0)
+                : null;
+
+        return ChatMessage.builder()
+                .id(id)
+                .sessionId(sessionId)
+                .sender(sender)
+                .content(content)
+                .context(context)
+                .createdAt(createdAt)
+                .build();
+    }
+
+    private static byte[] seal(ByteBuffer record, int payloadSize) {
+        CRC32 crc = new CRC32();
+        crc.update(record.array(), HEADER_SIZE, payloadSize);
+        record.putInt(0, payloadSize);
+        record.putInt(4, (int) crc.getValue());
+        return record.array();
+    }
+
+    private static void putUuid(ByteBuffer buffer, UUID uuid) {
+        buffer.putLong(uuid.getMostSignificantBits()).putLong(uuid.getLeastSignificantBits());
+    }
+
+    private static UUID getUuid(ByteBuffer buffer, int offset) {
+        return new UUID(buffer.getLong(offset), buffer.getLong(offset + 8));
+    }
+
+    private static String getString(ByteBuffer buffer, int offset, int length, boolean deflated) {
+        byte[] bytes = new byte[length];
+        buffer.get(offset, bytes);
+        return new String(deflated ? MessageCodec.inflate(bytes) : bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,21 @@
+package com.ragchat.rag_chat_storage.storage;
+
+import com.ragchat.rag_chat_storage.entity.ChatMessage;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+// A store whose writes commit on a database connection of their own instead of joining the caller's
+// transaction. Such a store applies the session stats of an append itself.
+public interface SelfCommittingMessageStore extends MessageStore {
+
+    // Persists the messages and applies the stats in one transaction of the store's own, failing with
+    // ResourceNotFoundException and writing nothing when a session is gone
+    Mono<Void> insertAllWithStats(List<ChatMessage> messages, List<SessionStatsDelta> stats);
+
+    // Deletes run in their own transaction, outside the session lock archiving takes
+    @Override
+    default boolean supportsArchiving() {
+        return false;
+    }
+}
@@ -0,0 +1,207 @@
+package com.ragchat.rag_chat_storage.storage;
+
+import com.ragchat.rag_chat_storage.entity.ChatMessage;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+// Immutable, gzip-compressed per-session files for the cold tier. A file is the session's
+// messages as segment records in (created_at, id) order followed by a zero-length terminator,
+// and only appears under its final name once completely written and synced. Files are named
+// by session and archive time, so nodes racing to archive one session never clobber each other.
+@Component
+public class SessionArchive {
+
+    private static final int MAGIC = 0x52434131; // "RCA1"
+
+    // Records are left uncompressed so gzip can exploit redundancy across messages
+    private static final MessageCodec RECORD_CODEC = new MessageCodec(Integer.MAX_VALUE);
+
+    private final Path directory;
+
+    public SessionArchive(@Value("${app.archive.directory:./data/archive}") Path directory) {
+        this.directory = directory;
+    }
+
+    // Writes the messages to the session's archive, returning their ids in archive order
+    public Mono<List<UUID>> write(UUID sessionId, LocalDateTime archivedAt, Flux<ChatMessage> messages) {
+        return Mono.usingWhen(
+                Mono.fromCallable(() -> new Writer(file(sessionId, archivedAt))).subscribeOn(Schedulers.boundedElastic()),
+                writer -> messages.publishOn(Schedulers.boundedElastic())
+                        .doOnNext(writer::append)
+                        .then(Mono.fromCallable(writer::commit)),
+                writer -> Mono.empty(),
+                (writer, e) -> Mono.fromRunnable(writer::abort),
+                writer -> Mono.fromRunnable(writer::abort));
+    }
+
+    public Flux<ChatMessage> read(UUID sessionId, LocalDateTime archivedAt) {
+        return Flux.using(
+                        () -> open(file(sessionId, archivedAt)),
+                        in -> Flux.<ChatMessage>generate(sink -> {
+                            try {
+                                ChatMessage message = next(in);
+                                if (message != null) {
+                                    sink.next(message);
+                                } else {
+                                    sink.complete();
+                                }
+                            } catch (IOException e) {
+                                sink.error(new UncheckedIOException("Failed to read archive of session " + sessionId, e));
+                            }
+                        }),
+                        SessionArchive::closeQuietly)
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    public Mono<Void> delete(UUID sessionId, LocalDateTime archivedAt) {
+        return Mono.<Void>fromCallable(() -> {
+            Files.deleteIfExists(file(sessionId, archivedAt));
+            return null;
+        }).subscribeOn(Schedulers.boundedElastic());
+    }
+
+    // Every archive of the session, including leftovers of failed attempts
+    public Mono<Void> deleteAll(UUID sessionId) {
+        return Mono.<Void>fromCallable(() -> {
+            Path dir = directory(sessionId);
+            if (Files.isDirectory(dir)) {
+                try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, sessionId + "-*")) {
+                    for (Path file : files) {
+                        Files.deleteIfExists(file);
+                    }
+                }
+            }
+            return null;
+        }).subscribeOn(Schedulers.boundedElastic());
+    }
+
+    // Archive times are truncated to millis by the caller, so they survive the database round trip
+    Path file(UUID sessionId, LocalDateTime archivedAt) {
+        long millis = archivedAt.toInstant(ZoneOffset.UTC).toEpochMilli();
+        return directory(sessionId).resolve(sessionId + "-" + millis + ".arc.gz");
+    }
+
+    // Spread over subdirectories so none grows unboundedly large
+    private Path directory(UUID sessionId) {
+        return directory.resolve(sessionId.toString().substring(0, 2));
+    }
+
+    private static DataInputStream open(Path file) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(new GZIPInputStream(Files.newInputStream(file))));
+        try {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not a session archive: " + file);
+            }
+            return in;
+        } catch (IOException e) {
+            closeQuietly(in);
+            throw e;
+        }
+    }
+
+    // Next message, or null at the terminator
+    private static ChatMessage next(DataInputStream in) throws IOException {
+        int length;
+        try {
+            length = in.readInt();
+        } catch (EOFException e) {
+            throw new IOException("Archive ends without a terminator", e);
+        }
+        if (length == 0) {
+            return null;
+        }
+        ByteBuffer record = ByteBuffer.allocate(SegmentRecords.HEADER_SIZE + length);
+        record.putInt(length);
+        in.readFully(record.array(), 4, SegmentRecords.HEADER_SIZE - 4 + length);
+        if (SegmentRecords.validLength(record, 0) != length || !SegmentRecords.isMessage(record, 0)) {
+            throw new IOException("Corrupt record in archive");
+        }
+        return SegmentRecords.decodeMessage(record, 0);
+    }
+
+    private static void closeQuietly(DataInputStream in) {
+        try {
+            in.close();
+        } catch (IOException ignored) {
+            // Read-only; nothing to lose
+        }
+    }
+
+    private static final class Writer {
+
+        private final Path target;
+        private final Path temp;
+        private final FileOutputStream file;
+        private final GZIPOutputStream gzip;
+        private final DataOutputStream out;
+        private final List<UUID> ids = new ArrayList<>();
+        private boolean committed;
+
+        Writer(Path target) throws IOException {
+            this.target = target;
+            this.temp = target.resolveSibling(target.getFileName() + ".tmp");
+            Files.createDirectories(target.getParent());
+            this.file = new FileOutputStream(temp.toFile());
+            this.gzip = new GZIPOutputStream(file, 64 * 1024);
+            this.out = new DataOutputStream(new BufferedOutputStream(gzip, 64 * 1024));
+            out.writeInt(MAGIC);
+        }
+
+        void append(ChatMessage message) {
+            try {
+                out.write(SegmentRecords.encodeMessage(message, RECORD_CODEC));
+                ids.add(message.getId());
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to write archive " + temp, e);
+            }
+        }
+
+        // Synced before the rename, so the final name never points at a partial file
+        List<UUID> commit() throws IOException {
+            out.writeInt(0);
+            out.flush();
+            gzip.finish();
+            file.getFD().sync();
+            file.close();
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            committed = true;
+            return ids;
+        }
+
+        void abort() {
+            if (committed) {
+                return;
+            }
+            try {
+                file.close();
+                Files.deleteIfExists(temp);
+            } catch (IOException ignored) {
+                // A leftover temp file is overwritten by the next attempt
+            }
+        }
+    }
+}
@@ -0,0 +1,8 @@
+package com.ragchat.rag_chat_storage.storage;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+// What one append adds to a session's stored stats: delta more messages, the newest at lastMessageAt
+public record SessionStatsDelta(UUID sessionId, long delta, LocalDateTime lastMessageAt, String preview) {
+}
@@ -0,0 +1,318 @@
+package com.ragchat.rag_chat_storage.vector;
+
+import com.ragchat.rag_chat_storage.dto.SimilarityHit;
+import com.ragchat.rag_chat_storage.entity.ChatMessage;
+import com.ragchat.rag_chat_storage.entity.ChatSession;
+import com.ragchat.rag_chat_storage.exception.BadRequestException;
+import com.ragchat.rag_chat_storage.repository.ChatSessionRepository;
+import com.ragchat.rag_chat_storage.service.MessagesAppendedEvent;
+import com.ragchat.rag_chat_storage.service.SessionDeletedEvent;
+import com.ragchat.rag_chat_storage.service.SessionMetadataCache;
+import com.ragchat.rag_chat_storage.storage.MessageStore;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+// Per-node approximate nearest-neighbour index over client-supplied message embeddings,
+// one HNSW graph per user. Changes are appended to a log and periodically folded into a
+// snapshot; both are loaded before the node starts serving requests.
+@Slf4j
+@Component
+public class MessageVectorIndex implements SmartLifecycle {
+
+    // Loaded before the web server starts accepting appends, stopped after it drains
+    static final int PHASE = SmartLifecycle.DEFAULT_PHASE - 4096;
+
+    private static final int SNAPSHOT_VERSION = 1;
+
+    private final ChatSessionRepository sessionRepository;
+    private final SessionMetadataCache sessionCache;
+    private final MessageStore messageStore;
+    private final Path snapshotFile;
+    private final VectorLog changeLog;
+    private final Duration snapshotInterval;
+    private final int efSearch;
+
+    private final ConcurrentHashMap<String, VectorPartition> partitions = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<UUID, String> sessionUsers = new ConcurrentHashMap<>();
+
+    private volatile boolean running;
+    private Disposable reconcile;
+    private Disposable snapshots;
+
+    public MessageVectorIndex(ChatSessionRepository sessionRepository,
+                              SessionMetadataCache sessionCache,
+                              MessageStore messageStore,
+                              @Value("${app.vectors.directory:./data/vectors}") Path directory,
+                              @Value("${app.vectors.snapshot-interval:5m}") Duration snapshotInterval,
+                              @Value("${app.vectors.ef-search:64}") int efSearch) {
+        this.sessionRepository = sessionRepository;
+        this.sessionCache = sessionCache;
+        this.messageStore = messageStore;
+        this.snapshotFile = directory.resolve("vectors.snapshot");
+        this.changeLog = new VectorLog(directory.resolve("vectors.log"));
+        this.snapshotInterval = snapshotInterval;
+        this.efSearch = efSearch;
+    }
+
+    // Rejects embeddings that could not be indexed for this user
+    public void validate(String userId, float[] embedding) {
+        normalize(embedding);
+        VectorPartition partition = partitions.get(userId);
+        if (partition != null && partition.dimension() != embedding.length) {
+            throw new BadRequestException("Embedding must have " + partition.dimension() + " dimensions to match "
+                    + "previously indexed messages, got " + embedding.length);
+        }
+    }
+
+    public Mono<List<SimilarityHit>> search(String userId, float[] embedding, int k, Collection<UUID> sessionIds) {
+        VectorPartition partition = partitions.get(userId);
+        if (partition == null) {
+            return Mono.just(List.of());
+        }
+        validate(userId, embedding);
+        List<VectorPartition.Neighbor> neighbors = partition.search(normalize(embedding), k, efSearch, sessionIds);
+        if (neighbors.isEmpty()) {
+            return Mono.just(List.of());
+        }
+
+        Map<UUID, List<UUID>> idsBySession = neighbors.stream()
+                .collect(Collectors.groupingBy(VectorPartition.Neighbor::sessionId, LinkedHashMap::new,
+                        Collectors.mapping(VectorPartition.Neighbor::messageId, Collectors.toList())));
+        return Flux.fromIterable(idsBySession.entrySet())
+                .concatMap(entry -> messageStore.findAllById(entry.getKey(), entry.getValue()))
+                .collectMap(ChatMessage::getId, Function.identity())
+                .map(messages -> {
+                    List<SimilarityHit> hits = new ArrayList<>(neighbors.size());
+                    for (VectorPartition.Neighbor neighbor : neighbors) {
+                        ChatMessage message = messages.get(neighbor.messageId());
+                        if (message != null) {
+                            hits.add(SimilarityHit.builder()
+                                    .sessionId(message.getSessionId())
+                                    .messageId(message.getId())
+                                    .sender(message.getSender())
+                                    .content(message.getContent())
+                                    .score(neighbor.score())
+                                    .createdAt(message.getCreatedAt())
+                                    .build());
+                        }
+                    }
+                    return hits;
+                });
+    }
+
+    @EventListener
+    public void onMessagesAppended(MessagesAppendedEvent event) {
+        event.getMessages().stream()
+                .filter(message -> message.getEmbedding() != null)
+                .collect(Collectors.groupingBy(ChatMessage::getSessionId))
+                .forEach((sessionId, messages) -> userOf(sessionId)
+                        .subscribe(userId -> index(userId, messages),
+                                e -> log.warn("Failed to index embeddings for session {}", sessionId, e)));
+    }
+
+    @EventListener
+    public void onSessionDeleted(SessionDeletedEvent event) {
+        String userId = sessionUsers.remove(event.getSessionId());
+        if (userId == null) {
+            return;
+        }
+        synchronized (changeLog) {
+            VectorPartition partition = partitions.get(userId);
+            if (partition != null && partition.removeSession(event.getSessionId()) > 0) {
+                try {
+                    changeLog.appendDeleteSession(userId, event.getSessionId());
+                    changeLog.flush();
+                } catch (IOException e) {
+                    log.error("Failed to log vector delete for session {}", event.getSessionId(), e);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void start() {
+        try {
+            load();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to load vector index from " + snapshotFile.getParent(), e);
+        }
+        running = true;
+        // Sessions deleted while this node was down still have vectors; drop them in the background
+        reconcile = sessionRepository.findAll()
+                .filter(session -> session.getDeletedAt() == null)
+                .map(ChatSession::getId)
+                .collect(Collectors.toSet())
+                .subscribe(existing -> Set.copyOf(sessionUsers.keySet()).stream()
+                                .filter(sessionId -> !existing.contains(sessionId))
+                                .forEach(sessionId -> onSessionDeleted(new SessionDeletedEvent(sessionId))),
+                        e -> log.warn("Failed to reconcile vector index with sessions", e));
+        snapshots = Flux.interval(snapshotInterval, Schedulers.boundedElastic())
+                .subscribe(tick -> snapshot());
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        if (snapshots != null) {
+            snapshots.dispose();
+        }
+        if (reconcile != null) {
+            reconcile.dispose();
+        }
+        snapshot();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        return PHASE;
+    }
+
+    private void index(String userId, List<ChatMessage> messages) {
+        synchronized (changeLog) {
+            VectorPartition partition = partitions.computeIfAbsent(userId,
+                    id -> new VectorPartition(messages.get(0).getEmbedding().length));
+            try {
+                for (ChatMessage message : messages) {
+                    float[] vector = normalize(message.getEmbedding());
+                    if (vector.length != partition.dimension()) {
+                        log.warn("Skipping embedding for message {}: {} dimensions, index has {}",
+                                message.getId(), vector.length, partition.dimension());
+                    } else if (partition.insert(message.getId(), message.getSessionId(), vector)) {
+                        changeLog.appendInsert(userId, message.getSessionId(), message.getId(), vector);
+                    }
+                }
+                changeLog.flush();
+            } catch (IOException e) {
+                log.error("Failed to log embeddings for user {}", userId, e);
+            }
+        }
+    }
+
+    private void load() throws IOException {
+        if (Files.exists(snapshotFile)) {
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(snapshotFile)))) {
+                if (in.readInt() != SNAPSHOT_VERSION) {
+                    throw new IOException("Unknown vector snapshot version");
+                }
+                int partitionCount = in.readInt();
+                for (int i = 0; i < partitionCount; i++) {
+                    String userId = in.readUTF();
+                    VectorPartition partition = VectorPartition.read(in);
+                    partitions.put(userId, partition);
+                    partition.sessions().forEach(sessionId -> sessionUsers.put(sessionId, userId));
+                }
+            }
+        }
+        int replayed = changeLog.replay(new VectorLog.Visitor() {
+            @Override
+            public void insert(String userId, UUID sessionId, UUID messageId, float[] vector) {
+                VectorPartition partition = partitions.computeIfAbsent(userId, id -> new VectorPartition(vector.length));
+                if (partition.dimension() == vector.length) {
+                    partition.insert(messageId, sessionId, vector);
+                    sessionUsers.put(sessionId, userId);
+                }
+            }
+
+            @Override
+            public void deleteSession(String userId, UUID sessionId) {
+                VectorPartition partition = partitions.get(userId);
+                if (partition != null) {
+                    partition.removeSession(sessionId);
+                }
+                sessionUsers.remove(sessionId);
+            }
+        });
+        if (replayed > 0) {
+            // Folds the replayed records in, which also drops any torn record at the log tail
+            snapshot();
+        }
+        log.info("Vector index loaded: {} users, {} log records replayed", partitions.size(), replayed);
+    }
+
+    // Blocks appends while running so nothing logged after the snapshot is truncated away
+    private void snapshot() {
+        synchronized (changeLog) {
+            try {
+                Files.createDirectories(snapshotFile.getParent());
+                Path temp = snapshotFile.resolveSibling(snapshotFile.getFileName() + ".tmp");
+                try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                    Map<String, VectorPartition> current = Map.copyOf(partitions);
+                    out.writeInt(SNAPSHOT_VERSION);
+                    out.writeInt(current.size());
+                    for (Map.Entry<String, VectorPartition> entry : current.entrySet()) {
+                        entry.getValue().compactIfNeeded();
+                        out.writeUTF(entry.getKey());
+                        entry.getValue().write(out);
+                    }
+                }
+                Files.move(temp, snapshotFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                changeLog.reset();
+            } catch (IOException e) {
+                log.error("Failed to write vector snapshot {}", snapshotFile, e);
+            }
+        }
+    }
+
+    private Mono<String> userOf(UUID sessionId) {
+        String userId = sessionUsers.get(sessionId);
+        if (userId != null) {
+            return Mono.just(userId);
+        }
+        return sessionCache.get(sessionId)
+                .map(ChatSession::getUserId)
+                .doOnNext(user -> sessionUsers.put(sessionId, user));
+    }
+
+    // Unit-length copy of the embedding, so similarity is a plain dot product
+    static float[] normalize(float[] embedding) {
+        double norm = 0;
+        for (float value : embedding) {
+            if (!Float.isFinite(value)) {
+                throw new BadRequestException("Embedding values must be finite numbers");
+            }
+            norm += (double) value * value;
+        }
+        if (norm == 0) {
+            throw new BadRequestException("Embedding must not be all zeros");
+        }
+        double scale = 1 / Math.sqrt(norm);
+        float[] normalized = new float[embedding.length];
+        for (int i = 0; i < embedding.length; i++) {
+            normalized[i] = (float) (embedding[i] * scale);
+        }
+        return normalized;
+    }
+}
@@ -0,0 +1,114 @@
+package com.ragchat.rag_chat_storage.vector;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.UUID;
+
+// Append-only record of index changes since the last snapshot. Replayed on startup on top of
+// the snapshot and truncated each time a new snapshot is written. Replay is idempotent.
+final class VectorLog implements AutoCloseable {
+
+    private static final byte TYPE_INSERT = 1;
+    private static final byte TYPE_DELETE_SESSION = 2;
+
+    private final Path file;
+    private DataOutputStream out;
+
+    interface Visitor {
+        void insert(String userId, UUID sessionId, UUID messageId, float[] vector);
+
+        void deleteSession(String userId, UUID sessionId);
+    }
+
+    VectorLog(Path file) {
+        this.file = file;
+    }
+
+    // Applies every complete record; a torn record at the tail ends the replay
+    int replay(Visitor visitor) throws IOException {
+        if (!Files.exists(file)) {
+            return 0;
+        }
+        int records = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            while (true) {
+                byte type = in.readByte();
+                String userId = in.readUTF();
+                UUID sessionId = new UUID(in.readLong(), in.readLong());
+                if (type == TYPE_INSERT) {
+                    UUID messageId = new UUID(in.readLong(), in.readLong());
+                    float[] vector = new float[in.readInt()];
+                    for (int i = 0; i < vector.length; i++) {
+                        vector[i] = in.readFloat();
+                    }
+                    visitor.insert(userId, sessionId, messageId, vector);
+                } else if (type == TYPE_DELETE_SESSION) {
+                    visitor.deleteSession(userId, sessionId);
+                } else {
+                    throw new IOException("Unknown vector log record type " + type);
+                }
+                records++;
+            }
+        } catch (EOFException e) {
+            return records;
+        }
+    }
+
+    void appendInsert(String userId, UUID sessionId, UUID messageId, float[] vector) throws IOException {
+        DataOutputStream log = open();
+        log.writeByte(TYPE_INSERT);
+        log.writeUTF(userId);
+        log.writeLong(sessionId.getMostSignificantBits());
+        log.writeLong(sessionId.getLeastSignificantBits());
+        log.writeLong(messageId.getMostSignificantBits());
+        log.writeLong(messageId.getLeastSignificantBits());
+        log.writeInt(vector.length);
+        for (float value : vector) {
+            log.writeFloat(value);
+        }
+    }
+
+    void appendDeleteSession(String userId, UUID sessionId) throws IOException {
+        DataOutputStream log = open();
+        log.writeByte(TYPE_DELETE_SESSION);
+        log.writeUTF(userId);
+        log.writeLong(sessionId.getMostSignificantBits());
+        log.writeLong(sessionId.getLeastSignificantBits());
+    }
+
+    void flush() throws IOException {
+        if (out != null) {
+            out.flush();
+        }
+    }
+
+    // Starts an empty log; callers must have snapshotted everything it held
+    void reset() throws IOException {
+        close();
+        Files.deleteIfExists(file);
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (out != null) {
+            out.close();
+            out = null;
+        }
+    }
+
+    private DataOutputStream open() throws IOException {
+        if (out == null) {
+            Files.createDirectories(file.getParent());
+            out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND)));
+        }
+        return out;
+    }
+}
@@ -0,0 +1,562 @@
+package com.ragchat.rag_chat_storage.vector;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// HNSW graph over one user's message embeddings. Vectors are unit-normalised, so similarity is
+// a dot product, and live off-heap in a single direct buffer. Node ids are dense; links are
+// primitive int arrays holding a count followed by neighbour ids. Deleted nodes stay in the
+// graph for navigation and are filtered from results until the next compaction.
+final class VectorPartition {
+
+    static final int M = 16;
+    static final int M0 = 2 * M;
+    static final int EF_CONSTRUCTION = 100;
+
+    // Filters matching at most this many vectors are answered exactly by a scan
+    static final int EXACT_SCAN_LIMIT = 2048;
+
+    private static final int MAX_LEVEL = 16;
+    private static final int MAX_FILTERED_EF = 4096;
+    private static final double LEVEL_MULTIPLIER = 1 / Math.log(M);
+
+    private final int dimension;
+    private final Random random;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private FloatBuffer vectors;
+    private int capacity;
+    private int size;
+    // Message and session ids as (most, least) significant bit pairs per node
+    private long[] messageIds;
+    private long[] sessionIds;
+    private int[] levels;
+    private int[] baseLinks;
+    private int[][] upperLinks;
+    private BitSet deleted = new BitSet();
+    private Map<UUID, Integer> nodeByMessage = new HashMap<>();
+    private Map<UUID, NodeList> nodesBySession = new HashMap<>();
+    private int entryPoint = -1;
+    private int maxLevel = -1;
+
+    record Neighbor(UUID messageId, UUID sessionId, float score) {
+    }
+
+    private record Candidate(int node, float similarity) {
+    }
+
+    VectorPartition(int dimension) {
+        this(dimension, new Random());
+    }
+
+    VectorPartition(int dimension, Random random) {
+        this.dimension = dimension;
+        this.random = random;
+        allocate(64);
+    }
+
+    int dimension() {
+        return dimension;
+    }
+
+    // Returns false for a message that is already indexed
+    boolean insert(UUID messageId, UUID sessionId, float[] vector) {
+        if (vector.length != dimension) {
+            throw new IllegalArgumentException("Expected " + dimension + " dimensions but got " + vector.length);
+        }
+        lock.writeLock().lock();
+        try {
+            if (nodeByMessage.containsKey(messageId)) {
+                return false;
+            }
+            int node = append(messageId, sessionId, vector);
+            link(node);
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    int removeSession(UUID sessionId) {
+        lock.writeLock().lock();
+        try {
+            NodeList nodes = nodesBySession.remove(sessionId);
+            if (nodes == null) {
+                return 0;
+            }
+            for (int i = 0; i < nodes.size; i++) {
+                int node = nodes.nodes[i];
+                deleted.set(node);
+                nodeByMessage.remove(messageId(node));
+            }
+            return nodes.size;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    Set<UUID> sessions() {
+        lock.readLock().lock();
+        try {
+            return Set.copyOf(nodesBySession.keySet());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    int liveCount() {
+        lock.readLock().lock();
+        try {
+            return nodeByMessage.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Top k live vectors by cosine similarity, optionally restricted to some sessions
+    List<Neighbor> search(float[] query, int k, int ef, Collection<UUID> sessionFilter) {
+        lock.readLock().lock();
+        try {
+            if (entryPoint < 0) {
+                return List.of();
+            }
+            BitSet allowed = null;
+            if (sessionFilter != null && !sessionFilter.isEmpty()) {
+                allowed = new BitSet(size);
+                int matching = 0;
+                for (UUID sessionId : sessionFilter) {
+                    NodeList nodes = nodesBySession.get(sessionId);
+                    if (nodes != null) {
+                        for (int i = 0; i < nodes.size; i++) {
+                            allowed.set(nodes.nodes[i]);
+                        }
+                        matching += nodes.size;
+                    }
+                }
+                if (matching <= EXACT_SCAN_LIMIT) {
+                    return scan(query, k, allowed);
+                }
+                // Widen the beam by the filter's selectivity so enough matches survive
+                ef = (int) Math.min(MAX_FILTERED_EF, (long) Math.max(ef, k) * nodeByMessage.size() / matching);
+            }
+
+            int current = entryPoint;
+            for (int level = maxLevel; level > 0; level--) {
+                current = greedyClosest(query, current, level);
+            }
+            List<Candidate> candidates = searchLevel(query, current, Math.max(ef, k), 0);
+            List<Neighbor> results = new ArrayList<>(k);
+            for (Candidate candidate : candidates) {
+                if (results.size() == k) {
+                    break;
+                }
+                int node = candidate.node();
+                if (!deleted.get(node) && (allowed == null || allowed.get(node))) {
+                    results.add(neighbor(candidate));
+                }
+            }
+            return results;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Exact top k by brute force, used for selective filters and as the recall baseline
+    List<Neighbor> scan(float[] query, int k, BitSet allowed) {
+        lock.readLock().lock();
+        try {
+            PriorityQueue<Candidate> top = new PriorityQueue<>(Comparator.comparingDouble(Candidate::similarity));
+            for (int node = 0; node < size; node++) {
+                if (deleted.get(node) || (allowed != null && !allowed.get(node))) {
+                    continue;
+                }
+                top.add(new Candidate(node, similarity(query, node)));
+                if (top.size() > k) {
+                    top.poll();
+                }
+            }
+            List<Candidate> ranked = new ArrayList<>(top);
+            ranked.sort(Comparator.comparingDouble(Candidate::similarity).reversed());
+            return ranked.stream().map(this::neighbor).toList();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Rebuilds the graph from live vectors once deleted nodes outnumber them
+    boolean compactIfNeeded() {
+        lock.writeLock().lock();
+        try {
+            int deletedCount = deleted.cardinality();
+            if (deletedCount == 0 || deletedCount < nodeByMessage.size()) {
+                return false;
+            }
+            VectorPartition rebuilt = new VectorPartition(dimension, random);
+            float[] vector = new float[dimension];
+            for (int node = 0; node < size; node++) {
+                if (!deleted.get(node)) {
+                    vectors.get(node * dimension, vector);
+                    rebuilt.insert(messageId(node), sessionId(node), vector);
+                }
+            }
+            vectors = rebuilt.vectors;
+            capacity = rebuilt.capacity;
+            size = rebuilt.size;
+            messageIds = rebuilt.messageIds;
+            sessionIds = rebuilt.sessionIds;
+            levels = rebuilt.levels;
+            baseLinks = rebuilt.baseLinks;
+            upperLinks = rebuilt.upperLinks;
+            deleted = rebuilt.deleted;
+            nodeByMessage = rebuilt.nodeByMessage;
+            nodesBySession = rebuilt.nodesBySession;
+            entryPoint = rebuilt.entryPoint;
+            maxLevel = rebuilt.maxLevel;
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    void write(DataOutput out) throws IOException {
+        lock.readLock().lock();
+        try {
+            out.writeInt(dimension);
+            out.writeInt(size);
+            out.writeInt(entryPoint);
+            out.writeInt(maxLevel);
+            for (int node = 0; node < size; node++) {
+                out.writeLong(messageIds[2 * node]);
+                out.writeLong(messageIds[2 * node + 1]);
+                out.writeLong(sessionIds[2 * node]);
+                out.writeLong(sessionIds[2 * node + 1]);
+                out.writeBoolean(deleted.get(node));
+                for (int i = 0; i < dimension; i++) {
+                    out.writeFloat(vectors.get(node * dimension + i));
+                }
+                out.writeByte(levels[node]);
+                writeLinks(out, baseLinks, node * (M0 + 1));
+                for (int level = 1; level <= levels[node]; level++) {
+                    writeLinks(out, upperLinks[node], (level - 1) * (M + 1));
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    static VectorPartition read(DataInput in) throws IOException {
+        VectorPartition partition = new VectorPartition(in.readInt());
+        int size = in.readInt();
+        partition.allocate(Math.max(64, size));
+        partition.size = size;
+        partition.entryPoint = in.readInt();
+        partition.maxLevel = in.readInt();
+        for (int node = 0; node < size; node++) {
+            partition.messageIds[2 * node] = in.readLong();
+            partition.messageIds[2 * node + 1] = in.readLong();
+            partition.sessionIds[2 * node] = in.readLong();
+            partition.sessionIds[2 * node + 1] = in.readLong();
+            if (in.readBoolean()) {
+                partition.deleted.set(node);
+            } else {
+                partition.nodeByMessage.put(partition.messageId(node), node);
+                partition.nodesBySession.computeIfAbsent(partition.sessionId(node), id -> new NodeList()).add(node);
+            }
+            for (int i = 0; i < partition.dimension; i++) {
+                partition.vectors.put(node * partition.dimension + i, in.readFloat());
+            }
+            int level = in.readByte();
+            partition.levels[node] = level;
+            readLinks(in, partition.baseLinks, node * (M0 + 1));
+            if (level > 0) {
+                partition.upperLinks[node] = new int[level * (M + 1)];
+                for (int l = 1; l <= level; l++) {
+                    readLinks(in, partition.upperLinks[node], (l - 1) * (M + 1));
+                }
+            }
+        }
+        return partition;
+    }
+
+    private int append(UUID messageId, UUID sessionId, float[] vector) {
+        if (size == capacity) {
+            grow();
+        }
+        int node = size++;
+        vectors.put(node * dimension, vector);
+        messageIds[2 * node] = messageId.getMostSignificantBits();
+        messageIds[2 * node + 1] = messageId.getLeastSignificantBits();
+        sessionIds[2 * node] = sessionId.getMostSignificantBits();
+        sessionIds[2 * node + 1] = sessionId.getLeastSignificantBits();
+        int level = Math.min(MAX_LEVEL, (int) (-Math.log(1 - random.nextDouble()) * LEVEL_MULTIPLIER));
+        levels[node] = level;
+        if (level > 0) {
+            upperLinks[node] = new int[level * (M + 1)];
+        }
+        nodeByMessage.put(messageId, node);
+        nodesBySession.computeIfAbsent(sessionId, id -> new NodeList()).add(node);
+        return node;
+    }
+
+    private void link(int node) {
+        if (entryPoint < 0) {
+            entryPoint = node;
+            maxLevel = levels[node];
+            return;
+        }
+        float[] vector = new float[dimension];
+        vectors.get(node * dimension, vector);
+        int level = levels[node];
+        int current = entryPoint;
+        for (int l = maxLevel; l > level; l--) {
+            current = greedyClosest(vector, current, l);
+        }
+        for (int l = Math.min(level, maxLevel); l >= 0; l--) {
+            List<Candidate> candidates = searchLevel(vector, current, EF_CONSTRUCTION, l);
+            for (int neighbor : selectNeighbors(candidates, l == 0 ? M0 : M)) {
+                addLink(node, l, neighbor);
+                addLink(neighbor, l, node);
+            }
+            current = candidates.get(0).node();
+        }
+        if (level > maxLevel) {
+            entryPoint = node;
+            maxLevel = level;
+        }
+    }
+
+    // Adds a link; a full node re-selects its neighbours from the old ones plus the new one
+    private void addLink(int node, int level, int neighbor) {
+        int[] links = level == 0 ? baseLinks : upperLinks[node];
+        int offset = level == 0 ? node * (M0 + 1) : (level - 1) * (M + 1);
+        int maxLinks = level == 0 ? M0 : M;
+        int count = links[offset];
+        if (count < maxLinks) {
+            links[offset + 1 + count] = neighbor;
+            links[offset] = count + 1;
+            return;
+        }
+        List<Candidate> candidates = new ArrayList<>(count + 1);
+        candidates.add(new Candidate(neighbor, similarity(node, neighbor)));
+        for (int i = 0; i < count; i++) {
+            int existing = links[offset + 1 + i];
+            candidates.add(new Candidate(existing, similarity(node, existing)));
+        }
+        candidates.sort(Comparator.comparingDouble(Candidate::similarity).reversed());
+        int[] selected = selectNeighbors(candidates, maxLinks);
+        links[offset] = selected.length;
+        System.arraycopy(selected, 0, links, offset + 1, selected.length);
+    }
+
+    // HNSW neighbour heuristic: prefer candidates closer to the base than to any neighbour already
+    // chosen, which keeps links spread across clusters; leftover slots go to the closest skipped ones
+    private int[] selectNeighbors(List<Candidate> candidates, int maxLinks) {
+        int[] selected = new int[Math.min(maxLinks, candidates.size())];
+        int count = 0;
+        List<Candidate> skipped = new ArrayList<>();
+        for (Candidate candidate : candidates) {
+            if (count == selected.length) {
+                break;
+            }
+            boolean diverse = true;
+            for (int i = 0; i < count && diverse; i++) {
+                diverse = similarity(candidate.node(), selected[i]) < candidate.similarity();
+            }
+            if (diverse) {
+                selected[count++] = candidate.node();
+            } else {
+                skipped.add(candidate);
+            }
+        }
+        for (int i = 0; count < selected.length && i < skipped.size(); i++) {
+            selected[count++] = skipped.get(i).node();
+        }
+        return selected;
+    }
+
+    private int greedyClosest(float[] query, int start, int level) {
+        int current = start;
+        float best = similarity(query, current);
+        boolean improved = true;
+        while (improved) {
+            improved = false;
+            int[] links = level == 0 ? baseLinks : upperLinks[current];
+            int offset = level == 0 ? current * (M0 + 1) : (level - 1) * (M + 1);
+            for (int i = 0; i < links[offset]; i++) {
+                int candidate = links[offset + 1 + i];
+                float similarity = similarity(query, candidate);
+                if (similarity > best) {
+                    best = similarity;
+                    current = candidate;
+                    improved = true;
+                }
+            }
+        }
+        return current;
+    }
+
+    // Beam search on one level; returns up to ef nodes, most similar first, deleted ones included
+    private List<Candidate> searchLevel(float[] query, int start, int ef, int level) {
+        BitSet visited = new BitSet(size);
+        PriorityQueue<Candidate> frontier = new PriorityQueue<>(Comparator.comparingDouble(Candidate::similarity).reversed());
+        PriorityQueue<Candidate> best = new PriorityQueue<>(Comparator.comparingDouble(Candidate::similarity));
+        Candidate first = new Candidate(start, similarity(query, start));
+        visited.set(start);
+        frontier.add(first);
+        best.add(first);
+        while (!frontier.isEmpty()) {
+            Candidate current = frontier.poll();
+            if (best.size() >= ef && current.similarity() < best.peek().similarity()) {
+                break;
+            }
+            int node = current.node();
+            int[] links = level == 0 ? baseLinks : upperLinks[node];
+            int offset = level == 0 ? node * (M0 + 1) : (level - 1) * (M + 1);
+            for (int i = 0; i < links[offset]; i++) {
+                int neighbor = links[offset + 1 + i];
+                if (visited.get(neighbor)) {
+                    continue;
+                }
+                visited.set(neighbor);
+                float similarity = similarity(query, neighbor);
+                if (best.size() < ef || similarity > best.peek().similarity()) {
+                    Candidate candidate = new Candidate(neighbor, similarity);
+                    frontier.add(candidate);
+                    best.add(candidate);
+                    if (best.size() > ef) {
+                        best.poll();
+                    }
+                }
+            }
+        }
+        List<Candidate> ranked = new ArrayList<>(best);
+        ranked.sort(Comparator.comparingDouble(Candidate::similarity).reversed());
+        return ranked;
+    }
+
+    // Four independent sums let the JIT overlap the multiply-adds it may not reorder
+    private float similarity(float[] query, int node) {
+        int base = node * dimension;
+        float sum0 = 0;
+        float sum1 = 0;
+        float sum2 = 0;
+        float sum3 = 0;
+        int i = 0;
+        for (; i + 3 < dimension; i += 4) {
+            sum0 += query[i] * vectors.get(base + i);
+            sum1 += query[i + 1] * vectors.get(base + i + 1);
+            sum2 += query[i + 2] * vectors.get(base + i + 2);
+            sum3 += query[i + 3] * vectors.get(base + i + 3);
+        }
+        for (; i < dimension; i++) {
+            sum0 += query[i] * vectors.get(base + i);
+        }
+        return (sum0 + sum1) + (sum2 + sum3);
+    }
+
+    private float similarity(int a, int b) {
+        int baseA = a * dimension;
+        int baseB = b * dimension;
+        float sum0 = 0;
+        float sum1 = 0;
+        float sum2 = 0;
+        float sum3 = 0;
+        int i = 0;
+        for (; i + 3 < dimension; i += 4) {
+            sum0 += vectors.get(baseA + i) * vectors.get(baseB + i);
+            sum1 += vectors.get(baseA + i + 1) * vectors.get(baseB + i + 1);
+            sum2 += vectors.get(baseA + i + 2) * vectors.get(baseB + i + 2);
+            sum3 += vectors.get(baseA + i + 3) * vectors.get(baseB + i + 3);
+        }
+        for (; i < dimension; i++) {
+            sum0 += vectors.get(baseA + i) * vectors.get(baseB + i);
+        }
+        return (sum0 + sum1) + (sum2 + sum3);
+    }
+
+    private Neighbor neighbor(Candidate candidate) {
+        return new Neighbor(messageId(candidate.node()), sessionId(candidate.node()), candidate.similarity());
+    }
+
+    private UUID messageId(int node) {
+        return new UUID(messageIds[2 * node], messageIds[2 * node + 1]);
+    }
+
+    private UUID sessionId(int node) {
+        return new UUID(sessionIds[2 * node], sessionIds[2 * node + 1]);
+    }
+
+    private void allocate(int nodes) {
+        capacity = nodes;
+        vectors = ByteBuffer.allocateDirect(Math.multiplyExact(nodes, dimension) * Float.BYTES)
+                .order(ByteOrder.nativeOrder())
+                .asFloatBuffer();
+        messageIds = new long[2 * nodes];
+        sessionIds = new long[2 * nodes];
+        levels = new int[nodes];
+        baseLinks = new int[nodes * (M0 + 1)];
+        upperLinks = new int[nodes][];
+    }
+
+    private void grow() {
+        int newCapacity = capacity * 2;
+        FloatBuffer grown = ByteBuffer.allocateDirect(Math.multiplyExact(newCapacity, dimension) * Float.BYTES)
+                .order(ByteOrder.nativeOrder())
+                .asFloatBuffer();
+        grown.put(0, vectors, 0, size * dimension);
+        vectors = grown;
+        capacity = newCapacity;
+        messageIds = Arrays.copyOf(messageIds, 2 * newCapacity);
+        sessionIds = Arrays.copyOf(sessionIds, 2 * newCapacity);
+        levels = Arrays.copyOf(levels, newCapacity);
+        baseLinks = Arrays.copyOf(baseLinks, newCapacity * (M0 + 1));
+        upperLinks = Arrays.copyOf(upperLinks, newCapacity);
+    }
+
+    private static void writeLinks(DataOutput out, int[] links, int offset) throws IOException {
+        int count = links[offset];
+        out.writeByte(count);
+        for (int i = 0; i < count; i++) {
+            out.writeInt(links[offset + 1 + i]);
+        }
+    }
+
+    private static void readLinks(DataInput in, int[] links, int offset) throws IOException {
+        int count = in.readUnsignedByte();
+        links[offset] = count;
+        for (int i = 0; i < count; i++) {
+            links[offset + 1 + i] = in.readInt();
+        }
+    }
+
+    // Node ids belonging to one session
+    private static final class NodeList {
+        private int[] nodes = new int[4];
+        private int size;
+
+        void add(int node) {
+            if (size == nodes.length) {
+                nodes = Arrays.copyOf(nodes, size * 2);
+            }
+            nodes[size++] = node;
+        }
+    }
+}
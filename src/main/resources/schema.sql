@@ -19,8 +19,38 @@ CREATE TABLE IF NOT EXISTS chat_messages (
     FOREIGN KEY (session_id) REFERENCES chat_sessions(id) ON DELETE CASCADE
 );
 
+-- Estimated token counts computed at ingest, for context-window assembly; NULL on older rows
+ALTER TABLE chat_messages ADD COLUMN IF NOT EXISTS content_tokens INT;
+ALTER TABLE chat_messages ADD COLUMN IF NOT EXISTS context_tokens INT;
+
+-- Denormalized per-session message stats, maintained by message appends
+ALTER TABLE chat_sessions ADD COLUMN IF NOT EXISTS message_count BIGINT NOT NULL DEFAULT 0;
+ALTER TABLE chat_sessions ADD COLUMN IF NOT EXISTS last_message_at TIMESTAMP;
+ALTER TABLE chat_sessions ADD COLUMN IF NOT EXISTS last_message_preview VARCHAR(200);
+
+-- Deleted sessions are tombstoned and hidden at once; their messages are purged in the background
+ALTER TABLE chat_sessions ADD COLUMN IF NOT EXISTS deleted_at TIMESTAMP;
+
+-- Idle sessions whose messages moved to the cold-tier archive; restored on first access
+ALTER TABLE chat_sessions ADD COLUMN IF NOT EXISTS archived_at TIMESTAMP;
+
+-- Content-addressed RAG context passages shared by messages, reference counted
+CREATE TABLE IF NOT EXISTS context_blobs (
+    hash CHAR(64) PRIMARY KEY,
+    content TEXT NOT NULL,
+    ref_count BIGINT NOT NULL
+);
+
+-- Shared token buckets for cluster-wide rate limiting; a missing row is a full bucket
+CREATE TABLE IF NOT EXISTS rate_limit_buckets (
+    client_key VARCHAR(255) PRIMARY KEY,
+    tokens BIGINT NOT NULL,
+    refilled_at BIGINT NOT NULL
+);
+
 -- Create indexes for better query performance
 CREATE INDEX IF NOT EXISTS idx_chat_sessions_user_id_updated_at ON chat_sessions(user_id, updated_at DESC);
 CREATE INDEX IF NOT EXISTS idx_chat_sessions_user_id_favorite ON chat_sessions(user_id, is_favorite);
 CREATE INDEX IF NOT EXISTS idx_chat_messages_session_id_created_at ON chat_messages(session_id, created_at ASC);
-CREATE INDEX IF NOT EXISTS idx_chat_messages_session_id ON chat_messages(session_id);
\ No newline at end of file
+CREATE INDEX IF NOT EXISTS idx_chat_messages_session_id ON chat_messages(session_id);
+CREATE INDEX IF NOT EXISTS idx_chat_sessions_deleted_at ON chat_sessions(deleted_at);
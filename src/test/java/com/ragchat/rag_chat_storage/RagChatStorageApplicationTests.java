@@ -1,11 +1,27 @@
 package com.ragchat.rag_chat_storage;
 
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
 
+import java.nio.file.Path;
+
+// Closed after the class, before its temporary data directory is removed
+@DirtiesContext
 @SpringBootTest
 class RagChatStorageApplicationTests {
 
+	@TempDir
+	static Path dataDirectory;
+
+	@DynamicPropertySource
+	static void dataDirectories(DynamicPropertyRegistry registry) {
+		TestDataDirectories.register(registry, () -> dataDirectory);
+	}
+
 	@Test
 	void contextLoads() {
 	}
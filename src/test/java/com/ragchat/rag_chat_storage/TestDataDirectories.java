@@ -0,0 +1,21 @@
+package com.ragchat.rag_chat_storage;
+
+import org.springframework.test.context.DynamicPropertyRegistry;
+
+import java.nio.file.Path;
+import java.util.function.Supplier;
+
+// Points the file-backed stores of a test context at a temporary directory. Their defaults are
+// relative to the working directory, so without this a test run writes ./data into the checkout.
+public final class TestDataDirectories {
+
+    private TestDataDirectories() {
+    }
+
+    public static void register(DynamicPropertyRegistry registry, Supplier<Path> root) {
+        registry.add("app.search.directory", () -> root.get().resolve("search").toString());
+        registry.add("app.vectors.directory", () -> root.get().resolve("vectors").toString());
+        registry.add("app.message-store.segment.directory", () -> root.get().resolve("segments").toString());
+        registry.add("app.archive.directory", () -> root.get().resolve("archive").toString());
+    }
+}
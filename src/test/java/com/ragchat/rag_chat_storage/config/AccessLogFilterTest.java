@@ -0,0 +1,42 @@
+package com.ragchat.rag_chat_storage.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AccessLogFilterTest {
+
+    @Test
+    void parseRouteRates_ShouldReadRoutePatternsWithRates() {
+        Map<String, Double> rates = AccessLogFilter.parseRouteRates(
+                "/api/v1/health/ping=0, /api/v1/sessions/{sessionId}/messages=0.05");
+
+        assertEquals(Map.of("/api/v1/health/ping", 0.0, "/api/v1/sessions/{sessionId}/messages", 0.05), rates);
+        assertEquals(Map.of(), AccessLogFilter.parseRouteRates(""));
+    }
+
+    @Test
+    void parseRouteRates_ShouldRejectEntriesWithoutRate() {
+        assertThrows(IllegalArgumentException.class, () -> AccessLogFilter.parseRouteRates("/api/v1/sessions"));
+    }
+
+    @Test
+    void toJson_ShouldWriteOneRecordWithRouteAndCounts() {
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.post("/api/v1/sessions"));
+        exchange.getAttributes().put(PayloadMetricsFilter.REQUEST_BYTES_ATTRIBUTE, new AtomicLong(120));
+        exchange.getAttributes().put(PayloadMetricsFilter.RESPONSE_BYTES_ATTRIBUTE, new AtomicLong(340));
+
+        String json = AccessLogFilter.toJson(exchange, "/api/v1/sessions", 201, 2_500_000, 3, 0.5);
+
+        assertTrue(json.startsWith("{\"ts\":\""), json);
+        assertTrue(json.endsWith(",\"method\":\"POST\",\"route\":\"/api/v1/sessions\",\"status\":201,\"latency_ms\":2.5,"
+                + "\"request_bytes\":120,\"response_bytes\":340,\"rows\":3,\"sample_rate\":0.5}"), json);
+    }
+}
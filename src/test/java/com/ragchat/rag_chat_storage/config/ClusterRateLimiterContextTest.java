@@ -0,0 +1,36 @@
+package com.ragchat.rag_chat_storage.config;
+
+import com.ragchat.rag_chat_storage.TestDataDirectories;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+
+// Closed after the class, before its temporary data directory is removed
+@DirtiesContext
+@SpringBootTest(properties = "app.rate-limiting.mode=cluster")
+class ClusterRateLimiterContextTest {
+
+    @TempDir
+    static Path dataDirectory;
+
+    @DynamicPropertySource
+    static void dataDirectories(DynamicPropertyRegistry registry) {
+        TestDataDirectories.register(registry, () -> dataDirectory);
+    }
+
+    @Autowired
+    private RateLimiter rateLimiter;
+
+    @Test
+    void contextLoads_WithClusterRateLimiting() {
+        assertInstanceOf(ClusterRateLimiter.class, rateLimiter);
+    }
+}
@@ -0,0 +1,148 @@
+package com.ragchat.rag_chat_storage.config;
+
+import io.github.bucket4j.ConsumptionProbe;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.r2dbc.spi.ConnectionFactories;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.r2dbc.core.DatabaseClient;
+import reactor.core.publisher.Flux;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ClusterRateLimiterTest {
+
+    private static final RateLimit LIMIT = new RateLimit("requests", 100, 60);
+
+    private final MutableClock clock = new MutableClock();
+    private DatabaseClient databaseClient;
+
+    @BeforeEach
+    void setUp() {
+        databaseClient = DatabaseClient.create(ConnectionFactories.get(
+                "r2dbc:h2:mem:///rate-limit-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1"));
+        databaseClient.sql("CREATE TABLE rate_limit_buckets (client_key VARCHAR(255) PRIMARY KEY, "
+                + "tokens BIGINT NOT NULL, refilled_at BIGINT NOT NULL)").then().block();
+    }
+
+    @Test
+    void tryConsume_ShouldEnforceOneLimitAcrossNodes() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        List<ClusterRateLimiter> nodes = List.of(node(meterRegistry), node(meterRegistry), node(meterRegistry));
+
+        long consumed = consume(nodes, 600, 16);
+        // Leases still held by other nodes can only make the cluster stricter, never looser
+        assertTrue(consumed <= 100, "consumed " + consumed);
+        assertTrue(consumed >= 90, "consumed " + consumed);
+
+        // Once leases expire their leftovers flow back, so the cluster converges on the exact limit
+        clock.advance(Duration.ofSeconds(3));
+        consumed += consume(nodes, 600, 16);
+        assertEquals(100, consumed);
+    }
+
+    @Test
+    void tryConsume_ShouldServeMostRequestsFromLocalLeases() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        List<ClusterRateLimiter> nodes = List.of(node(meterRegistry), node(meterRegistry), node(meterRegistry));
+
+        assertEquals(60, consume(nodes, 60, 1));
+
+        double trips = meterRegistry.get("ratelimit.shared.requests").counter().count();
+        assertTrue(trips <= 20, "shared store trips " + trips);
+    }
+
+    @Test
+    void tryConsume_ShouldRefillSharedBucketEachInterval() {
+        ClusterRateLimiter limiter = node(new SimpleMeterRegistry());
+        assertTrue(limiter.tryConsume(LIMIT, "client", 100).block().isConsumed());
+
+        ConsumptionProbe rejected = limiter.tryConsume(LIMIT, "client", 1).block();
+        assertFalse(rejected.isConsumed());
+        assertEquals(Duration.ofMinutes(1).toNanos(), rejected.getNanosToWaitForRefill());
+
+        clock.advance(Duration.ofMinutes(1));
+        assertTrue(limiter.tryConsume(LIMIT, "client", 60).block().isConsumed());
+        assertFalse(limiter.tryConsume(LIMIT, "client", 1).block().isConsumed());
+    }
+
+    @Test
+    void purgeIdleBuckets_ShouldDropBucketsThatHaveRefilled() {
+        ClusterRateLimiter limiter = node(new SimpleMeterRegistry());
+        limiter.tryConsume(LIMIT, "client", 1).block();
+
+        clock.advance(Duration.ofMinutes(3));
+        limiter.purgeIdleBuckets();
+
+        assertEquals(0L, databaseClient.sql("SELECT COUNT(*) AS c FROM rate_limit_buckets")
+                .map(row -> row.get("c", Long.class)).one().block());
+    }
+
+    @Test
+    void tryConsume_ShouldKeepSeparateBucketsPerLimit() {
+        ClusterRateLimiter limiter = node(new SimpleMeterRegistry());
+        RateLimit bytes = new RateLimit("bytes", 10_000, 5_000);
+
+        assertTrue(limiter.tryConsume(LIMIT, "client", 100).block().isConsumed());
+        assertTrue(limiter.tryConsume(bytes, "client", 8_000).block().isConsumed());
+
+        ConsumptionProbe rejected = limiter.tryConsume(bytes, "client", 4_000).block();
+        assertFalse(rejected.isConsumed());
+        assertEquals(Duration.ofMinutes(1).toNanos(), rejected.getNanosToWaitForRefill());
+    }
+
+    @Test
+    void storageKey_ShouldHashKeysTooLongForTheColumn() {
+        assertEquals("requests:10.0.0.1", ClusterRateLimiter.storageKey(LIMIT, "10.0.0.1"));
+        String hashed = ClusterRateLimiter.storageKey(LIMIT, "x".repeat(1000));
+        assertTrue(hashed.startsWith("requests:sha256:"));
+        assertEquals(80, hashed.length());
+    }
+
+    private ClusterRateLimiter node(SimpleMeterRegistry meterRegistry) {
+        return new ClusterRateLimiter(databaseClient, meterRegistry, LIMIT.fullRefillTime(), 1000, 10, Duration.ofSeconds(2), clock);
+    }
+
+    // Requests spread round-robin over the nodes
+    private long consume(List<ClusterRateLimiter> nodes, int requests, int concurrency) {
+        return Flux.range(0, requests)
+                .flatMap(i -> nodes.get(i % nodes.size()).tryConsume(LIMIT, "client", 1), concurrency)
+                .filter(ConsumptionProbe::isConsumed)
+                .count()
+                .block();
+    }
+
+    private static final class MutableClock extends Clock {
+        private final AtomicLong millis = new AtomicLong(Instant.parse("2024-01-01T00:00:00Z").toEpochMilli());
+
+        void advance(Duration duration) {
+            millis.addAndGet(duration.toMillis());
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return Instant.ofEpochMilli(millis.get());
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.ragchat.rag_chat_storage.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class OperationMetricsPostProcessorTest {
+
+    private static final RateLimit LIMIT = new RateLimit("reads", 1, 60);
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final OperationMetricsPostProcessor postProcessor = new OperationMetricsPostProcessor(meterRegistryProvider());
+
+    @Test
+    void service_ShouldBeTimedBySubscription_WithOutcome() {
+        GreetingService service = (GreetingService) postProcessor.postProcessAfterInitialization(new GreetingService(), "greetingService");
+
+        Mono<String> greeting = service.greet("ada");
+        // Assembled but not yet subscribed
+        assertEquals(0, timerCount("greet", "success"));
+
+        StepVerifier.create(greeting).expectNext("hello ada").verifyComplete();
+        StepVerifier.create(service.greet(null)).verifyError(IllegalArgumentException.class);
+
+        assertEquals(1, timerCount("greet", "success"));
+        assertEquals(1, timerCount("greet", "error"));
+    }
+
+    @Test
+    void service_ShouldRecordCancelledStreams() {
+        GreetingService service = (GreetingService) postProcessor.postProcessAfterInitialization(new GreetingService(), "greetingService");
+
+        StepVerifier.create(service.ticks()).expectNext(0L).thenCancel().verify();
+
+        assertEquals(1, timerCount("ticks", "cancelled"));
+    }
+
+    @Test
+    void service_ShouldRecordSynchronousFailures() {
+        GreetingService service = (GreetingService) postProcessor.postProcessAfterInitialization(new GreetingService(), "greetingService");
+
+        assertThrows(IllegalStateException.class, service::fail);
+
+        assertEquals(1, timerCount("fail", "error"));
+    }
+
+    @Test
+    void rateLimiter_ShouldCountAcceptedAndRejectedDecisions() {
+        RateLimiter limiter = (RateLimiter) postProcessor.postProcessAfterInitialization(
+                new RateLimitingService(meterRegistry, LIMIT.fullRefillTime(), 100, System::nanoTime), "rateLimitingService");
+
+        limiter.tryConsume(LIMIT, "10.0.0.1", 1).block();
+        limiter.tryConsume(LIMIT, "10.0.0.1", 1).block();
+
+        assertEquals(1, meterRegistry.get("ratelimit.decisions").tags("limit", "reads", "result", "accepted").counter().count());
+        assertEquals(1, meterRegistry.get("ratelimit.decisions").tags("limit", "reads", "result", "rejected").counter().count());
+    }
+
+    @Test
+    void otherBeans_ShouldBeLeftAlone() {
+        Object bean = new Object();
+
+        assertSame(bean, postProcessor.postProcessAfterInitialization(bean, "plain"));
+    }
+
+    // StaticListableBeanFactory providers cannot resolve getObject(), so register a real singleton
+    private ObjectProvider<MeterRegistry> meterRegistryProvider() {
+        DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+        beanFactory.registerSingleton("meterRegistry", meterRegistry);
+        return beanFactory.getBeanProvider(MeterRegistry.class);
+    }
+
+    private long timerCount(String method, String outcome) {
+        return meterRegistry.get(OperationMetricsPostProcessor.OPERATION_METRIC)
+                .tags("layer", "service", "component", "greetingService", "method", method, "outcome", outcome)
+                .timer().count();
+    }
+
+    @Service
+    static class GreetingService {
+
+        public Mono<String> greet(String name) {
+            return Mono.fromCallable(() -> {
+                if (name == null) {
+                    throw new IllegalArgumentException("name");
+                }
+                return "hello " + name;
+            });
+        }
+
+        public Flux<Long> ticks() {
+            return Flux.interval(Duration.ofMillis(1));
+        }
+
+        public String fail() {
+            throw new IllegalStateException("failed");
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.ragchat.rag_chat_storage.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class RateLimitPolicyTest {
+
+    private final RateLimitPolicy policy = new RateLimitPolicy(60, 100, 30, 50, 20, 40,
+            DataSize.ofMegabytes(1), DataSize.ofMegabytes(2), DataSize.ofKilobytes(4), 50);
+
+    @Test
+    void limitFor_ShouldSeparateReadsWritesAndSearches() {
+        assertSame(policy.getReads(), policy.limitFor(MockServerHttpRequest.get("/api/v1/sessions").build()));
+        assertSame(policy.getWrites(), policy.limitFor(MockServerHttpRequest.post("/api/v1/sessions").build()));
+        assertSame(policy.getWrites(), policy.limitFor(MockServerHttpRequest.delete("/api/v1/sessions/1").build()));
+        assertSame(policy.getSearches(), policy.limitFor(MockServerHttpRequest.get("/api/v1/search").build()));
+        assertSame(policy.getSearches(), policy.limitFor(MockServerHttpRequest.post("/api/v1/search/similar").build()));
+    }
+
+    @Test
+    void costOf_ShouldChargeWritesByBodySize() {
+        assertEquals(1, writeCost(0));
+        assertEquals(1, writeCost(100));
+        assertEquals(1, writeCost(4096));
+        assertEquals(4, writeCost(15 * 1024));
+        // Never more than the bucket holds, or the request could never succeed
+        assertEquals(50, writeCost(10 * 1024 * 1024));
+    }
+
+    @Test
+    void costOf_ShouldChargeReadsByRequestedResults() {
+        assertEquals(1, readCost("/api/v1/sessions/1/messages"));
+        assertEquals(1, readCost("/api/v1/sessions/1/messages?size=50"));
+        assertEquals(4, readCost("/api/v1/sessions/1/messages?size=200"));
+        assertEquals(1, readCost("/api/v1/sessions/1/messages?size=abc"));
+        assertEquals(2, policy.costOf(policy.getSearches(),
+                MockServerHttpRequest.get("/api/v1/search?userId=u&q=x&limit=100").build()));
+    }
+
+    @Test
+    void batchCost_ShouldChargeEveryMessage() {
+        assertEquals(20, policy.batchCost(20));
+        assertEquals(50, policy.batchCost(100));
+    }
+
+    @Test
+    void longestFullRefillTime_ShouldCoverSlowestLimit() {
+        // 50 writes at 30 per minute and 2 MB at 1 MB per minute both take two intervals
+        assertEquals(Duration.ofMinutes(2), policy.longestFullRefillTime());
+    }
+
+    private long writeCost(long contentLength) {
+        MockServerHttpRequest request = MockServerHttpRequest.post("/api/v1/sessions/1/messages")
+                .contentLength(contentLength)
+                .build();
+        return policy.costOf(policy.getWrites(), request);
+    }
+
+    private long readCost(String uri) {
+        return policy.costOf(policy.getReads(), MockServerHttpRequest.get(uri).build());
+    }
+}
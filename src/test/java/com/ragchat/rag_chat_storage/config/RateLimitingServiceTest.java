@@ -0,0 +1,83 @@
+package com.ragchat.rag_chat_storage.config;
+
+import io.github.bucket4j.Bucket;
+import io.github.bucket4j.ConsumptionProbe;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RateLimitingServiceTest {
+
+    private static final RateLimit LIMIT = new RateLimit("requests", 100, 60);
+
+    private final AtomicLong nanos = new AtomicLong();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void resolveBucket_ShouldReuseBucketWhileClientIsActive() {
+        RateLimitingService service = new RateLimitingService(meterRegistry, LIMIT.fullRefillTime(), 1000, nanos::get);
+
+        Bucket bucket = service.resolveBucket(LIMIT, "10.0.0.1");
+        assertTrue(service.tryConsume(LIMIT, "10.0.0.1", 40).block().isConsumed());
+
+        assertSame(bucket, service.resolveBucket(LIMIT, "10.0.0.1"));
+        assertEquals(60, bucket.getAvailableTokens());
+    }
+
+    @Test
+    void resolveBucket_ShouldDropBucketsIdleLongEnoughToRefill() {
+        RateLimitingService service = new RateLimitingService(meterRegistry, LIMIT.fullRefillTime(), 1000, nanos::get);
+        Bucket drained = service.resolveBucket(LIMIT, "10.0.0.1");
+        assertTrue(drained.tryConsume(100));
+        assertFalse(service.tryConsume(LIMIT, "10.0.0.1", 1).block().isConsumed());
+
+        // Still inside the refill window, so the drained bucket must survive
+        nanos.addAndGet(Duration.ofSeconds(90).toNanos());
+        assertSame(drained, service.resolveBucket(LIMIT, "10.0.0.1"));
+
+        nanos.addAndGet(Duration.ofMinutes(2).toNanos() + 1);
+        assertEquals(0, service.bucketCount());
+        assertNotSame(drained, service.resolveBucket(LIMIT, "10.0.0.1"));
+    }
+
+    @Test
+    void resolveBucket_ShouldBoundNumberOfBuckets() {
+        RateLimitingService service = new RateLimitingService(meterRegistry, LIMIT.fullRefillTime(), 100, nanos::get);
+
+        for (int i = 0; i < 1000; i++) {
+            service.resolveBucket(LIMIT, "client-" + i);
+        }
+
+        assertTrue(service.bucketCount() <= 100);
+        assertTrue(meterRegistry.get("cache.evictions").tag("cache", "rateLimitBuckets").functionCounter().count() > 0);
+        assertTrue(meterRegistry.get("ratelimit.buckets.memory").gauge().value() > 0);
+    }
+
+    @Test
+    void tryConsume_ShouldReportWaitUntilEnoughTokensRefill() {
+        RateLimitingService service = new RateLimitingService(meterRegistry, LIMIT.fullRefillTime(), 1000, nanos::get);
+        RateLimit bytes = new RateLimit("bytes", 10_000, 5_000);
+
+        assertTrue(service.tryConsume(LIMIT, "10.0.0.1", 100).block().isConsumed());
+        assertTrue(service.tryConsume(bytes, "10.0.0.1", 9_000).block().isConsumed());
+
+        ConsumptionProbe rejected = service.tryConsume(bytes, "10.0.0.1", 2_000).block();
+        assertFalse(rejected.isConsumed());
+        assertTrue(rejected.getNanosToWaitForRefill() > 0);
+        assertTrue(rejected.getNanosToWaitForRefill() <= Duration.ofMinutes(1).toNanos());
+    }
+
+    @Test
+    void fullRefillTime_ShouldCoverWholeCapacity() {
+        assertEquals(Duration.ofMinutes(2), new RateLimit("requests", 100, 60).fullRefillTime());
+        assertEquals(Duration.ofMinutes(1), new RateLimit("requests", 100, 600).fullRefillTime());
+    }
+}
@@ -0,0 +1,82 @@
+package com.ragchat.rag_chat_storage.integration;
+
+import com.ragchat.rag_chat_storage.TestDataDirectories;
+import com.ragchat.rag_chat_storage.dto.SessionResponse;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.UUID;
+
+// Closed after the class, before its temporary data directory is removed
+@DirtiesContext
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "app.security.api-key=" + MessageTailIntegrationTest.API_KEY,
+        "app.tail.heartbeat-interval=100ms"
+})
+@AutoConfigureWebTestClient
+class MessageTailIntegrationTest {
+
+    @TempDir
+    static Path dataDirectory;
+
+    @DynamicPropertySource
+    static void dataDirectories(DynamicPropertyRegistry registry) {
+        TestDataDirectories.register(registry, () -> dataDirectory);
+    }
+
+    static final String API_KEY = "tail-test-key";
+    private static final String API_KEY_HEADER = "X-API-Key";
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @Test
+    void tail_ShouldCompleteAfterSessionIsDeleted() {
+        SessionResponse session = webTestClient.post().uri("/api/v1/sessions")
+                .header(API_KEY_HEADER, API_KEY)
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("{\"userId\":\"tail-user\",\"title\":\"Tailed\"}")
+                .exchange()
+                .expectStatus().isCreated()
+                .expectBody(SessionResponse.class)
+                .returnResult()
+                .getResponseBody();
+        UUID sessionId = session.getId();
+
+        Flux<ServerSentEvent<String>> events = webTestClient.mutate()
+                .responseTimeout(Duration.ofSeconds(10))
+                .build()
+                .get().uri("/api/v1/sessions/{sessionId}/messages/tail", sessionId)
+                .header(API_KEY_HEADER, API_KEY)
+                .accept(MediaType.TEXT_EVENT_STREAM)
+                .exchange()
+                .expectStatus().isOk()
+                .returnResult(new ParameterizedTypeReference<ServerSentEvent<String>>() {})
+                .getResponseBody();
+
+        // Heartbeats alone would keep the stream open; deleting the session has to end it
+        StepVerifier.create(events)
+                .expectNextMatches(event -> "keep-alive".equals(event.comment()))
+                .then(() -> webTestClient.delete().uri("/api/v1/sessions/{sessionId}", sessionId)
+                        .header(API_KEY_HEADER, API_KEY)
+                        .exchange()
+                        .expectStatus().isNoContent())
+                .thenConsumeWhile(event -> event.comment() != null)
+                .expectComplete()
+                .verify(Duration.ofSeconds(10));
+    }
+}
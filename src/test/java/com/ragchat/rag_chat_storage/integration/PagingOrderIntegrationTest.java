@@ -0,0 +1,155 @@
+package com.ragchat.rag_chat_storage.integration;
+
+import com.ragchat.rag_chat_storage.TestDataDirectories;
+import com.ragchat.rag_chat_storage.dto.MessageResponse;
+import com.ragchat.rag_chat_storage.dto.PagedResponse;
+import com.ragchat.rag_chat_storage.dto.SessionResponse;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.MediaType;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+// Offset pages hand out a keyset cursor, so both must agree on the order even when timestamps tie
+// Closed after the class, before its temporary data directory is removed
+@DirtiesContext
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "app.security.api-key=" + PagingOrderIntegrationTest.API_KEY
+})
+@AutoConfigureWebTestClient
+class PagingOrderIntegrationTest {
+
+    @TempDir
+    static Path dataDirectory;
+
+    @DynamicPropertySource
+    static void dataDirectories(DynamicPropertyRegistry registry) {
+        TestDataDirectories.register(registry, () -> dataDirectory);
+    }
+
+    static final String API_KEY = "paging-test-key";
+    private static final String API_KEY_HEADER = "X-API-Key";
+    private static final int SESSIONS = 4;
+    private static final int MESSAGES = 4;
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @Autowired
+    private DatabaseClient databaseClient;
+
+    @Test
+    void sessionOffsetPages_ShouldMatchTheirCursor_WhenUpdatedAtTies() {
+        String userId = "paging-" + UUID.randomUUID();
+        for (int i = 0; i < SESSIONS; i++) {
+            webTestClient.post().uri("/api/v1/sessions")
+                    .header(API_KEY_HEADER, API_KEY)
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .bodyValue("{\"userId\":\"" + userId + "\",\"title\":\"Session " + i + "\"}")
+                    .exchange()
+                    .expectStatus().isCreated();
+        }
+        databaseClient.sql("UPDATE chat_sessions SET updated_at = :updatedAt WHERE user_id = :userId")
+                .bind("updatedAt", LocalDateTime.now().truncatedTo(ChronoUnit.MILLIS))
+                .bind("userId", userId)
+                .then()
+                .block();
+
+        List<UUID> byOffset = new ArrayList<>();
+        for (int page = 0; page < SESSIONS; page++) {
+            byOffset.add(sessions("/api/v1/sessions?userId={userId}&page={page}&size=1", userId, page)
+                    .getContent().get(0).getId());
+        }
+
+        PagedResponse<SessionResponse> firstPage = sessions("/api/v1/sessions?userId={userId}&page=0&size=1", userId);
+        assertNotNull(firstPage.getNextCursor());
+        List<UUID> byCursor = new ArrayList<>(ids(firstPage, SessionResponse::getId));
+        byCursor.addAll(ids(sessions("/api/v1/sessions?userId={userId}&after={after}&size=" + SESSIONS,
+                userId, firstPage.getNextCursor()), SessionResponse::getId));
+
+        assertEquals(byOffset, byCursor);
+    }
+
+    @Test
+    void messageOffsetPages_ShouldMatchTheirCursor_WhenCreatedAtTies() {
+        SessionResponse session = webTestClient.post().uri("/api/v1/sessions")
+                .header(API_KEY_HEADER, API_KEY)
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("{\"userId\":\"paging-" + UUID.randomUUID() + "\",\"title\":\"Messages\"}")
+                .exchange()
+                .expectStatus().isCreated()
+                .expectBody(SessionResponse.class)
+                .returnResult()
+                .getResponseBody();
+        UUID sessionId = session.getId();
+        for (int i = 0; i < MESSAGES; i++) {
+            webTestClient.post().uri("/api/v1/sessions/{sessionId}/messages", sessionId)
+                    .header(API_KEY_HEADER, API_KEY)
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .bodyValue("{\"sender\":\"USER\",\"content\":\"Message " + i + "\"}")
+                    .exchange()
+                    .expectStatus().isCreated();
+        }
+        databaseClient.sql("UPDATE chat_messages SET created_at = :createdAt WHERE session_id = :sessionId")
+                .bind("createdAt", LocalDateTime.now().truncatedTo(ChronoUnit.MILLIS))
+                .bind("sessionId", sessionId)
+                .then()
+                .block();
+
+        List<UUID> byOffset = new ArrayList<>();
+        for (int page = 0; page < MESSAGES; page++) {
+            byOffset.add(messages("/api/v1/sessions/{sessionId}/messages?page={page}&size=1", sessionId, page)
+                    .getContent().get(0).getId());
+        }
+
+        PagedResponse<MessageResponse> firstPage = messages("/api/v1/sessions/{sessionId}/messages?page=0&size=1", sessionId);
+        assertNotNull(firstPage.getNextCursor());
+        List<UUID> byCursor = new ArrayList<>(ids(firstPage, MessageResponse::getId));
+        byCursor.addAll(ids(messages("/api/v1/sessions/{sessionId}/messages?after={after}&size=" + MESSAGES,
+                sessionId, firstPage.getNextCursor()), MessageResponse::getId));
+
+        assertEquals(byOffset, byCursor);
+    }
+
+    private PagedResponse<MessageResponse> messages(String uri, Object... variables) {
+        return webTestClient.get().uri(uri, variables)
+                .header(API_KEY_HEADER, API_KEY)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(new ParameterizedTypeReference<PagedResponse<MessageResponse>>() {})
+                .returnResult()
+                .getResponseBody();
+    }
+
+    private PagedResponse<SessionResponse> sessions(String uri, Object... variables) {
+        return webTestClient.get().uri(uri, variables)
+                .header(API_KEY_HEADER, API_KEY)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(new ParameterizedTypeReference<PagedResponse<SessionResponse>>() {})
+                .returnResult()
+                .getResponseBody();
+    }
+
+    private static <T> List<UUID> ids(PagedResponse<T> page, Function<T, UUID> id) {
+        return page.getContent().stream().map(id).toList();
+    }
+}
@@ -1,25 +1,40 @@
 package com.ragchat.rag_chat_storage.integration;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
-
+import com.ragchat.rag_chat_storage.TestDataDirectories;
 import com.ragchat.rag_chat_storage.dto.CreateMessageRequest;
 import com.ragchat.rag_chat_storage.dto.CreateSessionRequest;
 import com.ragchat.rag_chat_storage.dto.SessionResponse;
 import com.ragchat.rag_chat_storage.dto.UpdateSessionRequest;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.MediaType;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
 import org.springframework.test.web.reactive.server.WebTestClient;
 
+import java.nio.file.Path;
 import java.util.UUID;
 
+// Closed after the class, before its temporary data directory is removed
+@DirtiesContext
 @SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
 @AutoConfigureWebTestClient
 class RagChatStorageIntegrationTest {
 
+    @TempDir
+    static Path dataDirectory;
+
+    @DynamicPropertySource
+    static void dataDirectories(DynamicPropertyRegistry registry) {
+        TestDataDirectories.register(registry, () -> dataDirectory);
+    }
+
     @Autowired
     private WebTestClient webTestClient;
 
@@ -0,0 +1,108 @@
+package com.ragchat.rag_chat_storage.integration;
+
+import com.ragchat.rag_chat_storage.TestDataDirectories;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.nio.file.Path;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Closed after the class, before its temporary data directory is removed
+@DirtiesContext
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "app.security.api-key=" + RateLimitRejectionIntegrationTest.API_KEY,
+        "app.rate-limiting.requests-per-minute=1",
+        "app.rate-limiting.bucket-capacity=1",
+        "app.rate-limiting.writes.requests-per-minute=1",
+        "app.rate-limiting.writes.bucket-capacity=2",
+        "app.rate-limiting.bytes-per-minute=1KB",
+        "app.rate-limiting.bytes-capacity=1KB",
+        "app.rate-limiting.bytes-per-write-token=1MB"
+})
+@AutoConfigureWebTestClient
+class RateLimitRejectionIntegrationTest {
+
+    @TempDir
+    static Path dataDirectory;
+
+    @DynamicPropertySource
+    static void dataDirectories(DynamicPropertyRegistry registry) {
+        TestDataDirectories.register(registry, () -> dataDirectory);
+    }
+
+    static final String API_KEY = "rate-limit-test-key";
+    private static final String API_KEY_HEADER = "X-API-Key";
+    private static final String SMALL_SESSION = "{\"userId\":\"limited-user\",\"title\":\"Limited\"}";
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @Test
+    void readOverLimit_ShouldAnswer429WithRetryAfter() {
+        String client = UUID.randomUUID().toString();
+        String path = "/api/v1/sessions/" + UUID.randomUUID();
+
+        webTestClient.get().uri(path)
+                .header(API_KEY_HEADER, API_KEY)
+                .header("X-Forwarded-For", client)
+                .exchange()
+                .expectStatus().isNotFound();
+
+        webTestClient.get().uri(path)
+                .header(API_KEY_HEADER, API_KEY)
+                .header("X-Forwarded-For", client)
+                .exchange()
+                .expectStatus().isEqualTo(HttpStatus.TOO_MANY_REQUESTS)
+                .expectHeader().value(HttpHeaders.RETRY_AFTER, RateLimitRejectionIntegrationTest::assertWithinRefillInterval)
+                .expectBody()
+                .jsonPath("$.error").isEqualTo("RATE_LIMIT_EXCEEDED")
+                .jsonPath("$.status").isEqualTo(429);
+    }
+
+    @Test
+    void bodyOverBytesLimit_ShouldAnswer429WithoutSpendingRequestTokens() {
+        String client = UUID.randomUUID().toString();
+        // Whitespace pads the body to most of the 1KB byte bucket
+        String largeSession = SMALL_SESSION + " ".repeat(900);
+
+        post(client, largeSession).expectStatus().isCreated();
+
+        post(client, largeSession)
+                .expectStatus().isEqualTo(HttpStatus.TOO_MANY_REQUESTS)
+                .expectHeader().value(HttpHeaders.RETRY_AFTER, RateLimitRejectionIntegrationTest::assertWithinRefillInterval)
+                .expectBody().jsonPath("$.error").isEqualTo("RATE_LIMIT_EXCEEDED");
+
+        // The rejected body left the second write token in place
+        post(client, SMALL_SESSION).expectStatus().isCreated();
+        post(client, SMALL_SESSION)
+                .expectStatus().isEqualTo(HttpStatus.TOO_MANY_REQUESTS)
+                .expectHeader().value(HttpHeaders.RETRY_AFTER, RateLimitRejectionIntegrationTest::assertWithinRefillInterval);
+    }
+
+    private WebTestClient.ResponseSpec post(String client, String body) {
+        return webTestClient.post().uri("/api/v1/sessions")
+                .header(API_KEY_HEADER, API_KEY)
+                .header("X-Forwarded-For", client)
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(body)
+                .exchange();
+    }
+
+    // Buckets refill once a minute, so a client never has to wait longer than that
+    private static void assertWithinRefillInterval(String retryAfter) {
+        long seconds = Long.parseLong(retryAfter);
+        assertTrue(seconds >= 1 && seconds <= 60, "Retry-After " + retryAfter);
+    }
+}
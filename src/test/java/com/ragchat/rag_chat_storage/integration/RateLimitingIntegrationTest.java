@@ -1,22 +1,47 @@
 package com.ragchat.rag_chat_storage.integration;
 
 
+import com.ragchat.rag_chat_storage.TestDataDirectories;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
 import org.springframework.test.web.reactive.server.WebTestClient;
 
+import java.nio.file.Path;
+
+// Closed after the class, before its temporary data directory is removed
+@DirtiesContext
 @SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
 @AutoConfigureWebTestClient
 class RateLimitingIntegrationTest {
 
+    @TempDir
+    static Path dataDirectory;
+
+    @DynamicPropertySource
+    static void dataDirectories(DynamicPropertyRegistry registry) {
+        TestDataDirectories.register(registry, () -> dataDirectory);
+    }
+
     @Autowired
     private WebTestClient webTestClient;
 
     private static final String API_KEY = "test-api-key";
     private static final String API_KEY_HEADER = "X-API-Key";
 
+    // System properties outlive the class and would throttle every context created after it
+    @AfterEach
+    void clearRateLimitProperties() {
+        System.clearProperty("app.rate-limiting.requests-per-minute");
+        System.clearProperty("app.rate-limiting.bucket-capacity");
+    }
+
     @Test
     void shouldApplyRateLimiting() {
         // Set a very low rate limit for testing
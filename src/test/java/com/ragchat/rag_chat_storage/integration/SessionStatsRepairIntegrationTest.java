@@ -0,0 +1,106 @@
+package com.ragchat.rag_chat_storage.integration;
+
+import com.ragchat.rag_chat_storage.TestDataDirectories;
+import com.ragchat.rag_chat_storage.dto.SessionResponse;
+import com.ragchat.rag_chat_storage.repository.ChatSessionRepository;
+import com.ragchat.rag_chat_storage.service.SessionStatsRepairJob;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Closed after the class, before its temporary data directory is removed
+@DirtiesContext
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "app.security.api-key=" + SessionStatsRepairIntegrationTest.API_KEY,
+        "app.session-stats.repair-on-startup=false"
+})
+@AutoConfigureWebTestClient
+class SessionStatsRepairIntegrationTest {
+
+    @TempDir
+    static Path dataDirectory;
+
+    @DynamicPropertySource
+    static void dataDirectories(DynamicPropertyRegistry registry) {
+        TestDataDirectories.register(registry, () -> dataDirectory);
+    }
+
+    static final String API_KEY = "stats-test-key";
+    private static final String API_KEY_HEADER = "X-API-Key";
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @Autowired
+    private DatabaseClient databaseClient;
+
+    @Autowired
+    private ChatSessionRepository sessionRepository;
+
+    @Autowired
+    private SessionStatsRepairJob repairJob;
+
+    @Test
+    void repair_ShouldFixLastMessageAt_WhenCountIsRight() {
+        UUID healthy = sessionWithMessages(2);
+        UUID stale = sessionWithMessages(2);
+        databaseClient.sql("UPDATE chat_sessions SET last_message_at = :lastMessageAt WHERE id = :id")
+                .bind("lastMessageAt", LocalDateTime.now().minusDays(1))
+                .bind("id", stale)
+                .then()
+                .block();
+
+        List<UUID> staleIds = sessionRepository.findIdsWithStaleMessageStats().collectList().block();
+        assertTrue(staleIds.contains(stale));
+        assertFalse(staleIds.contains(healthy));
+
+        repairJob.repair().block();
+
+        assertFalse(sessionRepository.findIdsWithStaleMessageStats().collectList().block().contains(stale));
+        LocalDateTime latest = databaseClient.sql("SELECT MAX(created_at) AS latest FROM chat_messages WHERE session_id = :id")
+                .bind("id", stale)
+                .map(row -> row.get("latest", LocalDateTime.class))
+                .one()
+                .block();
+        assertEquals(latest, sessionRepository.findById(stale).block().getLastMessageAt());
+        assertEquals(2L, sessionRepository.findById(stale).block().getMessageCount());
+    }
+
+    private UUID sessionWithMessages(int messages) {
+        SessionResponse session = webTestClient.post().uri("/api/v1/sessions")
+                .header(API_KEY_HEADER, API_KEY)
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("{\"userId\":\"stats-user\",\"title\":\"Stats\"}")
+                .exchange()
+                .expectStatus().isCreated()
+                .expectBody(SessionResponse.class)
+                .returnResult()
+                .getResponseBody();
+        for (int i = 0; i < messages; i++) {
+            webTestClient.post().uri("/api/v1/sessions/{sessionId}/messages", session.getId())
+                    .header(API_KEY_HEADER, API_KEY)
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .bodyValue("{\"sender\":\"USER\",\"content\":\"Message " + i + "\"}")
+                    .exchange()
+                    .expectStatus().isCreated();
+        }
+        return session.getId();
+    }
+}
@@ -0,0 +1,111 @@
+package com.ragchat.rag_chat_storage.search;
+
+import com.ragchat.rag_chat_storage.entity.ChatMessage;
+import com.ragchat.rag_chat_storage.entity.ChatSession;
+import com.ragchat.rag_chat_storage.repository.ChatSessionRepository;
+import com.ragchat.rag_chat_storage.service.SessionMetadataCache;
+import com.ragchat.rag_chat_storage.service.SessionRestoredEvent;
+import com.ragchat.rag_chat_storage.storage.MessageStore;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class MessageSearchIndexTest {
+
+    private static final String USER = "search-user";
+
+    @Mock
+    private ChatSessionRepository sessionRepository;
+
+    @Mock
+    private SessionMetadataCache sessionCache;
+
+    @Mock
+    private MessageStore messageStore;
+
+    @TempDir
+    Path directory;
+
+    private UUID sessionId;
+    private ChatSession session;
+    private List<ChatMessage> messages;
+
+    @BeforeEach
+    void setUp() {
+        sessionId = UUID.randomUUID();
+        LocalDateTime now = LocalDateTime.now();
+        messages = IntStream.range(0, 3)
+                .mapToObj(i -> ChatMessage.builder()
+                        .id(UUID.randomUUID())
+                        .sessionId(sessionId)
+                        .sender("USER")
+                        .content("Notes on the quarterly roadmap, part " + i)
+                        .createdAt(now.plusNanos(i * 1000L))
+                        .build())
+                .toList();
+        session = ChatSession.builder()
+                .id(sessionId)
+                .userId(USER)
+                .title("Roadmap")
+                .messageCount(3L)
+                .build();
+    }
+
+    @Test
+    void archivedSession_ShouldKeepItsEntriesAcrossRestart_AndBeReindexedOnRestore() throws InterruptedException {
+        // Snapshotted with two messages; the third arrived after the last snapshot
+        when(sessionRepository.findAll()).thenReturn(Flux.just(session.toBuilder().messageCount(2L).build()));
+        when(messageStore.streamBySessionId(sessionId)).thenReturn(Flux.fromIterable(messages.subList(0, 2)));
+        start().stop();
+
+        // Archived since: the stats count three messages, but the store holds none of them
+        when(sessionRepository.findAll()).thenReturn(Flux.just(session.toBuilder().archivedAt(LocalDateTime.now()).build()));
+        MessageSearchIndex index = start();
+        verify(messageStore, times(1)).streamBySessionId(sessionId);
+        when(messageStore.findAllById(eq(sessionId), anyCollection())).thenReturn(Flux.fromIterable(messages));
+        StepVerifier.create(index.search(USER, "roadmap", 10))
+                .expectNextMatches(response -> response.getHits().size() == 2)
+                .verifyComplete();
+
+        // Restored: the session is reindexed from its rows
+        when(messageStore.streamBySessionId(sessionId)).thenReturn(Flux.fromIterable(messages));
+        index.onSessionRestored(new SessionRestoredEvent(sessionId));
+
+        StepVerifier.create(index.search(USER, "roadmap", 10))
+                .expectNextMatches(response -> response.isComplete() && response.getHits().size() == 3)
+                .verifyComplete();
+        index.stop();
+    }
+
+    private MessageSearchIndex start() throws InterruptedException {
+        MessageSearchIndex index = new MessageSearchIndex(sessionRepository, sessionCache, messageStore,
+                directory, Duration.ofMinutes(5));
+        index.start();
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (!index.isReady() && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue(index.isReady());
+        return index;
+    }
+}
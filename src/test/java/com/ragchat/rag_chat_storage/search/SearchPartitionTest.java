@@ -0,0 +1,119 @@
+package com.ragchat.rag_chat_storage.search;
+
+import com.ragchat.rag_chat_storage.dto.SearchHit;
+import com.ragchat.rag_chat_storage.entity.ChatMessage;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SearchPartitionTest {
+
+    private final UUID sessionId = UUID.randomUUID();
+    private final LocalDateTime now = LocalDateTime.now();
+
+    @Test
+    void tokenize_ShouldLowerCaseWordsAndSkipSingleCharacters() {
+        assertEquals(List.of("reactive", "r2dbc", "storage"), Tokenizer.tokenize("Reactive R2DBC, a storage!"));
+    }
+
+    @Test
+    void search_ShouldRankMessagesWithMoreMatchesFirst() {
+        SearchPartition partition = new SearchPartition();
+        ChatMessage strong = message(sessionId, "vector index tuning for the vector store");
+        ChatMessage weak = message(sessionId, "the store was slow today and yesterday");
+        partition.add(strong);
+        partition.add(weak);
+        partition.add(message(sessionId, "unrelated greeting"));
+
+        List<SearchPartition.ScoredDoc> ranked = partition.search(Tokenizer.tokenize("vector store"), 10);
+
+        assertEquals(2, ranked.size());
+        assertEquals(strong.getId(), ranked.get(0).doc().messageId());
+        assertEquals(weak.getId(), ranked.get(1).doc().messageId());
+        assertTrue(ranked.get(0).score() > ranked.get(1).score());
+    }
+
+    @Test
+    void add_ShouldIgnoreMessagesAlreadyIndexed() {
+        SearchPartition partition = new SearchPartition();
+        ChatMessage message = message(sessionId, "hello world");
+
+        assertTrue(partition.add(message));
+        assertFalse(partition.add(message));
+        assertEquals(1, partition.sessionDocCount(sessionId));
+    }
+
+    @Test
+    void removeSession_ShouldHideItsMessagesAndCompactLater() {
+        SearchPartition partition = new SearchPartition();
+        UUID otherSession = UUID.randomUUID();
+        partition.add(message(sessionId, "deleted conversation about caching"));
+        partition.add(message(sessionId, "more caching notes"));
+        ChatMessage kept = message(otherSession, "kept caching question");
+        partition.add(kept);
+
+        assertEquals(2, partition.removeSession(sessionId));
+        partition.compactIfNeeded();
+
+        List<SearchPartition.ScoredDoc> ranked = partition.search(List.of("caching"), 10);
+        assertEquals(1, ranked.size());
+        assertEquals(kept.getId(), ranked.get(0).doc().messageId());
+        assertEquals(Set.of(otherSession), partition.sessions());
+
+        // Doc ids were renumbered, so new postings must still append cleanly
+        partition.add(message(otherSession, "caching again"));
+        assertEquals(2, partition.search(List.of("caching"), 10).size());
+    }
+
+    @Test
+    void write_ShouldRoundTripThroughSnapshot() throws IOException {
+        SearchPartition partition = new SearchPartition();
+        ChatMessage message = message(sessionId, "snapshot of the partition");
+        partition.add(message);
+        partition.add(message(UUID.randomUUID(), "another partition entry"));
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        partition.write(new DataOutputStream(bytes));
+        SearchPartition restored = SearchPartition.read(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+
+        assertEquals(2, restored.liveDocCount());
+        assertEquals(1, restored.sessionDocCount(sessionId));
+        List<SearchPartition.ScoredDoc> ranked = restored.search(List.of("snapshot"), 5);
+        assertEquals(message.getId(), ranked.get(0).doc().messageId());
+        assertEquals(message.getCreatedAt(), ranked.get(0).doc().createdAt());
+    }
+
+    @Test
+    void toHit_ShouldHighlightMatchedTermsWithinSnippet() {
+        ChatMessage message = message(sessionId, "How do I tune the Vector index?");
+
+        SearchHit hit = MessageSearchIndex.toHit(message, 1.5, Set.of("vector"));
+
+        assertEquals("How do I tune the Vector index?", hit.getSnippet());
+        assertEquals(1, hit.getHighlights().size());
+        assertArrayEquals(new int[]{18, 24}, hit.getHighlights().get(0));
+    }
+
+    private ChatMessage message(UUID session, String content) {
+        return ChatMessage.builder()
+                .id(UUID.randomUUID())
+                .sessionId(session)
+                .sender("USER")
+                .content(content)
+                .createdAt(now)
+                .build();
+    }
+}
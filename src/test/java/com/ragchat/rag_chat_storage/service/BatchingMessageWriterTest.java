@@ -0,0 +1,127 @@
+package com.ragchat.rag_chat_storage.service;
+
+import com.ragchat.rag_chat_storage.entity.ChatMessage;
+import com.ragchat.rag_chat_storage.exception.ResourceNotFoundException;
+import com.ragchat.rag_chat_storage.exception.ServiceOverloadedException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.atMost;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class BatchingMessageWriterTest {
+
+    @Mock
+    private MessageAppendWriter appendWriter;
+
+    private BatchingMessageWriter batchingWriter;
+
+    @BeforeEach
+    void setUp() {
+        batchingWriter = new BatchingMessageWriter(appendWriter, new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(batchingWriter, "mode", "batched");
+        ReflectionTestUtils.setField(batchingWriter, "ack", "commit");
+        ReflectionTestUtils.setField(batchingWriter, "queueCapacity", 100);
+        ReflectionTestUtils.setField(batchingWriter, "maxBatchSize", 10);
+        ReflectionTestUtils.setField(batchingWriter, "maxBatchDelay", Duration.ofMillis(50));
+        ReflectionTestUtils.setField(batchingWriter, "shutdownTimeout", Duration.ofSeconds(5));
+    }
+
+    @AfterEach
+    void tearDown() {
+        batchingWriter.stop();
+    }
+
+    @Test
+    void submit_ShouldFlushConcurrentAppendsTogether() {
+        // Given
+        when(appendWriter.append(anyList())).thenAnswer(invocation -> Mono.just(invocation.getArgument(0)));
+        batchingWriter.start();
+
+        // When & Then
+        StepVerifier.create(Flux.range(0, 10).flatMap(i -> batchingWriter.submit(message())))
+                .expectNextCount(10)
+                .verifyComplete();
+
+        verify(appendWriter, atMost(2)).append(anyList());
+    }
+
+    @Test
+    void submit_ShouldIsolateFailingMessage_WhenBatchFails() {
+        // Given
+        ChatMessage good = message();
+        ChatMessage orphan = message();
+        when(appendWriter.append(anyList())).thenAnswer(invocation -> {
+            List<ChatMessage> batch = invocation.getArgument(0);
+            return batch.contains(orphan)
+                    ? Mono.error(new ResourceNotFoundException("Session not found with ID: " + orphan.getSessionId()))
+                    : Mono.just(batch);
+        });
+        batchingWriter.start();
+
+        // When & Then
+        Mono<ChatMessage> goodResult = batchingWriter.submit(good);
+        Mono<ChatMessage> orphanResult = batchingWriter.submit(orphan);
+        StepVerifier.create(orphanResult).expectError(ResourceNotFoundException.class).verify();
+        StepVerifier.create(goodResult).expectNext(good).verifyComplete();
+
+        verify(appendWriter, atMost(3)).append(argThat(batch -> batch.contains(good)));
+    }
+
+    @Test
+    void submit_ShouldReject_WhenNotRunning() {
+        StepVerifier.create(batchingWriter.submit(message()))
+                .expectErrorMatches(e -> e instanceof ServiceOverloadedException
+                        && e.getMessage().equals("Message writer is not running."))
+                .verify();
+    }
+
+    @Test
+    void submit_ShouldReject_WhenQueueIsFull() {
+        // Given a worker stuck on its first batch and room for one more message
+        ReflectionTestUtils.setField(batchingWriter, "ack", "enqueue");
+        ReflectionTestUtils.setField(batchingWriter, "queueCapacity", 1);
+        ReflectionTestUtils.setField(batchingWriter, "maxBatchSize", 1);
+        Sinks.Empty<Void> release = Sinks.empty();
+        when(appendWriter.append(anyList())).thenAnswer(invocation -> release.asMono().thenReturn(invocation.getArgument(0)));
+        batchingWriter.start();
+
+        // When & Then
+        StepVerifier.create(Flux.range(0, 3).concatMap(i -> batchingWriter.submit(message())))
+                .thenConsumeWhile(message -> true)
+                .expectErrorMatches(e -> e instanceof ServiceOverloadedException
+                        && e.getMessage().equals("Message ingestion queue is full. Try again later."))
+                .verify(Duration.ofSeconds(5));
+
+        release.tryEmitEmpty();
+    }
+
+    private ChatMessage message() {
+        return ChatMessage.builder()
+                .id(UUID.randomUUID())
+                .sessionId(UUID.randomUUID())
+                .sender("USER")
+                .content("content")
+                .createdAt(LocalDateTime.now())
+                .build();
+    }
+}
@@ -3,13 +3,18 @@ package com.ragchat.rag_chat_storage.service;
 
 
 import com.ragchat.rag_chat_storage.dto.CreateMessageRequest;
+import com.ragchat.rag_chat_storage.dto.MessageResponse;
 import com.ragchat.rag_chat_storage.entity.ChatMessage;
+import com.ragchat.rag_chat_storage.entity.ChatSession;
+import com.ragchat.rag_chat_storage.exception.BadRequestException;
 import com.ragchat.rag_chat_storage.exception.ResourceNotFoundException;
-import com.ragchat.rag_chat_storage.repository.ChatMessageRepository;
-import com.ragchat.rag_chat_storage.repository.ChatSessionRepository;
+import com.ragchat.rag_chat_storage.storage.MessageStore;
+import com.ragchat.rag_chat_storage.storage.RecentMessageCache;
+import com.ragchat.rag_chat_storage.vector.MessageVectorIndex;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
@@ -18,19 +23,48 @@ import reactor.core.publisher.Mono;
 import reactor.test.StepVerifier;
 
 import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.stream.IntStream;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
 class ChatMessageServiceTest {
 
     @Mock
-    private ChatMessageRepository messageRepository;
+    private MessageStore messageStore;
 
     @Mock
-    private ChatSessionRepository sessionRepository;
+    private SessionMetadataCache sessionCache;
+
+    @Mock
+    private MessageAppendWriter appendWriter;
+
+    @Mock
+    private BatchingMessageWriter batchingWriter;
+
+    @Mock
+    private MessageTailHub tailHub;
+
+    @Mock
+    private MessageVectorIndex vectorIndex;
+
+    @Mock
+    private SessionArchiver sessionArchiver;
+
+    @Mock
+    private RecentMessageCache recentCache;
 
     @InjectMocks
     private ChatMessageService chatMessageService;
@@ -38,6 +72,7 @@ class ChatMessageServiceTest {
     private UUID sessionId;
     private UUID messageId;
     private ChatMessage testMessage;
+    private ChatSession testSession;
     private CreateMessageRequest createRequest;
 
     @BeforeEach
@@ -54,18 +89,28 @@ class ChatMessageServiceTest {
                 .createdAt(LocalDateTime.now())
                 .build();
 
+        testSession = ChatSession.builder()
+                .id(sessionId)
+                .userId("test-user")
+                .title("Test Session")
+                .createdAt(LocalDateTime.now())
+                .updatedAt(LocalDateTime.now())
+                .build();
+
         createRequest = CreateMessageRequest.builder()
                 .sender("USER")
                 .content("Test message content")
                 .context("Test context")
                 .build();
+
+        lenient().when(sessionArchiver.rehydrate(any())).thenAnswer(invocation -> Mono.just(invocation.getArgument(0)));
     }
 
     @Test
     void createMessage_ShouldCreateMessageSuccessfully() {
         // Given
-        when(sessionRepository.existsById(sessionId)).thenReturn(Mono.just(true));
-        when(messageRepository.save(any(ChatMessage.class))).thenReturn(Mono.just(testMessage));
+        when(sessionCache.get(sessionId)).thenReturn(Mono.just(testSession));
+        when(appendWriter.append(anyList())).thenAnswer(invocation -> Mono.just(invocation.getArgument(0)));
 
         // When & Then
         StepVerifier.create(chatMessageService.createMessage(sessionId, createRequest))
@@ -74,12 +119,257 @@ class ChatMessageServiceTest {
                                 response.getSender().equals("USER") &&
                                 response.getContent().equals("Test message content"))
                 .verifyComplete();
+
+        verify(batchingWriter, never()).submit(any());
+    }
+
+    @Test
+    void createMessage_ShouldRejectEmbedding_WhenVectorIndexRefusesIt() {
+        // Given
+        createRequest.setEmbedding(new float[]{0f, 0f});
+        when(sessionCache.get(sessionId)).thenReturn(Mono.just(testSession));
+        doThrow(new BadRequestException("Embedding must not be all zeros"))
+                .when(vectorIndex).validate("test-user", createRequest.getEmbedding());
+
+        // When & Then
+        StepVerifier.create(chatMessageService.createMessage(sessionId, createRequest))
+                .expectError(BadRequestException.class)
+                .verify();
+
+        verify(appendWriter, never()).append(anyList());
+    }
+
+    @Test
+    void createMessage_ShouldQueueMessage_WhenBatchingEnabled() {
+        // Given
+        when(sessionCache.get(sessionId)).thenReturn(Mono.just(testSession));
+        when(batchingWriter.isEnabled()).thenReturn(true);
+        when(batchingWriter.submit(any(ChatMessage.class))).thenAnswer(invocation -> Mono.just(invocation.getArgument(0)));
+
+        // When & Then
+        StepVerifier.create(chatMessageService.createMessage(sessionId, createRequest))
+                .expectNextMatches(response -> response.getSessionId().equals(sessionId))
+                .verifyComplete();
+
+        verify(appendWriter, never()).append(anyList());
+    }
+
+    @Test
+    void createMessage_ShouldFail_WhenSessionDeletedConcurrently() {
+        // Given
+        when(sessionCache.get(sessionId)).thenReturn(Mono.just(testSession));
+        when(appendWriter.append(anyList()))
+                .thenReturn(Mono.error(new ResourceNotFoundException("Session not found with ID: " + sessionId)));
+
+        // When & Then
+        StepVerifier.create(chatMessageService.createMessage(sessionId, createRequest))
+                .expectError(ResourceNotFoundException.class)
+                .verify();
+
+        verify(sessionCache).invalidate(sessionId);
+    }
+
+    @Test
+    void createMessages_ShouldInsertBatchInRequestOrder() {
+        // Given
+        CreateMessageRequest second = CreateMessageRequest.builder()
+                .sender("ASSISTANT")
+                .content("Second message")
+                .build();
+        when(sessionCache.get(sessionId)).thenReturn(Mono.just(testSession));
+        when(appendWriter.append(anyList())).thenAnswer(invocation -> Mono.just(invocation.getArgument(0)));
+
+        // When & Then
+        StepVerifier.create(chatMessageService.createMessages(sessionId, List.of(createRequest, second)))
+                .expectNextMatches(responses ->
+                        responses.size() == 2 &&
+                                responses.get(0).getContent().equals("Test message content") &&
+                                responses.get(1).getContent().equals("Second message") &&
+                                responses.get(0).getCreatedAt().isBefore(responses.get(1).getCreatedAt()))
+                .verifyComplete();
+
+        verify(appendWriter).append(anyList());
+    }
+
+    @Test
+    void exportSessionMessages_ShouldStreamWithBoundedDemand() {
+        // Given
+        when(sessionCache.get(sessionId)).thenReturn(Mono.just(testSession));
+        when(messageStore.streamBySessionId(sessionId)).thenReturn(Flux.just(testMessage, testMessage, testMessage));
+
+        // When & Then
+        StepVerifier.create(chatMessageService.exportSessionMessages(sessionId), 1)
+                .expectNextCount(1)
+                .thenRequest(2)
+                .expectNextCount(2)
+                .verifyComplete();
+    }
+
+    @Test
+    void exportSessionMessages_ShouldFail_WhenSessionNotExists() {
+        // Given
+        when(sessionCache.get(sessionId)).thenReturn(Mono.empty());
+
+        // When & Then
+        StepVerifier.create(chatMessageService.exportSessionMessages(sessionId))
+                .expectError(ResourceNotFoundException.class)
+                .verify();
+
+        verify(messageStore, never()).streamBySessionId(any());
+    }
+
+    @Test
+    void tailSessionMessages_ShouldReplayAfterCursorThenSkipDuplicateLiveMessages() {
+        // Given
+        ChatMessage newer = testMessage.toBuilder()
+                .id(UUID.randomUUID())
+                .createdAt(testMessage.getCreatedAt().plusSeconds(1))
+                .build();
+        String cursor = new PageCursor(testMessage.getCreatedAt().minusSeconds(1), UUID.randomUUID()).encode();
+        when(sessionCache.get(sessionId)).thenReturn(Mono.just(testSession));
+        when(tailHub.subscribe(sessionId)).thenReturn(Flux.just(testMessage, newer));
+        when(messageStore.streamAfter(any(), any(), any())).thenReturn(Flux.just(testMessage));
+
+        // When & Then
+        StepVerifier.create(chatMessageService.tailSessionMessages(sessionId, cursor))
+                .expectNextMatches(response -> response.getId().equals(messageId))
+                .expectNextMatches(response -> response.getId().equals(newer.getId()))
+                .verifyComplete();
+    }
+
+    @Test
+    void tailSessionMessages_ShouldOnlyGoLive_WithoutCursor() {
+        // Given
+        when(sessionCache.get(sessionId)).thenReturn(Mono.just(testSession));
+        when(tailHub.subscribe(sessionId)).thenReturn(Flux.just(testMessage));
+
+        // When & Then
+        StepVerifier.create(chatMessageService.tailSessionMessages(sessionId, null))
+                .expectNextCount(1)
+                .verifyComplete();
+
+        verify(messageStore, never()).streamAfter(any(), any(), any());
+    }
+
+    @Test
+    void getSessionMessages_ShouldRestoreArchivedSessionBeforeReading() {
+        // Given
+        ChatSession archived = testSession.toBuilder().archivedAt(LocalDateTime.now()).build();
+        when(sessionCache.get(sessionId)).thenReturn(Mono.just(archived));
+        when(sessionArchiver.rehydrate(archived)).thenReturn(Mono.just(testSession));
+        when(messageStore.findBySessionIdOrderByCreatedAtAsc(sessionId)).thenReturn(Flux.just(testMessage));
+
+        // When & Then
+        StepVerifier.create(chatMessageService.getSessionMessages(sessionId, -1, -1))
+                .expectNextCount(1)
+                .verifyComplete();
+
+        InOrder order = inOrder(sessionArchiver, messageStore);
+        order.verify(sessionArchiver).rehydrate(archived);
+        order.verify(messageStore).findBySessionIdOrderByCreatedAtAsc(sessionId);
+    }
+
+    @Test
+    void getRecentMessages_ShouldServeFromCache_WhenWindowIsCurrent() {
+        // Given
+        testSession.setLastMessageAt(testMessage.getCreatedAt());
+        when(sessionCache.get(sessionId)).thenReturn(Mono.just(testSession));
+        when(recentCache.get(sessionId, 1, testMessage.getCreatedAt())).thenReturn(Optional.of(List.of(testMessage)));
+
+        // When & Then
+        StepVerifier.create(chatMessageService.getRecentMessages(sessionId, 1))
+                .expectNextMatches(messages -> messages.size() == 1 && messages.get(0).getId().equals(messageId))
+                .verifyComplete();
+
+        verify(messageStore, never()).findLatest(any(), anyInt());
+    }
+
+    @Test
+    void getRecentMessages_ShouldLoadFullWindowOldestFirst_OnMiss() {
+        // Given
+        ChatMessage newer = testMessage.toBuilder()
+                .id(UUID.randomUUID())
+                .createdAt(testMessage.getCreatedAt().plusSeconds(1))
+                .build();
+        when(sessionCache.get(sessionId)).thenReturn(Mono.just(testSession));
+        when(recentCache.get(sessionId, 1, testSession.getLastMessageAt())).thenReturn(Optional.empty());
+        when(recentCache.getMessagesPerSession()).thenReturn(20);
+        when(messageStore.findLatest(sessionId, 20)).thenReturn(Flux.just(newer, testMessage));
+
+        // When & Then
+        StepVerifier.create(chatMessageService.getRecentMessages(sessionId, 1))
+                .expectNextMatches(messages -> messages.size() == 1 && messages.get(0).getId().equals(newer.getId()))
+                .verifyComplete();
+
+        verify(recentCache).load(sessionId, List.of(testMessage, newer), true);
+    }
+
+    @Test
+    void getContextWindow_ShouldStreamNewestMessagesThatFitOldestFirst() {
+        // Given: newest first, 14 tokens each with context and 9 without
+        ChatMessage newer = testMessage.toBuilder()
+                .id(UUID.randomUUID())
+                .createdAt(testMessage.getCreatedAt().plusSeconds(1))
+                .contentTokens(5)
+                .contextTokens(5)
+                .build();
+        ChatMessage newest = newer.toBuilder()
+                .id(UUID.randomUUID())
+                .createdAt(testMessage.getCreatedAt().plusSeconds(2))
+                .build();
+        when(sessionCache.get(sessionId)).thenReturn(Mono.just(testSession));
+        when(messageStore.findLatest(sessionId, 64)).thenReturn(Flux.just(newest, newer, testMessage));
+
+        // When & Then
+        StepVerifier.create(chatMessageService.getContextWindow(sessionId, 30, 100, true))
+                .expectNextMatches(response -> response.getId().equals(newer.getId()) && response.getContext() != null)
+                .expectNextMatches(response -> response.getId().equals(newest.getId()))
+                .verifyComplete();
+        StepVerifier.create(chatMessageService.getContextWindow(sessionId, 30, 100, false))
+                .expectNextMatches(response -> response.getId().equals(messageId) && response.getContext() == null)
+                .expectNextCount(2)
+                .verifyComplete();
+
+        verify(messageStore, never()).findPageBefore(any(), any(), any(), anyInt());
+    }
+
+    @Test
+    void getContextWindow_ShouldPageBackwards_UntilLimitIsReached() {
+        // Given: 70 one-token messages, newest first
+        List<ChatMessage> newestFirst = IntStream.range(0, 70)
+                .mapToObj(i -> testMessage.toBuilder()
+                        .id(UUID.randomUUID())
+                        .createdAt(testMessage.getCreatedAt().minusSeconds(i))
+                        .contentTokens(1)
+                        .contextTokens(0)
+                        .build())
+                .toList();
+        ChatMessage pageEnd = newestFirst.get(63);
+        when(sessionCache.get(sessionId)).thenReturn(Mono.just(testSession));
+        when(messageStore.findLatest(sessionId, 64)).thenReturn(Flux.fromIterable(newestFirst.subList(0, 64)));
+        when(messageStore.findPageBefore(sessionId, pageEnd.getCreatedAt(), pageEnd.getId(), 64))
+                .thenReturn(Flux.fromIterable(newestFirst.subList(64, 70)));
+
+        // When & Then
+        StepVerifier.create(chatMessageService.getContextWindow(sessionId, 10_000, 66, true).map(MessageResponse::getId))
+                .expectNext(newestFirst.get(65).getId())
+                .expectNextCount(64)
+                .expectNext(newestFirst.get(0).getId())
+                .verifyComplete();
+    }
+
+    @Test
+    void preview_ShouldTruncateLongContent() {
+        String longContent = "a".repeat(ChatMessageService.PREVIEW_LENGTH + 50);
+
+        assertEquals(ChatMessageService.PREVIEW_LENGTH, ChatMessageService.preview(longContent).length());
+        assertEquals("short", ChatMessageService.preview("short"));
     }
 
     @Test
     void createMessage_ShouldThrowException_WhenSessionNotExists() {
         // Given
-        when(sessionRepository.existsById(sessionId)).thenReturn(Mono.just(false));
+        when(sessionCache.get(sessionId)).thenReturn(Mono.empty());
 
         // When & Then
         StepVerifier.create(chatMessageService.createMessage(sessionId, createRequest))
@@ -90,8 +380,8 @@ class ChatMessageServiceTest {
     @Test
     void getSessionMessages_ShouldReturnMessages() {
         // Given
-        when(sessionRepository.existsById(sessionId)).thenReturn(Mono.just(true));
-        when(messageRepository.findBySessionIdOrderByCreatedAtAsc(sessionId))
+        when(sessionCache.get(sessionId)).thenReturn(Mono.just(testSession));
+        when(messageStore.findBySessionIdOrderByCreatedAtAsc(sessionId))
                 .thenReturn(Flux.just(testMessage));
 
         // When & Then
@@ -101,4 +391,49 @@ class ChatMessageServiceTest {
                                 response.getSender().equals("USER"))
                 .verifyComplete();
     }
-}
\ No newline at end of file
+
+    @Test
+    void getSessionMessagesByCursor_ShouldReturnFirstPageWithoutCounting() {
+        // Given
+        ChatMessage second = testMessage.toBuilder().id(UUID.randomUUID()).createdAt(testMessage.getCreatedAt().plusSeconds(1)).build();
+        ChatMessage third = testMessage.toBuilder().id(UUID.randomUUID()).createdAt(testMessage.getCreatedAt().plusSeconds(2)).build();
+        when(sessionCache.get(sessionId)).thenReturn(Mono.just(testSession));
+        when(messageStore.findFirstPage(sessionId, 3)).thenReturn(Flux.just(testMessage, second, third));
+
+        // When & Then
+        StepVerifier.create(chatMessageService.getSessionMessagesByCursor(sessionId, null, null, 2, false))
+                .expectNextMatches(page ->
+                        page.getContent().size() == 2 &&
+                                page.getTotalElements() == null &&
+                                page.getPrevCursor() == null &&
+                                page.getNextCursor().equals(new PageCursor(second.getCreatedAt(), second.getId()).encode()))
+                .verifyComplete();
+
+        verify(messageStore, never()).countBySessionId(any());
+    }
+
+    @Test
+    void getSessionMessagesByCursor_ShouldSeekAfterCursor() {
+        // Given
+        PageCursor cursor = new PageCursor(testMessage.getCreatedAt().minusSeconds(1), UUID.randomUUID());
+        when(sessionCache.get(sessionId)).thenReturn(Mono.just(testSession));
+        when(messageStore.findPageAfter(sessionId, cursor.getPosition(), cursor.getId(), 51))
+                .thenReturn(Flux.just(testMessage));
+
+        // When & Then
+        StepVerifier.create(chatMessageService.getSessionMessagesByCursor(sessionId, cursor.encode(), null, 50, false))
+                .expectNextMatches(page ->
+                        page.getContent().size() == 1 &&
+                                page.isLast() &&
+                                page.getNextCursor() == null &&
+                                page.getPrevCursor() != null)
+                .verifyComplete();
+    }
+
+    @Test
+    void getSessionMessagesByCursor_ShouldRejectMalformedCursor() {
+        StepVerifier.create(chatMessageService.getSessionMessagesByCursor(sessionId, "not-a-cursor", null, 50, false))
+                .expectError(BadRequestException.class)
+                .verify();
+    }
+}
@@ -5,22 +5,30 @@ import com.ragchat.rag_chat_storage.dto.CreateSessionRequest;
 import com.ragchat.rag_chat_storage.dto.UpdateSessionRequest;
 import com.ragchat.rag_chat_storage.entity.ChatSession;
 import com.ragchat.rag_chat_storage.exception.ResourceNotFoundException;
-import com.ragchat.rag_chat_storage.repository.ChatMessageRepository;
 import com.ragchat.rag_chat_storage.repository.ChatSessionRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Pageable;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.test.StepVerifier;
 
 import java.time.LocalDateTime;
+import java.util.List;
 import java.util.UUID;
 
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -30,7 +38,10 @@ class ChatSessionServiceTest {
     private ChatSessionRepository sessionRepository;
 
     @Mock
-    private ChatMessageRepository messageRepository;
+    private SessionMetadataCache sessionCache;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
 
     @InjectMocks
     private ChatSessionService chatSessionService;
@@ -74,8 +85,8 @@ class ChatSessionServiceTest {
     @Test
     void getSession_ShouldReturnSession_WhenExists() {
         // Given
-        when(sessionRepository.findById(sessionId)).thenReturn(Mono.just(testSession));
-        when(messageRepository.countBySessionId(sessionId)).thenReturn(Mono.just(5L));
+        testSession.setMessageCount(5L);
+        when(sessionCache.get(sessionId)).thenReturn(Mono.just(testSession));
 
         // When & Then
         StepVerifier.create(chatSessionService.getSession(sessionId))
@@ -85,10 +96,29 @@ class ChatSessionServiceTest {
                 .verifyComplete();
     }
 
+    @Test
+    void getUserSessions_ShouldUseDenormalizedStats() {
+        // Given
+        LocalDateTime lastMessageAt = LocalDateTime.now();
+        testSession.setMessageCount(3L);
+        testSession.setLastMessageAt(lastMessageAt);
+        testSession.setLastMessagePreview("Latest message");
+        when(sessionRepository.findByUserIdAndDeletedAtIsNullOrderByUpdatedAtDescIdDesc(eq("test-user"), any(Pageable.class)))
+                .thenReturn(Flux.just(testSession));
+
+        // When & Then
+        StepVerifier.create(chatSessionService.getUserSessions("test-user", 0, 20))
+                .expectNextMatches(response ->
+                        response.getMessageCount().equals(3L) &&
+                                response.getLastMessageAt().equals(lastMessageAt) &&
+                                response.getLastMessagePreview().equals("Latest message"))
+                .verifyComplete();
+    }
+
     @Test
     void getSession_ShouldThrowException_WhenNotExists() {
         // Given
-        when(sessionRepository.findById(sessionId)).thenReturn(Mono.empty());
+        when(sessionCache.get(sessionId)).thenReturn(Mono.empty());
 
         // When & Then
         StepVerifier.create(chatSessionService.getSession(sessionId))
@@ -122,28 +152,97 @@ class ChatSessionServiceTest {
                         response.getTitle().equals("Updated Title") &&
                                 response.getIsFavorite())
                 .verifyComplete();
+
+        verify(sessionCache).invalidate(sessionId);
     }
 
     @Test
-    void deleteSession_ShouldDeleteSuccessfully() {
+    void deleteSession_ShouldTombstoneWithoutTouchingMessages() {
         // Given
-        when(sessionRepository.existsById(sessionId)).thenReturn(Mono.just(true));
-        when(messageRepository.deleteBySessionId(sessionId)).thenReturn(Mono.empty());
-        when(sessionRepository.deleteById(sessionId)).thenReturn(Mono.empty());
+        when(sessionRepository.tombstone(eq(List.of(sessionId)), any(LocalDateTime.class))).thenReturn(Mono.just(1));
 
         // When & Then
+        LocalDateTime before = LocalDateTime.now();
         StepVerifier.create(chatSessionService.deleteSession(sessionId))
                 .verifyComplete();
+
+        // Only the tombstone is written; messages and the session row are left to the purger
+        ArgumentCaptor<LocalDateTime> deletedAt = ArgumentCaptor.forClass(LocalDateTime.class);
+        verify(sessionRepository).tombstone(eq(List.of(sessionId)), deletedAt.capture());
+        assertFalse(deletedAt.getValue().isBefore(before));
+        verifyNoMoreInteractions(sessionRepository);
+        verify(sessionCache).invalidate(sessionId);
+        verify(eventPublisher).publishEvent(new SessionDeletedEvent(sessionId));
     }
 
     @Test
     void deleteSession_ShouldThrowException_WhenNotExists() {
         // Given
-        when(sessionRepository.existsById(sessionId)).thenReturn(Mono.just(false));
+        when(sessionRepository.tombstone(eq(List.of(sessionId)), any(LocalDateTime.class))).thenReturn(Mono.just(0));
 
         // When & Then
         StepVerifier.create(chatSessionService.deleteSession(sessionId))
                 .expectError(ResourceNotFoundException.class)
                 .verify();
     }
+
+    @Test
+    void deleteUserSessions_ShouldTombstoneEveryLiveSession() {
+        // Given
+        UUID otherSessionId = UUID.randomUUID();
+        when(sessionRepository.findLiveIdsByUserId("test-user")).thenReturn(Flux.just(sessionId, otherSessionId));
+        when(sessionRepository.tombstone(eq(List.of(sessionId, otherSessionId)), any(LocalDateTime.class)))
+                .thenReturn(Mono.just(2));
+
+        // When & Then
+        StepVerifier.create(chatSessionService.deleteUserSessions("test-user"))
+                .expectNext(2L)
+                .verifyComplete();
+
+        verify(eventPublisher).publishEvent(new SessionDeletedEvent(sessionId));
+        verify(eventPublisher).publishEvent(new SessionDeletedEvent(otherSessionId));
+        verify(sessionCache).invalidate(otherSessionId);
+    }
+
+    @Test
+    void getUserSessionsByCursor_ShouldSeekFavoritesWithoutCounting() {
+        // Given
+        ChatSession older = testSession.toBuilder()
+                .id(UUID.randomUUID())
+                .isFavorite(true)
+                .updatedAt(testSession.getUpdatedAt().minusMinutes(5))
+                .build();
+        PageCursor cursor = new PageCursor(testSession.getUpdatedAt(), sessionId);
+        when(sessionRepository.findFavoritePageByUserIdAfter("test-user", cursor.getPosition(), cursor.getId(), 2))
+                .thenReturn(Flux.just(older));
+
+        // When & Then
+        StepVerifier.create(chatSessionService.getUserSessionsByCursor("test-user", cursor.encode(), 1, true, false))
+                .expectNextMatches(page ->
+                        page.getContent().size() == 1 &&
+                                page.getContent().get(0).getId().equals(older.getId()) &&
+                                page.isLast() &&
+                                !page.isFirst() &&
+                                page.getNextCursor() == null &&
+                                page.getTotalElements() == null)
+                .verifyComplete();
+
+        verify(sessionRepository, never()).countByUserIdAndIsFavoriteTrueAndDeletedAtIsNull(any());
+    }
+
+    @Test
+    void getUserSessionsPaginated_ShouldSkipCountWhenTotalsNotRequested() {
+        // Given
+        when(sessionRepository.findByUserIdAndDeletedAtIsNullOrderByUpdatedAtDescIdDesc(eq("test-user"), any(Pageable.class)))
+                .thenReturn(Flux.just(testSession));
+
+        // When & Then
+        StepVerifier.create(chatSessionService.getUserSessionsPaginated("test-user", 0, 1, false, false))
+                .expectNextMatches(page ->
+                        page.getTotalElements() == null &&
+                                page.getNextCursor().equals(new PageCursor(testSession.getUpdatedAt(), sessionId).encode()))
+                .verifyComplete();
+
+        verify(sessionRepository, never()).countByUserIdAndDeletedAtIsNull(any());
+    }
 }
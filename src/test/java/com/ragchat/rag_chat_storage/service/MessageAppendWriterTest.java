@@ -0,0 +1,123 @@
+package com.ragchat.rag_chat_storage.service;
+
+import com.ragchat.rag_chat_storage.entity.ChatMessage;
+import com.ragchat.rag_chat_storage.exception.ResourceNotFoundException;
+import com.ragchat.rag_chat_storage.repository.ChatSessionRepository;
+import com.ragchat.rag_chat_storage.storage.MessageStore;
+import com.ragchat.rag_chat_storage.storage.SelfCommittingMessageStore;
+import com.ragchat.rag_chat_storage.storage.SessionStatsDelta;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class MessageAppendWriterTest {
+
+    @Mock
+    private MessageStore messageStore;
+
+    @Mock
+    private ChatSessionRepository sessionRepository;
+
+    @Mock
+    private TransactionalOperator transactionalOperator;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @InjectMocks
+    private MessageAppendWriter appendWriter;
+
+    private UUID sessionId;
+    private LocalDateTime now;
+
+    @BeforeEach
+    void setUp() {
+        sessionId = UUID.randomUUID();
+        now = LocalDateTime.now();
+        lenient().when(transactionalOperator.transactional(any(Mono.class))).thenAnswer(invocation -> invocation.getArgument(0));
+    }
+
+    @Test
+    void append_ShouldInsertBatchAndIncrementStatsOncePerSession() {
+        // Given
+        List<ChatMessage> messages = List.of(message("first", now), message("second", now.plusNanos(1000)));
+        when(messageStore.insertAll(messages)).thenReturn(Mono.empty());
+        when(sessionRepository.incrementMessageStats(sessionId, 2L, now.plusNanos(1000), "second"))
+                .thenReturn(Mono.just(1));
+
+        // When & Then
+        StepVerifier.create(appendWriter.append(messages))
+                .expectNext(messages)
+                .verifyComplete();
+
+        verify(eventPublisher).publishEvent(any(MessagesAppendedEvent.class));
+    }
+
+    @Test
+    void append_ShouldFailAndNotPublish_WhenSessionMissing() {
+        // Given
+        List<ChatMessage> messages = List.of(message("orphan", now));
+        when(messageStore.insertAll(messages)).thenReturn(Mono.empty());
+        when(sessionRepository.incrementMessageStats(eq(sessionId), eq(1L), any(LocalDateTime.class), anyString()))
+                .thenReturn(Mono.just(0));
+
+        // When & Then
+        StepVerifier.create(appendWriter.append(messages))
+                .expectError(ResourceNotFoundException.class)
+                .verify();
+
+        verify(eventPublisher, never()).publishEvent(any());
+    }
+
+    @Test
+    void append_ShouldHandStatsToStore_WhenStoreCommitsSeparately() {
+        // Given
+        List<ChatMessage> messages = List.of(message("first", now), message("second", now.plusNanos(1000)));
+        SelfCommittingMessageStore selfCommittingStore = mock(SelfCommittingMessageStore.class);
+        MessageAppendWriter selfCommittingWriter = new MessageAppendWriter(selfCommittingStore, sessionRepository,
+                transactionalOperator, eventPublisher);
+        when(selfCommittingStore.insertAllWithStats(messages, List.of(new SessionStatsDelta(sessionId, 2L, now.plusNanos(1000), "second"))))
+                .thenReturn(Mono.empty());
+
+        // When & Then
+        StepVerifier.create(selfCommittingWriter.append(messages))
+                .expectNext(messages)
+                .verifyComplete();
+
+        verifyNoInteractions(sessionRepository, transactionalOperator);
+        verify(selfCommittingStore, never()).insertAll(any());
+        verify(eventPublisher).publishEvent(any(MessagesAppendedEvent.class));
+    }
+
+    private ChatMessage message(String content, LocalDateTime createdAt) {
+        return ChatMessage.builder()
+                .id(UUID.randomUUID())
+                .sessionId(sessionId)
+                .sender("USER")
+                .content(content)
+                .createdAt(createdAt)
+                .build();
+    }
+}
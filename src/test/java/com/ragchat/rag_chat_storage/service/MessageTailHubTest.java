@@ -0,0 +1,83 @@
+package com.ragchat.rag_chat_storage.service;
+
+import com.ragchat.rag_chat_storage.entity.ChatMessage;
+import com.ragchat.rag_chat_storage.exception.ServiceOverloadedException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.Exceptions;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class MessageTailHubTest {
+
+    private MessageTailHub tailHub;
+    private UUID sessionId;
+
+    @BeforeEach
+    void setUp() {
+        tailHub = new MessageTailHub(new SimpleMeterRegistry(), 2, 1);
+        sessionId = UUID.randomUUID();
+    }
+
+    @Test
+    void subscribe_ShouldReceiveMessagesAppendedToItsSession() {
+        StepVerifier.create(tailHub.subscribe(sessionId))
+                .then(() -> tailHub.onMessagesAppended(new MessagesAppendedEvent(List.of(
+                        message(UUID.randomUUID()), message(sessionId)))))
+                .expectNextMatches(message -> message.getSessionId().equals(sessionId))
+                .thenCancel()
+                .verify();
+
+        assertEquals(0, tailHub.activeTopics());
+    }
+
+    @Test
+    void subscribe_ShouldDropSubscriberThatFallsBehind() {
+        StepVerifier.create(tailHub.subscribe(sessionId), 0)
+                .then(() -> tailHub.onMessagesAppended(new MessagesAppendedEvent(List.of(
+                        message(sessionId), message(sessionId), message(sessionId)))))
+                .expectErrorMatches(Exceptions::isOverflow)
+                .verify(Duration.ofSeconds(5));
+
+        assertEquals(0, tailHub.activeTopics());
+    }
+
+    @Test
+    void subscribe_ShouldCompleteWhenSessionIsDeleted() {
+        StepVerifier.create(tailHub.subscribe(sessionId))
+                .then(() -> tailHub.onMessagesAppended(new MessagesAppendedEvent(List.of(message(sessionId)))))
+                .then(() -> tailHub.onSessionDeleted(new SessionDeletedEvent(sessionId)))
+                .expectNextCount(1)
+                .expectComplete()
+                .verify(Duration.ofSeconds(5));
+
+        assertEquals(0, tailHub.activeTopics());
+    }
+
+    @Test
+    void subscribe_ShouldRejectWhenAtCapacity() {
+        StepVerifier.create(tailHub.subscribe(sessionId))
+                .then(() -> StepVerifier.create(tailHub.subscribe(UUID.randomUUID()))
+                        .expectError(ServiceOverloadedException.class)
+                        .verify())
+                .thenCancel()
+                .verify();
+    }
+
+    private ChatMessage message(UUID session) {
+        return ChatMessage.builder()
+                .id(UUID.randomUUID())
+                .sessionId(session)
+                .sender("ASSISTANT")
+                .content("Streaming reply")
+                .createdAt(LocalDateTime.now())
+                .build();
+    }
+}
@@ -0,0 +1,26 @@
+package com.ragchat.rag_chat_storage.service;
+
+import com.ragchat.rag_chat_storage.exception.BadRequestException;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class PageCursorTest {
+
+    @Test
+    void encodeAndDecode_ShouldRoundTrip() {
+        PageCursor cursor = new PageCursor(LocalDateTime.of(2024, 1, 2, 3, 4, 5, 123456000), UUID.randomUUID());
+
+        assertEquals(cursor, PageCursor.decode(cursor.encode()));
+    }
+
+    @Test
+    void decode_ShouldRejectGarbage() {
+        assertThrows(BadRequestException.class, () -> PageCursor.decode("%%%"));
+        assertThrows(BadRequestException.class, () -> PageCursor.decode("bm8tc2VwYXJhdG9y"));
+    }
+}
@@ -0,0 +1,59 @@
+package com.ragchat.rag_chat_storage.service;
+
+import com.ragchat.rag_chat_storage.repository.ChatSessionRepository;
+import com.ragchat.rag_chat_storage.storage.MessageStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class SessionArchiveJobTest {
+
+    @Mock
+    private ChatSessionRepository sessionRepository;
+
+    @Mock
+    private SessionArchiver archiver;
+
+    @Mock
+    private MessageStore messageStore;
+
+    @Test
+    void run_ShouldDoNothing_WhenStoreDoesNotSupportArchiving() {
+        when(messageStore.supportsArchiving()).thenReturn(false);
+
+        StepVerifier.create(job().run()).verifyComplete();
+
+        verifyNoInteractions(sessionRepository, archiver);
+    }
+
+    @Test
+    void run_ShouldLookForIdleSessions_WhenStoreSupportsArchiving() {
+        when(messageStore.supportsArchiving()).thenReturn(true);
+        when(sessionRepository.findArchivable(any(LocalDateTime.class), anyInt())).thenReturn(Flux.empty());
+        when(sessionRepository.findArchivedWithMessages(any(LocalDateTime.class), anyInt())).thenReturn(Flux.empty());
+
+        StepVerifier.create(job().run()).verifyComplete();
+
+        verify(sessionRepository).findArchivable(any(LocalDateTime.class), anyInt());
+        verify(sessionRepository).findArchivedWithMessages(any(LocalDateTime.class), anyInt());
+    }
+
+    private SessionArchiveJob job() {
+        return new SessionArchiveJob(sessionRepository, archiver, messageStore, new SimpleMeterRegistry(),
+                Duration.ofDays(7), Duration.ofMinutes(5), 100);
+    }
+}
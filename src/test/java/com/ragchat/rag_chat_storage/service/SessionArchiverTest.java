@@ -0,0 +1,181 @@
+package com.ragchat.rag_chat_storage.service;
+
+import com.ragchat.rag_chat_storage.entity.ChatMessage;
+import com.ragchat.rag_chat_storage.entity.ChatSession;
+import com.ragchat.rag_chat_storage.repository.ChatSessionRepository;
+import com.ragchat.rag_chat_storage.storage.MessageStore;
+import com.ragchat.rag_chat_storage.storage.SessionArchive;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class SessionArchiverTest {
+
+    @Mock
+    private ChatSessionRepository sessionRepository;
+
+    @Mock
+    private MessageStore messageStore;
+
+    @Mock
+    private SessionArchive archive;
+
+    @Mock
+    private SessionMetadataCache sessionCache;
+
+    @Mock
+    private TransactionalOperator transactionalOperator;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @InjectMocks
+    private SessionArchiver archiver;
+
+    private UUID sessionId;
+    private LocalDateTime archivedAt;
+    private ChatSession session;
+    private ChatMessage kept;
+    private ChatMessage dropped;
+
+    @BeforeEach
+    void setUp() {
+        sessionId = UUID.randomUUID();
+        archivedAt = LocalDateTime.now().minusDays(1);
+        session = ChatSession.builder()
+                .id(sessionId)
+                .userId("test-user")
+                .title("Archived")
+                .archivedAt(archivedAt)
+                .build();
+        kept = message();
+        dropped = message();
+        lenient().when(transactionalOperator.transactional(any(Mono.class))).thenAnswer(invocation -> invocation.getArgument(0));
+    }
+
+    @Test
+    void rehydrate_ShouldPassLiveSessionsThrough() {
+        ChatSession live = session.toBuilder().archivedAt(null).build();
+
+        StepVerifier.create(archiver.rehydrate(live))
+                .expectNext(live)
+                .verifyComplete();
+
+        verify(sessionRepository, never()).clearArchived(any());
+    }
+
+    @Test
+    void rehydrate_ShouldInsertOnlyMessagesNoLongerInTheStore() {
+        // Given
+        when(sessionRepository.clearArchived(sessionId)).thenReturn(Mono.just(1));
+        when(archive.read(sessionId, archivedAt)).thenReturn(Flux.just(kept, dropped));
+        when(messageStore.findAllById(eq(sessionId), anyCollection())).thenReturn(Flux.just(kept));
+        when(messageStore.insertAll(List.of(dropped))).thenReturn(Mono.empty());
+        when(archive.delete(sessionId, archivedAt)).thenReturn(Mono.empty());
+
+        // When & Then
+        StepVerifier.create(archiver.rehydrate(session))
+                .expectNextMatches(restored -> restored.getArchivedAt() == null)
+                .verifyComplete();
+
+        verify(sessionCache).invalidate(sessionId);
+        verify(eventPublisher).publishEvent(new SessionRestoredEvent(sessionId));
+        verify(archive).delete(sessionId, archivedAt);
+    }
+
+    @Test
+    void rehydrate_ShouldKeepArchive_WhenAnotherNodeRestoredFirst() {
+        // Given
+        when(sessionRepository.clearArchived(sessionId)).thenReturn(Mono.just(0));
+
+        // When & Then
+        StepVerifier.create(archiver.rehydrate(session))
+                .expectNextCount(1)
+                .verifyComplete();
+
+        verify(archive, never()).read(any(), any());
+        verify(archive, never()).delete(any(), any());
+        verify(eventPublisher, never()).publishEvent(any());
+    }
+
+    @Test
+    void archive_ShouldDropFile_WhenSessionChangedWhileWriting() {
+        // Given
+        ChatSession live = session.toBuilder().archivedAt(null).build();
+        when(messageStore.streamBySessionId(sessionId)).thenReturn(Flux.just(kept));
+        when(archive.write(eq(sessionId), any(), any())).thenReturn(Mono.just(List.of(kept.getId())));
+        when(sessionRepository.markArchived(eq(sessionId), any(), anyLong())).thenReturn(Mono.just(0));
+        when(archive.delete(eq(sessionId), any())).thenReturn(Mono.empty());
+
+        // When & Then
+        StepVerifier.create(archiver.archive(live))
+                .expectNext(false)
+                .verifyComplete();
+
+        verify(sessionCache, never()).invalidate(any());
+    }
+
+    @Test
+    void removeArchivedMessages_ShouldStop_WhenSessionWasRestored() {
+        // Given
+        when(archive.read(sessionId, archivedAt)).thenReturn(Flux.just(kept, dropped));
+        when(sessionRepository.lockArchived(sessionId, archivedAt)).thenReturn(Mono.just(0));
+        when(messageStore.countBySessionId(sessionId)).thenReturn(Mono.just(2L));
+        when(sessionRepository.clearArchived(sessionId)).thenReturn(Mono.just(0));
+
+        // When & Then
+        StepVerifier.create(archiver.removeArchivedMessages(session))
+                .verifyComplete();
+
+        verify(messageStore, never()).deleteAllById(any(), anyCollection());
+        verify(messageStore, never()).insertAll(anyList());
+    }
+
+    @Test
+    void removeArchivedMessages_ShouldDeleteArchivedRows() {
+        // Given
+        when(archive.read(sessionId, archivedAt)).thenReturn(Flux.just(kept, dropped));
+        when(sessionRepository.lockArchived(sessionId, archivedAt)).thenReturn(Mono.just(1));
+        when(messageStore.deleteAllById(sessionId, List.of(kept.getId(), dropped.getId()))).thenReturn(Mono.just(2));
+        when(messageStore.countBySessionId(sessionId)).thenReturn(Mono.just(0L));
+
+        // When & Then
+        StepVerifier.create(archiver.removeArchivedMessages(session))
+                .verifyComplete();
+
+        verify(sessionRepository, never()).clearArchived(any());
+    }
+
+    private ChatMessage message() {
+        return ChatMessage.builder()
+                .id(UUID.randomUUID())
+                .sessionId(sessionId)
+                .sender("USER")
+                .content("archived message")
+                .createdAt(LocalDateTime.now())
+                .build();
+    }
+}
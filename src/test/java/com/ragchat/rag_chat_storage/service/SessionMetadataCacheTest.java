@@ -0,0 +1,118 @@
+package com.ragchat.rag_chat_storage.service;
+
+import com.ragchat.rag_chat_storage.entity.ChatSession;
+import com.ragchat.rag_chat_storage.repository.ChatSessionRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class SessionMetadataCacheTest {
+
+    @Mock
+    private ChatSessionRepository sessionRepository;
+
+    private SessionMetadataCache sessionCache;
+    private UUID sessionId;
+    private ChatSession testSession;
+
+    @BeforeEach
+    void setUp() {
+        sessionCache = new SessionMetadataCache(sessionRepository, new SimpleMeterRegistry(), 100, Duration.ofMinutes(1));
+        sessionId = UUID.randomUUID();
+        testSession = ChatSession.builder()
+                .id(sessionId)
+                .userId("test-user")
+                .title("Test Session")
+                .messageCount(2L)
+                .createdAt(LocalDateTime.now())
+                .updatedAt(LocalDateTime.now())
+                .build();
+    }
+
+    @Test
+    void get_ShouldCoalesceConcurrentMisses() {
+        // Given
+        when(sessionRepository.findById(sessionId))
+                .thenReturn(Mono.just(testSession).delayElement(Duration.ofMillis(100)));
+
+        // When & Then
+        StepVerifier.create(Mono.zip(sessionCache.get(sessionId), sessionCache.get(sessionId)))
+                .expectNextMatches(both -> both.getT1().getId().equals(sessionId) && both.getT2().getId().equals(sessionId))
+                .verifyComplete();
+
+        StepVerifier.create(sessionCache.get(sessionId))
+                .expectNextCount(1)
+                .verifyComplete();
+
+        verify(sessionRepository, times(1)).findById(sessionId);
+    }
+
+    @Test
+    void get_ShouldHideTombstonedSessions() {
+        // Given
+        testSession.setDeletedAt(LocalDateTime.now());
+        when(sessionRepository.findById(sessionId)).thenReturn(Mono.just(testSession));
+
+        // When & Then
+        StepVerifier.create(sessionCache.get(sessionId)).verifyComplete();
+    }
+
+    @Test
+    void get_ShouldNotCacheMissingSessions() {
+        // Given
+        when(sessionRepository.findById(sessionId)).thenReturn(Mono.empty());
+
+        // When & Then
+        StepVerifier.create(sessionCache.get(sessionId)).verifyComplete();
+        StepVerifier.create(sessionCache.get(sessionId)).verifyComplete();
+
+        verify(sessionRepository, times(2)).findById(sessionId);
+    }
+
+    @Test
+    void recordAppend_ShouldUpdateCachedStats() {
+        // Given
+        LocalDateTime appendedAt = LocalDateTime.now().plusSeconds(1);
+        when(sessionRepository.findById(sessionId)).thenReturn(Mono.just(testSession));
+        sessionCache.get(sessionId).block();
+
+        // When
+        sessionCache.recordAppend(sessionId, 1, appendedAt, "Latest");
+
+        // Then
+        StepVerifier.create(sessionCache.get(sessionId))
+                .expectNextMatches(session ->
+                        session.getMessageCount() == 3L &&
+                                session.getLastMessageAt().equals(appendedAt) &&
+                                session.getLastMessagePreview().equals("Latest"))
+                .verifyComplete();
+    }
+
+    @Test
+    void invalidate_ShouldForceReload() {
+        // Given
+        when(sessionRepository.findById(sessionId)).thenReturn(Mono.just(testSession));
+        sessionCache.get(sessionId).block();
+
+        // When
+        sessionCache.invalidate(sessionId);
+        sessionCache.get(sessionId).block();
+
+        // Then
+        verify(sessionRepository, times(2)).findById(sessionId);
+    }
+}
@@ -0,0 +1,87 @@
+package com.ragchat.rag_chat_storage.service;
+
+import com.ragchat.rag_chat_storage.repository.ChatSessionRepository;
+import com.ragchat.rag_chat_storage.storage.MessageStore;
+import com.ragchat.rag_chat_storage.storage.SessionArchive;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class SessionPurgerTest {
+
+    @Mock
+    private ChatSessionRepository sessionRepository;
+
+    @Mock
+    private MessageStore messageStore;
+
+    @Mock
+    private SessionArchive archive;
+
+    private SimpleMeterRegistry meterRegistry;
+    private SessionPurger purger;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        purger = new SessionPurger(sessionRepository, messageStore, archive, meterRegistry, 2, Duration.ZERO, 10);
+    }
+
+    @Test
+    void purge_ShouldDeleteMessagesInChunksBeforeTheSession() {
+        // Given
+        UUID sessionId = UUID.randomUUID();
+        when(sessionRepository.findTombstonedIds(10)).thenReturn(Flux.just(sessionId));
+        when(messageStore.deleteBySessionId(sessionId, 2)).thenReturn(Mono.just(2), Mono.just(1), Mono.just(0));
+        when(archive.deleteAll(sessionId)).thenReturn(Mono.empty());
+        when(sessionRepository.deleteById(sessionId)).thenReturn(Mono.empty());
+
+        // When & Then
+        StepVerifier.create(purger.purge())
+                .expectNext(1L)
+                .verifyComplete();
+
+        InOrder order = inOrder(messageStore, archive, sessionRepository);
+        order.verify(messageStore, times(3)).deleteBySessionId(sessionId, 2);
+        order.verify(archive).deleteAll(sessionId);
+        order.verify(sessionRepository).deleteById(sessionId);
+        assertEquals(3, meterRegistry.get("sessions.purge.messages").counter().count());
+    }
+
+    @Test
+    void purge_ShouldKeepTombstone_WhenMessagesCannotBeDeleted() {
+        // Given
+        UUID failing = UUID.randomUUID();
+        UUID empty = UUID.randomUUID();
+        when(sessionRepository.findTombstonedIds(10)).thenReturn(Flux.just(failing, empty));
+        when(messageStore.deleteBySessionId(failing, 2)).thenReturn(Mono.error(new IllegalStateException("boom")));
+        when(messageStore.deleteBySessionId(empty, 2)).thenReturn(Mono.just(0));
+        when(archive.deleteAll(empty)).thenReturn(Mono.empty());
+        when(sessionRepository.deleteById(empty)).thenReturn(Mono.empty());
+
+        // When & Then
+        StepVerifier.create(purger.purge())
+                .expectNext(1L)
+                .verifyComplete();
+
+        verify(sessionRepository, never()).deleteById(failing);
+    }
+}
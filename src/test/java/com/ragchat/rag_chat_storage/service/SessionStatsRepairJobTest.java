@@ -0,0 +1,66 @@
+package com.ragchat.rag_chat_storage.service;
+
+import com.ragchat.rag_chat_storage.entity.ChatMessage;
+import com.ragchat.rag_chat_storage.repository.ChatSessionRepository;
+import com.ragchat.rag_chat_storage.storage.MessageStore;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class SessionStatsRepairJobTest {
+
+    @Mock
+    private ChatSessionRepository sessionRepository;
+
+    @Mock
+    private MessageStore messageStore;
+
+    @InjectMocks
+    private SessionStatsRepairJob repairJob;
+
+    @Test
+    void repair_ShouldTakePreviewFromDecodedLatestMessage() {
+        // Given
+        UUID sessionId = UUID.randomUUID();
+        String content = "x".repeat(300);
+        when(sessionRepository.findIdsWithStaleMessageStats()).thenReturn(Flux.just(sessionId));
+        when(messageStore.findLatest(sessionId, 1)).thenReturn(Flux.just(ChatMessage.builder()
+                .id(UUID.randomUUID())
+                .sessionId(sessionId)
+                .sender("USER")
+                .content(content)
+                .createdAt(LocalDateTime.now())
+                .build()));
+        when(sessionRepository.repairMessageStats(sessionId, ChatMessageService.preview(content))).thenReturn(Mono.just(1));
+
+        // When & Then
+        StepVerifier.create(repairJob.repair())
+                .expectNext(1)
+                .verifyComplete();
+    }
+
+    @Test
+    void repair_ShouldClearPreviewOfSessionWithoutMessages() {
+        // Given
+        UUID sessionId = UUID.randomUUID();
+        when(sessionRepository.findIdsWithStaleMessageStats()).thenReturn(Flux.just(sessionId));
+        when(messageStore.findLatest(sessionId, 1)).thenReturn(Flux.empty());
+        when(sessionRepository.repairMessageStats(sessionId, null)).thenReturn(Mono.just(1));
+
+        // When & Then
+        StepVerifier.create(repairJob.repair())
+                .expectNext(1)
+                .verifyComplete();
+    }
+}
@@ -0,0 +1,27 @@
+package com.ragchat.rag_chat_storage.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class TokenEstimatorTest {
+
+    @Test
+    void estimate_ShouldChargeWordRunsPerFourCharacters() {
+        // "hello" 2, "world" 2, "a" 1
+        assertEquals(5, TokenEstimator.estimate("hello world a"));
+    }
+
+    @Test
+    void estimate_ShouldChargeSymbolsAndNonAsciiPerCharacter() {
+        // "x" 1, "=" 1, "(" 1, "1" 1, ")" 1, ";" 1, then two ideographs
+        assertEquals(6, TokenEstimator.estimate("x = (1);"));
+        assertEquals(2, TokenEstimator.estimate("你好"));
+    }
+
+    @Test
+    void estimate_ShouldBeZero_ForMissingOrBlankText() {
+        assertEquals(0, TokenEstimator.estimate(null));
+        assertEquals(0, TokenEstimator.estimate(" \n\t"));
+    }
+}
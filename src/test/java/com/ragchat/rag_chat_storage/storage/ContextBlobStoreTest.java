@@ -0,0 +1,63 @@
+package com.ragchat.rag_chat_storage.storage;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.r2dbc.core.DatabaseClient;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+@ExtendWith(MockitoExtension.class)
+class ContextBlobStoreTest {
+
+    @Mock
+    private DatabaseClient databaseClient;
+
+    private final MessageCodec codec = new MessageCodec(512);
+    private ContextBlobStore contextBlobs;
+
+    @BeforeEach
+    void setUp() {
+        contextBlobs = new ContextBlobStore(databaseClient, codec, new SimpleMeterRegistry(), 32, 1_000_000);
+    }
+
+    @Test
+    void reference_ShouldSplitContextIntoPassagesThatRejoinExactly() {
+        String context = "First retrieved passage about storage.\n\nSecond passage about indexes.\n\nThird one.";
+        Map<String, String> chunks = new HashMap<>();
+
+        List<String> hashes = codec.blobRefs(contextBlobs.reference(context, chunks));
+
+        assertEquals(3, hashes.size());
+        StringBuilder rejoined = new StringBuilder();
+        hashes.forEach(hash -> rejoined.append(chunks.get(hash)));
+        assertEquals(context, rejoined.toString());
+    }
+
+    @Test
+    void reference_ShouldShareHashesForRepeatedPassages() {
+        String passage = "A passage that every retrieval returns.\n\n";
+        Map<String, String> chunks = new HashMap<>();
+
+        List<String> first = codec.blobRefs(contextBlobs.reference(passage + "Turn one specifics.", chunks));
+        List<String> second = codec.blobRefs(contextBlobs.reference(passage + "Turn two specifics.", chunks));
+
+        assertEquals(first.get(0), second.get(0));
+        assertEquals(3, chunks.size());
+        assertEquals(2L, ContextBlobStore.countReferences(List.of(first, second)).get(first.get(0)));
+    }
+
+    @Test
+    void reference_ShouldKeepShortContextInline() {
+        assertNull(contextBlobs.reference("short", new HashMap<>()));
+        assertNull(contextBlobs.reference(null, new HashMap<>()));
+    }
+}
@@ -0,0 +1,60 @@
+package com.ragchat.rag_chat_storage.storage;
+
+import com.ragchat.rag_chat_storage.entity.ChatMessage;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MessageCodecTest {
+
+    private final MessageCodec codec = new MessageCodec(64);
+
+    @Test
+    void encodeText_ShouldCompressLargeCompressibleText() {
+        String context = "The retrieved document explains segment compaction. ".repeat(50);
+
+        String stored = codec.encodeText(context);
+
+        assertEquals(MessageCodec.MARKER, stored.charAt(0));
+        assertEquals(MessageCodec.FORMAT_DEFLATE, stored.charAt(1));
+        assertTrue(stored.length() < context.length() / 4);
+        assertEquals(context, codec.decodeText(stored));
+    }
+
+    @Test
+    void encodeText_ShouldKeepShortTextPlain() {
+        assertEquals("Hello", codec.encodeText("Hello"));
+        assertNull(codec.encodeText(null));
+    }
+
+    @Test
+    void decodeText_ShouldReadRowsWrittenBeforeCompression() {
+        assertEquals("legacy content", codec.decodeText("legacy content"));
+    }
+
+    @Test
+    void encodeText_ShouldEscapeTextThatLooksEncoded() {
+        String tricky = MessageCodec.MARKER + "D not actually compressed";
+
+        assertEquals(tricky, codec.decodeText(codec.encodeText(tricky)));
+    }
+
+    @Test
+    void encode_ShouldRoundTripMessage() {
+        ChatMessage message = ChatMessage.builder()
+                .id(UUID.randomUUID())
+                .sessionId(UUID.randomUUID())
+                .sender("ASSISTANT")
+                .content("Short answer")
+                .context("Supporting passage. ".repeat(20))
+                .createdAt(LocalDateTime.now())
+                .build();
+
+        assertEquals(message, codec.decode(codec.encode(message)));
+    }
+}
@@ -0,0 +1,147 @@
+package com.ragchat.rag_chat_storage.storage;
+
+import com.ragchat.rag_chat_storage.entity.ChatMessage;
+import com.ragchat.rag_chat_storage.service.MessagesAppendedEvent;
+import com.ragchat.rag_chat_storage.service.SessionDeletedEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RecentMessageCacheTest {
+
+    private final MessageCodec codec = new MessageCodec(64);
+    private RecentMessageCache cache;
+    private UUID sessionId;
+    private LocalDateTime now;
+
+    @BeforeEach
+    void setUp() {
+        cache = cache(DataSize.ofKilobytes(8), DataSize.ofKilobytes(4), 3);
+        sessionId = UUID.randomUUID();
+        now = LocalDateTime.now();
+    }
+
+    @Test
+    void get_ShouldServeNewestMessagesInOrder_AfterLoad() {
+        List<ChatMessage> messages = messages(sessionId, 5);
+
+        cache.load(sessionId, messages, true);
+
+        assertEquals(Optional.of(messages.subList(3, 5)), cache.get(sessionId, 2, last(messages)));
+        assertEquals(Optional.of(messages.subList(2, 5)), cache.get(sessionId, 3, last(messages)));
+        // Only three were kept, so more cannot be answered
+        assertTrue(cache.get(sessionId, 4, last(messages)).isEmpty());
+    }
+
+    @Test
+    void get_ShouldServeShortSessionsCompletely() {
+        List<ChatMessage> messages = messages(sessionId, 2);
+
+        cache.load(sessionId, messages, true);
+
+        assertEquals(Optional.of(messages), cache.get(sessionId, 10, last(messages)));
+    }
+
+    @Test
+    void get_ShouldMiss_WhenSessionHasNewerMessages() {
+        List<ChatMessage> messages = messages(sessionId, 2);
+        cache.load(sessionId, messages, true);
+
+        assertTrue(cache.get(sessionId, 1, last(messages).plusSeconds(1)).isEmpty());
+    }
+
+    @Test
+    void onMessagesAppended_ShouldWriteThroughAndSlideTheWindow() {
+        List<ChatMessage> messages = messages(sessionId, 5);
+        cache.load(sessionId, messages.subList(0, 3), true);
+
+        cache.onMessagesAppended(new MessagesAppendedEvent(List.of(messages.get(4), messages.get(3))));
+
+        assertEquals(Optional.of(messages.subList(2, 5)), cache.get(sessionId, 3, last(messages)));
+    }
+
+    @Test
+    void onMessagesAppended_ShouldDropWindow_WhenCommittedOutOfOrder() {
+        List<ChatMessage> messages = messages(sessionId, 3);
+        cache.load(sessionId, List.of(messages.get(0), messages.get(2)), true);
+
+        cache.append(messages.get(1));
+
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void append_ShouldKeepOnlyWhatFitsTheBlock() {
+        List<ChatMessage> messages = IntStream.range(0, 3)
+                .mapToObj(i -> message(sessionId, i, "x".repeat(1500)))
+                .toList();
+        // Stored uncompressed, so each record takes about 1.5KB of the block
+        RecentMessageCache small = new RecentMessageCache(new MessageCodec(Integer.MAX_VALUE), new SimpleMeterRegistry(),
+                DataSize.ofKilobytes(4), DataSize.ofBytes(3200), 3);
+        small.load(sessionId, List.of(), true);
+
+        messages.forEach(small::append);
+
+        assertEquals(Optional.of(messages.subList(1, 3)), small.get(sessionId, 2, last(messages)));
+        assertTrue(small.get(sessionId, 3, last(messages)).isEmpty());
+    }
+
+    @Test
+    void load_ShouldEvictLeastRecentlyUsedSession_WhenSlabIsFull() {
+        UUID second = UUID.randomUUID();
+        UUID third = UUID.randomUUID();
+        List<ChatMessage> first = messages(sessionId, 1);
+        cache.load(sessionId, first, true);
+        cache.load(second, messages(second, 1), true);
+        // Touch the first so the second becomes the eldest
+        assertTrue(cache.get(sessionId, 1, last(first)).isPresent());
+
+        cache.load(third, messages(third, 1), true);
+
+        assertEquals(2, cache.size());
+        assertTrue(cache.get(sessionId, 1, last(first)).isPresent());
+        assertTrue(cache.get(second, 1, now).isEmpty());
+    }
+
+    @Test
+    void onSessionDeleted_ShouldFreeTheBlock() {
+        cache.load(sessionId, messages(sessionId, 1), true);
+
+        cache.onSessionDeleted(new SessionDeletedEvent(sessionId));
+
+        assertEquals(0, cache.size());
+    }
+
+    private RecentMessageCache cache(DataSize maxMemory, DataSize blockSize, int messagesPerSession) {
+        return new RecentMessageCache(codec, new SimpleMeterRegistry(), maxMemory, blockSize, messagesPerSession);
+    }
+
+    private List<ChatMessage> messages(UUID session, int count) {
+        return IntStream.range(0, count).mapToObj(i -> message(session, i, "message " + i)).toList();
+    }
+
+    private ChatMessage message(UUID session, int sequence, String content) {
+        return ChatMessage.builder()
+                .id(UUID.randomUUID())
+                .sessionId(session)
+                .sender(sequence % 2 == 0 ? "USER" : "ASSISTANT")
+                .content(content)
+                .context(sequence % 2 == 0 ? null : "retrieved context")
+                .createdAt(now.plusNanos(sequence * 1000L))
+                .build();
+    }
+
+    private static LocalDateTime last(List<ChatMessage> messages) {
+        return messages.get(messages.size() - 1).getCreatedAt();
+    }
+}
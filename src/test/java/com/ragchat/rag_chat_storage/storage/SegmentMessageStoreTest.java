@@ -0,0 +1,159 @@
+package com.ragchat.rag_chat_storage.storage;
+
+import com.ragchat.rag_chat_storage.entity.ChatMessage;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+import reactor.test.StepVerifier;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SegmentMessageStoreTest {
+
+    @TempDir
+    Path directory;
+
+    private final MessageCodec codec = new MessageCodec(64);
+    private SegmentMessageStore store;
+    private UUID sessionId;
+    private LocalDateTime now;
+
+    @BeforeEach
+    void setUp() {
+        store = open();
+        sessionId = UUID.randomUUID();
+        now = LocalDateTime.now();
+    }
+
+    @AfterEach
+    void tearDown() {
+        store.stop();
+    }
+
+    @Test
+    void insertAll_ShouldServeKeysetPagesInOrder() {
+        List<ChatMessage> messages = messages(5);
+        StepVerifier.create(store.insertAll(List.of(messages.get(3), messages.get(4))))
+                .verifyComplete();
+        StepVerifier.create(store.insertAll(List.of(messages.get(0), messages.get(1), messages.get(2))))
+                .verifyComplete();
+
+        StepVerifier.create(store.findFirstPage(sessionId, 2))
+                .expectNext(messages.get(0), messages.get(1))
+                .verifyComplete();
+        ChatMessage cursor = messages.get(1);
+        StepVerifier.create(store.findPageAfter(sessionId, cursor.getCreatedAt(), cursor.getId(), 2))
+                .expectNext(messages.get(2), messages.get(3))
+                .verifyComplete();
+        StepVerifier.create(store.findPageBefore(sessionId, cursor.getCreatedAt(), cursor.getId(), 5))
+                .expectNext(messages.get(0))
+                .verifyComplete();
+        StepVerifier.create(store.countBySessionId(sessionId))
+                .expectNext(5L)
+                .verifyComplete();
+    }
+
+    @Test
+    void start_ShouldRecoverMessagesAndDeletesFromSegments() {
+        List<ChatMessage> messages = messages(3);
+        UUID deletedSession = UUID.randomUUID();
+        store.insertAll(messages).block();
+        store.insertAll(List.of(messages.get(0).toBuilder().id(UUID.randomUUID()).sessionId(deletedSession).build())).block();
+        assertEquals(1, store.deleteBySessionId(deletedSession, 100).block());
+        assertEquals(0, store.deleteBySessionId(deletedSession, 100).block());
+
+        store.stop();
+        store = open();
+
+        StepVerifier.create(store.streamBySessionId(sessionId))
+                .expectNextSequence(messages)
+                .verifyComplete();
+        StepVerifier.create(store.countBySessionId(deletedSession))
+                .expectNext(0L)
+                .verifyComplete();
+    }
+
+    @Test
+    void insertAll_ShouldRollToNewSegment_WhenActiveIsFull() throws IOException {
+        List<ChatMessage> messages = IntStream.range(0, 40)
+                .mapToObj(i -> message(i, UUID.randomUUID() + " " + UUID.randomUUID() + " " + UUID.randomUUID()))
+                .toList();
+        store.insertAll(messages).block();
+
+        try (Stream<Path> files = Files.list(directory)) {
+            assertTrue(files.count() > 1);
+        }
+        StepVerifier.create(store.findBySessionIdOrderByCreatedAtAsc(sessionId))
+                .expectNextSequence(messages)
+                .verifyComplete();
+    }
+
+    @Test
+    void insertAll_ShouldRoundTripCompressedContentAndContext() {
+        String prose = "Retrieved passage about reactive storage engines. ".repeat(40);
+        ChatMessage message = message(1, prose).toBuilder().context(prose).build();
+        store.insertAll(List.of(message)).block();
+
+        assertTrue(SegmentRecords.encodeMessage(message, codec).length < prose.length());
+        StepVerifier.create(store.findFirstPage(sessionId, 1))
+                .expectNext(message)
+                .verifyComplete();
+    }
+
+    @Test
+    void start_ShouldDiscardTornWriteAtTail() throws IOException {
+        List<ChatMessage> messages = messages(2);
+        store.insertAll(messages).block();
+        store.stop();
+
+        // Corrupt the checksum of the second record
+        Path segment = directory.resolve(Segment.fileName(0));
+        byte[] bytes = Files.readAllBytes(segment);
+        int secondRecord = SegmentRecords.encodeMessage(messages.get(0), codec).length;
+        bytes[secondRecord + 4] ^= 0x7f;
+        Files.write(segment, bytes);
+
+        store = open();
+
+        StepVerifier.create(store.streamBySessionId(sessionId))
+                .expectNext(messages.get(0))
+                .verifyComplete();
+        ChatMessage replacement = message(9, "after recovery");
+        store.insertAll(List.of(replacement)).block();
+        assertEquals(2L, store.countBySessionId(sessionId).block());
+    }
+
+    private SegmentMessageStore open() {
+        SegmentMessageStore segmentStore = new SegmentMessageStore(directory, DataSize.ofKilobytes(4), Duration.ZERO, codec);
+        segmentStore.start();
+        return segmentStore;
+    }
+
+    private List<ChatMessage> messages(int count) {
+        return IntStream.range(0, count).mapToObj(i -> message(i, "message " + i)).toList();
+    }
+
+    private ChatMessage message(int sequence, String content) {
+        return ChatMessage.builder()
+                .id(UUID.randomUUID())
+                .sessionId(sessionId)
+                .sender(sequence % 2 == 0 ? "USER" : "ASSISTANT")
+                .content(content)
+                .context(sequence % 2 == 0 ? null : "retrieved context")
+                .createdAt(now.plusNanos(sequence * 1000L))
+                .build();
+    }
+}
@@ -0,0 +1,91 @@
+package com.ragchat.rag_chat_storage.storage;
+
+import com.ragchat.rag_chat_storage.entity.ChatMessage;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SessionArchiveTest {
+
+    @TempDir
+    Path directory;
+
+    private SessionArchive archive;
+    private UUID sessionId;
+    private LocalDateTime archivedAt;
+
+    @BeforeEach
+    void setUp() {
+        archive = new SessionArchive(directory);
+        sessionId = UUID.randomUUID();
+        archivedAt = LocalDateTime.now().truncatedTo(ChronoUnit.MILLIS);
+    }
+
+    @Test
+    void write_ShouldRoundTripMessagesInOrder() {
+        List<ChatMessage> messages = messages(3);
+
+        StepVerifier.create(archive.write(sessionId, archivedAt, Flux.fromIterable(messages)))
+                .expectNext(messages.stream().map(ChatMessage::getId).toList())
+                .verifyComplete();
+
+        StepVerifier.create(archive.read(sessionId, archivedAt))
+                .expectNextSequence(messages)
+                .verifyComplete();
+    }
+
+    @Test
+    void write_ShouldLeaveNoFile_WhenSourceFails() {
+        Flux<ChatMessage> failing = Flux.concat(Flux.fromIterable(messages(2)), Flux.error(new IllegalStateException("boom")));
+
+        StepVerifier.create(archive.write(sessionId, archivedAt, failing))
+                .expectError(IllegalStateException.class)
+                .verify();
+
+        Path file = archive.file(sessionId, archivedAt);
+        assertFalse(Files.exists(file));
+        assertFalse(Files.exists(file.resolveSibling(file.getFileName() + ".tmp")));
+    }
+
+    @Test
+    void deleteAll_ShouldRemoveEveryArchiveOfTheSession() {
+        LocalDateTime later = archivedAt.plusSeconds(1);
+        UUID otherSession = UUID.randomUUID();
+        StepVerifier.create(archive.write(sessionId, archivedAt, Flux.fromIterable(messages(1)))
+                        .then(archive.write(sessionId, later, Flux.fromIterable(messages(1))))
+                        .then(archive.write(otherSession, archivedAt, Flux.empty()))
+                        .then(archive.deleteAll(sessionId)))
+                .verifyComplete();
+
+        assertFalse(Files.exists(archive.file(sessionId, archivedAt)));
+        assertFalse(Files.exists(archive.file(sessionId, later)));
+        assertTrue(Files.exists(archive.file(otherSession, archivedAt)));
+    }
+
+    private List<ChatMessage> messages(int count) {
+        LocalDateTime now = LocalDateTime.now();
+        return IntStream.range(0, count)
+                .mapToObj(i -> ChatMessage.builder()
+                        .id(UUID.randomUUID())
+                        .sessionId(sessionId)
+                        .sender(i % 2 == 0 ? "USER" : "ASSISTANT")
+                        .content("message " + i)
+                        .context(i % 2 == 0 ? null : "retrieved context")
+                        .createdAt(now.plusNanos(i * 1000L))
+                        .build())
+                .toList();
+    }
+}
@@ -0,0 +1,193 @@
+package com.ragchat.rag_chat_storage.vector;
+
+import com.ragchat.rag_chat_storage.exception.BadRequestException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class VectorPartitionTest {
+
+    private static final int DIMENSION = 32;
+
+    @TempDir
+    Path directory;
+
+    private final Random random = new Random(42);
+    // Embeddings cluster near a low-dimensional subspace, like real text embeddings do
+    private final float[][] basis = randomBasis(8);
+
+    @Test
+    void search_ShouldFindMostExactNeighbours() {
+        VectorPartition partition = new VectorPartition(DIMENSION, random);
+        UUID sessionId = UUID.randomUUID();
+        for (int i = 0; i < 2000; i++) {
+            partition.insert(UUID.randomUUID(), sessionId, embedding());
+        }
+
+        int found = 0;
+        for (int q = 0; q < 50; q++) {
+            float[] query = embedding();
+            Set<UUID> exact = new HashSet<>();
+            partition.scan(query, 10, null).forEach(neighbor -> exact.add(neighbor.messageId()));
+            for (VectorPartition.Neighbor neighbor : partition.search(query, 10, 64, null)) {
+                if (exact.contains(neighbor.messageId())) {
+                    found++;
+                }
+            }
+        }
+        assertTrue(found / 500.0 > 0.9, "recall@10 was " + found / 500.0);
+    }
+
+    @Test
+    void insert_ShouldIgnoreMessagesAlreadyIndexed() {
+        VectorPartition partition = new VectorPartition(DIMENSION, random);
+        UUID messageId = UUID.randomUUID();
+
+        assertTrue(partition.insert(messageId, UUID.randomUUID(), embedding()));
+        assertFalse(partition.insert(messageId, UUID.randomUUID(), embedding()));
+        assertEquals(1, partition.liveCount());
+    }
+
+    @Test
+    void search_ShouldOnlyReturnFilteredSessions() {
+        VectorPartition partition = new VectorPartition(DIMENSION, random);
+        UUID wanted = UUID.randomUUID();
+        for (int i = 0; i < 300; i++) {
+            partition.insert(UUID.randomUUID(), i % 3 == 0 ? wanted : UUID.randomUUID(), embedding());
+        }
+
+        List<VectorPartition.Neighbor> neighbors = partition.search(embedding(), 5, 64, List.of(wanted));
+
+        assertEquals(5, neighbors.size());
+        assertTrue(neighbors.stream().allMatch(neighbor -> neighbor.sessionId().equals(wanted)));
+    }
+
+    @Test
+    void removeSession_ShouldHideVectorsAndCompactOnceMostlyDeleted() {
+        VectorPartition partition = new VectorPartition(DIMENSION, random);
+        UUID deletedSession = UUID.randomUUID();
+        UUID keptSession = UUID.randomUUID();
+        List<UUID> kept = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            UUID messageId = UUID.randomUUID();
+            boolean keep = i % 4 == 0;
+            partition.insert(messageId, keep ? keptSession : deletedSession, embedding());
+            if (keep) {
+                kept.add(messageId);
+            }
+        }
+
+        assertEquals(150, partition.removeSession(deletedSession));
+        assertTrue(partition.search(embedding(), 50, 64, null).stream()
+                .allMatch(neighbor -> neighbor.sessionId().equals(keptSession)));
+
+        assertTrue(partition.compactIfNeeded());
+        assertEquals(Set.of(keptSession), partition.sessions());
+        assertEquals(new HashSet<>(kept), new HashSet<>(partition.scan(embedding(), 100, null).stream()
+                .map(VectorPartition.Neighbor::messageId).toList()));
+    }
+
+    @Test
+    void write_ShouldRoundTripGraphAndVectors() throws IOException {
+        VectorPartition partition = new VectorPartition(DIMENSION, random);
+        UUID deletedSession = UUID.randomUUID();
+        for (int i = 0; i < 500; i++) {
+            partition.insert(UUID.randomUUID(), i % 5 == 0 ? deletedSession : UUID.randomUUID(), embedding());
+        }
+        partition.removeSession(deletedSession);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        partition.write(new DataOutputStream(bytes));
+        VectorPartition restored = VectorPartition.read(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+
+        float[] query = embedding();
+        assertEquals(partition.search(query, 10, 64, null), restored.search(query, 10, 64, null));
+        assertEquals(400, restored.liveCount());
+        assertTrue(restored.insert(UUID.randomUUID(), UUID.randomUUID(), embedding()));
+    }
+
+    @Test
+    void replay_ShouldApplyCompleteRecordsAndStopAtTornTail() throws IOException {
+        Path file = directory.resolve("vectors.log");
+        UUID sessionId = UUID.randomUUID();
+        try (VectorLog log = new VectorLog(file)) {
+            log.appendInsert("user-1", sessionId, UUID.randomUUID(), embedding());
+            log.appendDeleteSession("user-1", sessionId);
+        }
+        byte[] complete = Files.readAllBytes(file);
+        try (VectorLog log = new VectorLog(file)) {
+            log.appendInsert("user-1", sessionId, UUID.randomUUID(), embedding());
+        }
+        byte[] withTail = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOf(withTail, complete.length + 20));
+
+        List<String> applied = new ArrayList<>();
+        int records = new VectorLog(file).replay(new VectorLog.Visitor() {
+            @Override
+            public void insert(String userId, UUID session, UUID messageId, float[] vector) {
+                applied.add("insert");
+            }
+
+            @Override
+            public void deleteSession(String userId, UUID session) {
+                applied.add("delete");
+            }
+        });
+
+        assertEquals(2, records);
+        assertEquals(List.of("insert", "delete"), applied);
+    }
+
+    @Test
+    void normalize_ShouldRejectZeroAndNonFiniteEmbeddings() {
+        assertThrows(BadRequestException.class, () -> MessageVectorIndex.normalize(new float[]{0f, 0f}));
+        assertThrows(BadRequestException.class, () -> MessageVectorIndex.normalize(new float[]{1f, Float.NaN}));
+        float[] unit = MessageVectorIndex.normalize(new float[]{3f, 4f});
+        assertEquals(0.6f, unit[0], 1e-6);
+        assertEquals(0.8f, unit[1], 1e-6);
+    }
+
+    private float[] embedding() {
+        float[] vector = new float[DIMENSION];
+        for (float[] direction : basis) {
+            float weight = (float) random.nextGaussian();
+            for (int i = 0; i < DIMENSION; i++) {
+                vector[i] += weight * direction[i];
+            }
+        }
+        for (int i = 0; i < DIMENSION; i++) {
+            vector[i] += 0.05f * (float) random.nextGaussian();
+        }
+        return MessageVectorIndex.normalize(vector);
+    }
+
+    private float[][] randomBasis(int rank) {
+        Random basisRandom = new Random(7);
+        float[][] directions = new float[rank][DIMENSION];
+        for (float[] direction : directions) {
+            for (int i = 0; i < DIMENSION; i++) {
+                direction[i] = (float) basisRandom.nextGaussian();
+            }
+        }
+        return directions;
+    }
+}